@@ -0,0 +1,541 @@
+package com.frejdh.util.common.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates a {@code CompiledAccessor} for each class annotated with {@code @CompiledAccess}, and registers them as services.
+ * The generated code reads and writes the fields directly, or through getters and setters for private fields.
+ * Add this module to the annotation processor path of the project with the annotated classes.
+ *
+ * @author Kevin Frejdh
+ */
+@SupportedAnnotationTypes(CompiledAccessProcessor.ANNOTATION)
+public class CompiledAccessProcessor extends AbstractProcessor {
+
+	static final String ANNOTATION = "com.frejdh.util.common.compiled.CompiledAccess";
+	static final String ACCESSOR = "com.frejdh.util.common.compiled.CompiledAccessor";
+	static final String SUFFIX = "_CompiledAccessor";
+	static final String SERVICE_FILE = "META-INF/services/" + ACCESSOR;
+	private static final Set<String> CHEAP_TYPES = Set.of("java.lang.Boolean", "java.lang.Character", "java.lang.Byte", "java.lang.Short",
+			"java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double", "java.lang.Class");
+	private static final Set<String> PRIMITIVE_ARRAYS = Set.of("boolean[]", "byte[]", "char[]", "short[]", "int[]", "long[]", "float[]", "double[]");
+
+	private final Set<String> generated = new TreeSet<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeServiceFile();
+			return false;
+		}
+
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() != ElementKind.CLASS) {
+					error(element, "@CompiledAccess is only supported on classes");
+					continue;
+				}
+
+				TypeElement type = (TypeElement) element;
+				try {
+					AccessorModel model = new AccessorModel(type);
+					if (model.valid)
+						write(model);
+				} catch (IOException e) {
+					error(type, "Couldn't write the accessor: " + e);
+				}
+			}
+		}
+		return true;
+	}
+
+	private void write(AccessorModel model) throws IOException {
+		try (Writer writer = processingEnv.getFiler().createSourceFile(model.qualifiedName(), model.type).openWriter()) {
+			writer.write(model.generate());
+		}
+		generated.add(model.binaryName());
+	}
+
+	// Entries of earlier, incremental compilations are kept
+	private void writeServiceFile() {
+		if (generated.isEmpty())
+			return;
+
+		Filer filer = processingEnv.getFiler();
+		Set<String> entries = new TreeSet<>(generated);
+		try {
+			FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (Reader reader = existing.openReader(true); BufferedReader lines = new BufferedReader(reader)) {
+				for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+					if (!line.trim().isEmpty() && !line.startsWith("#"))
+						entries.add(line.trim());
+				}
+			}
+		} catch (IOException | IllegalArgumentException ignored) { // No earlier file
+		}
+
+		try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE).openWriter()) {
+			for (String entry : entries) {
+				writer.write(entry);
+				writer.write('\n');
+			}
+		} catch (FilerException e) {
+			// Already written by this compilation
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write " + SERVICE_FILE + ": " + e);
+		}
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	/**
+	 * How a single field is read and written by the generated code.
+	 */
+	private static final class FieldModel {
+		final VariableElement field;
+		final String name;
+		final String typeName;
+		final TypeKind kind;
+		final boolean isFinal;
+		final boolean isTransient;
+		final boolean mayHoldList;
+		final int cost; // Ranked like the cheapest-first order of FieldEquality
+		final String read; // Format with the instance
+		final String write; // Format with the instance and the value, null if not writable
+
+		FieldModel(VariableElement field, String typeName, boolean mayHoldList, int cost, String read, String write) {
+			this.field = field;
+			this.name = field.getSimpleName().toString();
+			this.typeName = typeName;
+			this.kind = field.asType().getKind();
+			this.isFinal = field.getModifiers().contains(Modifier.FINAL);
+			this.isTransient = field.getModifiers().contains(Modifier.TRANSIENT);
+			this.mayHoldList = mayHoldList;
+			this.cost = cost;
+			this.read = read;
+			this.write = write;
+		}
+
+		boolean isPrimitive() {
+			return kind.isPrimitive();
+		}
+
+		boolean isPrimitiveArray() {
+			return PRIMITIVE_ARRAYS.contains(typeName);
+		}
+
+		String read(String instance) {
+			return read != null ? String.format(read, instance) : null;
+		}
+
+		String write(String instance, String value) {
+			return String.format(write, instance, value);
+		}
+
+		// Without the casts that javac would warn about as redundant
+		String castFromObject(String value) {
+			return typeName.equals("java.lang.Object") ? value : "(" + typeName + ") " + value;
+		}
+
+		String cast(String targetType, String value) {
+			return typeName.equals(targetType) ? value : "((" + targetType + ") " + value + ")";
+		}
+	}
+
+	/**
+	 * The fields of an annotated class, and the code generated from them.
+	 */
+	private final class AccessorModel {
+		final TypeElement type;
+		final PackageElement packageElement;
+		final String typeName;
+		final List<FieldModel> declaredFields = new ArrayList<>(); // Non-static fields of the class itself
+		final List<FieldModel> instanceFields = new ArrayList<>(); // Including inherited ones, without hidden fields
+		final List<FieldModel> copiedFields = new ArrayList<>();
+		boolean canCopy;
+		boolean valid = true;
+
+		AccessorModel(TypeElement type) {
+			Elements elements = processingEnv.getElementUtils();
+			Types types = processingEnv.getTypeUtils();
+			this.type = type;
+			this.packageElement = elements.getPackageOf(type);
+			this.typeName = types.erasure(type.asType()).toString();
+
+			for (Element enclosing = type; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+				if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+					error(type, "@CompiledAccess classes must be accessible from their package");
+					valid = false;
+					return;
+				}
+			}
+
+			TypeMirror serializable = elements.getTypeElement("java.io.Serializable").asType();
+			boolean isSerializable = types.isAssignable(type.asType(), serializable);
+			canCopy = !type.getModifiers().contains(Modifier.ABSTRACT)
+					&& (type.getNestingKind() == NestingKind.TOP_LEVEL || type.getModifiers().contains(Modifier.STATIC))
+					&& hasNoArgConstructor(type)
+					&& !(isSerializable && hasSerializationHooks(type));
+
+			Set<String> names = new HashSet<>();
+			Set<String> hidingNames = new HashSet<>(); // All fields of the subclasses, which hide the fields of the same name
+			boolean copyable = true; // False for the superclasses that serialization initializes through a constructor
+			for (TypeElement current = type; current != null; current = superclassOf(current)) {
+				if (isSerializable && !types.isAssignable(current.asType(), serializable))
+					copyable = false;
+
+				List<VariableElement> fields = ElementFilter.fieldsIn(current.getEnclosedElements());
+				for (VariableElement field : fields) {
+					if (field.getModifiers().contains(Modifier.STATIC))
+						continue;
+
+					FieldModel model = modelOf(field, hidingNames.contains(field.getSimpleName().toString()) ? current : null);
+					if (current == type) {
+						if (model.read == null || (model.write == null && !model.isFinal)) {
+							error(field, "The field '" + model.name + "' must be readable and writable from the package " + packageElement
+									+ ", directly or through a getter and setter");
+							valid = false;
+						}
+						declaredFields.add(model);
+					}
+
+					if (model.read != null && names.add(model.name))
+						instanceFields.add(model);
+
+					if (copyable && !(isSerializable && model.isTransient)) {
+						if (model.read == null || model.write == null)
+							canCopy = false;
+						copiedFields.add(model);
+					}
+				}
+				for (VariableElement field : fields) {
+					hidingNames.add(field.getSimpleName().toString());
+				}
+			}
+		}
+
+		private TypeElement superclassOf(TypeElement current) {
+			TypeMirror superclass = current.getSuperclass();
+			if (superclass.getKind() != TypeKind.DECLARED)
+				return null;
+			TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+			return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+		}
+
+		// A hidden field is declared by the given superclass, and only accessed directly through a cast to it
+		private FieldModel modelOf(VariableElement field, TypeElement hiddenIn) {
+			Types types = processingEnv.getTypeUtils();
+			TypeMirror fieldType = types.erasure(field.asType());
+			String name = field.getSimpleName().toString();
+			boolean isFinal = field.getModifiers().contains(Modifier.FINAL);
+
+			String read = null;
+			String write = null;
+			if (isAccessible(field)) {
+				String instance = hiddenIn != null ? "((" + types.erasure(hiddenIn.asType()) + ") %s)" : "%s";
+				read = instance + "." + name;
+				write = isFinal ? null : instance + "." + name + " = %s";
+			} else if (hiddenIn == null) { // The getters and setters of a hidden field are those of the hiding one
+				String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+				ExecutableElement getter = findMethod("get" + suffix, fieldType, null);
+				if (getter == null && fieldType.getKind() == TypeKind.BOOLEAN)
+					getter = findMethod("is" + suffix, fieldType, null);
+				ExecutableElement setter = isFinal ? null : findMethod("set" + suffix, null, fieldType);
+				if (getter != null)
+					read = "%s." + getter.getSimpleName() + "()";
+				if (setter != null)
+					write = "%s." + setter.getSimpleName() + "(%s)";
+			}
+
+			TypeMirror list = types.erasure(processingEnv.getElementUtils().getTypeElement("java.util.List").asType());
+			boolean mayHoldList = !fieldType.getKind().isPrimitive() && (types.isAssignable(list, fieldType) || types.isAssignable(fieldType, list));
+			return new FieldModel(field, fieldType.toString(), mayHoldList, costOf(fieldType), read, write);
+		}
+
+		private int costOf(TypeMirror fieldType) {
+			Types types = processingEnv.getTypeUtils();
+			Elements elements = processingEnv.getElementUtils();
+			if (fieldType.getKind().isPrimitive())
+				return 0;
+			else if (fieldType.getKind() == TypeKind.ARRAY)
+				return 4;
+
+			Element element = types.asElement(fieldType);
+			if (element == null)
+				return 3;
+			else if (element.getKind() == ElementKind.ENUM || CHEAP_TYPES.contains(((TypeElement) element).getQualifiedName().toString()))
+				return 1;
+			else if (((TypeElement) element).getQualifiedName().contentEquals("java.lang.String"))
+				return 2;
+			else if (types.isAssignable(fieldType, types.erasure(elements.getTypeElement("java.util.Collection").asType()))
+					|| types.isAssignable(fieldType, types.erasure(elements.getTypeElement("java.util.Map").asType())))
+				return 4;
+			return 3;
+		}
+
+		// A getter if the parameter type is null, otherwise a setter
+		private ExecutableElement findMethod(String name, TypeMirror returnType, TypeMirror parameterType) {
+			Types types = processingEnv.getTypeUtils();
+			for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+				if (!method.getSimpleName().contentEquals(name) || method.getModifiers().contains(Modifier.STATIC) || !isAccessible(method))
+					continue;
+
+				List<? extends VariableElement> parameters = method.getParameters();
+				if (parameterType == null && parameters.isEmpty() && types.isSameType(types.erasure(method.getReturnType()), returnType))
+					return method;
+				else if (parameterType != null && parameters.size() == 1 && types.isSameType(types.erasure(parameters.get(0).asType()), parameterType))
+					return method;
+			}
+			return null;
+		}
+
+		private boolean isAccessible(Element member) {
+			Set<Modifier> modifiers = member.getModifiers();
+			if (modifiers.contains(Modifier.PUBLIC))
+				return true;
+			else if (modifiers.contains(Modifier.PRIVATE))
+				return false;
+			return processingEnv.getElementUtils().getPackageOf(member).equals(packageElement);
+		}
+
+		private boolean hasNoArgConstructor(TypeElement type) {
+			for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+				if (constructor.getParameters().isEmpty())
+					return isAccessible(constructor);
+			}
+			return false;
+		}
+
+		private boolean hasSerializationHooks(TypeElement type) {
+			for (TypeElement current = type; current != null; current = superclassOf(current)) {
+				for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+					String name = method.getSimpleName().toString();
+					int parameters = method.getParameters().size();
+					if (((name.equals("writeObject") || name.equals("readObject")) && parameters == 1)
+							|| ((name.equals("readObjectNoData") || name.equals("writeReplace") || name.equals("readResolve")) && parameters == 0))
+						return true;
+				}
+			}
+			return false;
+		}
+
+		String binaryName() {
+			String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+			String packageName = packageElement.getQualifiedName().toString();
+			String simpleName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+			return (packageName.isEmpty() ? "" : packageName + ".") + simpleName.replace('$', '_') + SUFFIX;
+		}
+
+		String qualifiedName() {
+			return binaryName(); // Generated as a top-level class
+		}
+
+		String generate() {
+			String packageName = packageElement.getQualifiedName().toString();
+			String className = binaryName().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+			StringBuilder code = new StringBuilder();
+			if (!packageName.isEmpty())
+				code.append("package ").append(packageName).append(";\n\n");
+
+			code.append("/**\n * Generated by ").append(CompiledAccessProcessor.class.getName()).append(" for {@link ").append(typeName).append("}. Do not edit.\n */\n")
+					.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+					.append("public final class ").append(className).append(" implements ").append(ACCESSOR).append('<').append(typeName).append("> {\n\n");
+
+			method(code, "public Class<" + typeName + "> getType()");
+			code.append("\t\treturn ").append(typeName).append(".class;\n\t}\n\n");
+
+			method(code, "public void softMerge(" + typeName + " first, " + typeName + " second)");
+			for (FieldModel field : mergedFields()) {
+				if (field.isPrimitive()) // Never null, so the first value is always kept
+					continue;
+				code.append("\t\t{\n\t\t\t").append(field.typeName).append(" value = ").append(field.read("first")).append(";\n")
+						.append("\t\t\tif (value == null) {\n\t\t\t\t").append(field.write("first", field.read("second"))).append(";\n\t\t\t}");
+				if (field.mayHoldList) {
+					code.append(" else if (value instanceof java.util.List) {\n")
+							.append("\t\t\t\tObject other = ").append(field.read("second")).append(";\n")
+							.append("\t\t\t\tif (other instanceof java.util.List)\n")
+							.append("\t\t\t\t\t").append(field.cast("java.util.List", "value")).append(".addAll((java.util.List) other);\n\t\t\t}");
+				}
+				code.append("\n\t\t}\n");
+			}
+			code.append("\t}\n\n");
+
+			method(code, "public void softMergeInverse(" + typeName + " first, " + typeName + " second)");
+			for (FieldModel field : mergedFields()) {
+				if (field.isPrimitive()) {
+					code.append("\t\t").append(field.write("first", field.read("second"))).append(";\n");
+					continue;
+				}
+				code.append("\t\t{\n\t\t\t").append(field.typeName).append(" value = ").append(field.read("second")).append(";\n")
+						.append("\t\t\tif (value != null)\n\t\t\t\t").append(field.write("first", "value")).append(";\n\t\t}\n");
+			}
+			code.append("\t}\n\n");
+
+			method(code, "public void copyFields(" + typeName + " target, " + typeName + " source)");
+			for (FieldModel field : mergedFields()) {
+				code.append("\t\t").append(field.write("target", field.read("source"))).append(";\n");
+			}
+			code.append("\t}\n\n");
+
+			// The cheapest fields first, which doesn't change the result
+			List<FieldModel> comparedFields = new ArrayList<>(declaredFields);
+			comparedFields.sort(Comparator.comparingInt(field -> field.cost));
+			method(code, "public boolean fieldsEqual(" + typeName + " first, " + typeName + " second)");
+			for (FieldModel field : comparedFields) {
+				String first = field.read("first");
+				String second = field.read("second");
+				if (field.isPrimitiveArray())
+					code.append("\t\tif (!java.util.Arrays.equals(").append(first).append(", ").append(second).append("))\n");
+				else if (field.kind == TypeKind.ARRAY)
+					code.append("\t\tif (!java.util.Arrays.deepEquals(").append(first).append(", ").append(second).append("))\n");
+				else if (field.kind == TypeKind.FLOAT)
+					code.append("\t\tif (Float.compare(").append(first).append(", ").append(second).append(") != 0)\n");
+				else if (field.kind == TypeKind.DOUBLE)
+					code.append("\t\tif (Double.compare(").append(first).append(", ").append(second).append(") != 0)\n");
+				else if (field.isPrimitive())
+					code.append("\t\tif (").append(first).append(" != ").append(second).append(")\n");
+				else
+					code.append("\t\tif (!java.util.Objects.equals(").append(first).append(", ").append(second).append("))\n");
+				code.append("\t\t\treturn false;\n");
+			}
+			code.append("\t\treturn true;\n\t}\n\n");
+
+			// In declaration order, like the reflective FieldEquality
+			method(code, "public int fieldsHashCode(" + typeName + " instance)");
+			code.append("\t\tint hash = 1;\n");
+			for (FieldModel field : declaredFields) {
+				code.append("\t\thash = 31 * hash + ").append(hashOf(field, field.read("instance"))).append(";\n");
+			}
+			code.append("\t\treturn hash;\n\t}\n\n");
+
+			method(code, "public boolean canCopy()");
+			code.append("\t\treturn ").append(canCopy).append(";\n\t}\n\n");
+
+			method(code, "public " + typeName + " newInstance()");
+			code.append(canCopy ? "\t\treturn new " + typeName + "();\n" : unsupported());
+			code.append("\t}\n\n");
+
+			method(code, "public void copyFields(" + typeName + " target, " + typeName + " source, java.util.function.UnaryOperator<Object> copier)");
+			if (canCopy) {
+				for (FieldModel field : copiedFields) {
+					String value = field.isPrimitive() ? field.read("source") : field.castFromObject("copier.apply(" + field.read("source") + ")");
+					code.append("\t\t").append(field.write("target", value)).append(";\n");
+				}
+			} else {
+				code.append(unsupported());
+			}
+			code.append("\t}\n\n");
+
+			method(code, "public boolean hasField(String fieldName)");
+			code.append("\t\tswitch (fieldName) {\n");
+			for (FieldModel field : instanceFields) {
+				code.append("\t\t\tcase \"").append(field.name).append("\":\n");
+			}
+			if (!instanceFields.isEmpty())
+				code.append("\t\t\t\treturn true;\n");
+			code.append("\t\t\tdefault:\n\t\t\t\treturn false;\n\t\t}\n\t}\n\n");
+
+			method(code, "public Object get(" + typeName + " instance, String fieldName) throws NoSuchFieldException");
+			code.append("\t\tswitch (fieldName) {\n");
+			for (FieldModel field : instanceFields) {
+				code.append("\t\t\tcase \"").append(field.name).append("\":\n\t\t\t\treturn ").append(field.read("instance")).append(";\n");
+			}
+			code.append("\t\t\tdefault:\n\t\t\t\tthrow new NoSuchFieldException(\"").append(typeName).append(".\" + fieldName);\n\t\t}\n\t}\n\n");
+
+			method(code, "public boolean set(" + typeName + " instance, String fieldName, Object value) throws NoSuchFieldException");
+			code.append("\t\tswitch (fieldName) {\n");
+			for (FieldModel field : instanceFields) {
+				code.append("\t\t\tcase \"").append(field.name).append("\":\n");
+				if (field.write == null) {
+					code.append("\t\t\t\treturn false;\n");
+				} else {
+					code.append("\t\t\t\t").append(field.write("instance", field.castFromObject("value"))).append(";\n\t\t\t\treturn true;\n");
+				}
+			}
+			code.append("\t\t\tdefault:\n\t\t\t\tthrow new NoSuchFieldException(\"").append(typeName).append(".\" + fieldName);\n\t\t}\n\t}\n\n");
+
+			return code.append("}\n").toString();
+		}
+
+		// The same fields as the reflective merging: the non-final fields declared by the class itself
+		private List<FieldModel> mergedFields() {
+			List<FieldModel> fields = new ArrayList<>();
+			for (FieldModel field : declaredFields) {
+				if (!field.isFinal)
+					fields.add(field);
+			}
+			return fields;
+		}
+
+		// Consistent with the hash codes of the wrapper types, Arrays and Objects
+		private String hashOf(FieldModel field, String value) {
+			switch (field.kind) {
+				case BOOLEAN:
+					return "Boolean.hashCode(" + value + ")";
+				case LONG:
+					return "Long.hashCode(" + value + ")";
+				case FLOAT:
+					return "Float.hashCode(" + value + ")";
+				case DOUBLE:
+					return "Double.hashCode(" + value + ")";
+				case BYTE:
+				case SHORT:
+				case CHAR:
+				case INT:
+					return value;
+				case ARRAY:
+					return (field.isPrimitiveArray() ? "java.util.Arrays.hashCode(" : "java.util.Arrays.deepHashCode(") + value + ")";
+				default:
+					return "java.util.Objects.hashCode(" + value + ")";
+			}
+		}
+
+		private void method(StringBuilder code, String signature) {
+			code.append("\t@Override\n\t").append(signature).append(" {\n");
+		}
+
+		private String unsupported() {
+			return "\t\tthrow new UnsupportedOperationException(\"" + typeName + " can't be copied without reflection\");\n";
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+package com.frejdh.util.common.processor;
+
+import com.frejdh.util.common.compiled.CompiledAccessor;
+import com.frejdh.util.common.compiled.CompiledAccessors;
+import com.frejdh.util.common.toolbox.CommonUtils;
+import com.frejdh.util.common.toolbox.ReflectionUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompiledAccessProcessorTest {
+
+	private static final String DTO = String.join("\n",
+			"package sample;",
+			"import com.frejdh.util.common.compiled.CompiledAccess;",
+			"import java.util.List;",
+			"@CompiledAccess",
+			"public class Dto {",
+			"    String name;",
+			"    int count;",
+			"    double ratio;",
+			"    int[] scores;",
+			"    private List<String> tags;",
+			"    private boolean active;",
+			"    public List<String> getTags() { return tags; }",
+			"    public void setTags(List<String> tags) { this.tags = tags; }",
+			"    public boolean isActive() { return active; }",
+			"    public void setActive(boolean active) { this.active = active; }",
+			"    @CompiledAccess",
+			"    public static class Versioned {",
+			"        final String id;",
+			"        public Versioned() { id = \"id\"; }",
+			"    }",
+			"}");
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void generatedAccessorIsFoundAndUsed(@TempDir Path directory) throws Exception {
+		assertEquals(List.of(), compile(directory, "sample/Dto.java", DTO));
+		String services = Files.readString(directory.resolve("META-INF/services/" + CompiledAccessProcessor.ACCESSOR));
+		assertEquals("sample.Dto_CompiledAccessor\nsample.Dto_Versioned_CompiledAccessor\n", services);
+
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, getClass().getClassLoader())) {
+			Class<Object> type = (Class<Object>) classLoader.loadClass("sample.Dto");
+			CompiledAccessor<Object> accessor = CompiledAccessors.find(type);
+			assertNotNull(accessor);
+			assertTrue(accessor.canCopy());
+
+			Object first = accessor.newInstance();
+			Object second = accessor.newInstance();
+			ReflectionUtils.setVariable(second, "name", "second");
+			ReflectionUtils.setVariable(first, "tags", new ArrayList<>(List.of("a")));
+			ReflectionUtils.setVariable(second, "tags", List.of("b"));
+			ReflectionUtils.setVariable(second, "count", 3);
+			ReflectionUtils.setVariable(second, "scores", new int[]{1, 2});
+
+			CommonUtils.softMerge(first, second);
+			assertEquals("second", ReflectionUtils.getVariable(first, "name", String.class));
+			assertEquals(List.of("a", "b"), ReflectionUtils.getVariable(first, "tags", List.class));
+			assertEquals(Integer.valueOf(0), ReflectionUtils.getVariable(first, "count", Integer.class)); // Primitives are never replaced
+
+			Object copy = CommonUtils.deepCopy(first);
+			assertNotSame(first, copy);
+			assertNotSame(ReflectionUtils.getVariable(first, "tags", List.class), ReflectionUtils.getVariable(copy, "tags", List.class));
+			assertNotSame(ReflectionUtils.getVariable(first, "scores", int[].class), ReflectionUtils.getVariable(copy, "scores", int[].class));
+			assertTrue(CommonUtils.allFieldsEquals(first, copy)); // Arrays are compared by content
+			assertEquals(CommonUtils.fieldsHashCode(first), CommonUtils.fieldsHashCode(copy));
+			ReflectionUtils.setVariable(copy, "ratio", 0.5);
+			assertFalse(CommonUtils.allFieldsEquals(first, copy));
+
+			assertFalse(accessor.hasField("missing"));
+
+			// Final fields are left to reflection
+			Class<Object> versionedType = (Class<Object>) classLoader.loadClass("sample.Dto$Versioned");
+			CompiledAccessor<Object> versioned = CompiledAccessors.find(versionedType);
+			Object instance = versionedType.getConstructor().newInstance();
+			assertFalse(versioned.canCopy());
+			assertFalse(versioned.set(instance, "id", "changed"));
+			ReflectionUtils.setVariable(instance, "id", "changed");
+			assertEquals("changed", versioned.get(instance, "id"));
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void hiddenFieldsAreCopied(@TempDir Path directory) throws Exception {
+		String source = String.join("\n",
+				"package sample;",
+				"class Parent {",
+				"    String name;",
+				"}",
+				"@com.frejdh.util.common.compiled.CompiledAccess",
+				"public class Child extends Parent {",
+				"    String name;",
+				"}");
+		assertEquals(List.of(), compile(directory, "sample/Child.java", source));
+
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, getClass().getClassLoader())) {
+			Class<Object> type = (Class<Object>) classLoader.loadClass("sample.Child");
+			Field parentName = type.getSuperclass().getDeclaredField("name");
+			parentName.setAccessible(true);
+			Field childName = type.getDeclaredField("name");
+			childName.setAccessible(true);
+			assertTrue(CompiledAccessors.find(type).canCopy());
+
+			Object original = type.getConstructor().newInstance();
+			parentName.set(original, "parent");
+			childName.set(original, "child");
+			Object copy = CommonUtils.deepCopy(original);
+			assertEquals("parent", parentName.get(copy));
+			assertEquals("child", childName.get(copy));
+		}
+	}
+
+	// The library tests use the checked-in output of this processor, which must be regenerated when either changes
+	@Test
+	void libraryFixtureIsUpToDate(@TempDir Path directory) throws IOException {
+		Path fixtures = Path.of("..", "src", "test", "java", "com", "frejdh", "util", "common", "compiled");
+		String path = "com/frejdh/util/common/compiled/CompiledFixture";
+		assertEquals(List.of(), compile(directory, path + ".java", Files.readString(fixtures.resolve("CompiledFixture.java"))));
+
+		String generated = Files.readString(directory.resolve(path + CompiledAccessProcessor.SUFFIX + ".java"));
+		String checkedIn = Files.readString(fixtures.resolve("CompiledFixture" + CompiledAccessProcessor.SUFFIX + ".java"));
+		assertEquals(generated, checkedIn.replace("\r\n", "\n"), "Copy the generated accessor to " + fixtures);
+	}
+
+	@Test
+	void inaccessibleFieldsAreReported(@TempDir Path directory) throws IOException {
+		String source = String.join("\n",
+				"package sample;",
+				"@com.frejdh.util.common.compiled.CompiledAccess",
+				"public class Hidden {",
+				"    private String secret;",
+				"}");
+		List<Diagnostic<? extends JavaFileObject>> errors = compile(directory, "sample/Hidden.java", source);
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0).getMessage(null).contains("secret"));
+	}
+
+	private static List<Diagnostic<? extends JavaFileObject>> compile(Path directory, String path, String source) throws IOException {
+		Path file = directory.resolve("src").resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, source, StandardCharsets.UTF_8);
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+			List<String> options = Arrays.asList("-d", directory.toString(), "-classpath", System.getProperty("java.class.path"));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjects(file));
+			task.setProcessors(List.of(new CompiledAccessProcessor()));
+			task.call();
+		}
+
+		List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+				errors.add(diagnostic);
+		}
+		return errors;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.frejdh.util.common.compiled;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which a {@link CompiledAccessor} is generated at build time, by the annotation processor of the
+ * {@code common-toolbox-processor} module. Merging, copying, comparing and reading fields of the class through this library
+ * then works without runtime reflection. Example:<br>
+ * <pre>
+ * &#64;CompiledAccess
+ * public class CustomerDto {
+ *     String name;
+ *     private List&lt;String&gt; tags;
+ *
+ *     public List&lt;String&gt; getTags() { return tags; }
+ *     public void setTags(List&lt;String&gt; tags) { this.tags = tags; }
+ * }
+ * </pre>
+ * The fields of the class must be readable and writable from its package, either directly or through getters and setters.
+ * The class itself must not be private.
+ *
+ * @author Kevin Frejdh
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface CompiledAccess {
+}
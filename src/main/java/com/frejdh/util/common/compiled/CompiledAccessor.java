@@ -0,0 +1,86 @@
+package com.frejdh.util.common.compiled;
+
+import com.frejdh.util.common.merging.Merger;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Field access for a single class, generated at build time for classes annotated with {@link CompiledAccess}.
+ * Implementations are registered as services, and found through {@link CompiledAccessors}.
+ * <br>
+ * The merge methods have the same semantics as the reflective {@link com.frejdh.util.common.merging.MergePlan}.
+ *
+ * @param <T> The accessed class
+ * @author Kevin Frejdh
+ */
+public interface CompiledAccessor<T> extends Merger<T> {
+
+	/**
+	 * @return The accessed class
+	 */
+	Class<T> getType();
+
+	/**
+	 * Compare the non-static fields declared by the class, with the semantics of {@link com.frejdh.util.common.toolbox.FieldEquality}.
+	 *
+	 * @param first Object 1 to compare with
+	 * @param second Object 2 to compare with
+	 * @return True if all declared fields are equal
+	 */
+	boolean fieldsEqual(T first, T second);
+
+	/**
+	 * Hash the non-static fields declared by the class, consistent with {@link #fieldsEqual(Object, Object)}.
+	 *
+	 * @param instance The instance to hash
+	 * @return The hash code
+	 */
+	int fieldsHashCode(T instance);
+
+	/**
+	 * @return True if instances can be created and have all of their fields written, which is required by {@link #newInstance()} and {@link #copyFields(Object, Object, UnaryOperator)}
+	 */
+	boolean canCopy();
+
+	/**
+	 * @return A new instance, created through the no-arg constructor
+	 * @throws UnsupportedOperationException If {@link #canCopy()} is false
+	 */
+	T newInstance();
+
+	/**
+	 * Copy the instance fields, including inherited ones, passing the non-primitive values through a copier.
+	 * Transient fields are skipped if the class is serializable.
+	 *
+	 * @param target The object to copy the values into
+	 * @param source The object to copy the values from
+	 * @param copier Applied to each non-primitive value, for example a deep copy
+	 * @throws UnsupportedOperationException If {@link #canCopy()} is false
+	 */
+	void copyFields(T target, T source, UnaryOperator<Object> copier);
+
+	/**
+	 * @param fieldName Name of an instance field
+	 * @return True if the field can be read with {@link #get(Object, String)}
+	 */
+	boolean hasField(String fieldName);
+
+	/**
+	 * @param instance The instance to read
+	 * @param fieldName Name of an instance field
+	 * @return The value, boxed if primitive
+	 * @throws NoSuchFieldException If {@link #hasField(String)} is false for the field
+	 */
+	Object get(T instance, String fieldName) throws NoSuchFieldException;
+
+	/**
+	 * @param instance The instance to write
+	 * @param fieldName Name of an instance field
+	 * @param value The new value. Must not be null for primitive fields
+	 * @return False if the field is final, and can only be written through reflection
+	 * @throws NoSuchFieldException If {@link #hasField(String)} is false for the field
+	 * @throws ClassCastException If the value isn't of the type of the field
+	 */
+	boolean set(T instance, String fieldName, Object value) throws NoSuchFieldException;
+
+}
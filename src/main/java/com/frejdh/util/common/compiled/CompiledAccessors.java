@@ -0,0 +1,63 @@
+package com.frejdh.util.common.compiled;
+
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the {@link CompiledAccessor} services, looked up by {@link java.util.ServiceLoader} through the class loader of each class.
+ * The generated accessor of a class is named after its binary name, with {@code $} replaced by {@code _} and the suffix {@value #SUFFIX}.
+ * Only that provider is instantiated when a class is looked up. The result, including a missing accessor, is cached per class.
+ *
+ * @author Kevin Frejdh
+ */
+public final class CompiledAccessors {
+
+	/**
+	 * Suffix of the names of the generated accessors.
+	 */
+	public static final String SUFFIX = "_CompiledAccessor";
+
+	private static final ClassValue<CompiledAccessor<?>> ACCESSORS = new ClassValue<>() {
+		@Override
+		protected CompiledAccessor<?> computeValue(Class<?> type) {
+			return load(type); // Null if there is none, which is cached as well
+		}
+	};
+
+	private CompiledAccessors() {
+	}
+
+	/**
+	 * @param type The class to find the accessor of
+	 * @param <T> Type of the class
+	 * @return The accessor, or null if none was generated for the class
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> CompiledAccessor<T> find(Class<T> type) {
+		return (CompiledAccessor<T>) ACCESSORS.get(type);
+	}
+
+	/**
+	 * @param type A class
+	 * @return The binary name of the accessor generated for the class
+	 */
+	public static String accessorNameOf(Class<?> type) {
+		return type.getName().replace('$', '_') + SUFFIX;
+	}
+
+	private static CompiledAccessor<?> load(Class<?> type) {
+		ClassLoader classLoader = type.getClassLoader();
+		if (classLoader == null || type.isArray() || type.isInterface() || type.isHidden())
+			return null;
+
+		String name = accessorNameOf(type);
+		@SuppressWarnings({"unchecked", "rawtypes"}) // The class literal of a generic type is raw
+		Class<CompiledAccessor<?>> service = (Class) CompiledAccessor.class;
+		return ServiceLoader.load(service, classLoader).stream()
+				.filter(provider -> provider.type().getName().equals(name))
+				.findFirst()
+				.map(ServiceLoader.Provider::get)
+				.filter(accessor -> accessor.getType() == type) // Another class with the same flattened name
+				.orElse(null);
+	}
+
+}
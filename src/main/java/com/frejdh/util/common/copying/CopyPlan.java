@@ -0,0 +1,372 @@
+package com.frejdh.util.common.copying;
+
+import com.frejdh.util.common.compiled.CompiledAccessor;
+import com.frejdh.util.common.compiled.CompiledAccessors;
+import com.frejdh.util.common.toolbox.ClassMetadata;
+
+import java.io.Externalizable;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Describes how instances of a class are copied. Resolved once per class (and target class loader) by {@link DeepCopier}.
+ */
+final class CopyPlan {
+
+	enum Kind {
+		/** Shared as is */
+		IMMUTABLE,
+		ENUM,
+		CLASS,
+		PRIMITIVE_ARRAY,
+		OBJECT_ARRAY,
+		/** JDK classes that are copied through their public clone() method */
+		CLONEABLE,
+		/** Mutable JDK collections, created through a constructor and populated with copies */
+		COLLECTION,
+		MAP,
+		/** Immutable JDK collections, such as the ones created by List.of(), rebuilt from copies */
+		IMMUTABLE_LIST,
+		IMMUTABLE_SET,
+		IMMUTABLE_MAP,
+		/** Lists created by Arrays.asList() */
+		ARRAY_LIST_VIEW,
+		/** The views created by Collections.unmodifiableX() and Collections.synchronizedX(), rebuilt around a new collection of copies */
+		UNMODIFIABLE_VIEW,
+		SYNCHRONIZED_VIEW,
+		ENUM_MAP,
+		ENUM_SET,
+		RECORD,
+		/** Classes copied field by field */
+		OBJECT,
+		/** Classes with a {@link CompiledAccessor}, copied without reflection */
+		COMPILED,
+		UNSUPPORTED
+	}
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final Set<Class<?>> IMMUTABLE_CLASSES = new HashSet<>(Arrays.asList(
+			String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+			BigInteger.class, BigDecimal.class, UUID.class, Locale.class, URI.class, Pattern.class,
+			Collections.emptyList().getClass(), Collections.emptySet().getClass(), Collections.emptyMap().getClass()
+	));
+	private static final Set<Class<?>> IMMUTABLE_LISTS = classesOf(List.of(), List.of(1), List.of(1, 2, 3));
+	private static final Set<Class<?>> IMMUTABLE_SETS = classesOf(Set.of(), Set.of(1), Set.of(1, 2, 3));
+	private static final Set<Class<?>> IMMUTABLE_MAPS = classesOf(Map.of(), Map.of(1, 1), Map.of(1, 1, 2, 2, 3, 3));
+	private static final Class<?> ARRAY_LIST_VIEW_CLASS = Arrays.asList().getClass();
+	private static final Map<Class<?>, CopyPlan> VIEWS = new HashMap<>();
+
+	static {
+		// The collections viewed by the copies. Lists keep whether they are RandomAccess, and sets and maps keep their order
+		view(Kind.UNMODIFIABLE_VIEW, "unmodifiableCollection", Collection.class, ArrayList.class);
+		view(Kind.UNMODIFIABLE_VIEW, "unmodifiableList", List.class, ArrayList.class);
+		view(Kind.UNMODIFIABLE_VIEW, "unmodifiableList", List.class, LinkedList.class);
+		view(Kind.UNMODIFIABLE_VIEW, "unmodifiableSet", Set.class, LinkedHashSet.class);
+		view(Kind.UNMODIFIABLE_VIEW, "unmodifiableSortedSet", SortedSet.class, TreeSet.class);
+		view(Kind.UNMODIFIABLE_VIEW, "unmodifiableNavigableSet", NavigableSet.class, TreeSet.class);
+		view(Kind.UNMODIFIABLE_VIEW, "unmodifiableMap", Map.class, LinkedHashMap.class);
+		view(Kind.UNMODIFIABLE_VIEW, "unmodifiableSortedMap", SortedMap.class, TreeMap.class);
+		view(Kind.UNMODIFIABLE_VIEW, "unmodifiableNavigableMap", NavigableMap.class, TreeMap.class);
+		view(Kind.SYNCHRONIZED_VIEW, "synchronizedCollection", Collection.class, ArrayList.class);
+		view(Kind.SYNCHRONIZED_VIEW, "synchronizedList", List.class, ArrayList.class);
+		view(Kind.SYNCHRONIZED_VIEW, "synchronizedList", List.class, LinkedList.class);
+		view(Kind.SYNCHRONIZED_VIEW, "synchronizedSet", Set.class, LinkedHashSet.class);
+		view(Kind.SYNCHRONIZED_VIEW, "synchronizedSortedSet", SortedSet.class, TreeSet.class);
+		view(Kind.SYNCHRONIZED_VIEW, "synchronizedNavigableSet", NavigableSet.class, TreeSet.class);
+		view(Kind.SYNCHRONIZED_VIEW, "synchronizedMap", Map.class, LinkedHashMap.class);
+		view(Kind.SYNCHRONIZED_VIEW, "synchronizedSortedMap", SortedMap.class, TreeMap.class);
+		view(Kind.SYNCHRONIZED_VIEW, "synchronizedNavigableMap", NavigableMap.class, TreeMap.class);
+	}
+
+	final Kind kind;
+	final Class<?> target;
+	final String unsupportedReason;
+	final Constructor<?> instantiator; // OBJECT
+	final MethodHandle factory; // COLLECTION and MAP: ()Object, or (Comparator)Object if 'sorted'. RECORD: (Object[])Object
+	final boolean sorted;
+	final FieldSlot[] fields; // OBJECT
+	final MethodHandle[] components; // RECORD, (Object)Object getters
+	final CompiledAccessor<Object> compiled; // COMPILED
+	final MethodHandle wrapper; // UNMODIFIABLE_VIEW and SYNCHRONIZED_VIEW: (Object)Object, creating the view of a collection of the factory
+
+	private CopyPlan(Kind kind, Class<?> target, String unsupportedReason, Constructor<?> instantiator, MethodHandle factory, boolean sorted, FieldSlot[] fields, MethodHandle[] components,
+			CompiledAccessor<Object> compiled, MethodHandle wrapper) {
+		this.kind = kind;
+		this.target = target;
+		this.unsupportedReason = unsupportedReason;
+		this.instantiator = instantiator;
+		this.factory = factory;
+		this.sorted = sorted;
+		this.fields = fields;
+		this.components = components;
+		this.compiled = compiled;
+		this.wrapper = wrapper;
+	}
+
+	private static CopyPlan of(Kind kind, Class<?> target) {
+		return new CopyPlan(kind, target, null, null, null, false, null, null, null, null);
+	}
+
+	private static CopyPlan unsupported(Class<?> source, String reason) {
+		return new CopyPlan(Kind.UNSUPPORTED, source, source.getName() + " can't be deep-copied: " + reason, null, null, false, null, null, null, null);
+	}
+
+	/**
+	 * Whether instances of a class can be shared instead of copied.
+	 *
+	 * @param type Class to check
+	 * @return True for strings, boxed primitives, java.time classes and other known immutables
+	 */
+	static boolean isImmutable(Class<?> type) {
+		return type.isPrimitive() || IMMUTABLE_CLASSES.contains(type) || (type.getClassLoader() == null && type.getName().startsWith("java.time."));
+	}
+
+	/**
+	 * Build the plan for a class.
+	 *
+	 * @param source Class of the instances to copy
+	 * @param target The class that the copies should have, which is the same as the source unless a different class loader is targeted
+	 * @return The plan
+	 */
+	static CopyPlan build(Class<?> source, Class<?> target) {
+		if (isImmutable(source))
+			return of(Kind.IMMUTABLE, source);
+		else if (Enum.class.isAssignableFrom(source))
+			return of(Kind.ENUM, target.isEnum() ? target : target.getSuperclass()); // Constants with a body are subclasses
+		else if (source == Class.class)
+			return of(Kind.CLASS, source);
+		else if (source.isArray())
+			return of(source.getComponentType().isPrimitive() ? Kind.PRIMITIVE_ARRAY : Kind.OBJECT_ARRAY, target);
+		else if (source == Object.class) // Typically used for locks, a new instance is created
+			return buildForObject(source, source);
+		else if (source.isHidden())
+			return unsupported(source, "hidden classes, such as lambdas, are not supported");
+		else if (source.getClassLoader() == null)
+			return buildForJdkClass(source);
+		else if (source.isRecord())
+			return buildForRecord(source, target);
+
+		@SuppressWarnings("unchecked")
+		CompiledAccessor<Object> compiled = source == target ? (CompiledAccessor<Object>) CompiledAccessors.find(source) : null;
+		if (compiled != null && compiled.canCopy())
+			return new CopyPlan(Kind.COMPILED, target, null, null, null, false, null, null, compiled, null);
+		return buildForObject(source, target);
+	}
+
+	private static CopyPlan buildForJdkClass(Class<?> source) {
+		if (Date.class.isAssignableFrom(source) || Calendar.class.isAssignableFrom(source))
+			return of(Kind.CLONEABLE, source);
+		else if (VIEWS.containsKey(source))
+			return VIEWS.get(source);
+		else if (source == EnumMap.class)
+			return of(Kind.ENUM_MAP, source);
+		else if (EnumSet.class.isAssignableFrom(source)) // Implemented by non-public classes
+			return of(Kind.ENUM_SET, source);
+		else if (IMMUTABLE_LISTS.contains(source))
+			return of(Kind.IMMUTABLE_LIST, source);
+		else if (IMMUTABLE_SETS.contains(source))
+			return of(Kind.IMMUTABLE_SET, source);
+		else if (IMMUTABLE_MAPS.contains(source))
+			return of(Kind.IMMUTABLE_MAP, source);
+		else if (source == ARRAY_LIST_VIEW_CLASS)
+			return of(Kind.ARRAY_LIST_VIEW, source);
+		else if (!Modifier.isPublic(source.getModifiers()) || (!Collection.class.isAssignableFrom(source) && !Map.class.isAssignableFrom(source)))
+			return unsupported(source, "only public collections and maps are supported among the JDK classes");
+
+		boolean sorted = isSorted(source);
+		try {
+			Kind kind = Map.class.isAssignableFrom(source) ? Kind.MAP : Kind.COLLECTION;
+			return new CopyPlan(kind, source, null, null, factoryOf(source, sorted), sorted, null, null, null, null);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return unsupported(source, "no public " + (sorted ? "comparator" : "no-arg") + " constructor");
+		}
+	}
+
+	private static boolean isSorted(Class<?> type) {
+		return SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type)
+				|| PriorityQueue.class.isAssignableFrom(type) || PriorityBlockingQueue.class.isAssignableFrom(type);
+	}
+
+	// ()Object, or (Comparator)Object if sorted
+	private static MethodHandle factoryOf(Class<?> type, boolean sorted) throws NoSuchMethodException, IllegalAccessException {
+		MethodType constructorType = sorted ? MethodType.methodType(void.class, Comparator.class) : MethodType.methodType(void.class);
+		return LOOKUP.findConstructor(type, constructorType).asType(sorted ? MethodType.methodType(Object.class, Comparator.class) : MethodType.methodType(Object.class));
+	}
+
+	// Registers the class of the views created by a method of Collections, around instances of the given collection class
+	private static void view(Kind kind, String method, Class<?> viewedType, Class<?> collectionClass) {
+		try {
+			boolean sorted = isSorted(collectionClass);
+			MethodHandle factory = factoryOf(collectionClass, sorted);
+			MethodHandle wrapper = LOOKUP.findStatic(Collections.class, method, MethodType.methodType(viewedType, viewedType))
+					.asType(MethodType.methodType(Object.class, Object.class));
+			Object sample = wrapper.invoke(sorted ? factory.invoke((Comparator<?>) null) : factory.invoke());
+			VIEWS.put(sample.getClass(), new CopyPlan(kind, sample.getClass(), null, null, factory, sorted, null, null, null, wrapper));
+		} catch (Throwable e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static CopyPlan buildForRecord(Class<?> source, Class<?> target) {
+		try {
+			RecordComponent[] sourceComponents = source.getRecordComponents();
+			RecordComponent[] targetComponents = target.getRecordComponents();
+			MethodHandle[] getters = new MethodHandle[sourceComponents.length];
+			Class<?>[] parameterTypes = new Class<?>[targetComponents.length];
+			for (int i = 0; i < sourceComponents.length; i++) {
+				Method accessor = sourceComponents[i].getAccessor();
+				accessor.setAccessible(true);
+				getters[i] = LOOKUP.unreflect(accessor).asType(GETTER_TYPE);
+				parameterTypes[i] = targetComponents[i].getType();
+			}
+
+			Constructor<?> canonical = target.getDeclaredConstructor(parameterTypes);
+			canonical.setAccessible(true);
+			MethodHandle factory = LOOKUP.unreflectConstructor(canonical).asSpreader(Object[].class, parameterTypes.length)
+					.asType(MethodType.methodType(Object.class, Object[].class));
+			return new CopyPlan(Kind.RECORD, target, null, null, factory, false, null, getters, null, null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return unsupported(source, "the record components couldn't be accessed (" + e + ")");
+		}
+	}
+
+	private static CopyPlan buildForObject(Class<?> source, Class<?> target) {
+		boolean serializable = Serializable.class.isAssignableFrom(source);
+		if (Externalizable.class.isAssignableFrom(source))
+			return unsupported(source, "externalizable classes are not supported");
+
+		List<FieldSlot> slots = new ArrayList<>();
+		for (Class<?> c = source; c != Object.class && c != null; c = c.getSuperclass()) {
+			if (serializable && !Serializable.class.isAssignableFrom(c)) // Initialized by its no-arg constructor, as with serialization
+				break;
+			else if (serializable && hasSerializationHooks(c))
+				return unsupported(source, c.getName() + " customizes its serialization");
+
+			Class<?> targetDeclaringClass = findInHierarchy(target, c.getName());
+			ClassMetadata targetMetadata = targetDeclaringClass != null ? ClassMetadata.of(targetDeclaringClass) : null;
+			for (ClassMetadata.FieldInfo field : ClassMetadata.of(c).getDeclaredFields()) {
+				if (field.isStatic() || (serializable && field.isTransient()))
+					continue;
+
+				try {
+					ClassMetadata.FieldInfo targetField = targetMetadata != null ? targetMetadata.getDeclaredField(field.getName()) : null;
+					if (targetField == null || !targetField.getType().getName().equals(field.getType().getName()))
+						continue; // Not present in the target class, ignored as with serialization
+					slots.add(new FieldSlot(field.getField(), targetField.getField(), target == source));
+				} catch (IllegalAccessException | RuntimeException e) { // Usually an InaccessibleObjectException
+					return unsupported(source, "the field '" + field.getName() + "' couldn't be accessed (" + e.getMessage() + ")");
+				}
+			}
+		}
+
+		Constructor<?> instantiator = Instantiators.constructorFor(target);
+		if (instantiator == null)
+			return unsupported(source, "instances of " + target.getName() + " couldn't be created");
+		return new CopyPlan(Kind.OBJECT, target, null, instantiator, null, false, slots.toArray(new FieldSlot[0]), null, null, null);
+	}
+
+	private static boolean hasSerializationHooks(Class<?> type) {
+		for (ClassMetadata.MethodInfo method : ClassMetadata.of(type).getDeclaredMethods()) {
+			int parameters = method.getParameterCount();
+			switch (method.getName()) {
+				case "writeObject":
+					if (parameters == 1 && method.getParameterType(0) == ObjectOutputStream.class)
+						return true;
+					break;
+				case "readObject":
+					if (parameters == 1 && method.getParameterType(0) == ObjectInputStream.class)
+						return true;
+					break;
+				case "readObjectNoData":
+				case "writeReplace":
+				case "readResolve":
+					if (parameters == 0)
+						return true;
+					break;
+			}
+		}
+		return false;
+	}
+
+	private static Class<?> findInHierarchy(Class<?> type, String name) {
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			if (c.getName().equals(name))
+				return c;
+		}
+		return null;
+	}
+
+	private static Set<Class<?>> classesOf(Object... instances) {
+		Set<Class<?>> retval = new HashSet<>();
+		for (Object instance : instances) {
+			retval.add(instance.getClass());
+		}
+		return retval;
+	}
+
+	/**
+	 * Accessors for a single field, resolved once.
+	 */
+	static final class FieldSlot {
+		final MethodHandle getter; // (Object source)Object
+		final MethodHandle setter; // (Object target, Object value)void
+		final MethodHandle copier; // (Object target, Object source)void, set if the value can be shared. Never boxes
+
+		FieldSlot(Field sourceField, Field targetField, boolean sameClass) throws IllegalAccessException {
+			sourceField.setAccessible(true);
+			targetField.setAccessible(true);
+			MethodHandle exactGetter = LOOKUP.unreflectGetter(sourceField);
+			MethodHandle exactSetter = LOOKUP.unreflectSetter(targetField);
+			Class<?> type = sourceField.getType();
+
+			this.getter = exactGetter.asType(GETTER_TYPE);
+			this.setter = exactSetter.asType(SETTER_TYPE);
+			boolean shareable = type.isPrimitive() || (isImmutable(type) && Modifier.isFinal(type.getModifiers()) && (sameClass || type.getClassLoader() == null));
+			this.copier = shareable ? MethodHandles.filterArguments(exactSetter, 1, exactGetter).asType(SETTER_TYPE) : null;
+		}
+	}
+
+}
@@ -0,0 +1,390 @@
+package com.frejdh.util.common.copying;
+
+import com.frejdh.util.common.compiled.CompiledAccessor;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import static com.frejdh.util.common.toolbox.CommonUtils.sneakyThrow;
+
+/**
+ * Deep-copies object graphs without a serialization round-trip. Example:<br>
+ * <pre>
+ * MyDto copy = DeepCopier.standard().copy(dto);
+ * MyDto recast = DeepCopier.forClassLoader(otherClassLoader).copy(dto);
+ * </pre>
+ * Copy plans are resolved once per class and cached. Cycles and shared references are preserved through an identity map,
+ * and immutable values (strings, boxed primitives, java.time classes, enums, etc.) are shared instead of copied.
+ * <br>
+ * Serializable classes are copied the same way as Java serialization would: transient fields are left at their default values,
+ * and only the no-arg constructor of the first non-serializable superclass is invoked. No constructors are invoked for other classes.
+ * Classes that customize their serialization, hidden classes (such as lambdas) and most JDK internals are not supported,
+ * which is signaled by an {@link UnsupportedTypeException}.
+ * The unmodifiable and synchronized views of {@link Collections} are copied as views of the same kind, around a new
+ * {@code ArrayList}, {@code LinkedList}, {@code LinkedHashSet}, {@code LinkedHashMap}, {@code TreeSet} or {@code TreeMap} of copies.
+ * <br>
+ * Classes with a {@link CompiledAccessor} that can copy are instead created through their no-arg constructor, and copied without reflection.
+ *
+ * @author Kevin Frejdh
+ */
+public final class DeepCopier {
+
+	private static final DeepCopier STANDARD = new DeepCopier(null);
+
+	private static final ClassValue<CopyPlan> PLANS = new ClassValue<CopyPlan>() {
+		@Override
+		protected CopyPlan computeValue(Class<?> type) {
+			return CopyPlan.build(type, type);
+		}
+	};
+
+	// Copiers per target class loader. Softly referenced, as a copier references its class loader through its plans
+	private static final Map<ClassLoader, SoftReference<DeepCopier>> COPIERS = new WeakHashMap<>();
+
+	private static final Object IN_PROGRESS = new Object();
+
+	private final ClassLoader classLoader;
+	// Plans targeting the class loader, per source class. Kept by the copier, as a plan references the classes of both loaders
+	private final Map<Class<?>, CopyPlan> crossLoaderPlans;
+
+	private DeepCopier(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+		this.crossLoaderPlans = classLoader != null ? new ConcurrentHashMap<>() : null;
+	}
+
+	/**
+	 * @return A copier that keeps the classes of the copied objects
+	 */
+	public static DeepCopier standard() {
+		return STANDARD;
+	}
+
+	/**
+	 * Get a copier which creates the copies with classes of the same name, resolved by the given class loader.
+	 * Used to make objects work between different class loaders.
+	 * The copier keeps the plans of the classes it has copied, and is shared by all callers of the same class loader.
+	 * The shared copier is released when memory runs low, and neither class loader can be unloaded while the copier is referenced.
+	 *
+	 * @param classLoader The class loader to resolve the classes of the copies with. Null for {@link #standard()}
+	 * @return A class loader aware copier
+	 */
+	public static DeepCopier forClassLoader(ClassLoader classLoader) {
+		if (classLoader == null)
+			return STANDARD;
+
+		synchronized (COPIERS) {
+			SoftReference<DeepCopier> reference = COPIERS.get(classLoader);
+			DeepCopier copier = reference != null ? reference.get() : null;
+			if (copier == null) {
+				copier = new DeepCopier(classLoader);
+				COPIERS.put(classLoader, new SoftReference<>(copier));
+			}
+			return copier;
+		}
+	}
+
+	/**
+	 * Deep-copy an object.
+	 *
+	 * @param obj Object to copy
+	 * @param <T> Class to be used for casting
+	 * @return The copy, or null if the object was null
+	 * @throws UnsupportedTypeException If a class in the object graph can't be copied
+	 * @throws TypeNotPresentException If a class couldn't be found by the targeted class loader
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T copy(Object obj) {
+		return (T) new CopyContext().copy(obj);
+	}
+
+	CopyPlan planFor(Class<?> type) {
+		if (classLoader == null || type.getClassLoader() == classLoader || type.isPrimitive())
+			return PLANS.get(type);
+
+		return crossLoaderPlans.computeIfAbsent(type, source -> {
+			Class<?> target = resolve(source);
+			return target == source ? PLANS.get(source) : CopyPlan.build(source, target);
+		});
+	}
+
+	private Class<?> resolve(Class<?> type) {
+		if (classLoader == null || type.isPrimitive())
+			return type;
+
+		try {
+			return Class.forName(type.getName(), false, classLoader);
+		} catch (ClassNotFoundException e) {
+			throw new TypeNotPresentException(type.getName(), e);
+		}
+	}
+
+	/**
+	 * State of a single copy operation.
+	 */
+	private final class CopyContext {
+		private final IdentityHashMap<Object, Object> copies = new IdentityHashMap<>();
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Object copy(Object source) {
+			if (source == null)
+				return null;
+
+			Object existing = copies.get(source);
+			if (existing == IN_PROGRESS)
+				throw new UnsupportedTypeException(source.getClass().getName() + " is immutable, but contains a reference to itself");
+			else if (existing != null)
+				return existing;
+
+			CopyPlan plan = planFor(source.getClass());
+			try {
+				switch (plan.kind) {
+					case IMMUTABLE:
+						return source;
+					case ENUM:
+						return plan.target == source.getClass() || plan.target == source.getClass().getSuperclass() ? source : Enum.valueOf((Class) plan.target, ((Enum<?>) source).name());
+					case CLASS:
+						return resolve((Class<?>) source);
+					case PRIMITIVE_ARRAY:
+						return register(source, copyPrimitiveArray(source));
+					case OBJECT_ARRAY:
+						return copyObjectArray((Object[]) source, plan.target.getComponentType());
+					case CLONEABLE:
+						return register(source, source instanceof Date ? ((Date) source).clone() : ((Calendar) source).clone());
+					case COLLECTION:
+						return copyCollection((Collection<Object>) source, plan);
+					case MAP:
+						return copyMap((Map<Object, Object>) source, plan);
+					case IMMUTABLE_LIST:
+					case IMMUTABLE_SET:
+					case ARRAY_LIST_VIEW:
+						return copyImmutableCollection((Collection<?>) source, plan.kind);
+					case IMMUTABLE_MAP:
+						return copyImmutableMap((Map<?, ?>) source);
+					case UNMODIFIABLE_VIEW:
+					case SYNCHRONIZED_VIEW:
+						return copyView(source, plan);
+					case ENUM_MAP:
+						return copyEnumMap((EnumMap) source);
+					case ENUM_SET:
+						return copyEnumSet((EnumSet) source);
+					case RECORD:
+						return copyRecord(source, plan);
+					case OBJECT:
+						return copyObject(source, plan);
+					case COMPILED:
+						return copyCompiled(source, plan.compiled);
+					default:
+						throw new UnsupportedTypeException(plan.unsupportedReason);
+				}
+			} catch (UnsupportedTypeException | TypeNotPresentException e) {
+				throw e;
+			} catch (Throwable e) {
+				sneakyThrow(e);
+				return null; // Never reached
+			}
+		}
+
+		private Object register(Object source, Object copy) {
+			copies.put(source, copy);
+			return copy;
+		}
+
+		private Object copyPrimitiveArray(Object source) {
+			int length = Array.getLength(source);
+			Object retval = Array.newInstance(source.getClass().getComponentType(), length);
+			System.arraycopy(source, 0, retval, 0, length);
+			return retval;
+		}
+
+		private Object copyObjectArray(Object[] source, Class<?> componentType) {
+			Object[] retval = (Object[]) Array.newInstance(componentType, source.length);
+			register(source, retval);
+			for (int i = 0; i < source.length; i++) {
+				retval[i] = copy(source[i]);
+			}
+			return retval;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Object copyCollection(Collection<Object> source, CopyPlan plan) throws Throwable {
+			Collection<Object> retval = (Collection<Object>) (plan.sorted ? plan.factory.invoke(copyComparator(comparatorOf(source))) : plan.factory.invoke());
+			register(source, retval);
+			for (Object element : source) {
+				retval.add(copy(element));
+			}
+			return retval;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Object copyMap(Map<Object, Object> source, CopyPlan plan) throws Throwable {
+			Map<Object, Object> retval = (Map<Object, Object>) (plan.sorted ? plan.factory.invoke(copyComparator(((SortedMap<?, ?>) source).comparator())) : plan.factory.invoke());
+			register(source, retval);
+			for (Map.Entry<Object, Object> entry : source.entrySet()) {
+				retval.put(copy(entry.getKey()), copy(entry.getValue()));
+			}
+			return retval;
+		}
+
+		private Comparator<?> comparatorOf(Collection<?> source) {
+			if (source instanceof SortedSet)
+				return ((SortedSet<?>) source).comparator();
+			else if (source instanceof PriorityQueue)
+				return ((PriorityQueue<?>) source).comparator();
+			return ((PriorityBlockingQueue<?>) source).comparator();
+		}
+
+		private Comparator<?> copyComparator(Comparator<?> comparator) {
+			return classLoader == null ? comparator : (Comparator<?>) copy(comparator); // Comparators are expected to be stateless
+		}
+
+		private Object copyImmutableCollection(Collection<?> source, CopyPlan.Kind kind) {
+			copies.put(source, IN_PROGRESS);
+			Object[] elements = new Object[source.size()];
+			int i = 0;
+			boolean hasNull = false;
+			for (Object element : source) {
+				elements[i] = copy(element);
+				hasNull |= elements[i++] == null;
+			}
+
+			Object retval;
+			if (kind == CopyPlan.Kind.ARRAY_LIST_VIEW)
+				retval = Arrays.asList(elements);
+			else if (kind == CopyPlan.Kind.IMMUTABLE_SET)
+				retval = Set.of(elements);
+			else
+				retval = hasNull ? Collections.unmodifiableList(Arrays.asList(elements)) : List.of(elements);
+			return register(source, retval);
+		}
+
+		@SuppressWarnings("unchecked")
+		private Object copyImmutableMap(Map<?, ?> source) {
+			copies.put(source, IN_PROGRESS);
+			Map.Entry<Object, Object>[] entries = (Map.Entry<Object, Object>[]) new Map.Entry<?, ?>[source.size()];
+			int i = 0;
+			for (Map.Entry<?, ?> entry : source.entrySet()) {
+				entries[i++] = Map.entry(copy(entry.getKey()), copy(entry.getValue()));
+			}
+			return register(source, Map.ofEntries(entries));
+		}
+
+		// The viewed collection can't be accessed, so the copy is a view of the same kind around a new collection of copies
+		private Object copyView(Object source, CopyPlan plan) throws Throwable {
+			Comparator<?> comparator = source instanceof SortedSet ? ((SortedSet<?>) source).comparator()
+					: source instanceof SortedMap ? ((SortedMap<?, ?>) source).comparator() : null;
+			Object viewed = plan.sorted ? plan.factory.invoke(copyComparator(comparator)) : plan.factory.invoke();
+			Object retval = register(source, (Object) plan.wrapper.invokeExact(viewed));
+			if (plan.kind == CopyPlan.Kind.SYNCHRONIZED_VIEW) {
+				synchronized (source) { // Iterating a synchronized view requires its lock
+					copyContent(source, viewed);
+				}
+			} else {
+				copyContent(source, viewed);
+			}
+			return retval;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void copyContent(Object source, Object target) {
+			if (source instanceof Map) {
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) source).entrySet()) {
+					((Map<Object, Object>) target).put(copy(entry.getKey()), copy(entry.getValue()));
+				}
+			} else {
+				for (Object element : (Collection<?>) source) {
+					((Collection<Object>) target).add(copy(element));
+				}
+			}
+		}
+
+		// The keys of a copy for another class loader are resolved from the first key, which an empty map lacks
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private Object copyEnumMap(EnumMap<?, ?> source) {
+			Map<Object, Object> retval;
+			if (classLoader == null)
+				retval = (Map<Object, Object>) source.clone(); // The values are replaced by copies below
+			else if (!source.isEmpty())
+				retval = new EnumMap(((Enum<?>) copy(source.keySet().iterator().next())).getDeclaringClass());
+			else
+				throw new UnsupportedTypeException("An empty EnumMap can't be copied to another class loader, as its key class is unknown");
+
+			register(source, retval);
+			for (Map.Entry<?, ?> entry : source.entrySet()) {
+				retval.put(copy(entry.getKey()), copy(entry.getValue()));
+			}
+			return retval;
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private Object copyEnumSet(EnumSet<?> source) {
+			if (classLoader == null)
+				return register(source, source.clone()); // Enum constants are shared
+			else if (source.isEmpty())
+				throw new UnsupportedTypeException("An empty EnumSet can't be copied to another class loader, as its element class is unknown");
+
+			EnumSet retval = EnumSet.noneOf(((Enum<?>) copy(source.iterator().next())).getDeclaringClass());
+			for (Object element : source) {
+				retval.add(copy(element));
+			}
+			return register(source, retval);
+		}
+
+		private Object copyRecord(Object source, CopyPlan plan) throws Throwable {
+			copies.put(source, IN_PROGRESS);
+			Object[] values = new Object[plan.components.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = copy((Object) plan.components[i].invokeExact(source));
+			}
+			return register(source, (Object) plan.factory.invokeExact(values));
+		}
+
+		private Object copyObject(Object source, CopyPlan plan) throws Throwable {
+			Object retval = plan.instantiator.newInstance();
+			register(source, retval);
+			for (CopyPlan.FieldSlot field : plan.fields) {
+				if (field.copier != null)
+					field.copier.invokeExact(retval, source);
+				else
+					field.setter.invokeExact(retval, copy((Object) field.getter.invokeExact(source)));
+			}
+			return retval;
+		}
+
+		private Object copyCompiled(Object source, CompiledAccessor<Object> compiled) {
+			Object retval = compiled.newInstance();
+			register(source, retval);
+			compiled.copyFields(retval, source, this::copy);
+			return retval;
+		}
+	}
+
+	/**
+	 * Thrown if an object graph contains a class that can't be deep-copied.
+	 */
+	public static class UnsupportedTypeException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		public UnsupportedTypeException(String msg) {
+			super(msg);
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.frejdh.util.common.copying;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Creates instances without invoking the constructors of the class itself, in the same way as Java serialization does.
+ * Relies on {@code sun.reflect.ReflectionFactory} when available, which is resolved once.
+ * Shared by {@link DeepCopier} and the binary {@link com.frejdh.util.common.serialization.Serializer}.
+ *
+ * @author Kevin Frejdh
+ */
+public final class Instantiators {
+
+	private static final Object REFLECTION_FACTORY;
+	private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+	private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION_WITH_CONSTRUCTOR;
+
+	static {
+		Object factory = null;
+		Method forSerialization = null;
+		Method forSerializationWithConstructor = null;
+		try {
+			// Couldn't import the 'unsafe' packages on JDK 11 but the following works
+			Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+			factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+			forSerialization = factoryClass.getMethod("newConstructorForSerialization", Class.class);
+			forSerializationWithConstructor = factoryClass.getMethod("newConstructorForSerialization", Class.class, Constructor.class);
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError ignored) {
+		}
+		REFLECTION_FACTORY = factory;
+		NEW_CONSTRUCTOR_FOR_SERIALIZATION = forSerialization;
+		NEW_CONSTRUCTOR_FOR_SERIALIZATION_WITH_CONSTRUCTOR = forSerializationWithConstructor;
+	}
+
+	private Instantiators() {
+	}
+
+	/**
+	 * Get a constructor creating instances of the given class.
+	 * For serializable classes, only the no-arg constructor of the first non-serializable superclass is invoked.
+	 * For other classes, no constructor is invoked at all.
+	 * If the reflection factory isn't available, the no-arg constructor of the class itself is used.
+	 *
+	 * @param type Class to instantiate
+	 * @return A constructor, or null if instances can't be created
+	 */
+	public static Constructor<?> constructorFor(Class<?> type) {
+		Constructor<?> constructor = null;
+		try {
+			if (REFLECTION_FACTORY != null && Serializable.class.isAssignableFrom(type))
+				constructor = (Constructor<?>) NEW_CONSTRUCTOR_FOR_SERIALIZATION.invoke(REFLECTION_FACTORY, type);
+			else if (REFLECTION_FACTORY != null)
+				constructor = (Constructor<?>) NEW_CONSTRUCTOR_FOR_SERIALIZATION_WITH_CONSTRUCTOR.invoke(REFLECTION_FACTORY, type, Object.class.getDeclaredConstructor());
+			else
+				constructor = type.getDeclaredConstructor();
+
+			if (constructor != null)
+				constructor.setAccessible(true);
+			return constructor;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.frejdh.util.common.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Exception, thrown when more data is read than a given limit allows.
+ *
+ * @author Kevin Frejdh
+ */
+public class SizeLimitExceededException extends IOException {
+	private static final long serialVersionUID = 1L;
+	private final long limit;
+
+	public SizeLimitExceededException(long limit) {
+		super("The limit of " + limit + " bytes was exceeded");
+		this.limit = limit;
+	}
+
+	/**
+	 * @return The limit, in bytes
+	 */
+	public long getLimit() {
+		return limit;
+	}
+}
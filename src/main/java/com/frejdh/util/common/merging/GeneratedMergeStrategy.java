@@ -0,0 +1,101 @@
+package com.frejdh.util.common.merging;
+
+import com.frejdh.util.common.toolbox.ClassMetadata;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strategy that defines a hidden class per target type, implementing {@link Merger} with direct field access.
+ * The hidden class is a nestmate of the target, which grants it access to private fields.
+ * Falls back to {@link MergePlan} whenever the class can't be generated.
+ */
+final class GeneratedMergeStrategy implements MergeStrategy {
+
+	static final GeneratedMergeStrategy INSTANCE = new GeneratedMergeStrategy();
+
+	private static final ClassValue<Merger<?>> MERGERS = new ClassValue<Merger<?>>() {
+		@Override
+		protected Merger<?> computeValue(Class<?> type) {
+			return generate(type); // Null if not supported, which is cached as well
+		}
+	};
+
+	private GeneratedMergeStrategy() {
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> Merger<T> mergerFor(Class<T> type) throws IllegalAccessException {
+		Merger<T> merger = (Merger<T>) MERGERS.get(type);
+		return merger != null ? merger : MergePlan.of(type);
+	}
+
+	/**
+	 * Generate a merger for the given class.
+	 *
+	 * @param type Class to merge
+	 * @return An instance of the generated class, or null if the class can't be handled
+	 */
+	static Merger<?> generate(Class<?> type) {
+		if (type.isPrimitive() || type.isArray() || type.isInterface() || type.isHidden() || !isVisibleFrom(type, MergeSupport.class, Merger.class))
+			return null;
+
+		List<Field> fields = new ArrayList<>();
+		for (ClassMetadata.FieldInfo field : ClassMetadata.of(type).getDeclaredFields()) {
+			if (field.isFinal() || field.isStatic())
+				continue;
+			else if (!isAccessibleFrom(type, field.getType())) // A checkcast of the type would fail at runtime
+				return null;
+			fields.add(field.getField());
+		}
+
+		try {
+			MethodHandles.Lookup targetLookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+			MethodHandles.Lookup mergerLookup = targetLookup.defineHiddenClass(MergerClassWriter.write(type, fields), true, MethodHandles.Lookup.ClassOption.NESTMATE);
+			return (Merger<?>) mergerLookup.findConstructor(mergerLookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+		} catch (IllegalAccessException | LinkageError | SecurityException e) { // Not open to this module, or unsupported by the JVM
+			return null;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Couldn't instantiate the generated merger for " + type.getName(), e);
+		}
+	}
+
+	/**
+	 * Whether the class loader of the target resolves the given classes to the same classes as this library.
+	 */
+	private static boolean isVisibleFrom(Class<?> target, Class<?>... classes) {
+		for (Class<?> c : classes) {
+			try {
+				if (Class.forName(c.getName(), false, target.getClassLoader()) != c)
+					return false;
+			} catch (ClassNotFoundException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether the JVM allows code in the package of the target to reference the given type.
+	 */
+	private static boolean isAccessibleFrom(Class<?> target, Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+
+		if (type.isPrimitive() || type.getPackage() == target.getPackage() && type.getClassLoader() == target.getClassLoader())
+			return true;
+
+		for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+			if (!Modifier.isPublic(c.getModifiers()))
+				return false;
+		}
+		return true;
+	}
+
+}
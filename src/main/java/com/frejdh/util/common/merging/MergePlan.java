@@ -0,0 +1,273 @@
+package com.frejdh.util.common.merging;
+
+import com.frejdh.util.common.toolbox.ClassMetadata;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.frejdh.util.common.toolbox.CommonUtils.sneakyThrow;
+
+/**
+ * A precompiled plan for merging two instances of the same class, field by field.
+ * The plan is resolved once per class and cached, after which merging requires no reflective lookups.
+ * Primitive fields are copied through exactly typed method handles, so they are never boxed.
+ * Only the fields declared by the class itself are handled, and final or static fields are skipped.
+ *
+ * @param <T> Class type of the merged objects
+ * @author Kevin Frejdh
+ */
+public final class MergePlan<T> implements Merger<T> {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final ClassValue<MergePlan<?>> PLANS = new ClassValue<MergePlan<?>>() {
+		@Override
+		protected MergePlan<?> computeValue(Class<?> type) {
+			try {
+				return new MergePlan<>(type);
+			} catch (IllegalAccessException e) {
+				throw new PlanCreationException(e); // Not cached by the ClassValue, the next lookup will try again
+			}
+		}
+	};
+
+	private final Class<T> type;
+	private final Slot[] slots;
+	private final MethodHandle[] finalListGetters; // (Object)Object, for the final fields that may hold a list
+
+	private MergePlan(Class<T> type) throws IllegalAccessException {
+		this.type = type;
+		List<Slot> slots = new ArrayList<>();
+		List<MethodHandle> finalListGetters = new ArrayList<>();
+		for (ClassMetadata.FieldInfo field : ClassMetadata.of(type).getDeclaredFields()) {
+			if (field.isStatic() || (field.isFinal() && !mayHoldList(field.getType())))
+				continue;
+
+			Field copy = field.getField();
+			copy.setAccessible(true);
+			if (field.isFinal())
+				finalListGetters.add(LOOKUP.unreflectGetter(copy).asType(GETTER_TYPE));
+			else
+				slots.add(new Slot(copy));
+		}
+		this.slots = slots.toArray(new Slot[0]);
+		this.finalListGetters = finalListGetters.toArray(new MethodHandle[0]);
+	}
+
+	private static boolean mayHoldList(Class<?> fieldType) {
+		return fieldType.isAssignableFrom(List.class) || List.class.isAssignableFrom(fieldType);
+	}
+
+	/**
+	 * Get the cached plan for a class, creating it on first use.
+	 *
+	 * @param type Class to get the plan for
+	 * @param <T> Class type of the merged objects
+	 * @return The plan for the given class
+	 * @throws IllegalAccessException Access denied to a field of the class
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> MergePlan<T> of(Class<T> type) throws IllegalAccessException {
+		try {
+			return (MergePlan<T>) PLANS.get(type);
+		} catch (PlanCreationException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * @return The class that this plan merges
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+
+	/**
+	 * @return Number of fields handled by this plan
+	 */
+	public int getFieldCount() {
+		return slots.length;
+	}
+
+	/**
+	 * Same semantics as {@link com.frejdh.util.common.toolbox.CommonUtils#softMerge(Object, Object)}.
+	 */
+	@Override
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void softMerge(T first, T second) {
+		try {
+			for (Slot slot : slots) {
+				if (slot.primitive) // Never null, so the first value is always kept
+					continue;
+
+				Object firstVal = (Object) slot.getter.invokeExact((Object) first);
+				if (firstVal == null) {
+					slot.copier.invokeExact((Object) first, (Object) second);
+				} else if (slot.mayHoldList && firstVal instanceof List) { // If lists, merge
+					Object secVal = (Object) slot.getter.invokeExact((Object) second);
+					if (secVal instanceof List)
+						((List) firstVal).addAll((List) secVal);
+				}
+			}
+		} catch (Throwable e) {
+			sneakyThrow(e);
+		}
+	}
+
+	/**
+	 * Same semantics as {@link com.frejdh.util.common.toolbox.CommonUtils#softMergeInverse(Object, Object)}.
+	 */
+	@Override
+	public void softMergeInverse(T first, T second) {
+		try {
+			for (Slot slot : slots) {
+				if (slot.primitive) {
+					slot.copier.invokeExact((Object) first, (Object) second);
+					continue;
+				}
+
+				Object secVal = (Object) slot.getter.invokeExact((Object) second);
+				if (secVal != null)
+					slot.setter.invokeExact((Object) first, secVal);
+			}
+		} catch (Throwable e) {
+			sneakyThrow(e);
+		}
+	}
+
+	@Override
+	public void copyFields(T target, T source) {
+		try {
+			for (Slot slot : slots) {
+				slot.copier.invokeExact((Object) target, (Object) source);
+			}
+		} catch (Throwable e) {
+			sneakyThrow(e);
+		}
+	}
+
+	/**
+	 * Add all values of the given instance that are lists to a collection, including the ones of final fields.
+	 *
+	 * @param instance Instance to read the fields of
+	 * @param target Collection to add the lists to
+	 */
+	@SuppressWarnings("rawtypes")
+	public void collectLists(T instance, Collection<? super List> target) {
+		try {
+			for (Slot slot : slots) {
+				if (!slot.mayHoldList)
+					continue;
+
+				Object value = (Object) slot.getter.invokeExact((Object) instance);
+				if (value instanceof List)
+					target.add((List) value);
+			}
+			for (MethodHandle getter : finalListGetters) {
+				Object value = (Object) getter.invokeExact((Object) instance);
+				if (value instanceof List)
+					target.add((List) value);
+			}
+		} catch (Throwable e) {
+			sneakyThrow(e);
+		}
+	}
+
+	/**
+	 * Append the lists held by the final fields of the second instance to the ones of the first instance.
+	 * Final fields are otherwise left as they are by the merge methods, but duplicates of a list are concatenated in these fields too.
+	 *
+	 * @param first Instance to append to
+	 * @param second Instance to append from
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void appendFinalLists(T first, T second) {
+		try {
+			for (MethodHandle getter : finalListGetters) {
+				Object firstVal = (Object) getter.invokeExact((Object) first);
+				Object secVal = (Object) getter.invokeExact((Object) second);
+				if (firstVal instanceof List && secVal instanceof List)
+					((List) firstVal).addAll((List) secVal);
+			}
+		} catch (Throwable e) {
+			sneakyThrow(e);
+		}
+	}
+
+	/**
+	 * Add the lists of the first instance that {@link #softMerge(Object, Object)} and {@link #appendFinalLists(Object, Object)}
+	 * append the lists of the second instance to.
+	 * Must be called before merging, as lists copied to null fields aren't appended to.
+	 *
+	 * @param first Instance that will be merged into
+	 * @param second Instance that will be merged from
+	 * @param target Collection to add the lists to
+	 */
+	@SuppressWarnings("rawtypes")
+	public void collectMergedLists(T first, T second, Collection<? super List> target) {
+		try {
+			for (Slot slot : slots) {
+				if (!slot.mayHoldList)
+					continue;
+
+				Object firstVal = (Object) slot.getter.invokeExact((Object) first);
+				if (firstVal instanceof List && (Object) slot.getter.invokeExact((Object) second) instanceof List)
+					target.add((List) firstVal);
+			}
+			for (MethodHandle getter : finalListGetters) {
+				Object firstVal = (Object) getter.invokeExact((Object) first);
+				if (firstVal instanceof List && (Object) getter.invokeExact((Object) second) instanceof List)
+					target.add((List) firstVal);
+			}
+		} catch (Throwable e) {
+			sneakyThrow(e);
+		}
+	}
+
+	/**
+	 * Accessors for a single field, resolved once.
+	 */
+	private static final class Slot {
+		final boolean primitive;
+		final boolean mayHoldList;
+		final MethodHandle getter; // (Object)Object, boxes primitives so only used for references
+		final MethodHandle setter; // (Object, Object)void
+		final MethodHandle copier; // (Object target, Object source)void, never boxes
+
+		Slot(Field field) throws IllegalAccessException {
+			Class<?> fieldType = field.getType();
+			MethodHandle exactGetter = LOOKUP.unreflectGetter(field);
+			MethodHandle exactSetter = LOOKUP.unreflectSetter(field);
+
+			this.primitive = fieldType.isPrimitive();
+			this.mayHoldList = mayHoldList(fieldType);
+			this.getter = exactGetter.asType(GETTER_TYPE);
+			this.setter = exactSetter.asType(SETTER_TYPE);
+			this.copier = MethodHandles.filterArguments(exactSetter, 1, exactGetter).asType(SETTER_TYPE);
+		}
+	}
+
+	/**
+	 * Carries a checked exception out of {@link ClassValue#computeValue(Class)}.
+	 */
+	private static final class PlanCreationException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		PlanCreationException(IllegalAccessException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized IllegalAccessException getCause() {
+			return (IllegalAccessException) super.getCause();
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.frejdh.util.common.merging;
+
+/**
+ * Decides how {@link Merger} instances are created for a class.
+ * Used by the merge methods in {@link com.frejdh.util.common.toolbox.CommonUtils}.
+ *
+ * @author Kevin Frejdh
+ */
+public interface MergeStrategy {
+
+	/**
+	 * Get a merger for a class. Implementations are expected to cache the result.
+	 *
+	 * @param type Class to get the merger for
+	 * @param <T> Class type of the merged objects
+	 * @return A merger for the given class
+	 * @throws IllegalAccessException Access denied to a field of the class
+	 */
+	<T> Merger<T> mergerFor(Class<T> type) throws IllegalAccessException;
+
+	/**
+	 * The default strategy. Uses cached {@link MergePlan} instances, which are based on method handles.
+	 *
+	 * @return The reflective strategy
+	 */
+	static MergeStrategy reflective() {
+		return ReflectiveMergeStrategy.INSTANCE;
+	}
+
+	/**
+	 * An opt-in strategy that generates a small merger class per target type on first use, with direct field reads and writes.
+	 * Requires JDK 15 or above. Classes that can't be handled, such as classes in modules that aren't open to this library,
+	 * fall back to the {@link #reflective()} strategy.
+	 *
+	 * @return The generated strategy
+	 */
+	static MergeStrategy generated() {
+		return GeneratedMergeStrategy.INSTANCE;
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.frejdh.util.common.merging;
+
+import java.util.List;
+
+/**
+ * Helper methods invoked by generated mergers. Keeping the branching here means the generated code is straight-line.
+ * Not intended to be used directly.
+ *
+ * @author Kevin Frejdh
+ */
+public final class MergeSupport {
+
+	private MergeSupport() {
+	}
+
+	/**
+	 * The value to keep for a field during a soft merge. Lists in both values are concatenated into the first one.
+	 *
+	 * @param firstVal Value of the object with the highest priority
+	 * @param secVal Value of the other object
+	 * @return The value to set
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public static Object softMergeValue(Object firstVal, Object secVal) {
+		if (firstVal == null)
+			return secVal;
+		else if (firstVal instanceof List && secVal instanceof List) // If lists, merge
+			((List) firstVal).addAll((List) secVal);
+		return firstVal;
+	}
+
+	/**
+	 * The value to keep for a field during an inverse soft merge.
+	 *
+	 * @param firstVal Value of the original object
+	 * @param secVal Value of the object with the highest priority
+	 * @return The value to set
+	 */
+	public static Object softMergeInverseValue(Object firstVal, Object secVal) {
+		return (secVal != null) ? secVal : firstVal;
+	}
+
+}
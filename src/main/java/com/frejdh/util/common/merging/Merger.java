@@ -0,0 +1,35 @@
+package com.frejdh.util.common.merging;
+
+/**
+ * Merges instances of a single class, field by field. Obtained through a {@link MergeStrategy}.
+ *
+ * @param <T> Class type of the merged objects
+ * @author Kevin Frejdh
+ */
+public interface Merger<T> {
+
+	/**
+	 * Replace the null fields of 'first' with the values of 'second'. Fields that are lists in both objects are concatenated.
+	 *
+	 * @param first The object with the highest priority. Only null values can be replaced.
+	 * @param second The object to potentially replace values in the first object with.
+	 */
+	void softMerge(T first, T second);
+
+	/**
+	 * Replace the fields of 'first' with all non-null values of 'second'.
+	 *
+	 * @param first The original object.
+	 * @param second All fields that are not null in this instance will replace a value in the 'first' object.
+	 */
+	void softMergeInverse(T first, T second);
+
+	/**
+	 * Copy all field values (including null) of 'source' into 'target'.
+	 *
+	 * @param target The object to copy the values into.
+	 * @param source The object to copy the values from.
+	 */
+	void copyFields(T target, T source);
+
+}
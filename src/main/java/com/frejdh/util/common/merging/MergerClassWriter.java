@@ -0,0 +1,254 @@
+package com.frejdh.util.common.merging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the class file of a {@link Merger} implementation for a single target class.
+ * The generated methods only consist of straight-line code (any branching is delegated to {@link MergeSupport}),
+ * which means that no stack map frames have to be computed.
+ */
+final class MergerClassWriter {
+
+	private static final int CLASS_FILE_VERSION = 52; // JDK 8
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+	private static final int ACC_SYNTHETIC = 0x1000;
+
+	private static final int ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ALOAD_2 = 0x2c, ALOAD_3 = 0x2d, ALOAD = 0x19;
+	private static final int ASTORE_3 = 0x4e, ASTORE = 0x3a;
+	private static final int CHECKCAST = 0xc0, GETFIELD = 0xb4, PUTFIELD = 0xb5;
+	private static final int INVOKESTATIC = 0xb8, INVOKESPECIAL = 0xb7, RETURN = 0xb1;
+
+	private static final String MERGE_METHOD_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/Object;)V";
+	private static final String SUPPORT_METHOD_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;";
+
+	private final ConstantPool pool = new ConstantPool();
+	private final String targetName;
+	private final List<Field> fields;
+
+	private MergerClassWriter(Class<?> target, List<Field> fields) {
+		this.targetName = internalName(target);
+		this.fields = fields;
+	}
+
+	/**
+	 * Generate the class file.
+	 *
+	 * @param target The class to merge. The generated class is placed in the same package.
+	 * @param fields The non-final and non-static fields declared by the target
+	 * @return The bytes of the class file
+	 */
+	static byte[] write(Class<?> target, List<Field> fields) {
+		return new MergerClassWriter(target, fields).write();
+	}
+
+	private byte[] write() {
+		int thisClass = pool.classRef(targetName + "$$Merger");
+		int superClass = pool.classRef("java/lang/Object");
+		int mergerInterface = pool.classRef(internalName(Merger.class));
+		byte[][] methods = {
+				constructor(),
+				mergeMethod("softMerge", "softMergeValue", false),
+				mergeMethod("softMergeInverse", "softMergeInverseValue", true),
+				mergeMethod("copyFields", null, true)
+		};
+		int codeAttribute = pool.utf8("Code");
+
+		try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(); DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0); // Minor version
+			out.writeShort(CLASS_FILE_VERSION);
+			pool.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(1); // Interfaces
+			out.writeShort(mergerInterface);
+			out.writeShort(0); // Fields
+			out.writeShort(methods.length);
+			for (byte[] method : methods) {
+				out.write(method, 0, 6); // Access flags, name and descriptor
+				out.writeShort(1); // Attributes, only 'Code'
+				out.writeShort(codeAttribute);
+				out.writeInt(method.length - 6);
+				out.write(method, 6, method.length - 6);
+			}
+			out.writeShort(0); // Class attributes
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private byte[] constructor() {
+		Code code = new Code();
+		code.op(ALOAD_0);
+		code.op(INVOKESPECIAL).u2(pool.methodRef("java/lang/Object", "<init>", "()V"));
+		code.op(RETURN);
+		return method("<init>", "()V", 1, 1, code);
+	}
+
+	/**
+	 * Locals: 0 = this, 1 = first, 2 = second, 3 = first casted to the target, 4 = second casted to the target.
+	 *
+	 * @param name Name of the interface method
+	 * @param supportMethod A method in {@link MergeSupport} deciding the value of reference fields, or null for a plain copy
+	 * @param includePrimitives Whether primitive fields should be copied
+	 */
+	private byte[] mergeMethod(String name, String supportMethod, boolean includePrimitives) {
+		Code code = new Code();
+		int target = pool.classRef(targetName);
+		code.op(ALOAD_1).op(CHECKCAST).u2(target).op(ASTORE_3);
+		code.op(ALOAD_2).op(CHECKCAST).u2(target).op(ASTORE).u1(4);
+
+		for (Field field : fields) {
+			boolean primitive = field.getType().isPrimitive();
+			if (primitive && !includePrimitives)
+				continue;
+
+			String descriptor = descriptor(field.getType());
+			int fieldRef = pool.fieldRef(targetName, field.getName(), descriptor);
+			code.op(ALOAD_3);
+			if (primitive || supportMethod == null) { // first.field = second.field
+				code.op(ALOAD).u1(4).op(GETFIELD).u2(fieldRef);
+			} else { // first.field = (Type) MergeSupport.supportMethod(first.field, second.field)
+				code.op(ALOAD_3).op(GETFIELD).u2(fieldRef);
+				code.op(ALOAD).u1(4).op(GETFIELD).u2(fieldRef);
+				code.op(INVOKESTATIC).u2(pool.methodRef(internalName(MergeSupport.class), supportMethod, SUPPORT_METHOD_DESCRIPTOR));
+				if (field.getType() != Object.class)
+					code.op(CHECKCAST).u2(pool.classRef(field.getType().isArray() ? descriptor : internalName(field.getType())));
+			}
+			code.op(PUTFIELD).u2(fieldRef);
+		}
+		code.op(RETURN);
+		return method(name, MERGE_METHOD_DESCRIPTOR, 4, 5, code);
+	}
+
+	private byte[] method(String name, String descriptor, int maxStack, int maxLocals, Code code) {
+		Code method = new Code();
+		method.u2(ACC_PUBLIC).u2(pool.utf8(name)).u2(pool.utf8(descriptor));
+		method.u2(maxStack).u2(maxLocals);
+		method.u4(code.size()).bytes(code);
+		method.u2(0); // Exception table
+		method.u2(0); // Code attributes
+		return method.toByteArray();
+	}
+
+	static String internalName(Class<?> type) {
+		return type.getName().replace('.', '/');
+	}
+
+	static String descriptor(Class<?> type) {
+		if (type.isArray())
+			return internalName(type); // Already in the form of '[Ljava/lang/String;'
+		else if (!type.isPrimitive())
+			return "L" + internalName(type) + ";";
+		else if (type == boolean.class)
+			return "Z";
+		else if (type == long.class)
+			return "J";
+		return String.valueOf(Character.toUpperCase(type.getName().charAt(0))); // byte, char, short, int, float, double
+	}
+
+	/**
+	 * Byte buffer with big-endian helpers.
+	 */
+	private static final class Code extends ByteArrayOutputStream {
+		Code op(int opcode) {
+			write(opcode);
+			return this;
+		}
+
+		Code u1(int value) {
+			write(value);
+			return this;
+		}
+
+		Code u2(int value) {
+			write(value >>> 8);
+			write(value);
+			return this;
+		}
+
+		Code u4(int value) {
+			return u2(value >>> 16).u2(value);
+		}
+
+		Code bytes(Code other) {
+			write(other.buf, 0, other.count);
+			return this;
+		}
+	}
+
+	/**
+	 * Constant pool that reuses identical entries.
+	 */
+	private static final class ConstantPool {
+		private static final int UTF8 = 1, CLASS = 7, FIELD_REF = 9, METHOD_REF = 10, NAME_AND_TYPE = 12;
+
+		private final Code entries = new Code();
+		private final Map<String, Integer> indexes = new HashMap<>();
+		private int count = 1; // Index 0 is reserved
+
+		int utf8(String value) {
+			Integer index = indexes.get("U" + value);
+			if (index != null)
+				return index;
+
+			try (DataOutputStream out = new DataOutputStream(entries)) {
+				out.writeByte(UTF8);
+				out.writeUTF(value); // Modified UTF-8, as required by the class file format
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return register("U" + value);
+		}
+
+		int classRef(String internalName) {
+			return reference("C" + internalName, CLASS, utf8(internalName), -1);
+		}
+
+		int fieldRef(String owner, String name, String descriptor) {
+			return reference("F" + owner + "." + name + ":" + descriptor, FIELD_REF, classRef(owner), nameAndType(name, descriptor));
+		}
+
+		int methodRef(String owner, String name, String descriptor) {
+			return reference("M" + owner + "." + name + descriptor, METHOD_REF, classRef(owner), nameAndType(name, descriptor));
+		}
+
+		private int nameAndType(String name, String descriptor) {
+			return reference("N" + name + ":" + descriptor, NAME_AND_TYPE, utf8(name), utf8(descriptor));
+		}
+
+		private int reference(String key, int tag, int first, int second) {
+			Integer index = indexes.get(key);
+			if (index != null)
+				return index;
+
+			entries.u1(tag).u2(first);
+			if (second >= 0)
+				entries.u2(second);
+			return register(key);
+		}
+
+		private int register(String key) {
+			indexes.put(key, count);
+			return count++;
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+			out.writeShort(count);
+			entries.writeTo(out);
+		}
+	}
+
+}
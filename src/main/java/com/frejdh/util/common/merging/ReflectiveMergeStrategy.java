@@ -0,0 +1,18 @@
+package com.frejdh.util.common.merging;
+
+/**
+ * Strategy backed by {@link MergePlan}.
+ */
+final class ReflectiveMergeStrategy implements MergeStrategy {
+
+	static final ReflectiveMergeStrategy INSTANCE = new ReflectiveMergeStrategy();
+
+	private ReflectiveMergeStrategy() {
+	}
+
+	@Override
+	public <T> Merger<T> mergerFor(Class<T> type) throws IllegalAccessException {
+		return MergePlan.of(type);
+	}
+
+}
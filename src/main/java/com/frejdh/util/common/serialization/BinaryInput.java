@@ -0,0 +1,604 @@
+package com.frejdh.util.common.serialization;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.StreamCorruptedException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.frejdh.util.common.serialization.BinarySerializer.*;
+
+/**
+ * Reads a single stream of the {@link BinarySerializer}, through its own buffer.
+ */
+final class BinaryInput {
+
+	// The parse(CharSequence) methods of the java.time classes, (CharSequence)Object. Null for other classes
+	private static final ClassValue<MethodHandle> PARSERS = new ClassValue<>() {
+		@Override
+		protected MethodHandle computeValue(Class<?> type) {
+			if (type.getClassLoader() != null || !type.getName().startsWith("java.time."))
+				return null;
+			try {
+				return MethodHandles.publicLookup().findStatic(type, "parse", MethodType.methodType(type, CharSequence.class))
+						.asType(MethodType.methodType(Object.class, CharSequence.class));
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				return null;
+			}
+		}
+	};
+	// Lengths read from the stream are trusted up to this. Longer arrays grow as their values are read, so that a corrupt
+	// or hostile stream can't allocate much more than its own size
+	static final int MAX_PREALLOCATED = 0x10000;
+	private static final Map<String, Class<?>> PRIMITIVE_CLASSES = Map.of("boolean", boolean.class, "byte", byte.class, "char", char.class,
+			"short", short.class, "int", int.class, "long", long.class, "float", float.class, "double", double.class, "void", void.class);
+
+	private final InputStream in;
+	private final ClassLoader classLoader;
+	private byte[] buffer = new byte[8192];
+	private int position;
+	private int limit;
+
+	private final List<String> strings = new ArrayList<>();
+	private final List<Descriptor> descriptors = new ArrayList<>();
+	private final List<Object> handles = new ArrayList<>();
+	private final Map<String, Class<?>> classes = new HashMap<>();
+
+	BinaryInput(InputStream in, ClassLoader classLoader) {
+		this.in = in;
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * @param type A class
+	 * @return True if the class is written as its string form
+	 */
+	static boolean isParsable(Class<?> type) {
+		return PARSERS.get(type) != null;
+	}
+
+	void readHeader() throws IOException {
+		if (readByte() != MAGIC[0] || readByte() != MAGIC[1])
+			throw new StreamCorruptedException("Not a binary stream");
+		int version = readByte();
+		if (version != VERSION)
+			throw new StreamCorruptedException("Unsupported version " + version);
+	}
+
+	Object readValue() throws IOException, ClassNotFoundException {
+		return readValue(readByte());
+	}
+
+	private Object readValue(int tag) throws IOException, ClassNotFoundException {
+		switch (tag) {
+			case NULL:
+				return null;
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			case BYTE:
+				return (byte) readByte();
+			case SHORT:
+				return (short) unzigzag(readVarInt());
+			case CHAR:
+				return (char) readVarInt();
+			case INT:
+				return unzigzag(readVarInt());
+			case LONG:
+				return unzigzag(readVarLong());
+			case FLOAT:
+				return Float.intBitsToFloat(readRawInt());
+			case DOUBLE:
+				return Double.longBitsToDouble(readRawLong());
+			case STRING:
+				return readString();
+			case BIG_INTEGER:
+				return new BigInteger(readRawBytes(readLength()));
+			case BIG_DECIMAL:
+				return new BigDecimal(readString());
+			case UUID:
+				return new UUID(readRawLong(), readRawLong());
+			case DATE:
+				return new Date(unzigzag(readVarLong()));
+			case CLASS:
+				return resolve(readString());
+			case ENUM:
+				return readEnum();
+			case TEXT:
+				return readText();
+			case PRIMITIVE_ARRAY:
+				return readPrimitiveArray();
+			case OBJECT_ARRAY:
+				return readObjectArray();
+			case COLLECTION:
+				return readCollection();
+			case MAP:
+				return readMap();
+			case IMMUTABLE_LIST:
+			case IMMUTABLE_SET:
+				return readImmutableCollection(tag == IMMUTABLE_LIST);
+			case IMMUTABLE_MAP:
+				return readImmutableMap();
+			case OBJECT:
+				return readObject();
+			case REFERENCE:
+				int handle = readVarInt();
+				if (handle < 0 || handle >= handles.size())
+					throw new StreamCorruptedException("Invalid reference " + handle);
+				return handles.get(handle);
+			default:
+				throw new StreamCorruptedException("Unknown tag " + tag);
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private Object readEnum() throws IOException, ClassNotFoundException {
+		Class<?> type = resolve(readString());
+		String name = readString();
+		if (!type.isEnum())
+			throw new InvalidClassException(type.getName(), "not an enum");
+		try {
+			return Enum.valueOf((Class<Enum>) type, name);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidObjectException("No enum constant " + type.getName() + "." + name);
+		}
+	}
+
+	private Object readText() throws IOException, ClassNotFoundException {
+		Class<?> type = resolve(readString());
+		String text = readString();
+		MethodHandle parser = PARSERS.get(type);
+		if (parser == null)
+			throw new InvalidClassException(type.getName(), "can't be parsed");
+		try {
+			return parser.invokeExact((CharSequence) text);
+		} catch (RuntimeException e) {
+			throw (InvalidObjectException) new InvalidObjectException("Couldn't parse '" + text + "' as " + type.getName()).initCause(e);
+		} catch (Throwable e) {
+			throw new IOException(e);
+		}
+	}
+
+	private Object readObjectArray() throws IOException, ClassNotFoundException {
+		Class<?> componentType = resolve(readString());
+		int length = readLength();
+		if (length > MAX_PREALLOCATED)
+			requireBytes(length); // At least a byte per element. The array is allocated upfront, as its elements may refer to it
+		Object[] array = (Object[]) Array.newInstance(componentType, length);
+		handles.add(array);
+		for (int i = 0; i < length; i++) {
+			Object element = readValue();
+			if (element != null && !componentType.isInstance(element))
+				throw new InvalidObjectException(element.getClass().getName() + " can't be stored in an array of " + componentType.getName());
+			array[i] = element;
+		}
+		return array;
+	}
+
+	private Object readPrimitiveArray() throws IOException {
+		int componentTag = readByte();
+		int length = readLength();
+		switch (componentTag) {
+			case INT: {
+				int[] array = new int[initialCapacity(length)];
+				for (int i = 0; i < length; i++) {
+					if (i == array.length)
+						array = Arrays.copyOf(array, grownCapacity(i, length));
+					array[i] = unzigzag(readVarInt());
+				}
+				handles.add(array);
+				return array;
+			}
+			case LONG: {
+				long[] array = new long[initialCapacity(length)];
+				for (int i = 0; i < length; i++) {
+					if (i == array.length)
+						array = Arrays.copyOf(array, grownCapacity(i, length));
+					array[i] = unzigzag(readVarLong());
+				}
+				handles.add(array);
+				return array;
+			}
+			case DOUBLE: {
+				double[] array = new double[initialCapacity(length)];
+				for (int i = 0; i < length; i++) {
+					if (i == array.length)
+						array = Arrays.copyOf(array, grownCapacity(i, length));
+					array[i] = Double.longBitsToDouble(readRawLong());
+				}
+				handles.add(array);
+				return array;
+			}
+			case BYTE: {
+				byte[] array = readRawBytes(length);
+				handles.add(array);
+				return array;
+			}
+			case TRUE: {
+				boolean[] array = new boolean[initialCapacity(length)];
+				for (int i = 0; i < length; i++) {
+					if (i == array.length)
+						array = Arrays.copyOf(array, grownCapacity(i, length));
+					array[i] = readByte() != 0;
+				}
+				handles.add(array);
+				return array;
+			}
+			case CHAR: {
+				char[] array = new char[initialCapacity(length)];
+				for (int i = 0; i < length; i++) {
+					if (i == array.length)
+						array = Arrays.copyOf(array, grownCapacity(i, length));
+					array[i] = (char) readVarInt();
+				}
+				handles.add(array);
+				return array;
+			}
+			case SHORT: {
+				short[] array = new short[initialCapacity(length)];
+				for (int i = 0; i < length; i++) {
+					if (i == array.length)
+						array = Arrays.copyOf(array, grownCapacity(i, length));
+					array[i] = (short) unzigzag(readVarInt());
+				}
+				handles.add(array);
+				return array;
+			}
+			case FLOAT: {
+				float[] array = new float[initialCapacity(length)];
+				for (int i = 0; i < length; i++) {
+					if (i == array.length)
+						array = Arrays.copyOf(array, grownCapacity(i, length));
+					array[i] = Float.intBitsToFloat(readRawInt());
+				}
+				handles.add(array);
+				return array;
+			}
+			default:
+				throw new StreamCorruptedException("Unknown array type " + componentTag);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object readCollection() throws IOException, ClassNotFoundException {
+		BinaryPlan plan = planOf(resolve(readString()), BinaryPlan.Kind.COLLECTION);
+		Collection<Object> collection = (Collection<Object>) create(plan);
+		handles.add(collection);
+		int size = readLength();
+		for (int i = 0; i < size; i++) {
+			collection.add(readValue());
+		}
+		return collection;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object readMap() throws IOException, ClassNotFoundException {
+		BinaryPlan plan = planOf(resolve(readString()), BinaryPlan.Kind.MAP);
+		Map<Object, Object> map = (Map<Object, Object>) create(plan);
+		handles.add(map);
+		int size = readLength();
+		for (int i = 0; i < size; i++) {
+			map.put(readValue(), readValue());
+		}
+		return map;
+	}
+
+	// The handle is reserved before the elements are read, and only set afterwards
+	private Object readImmutableCollection(boolean list) throws IOException, ClassNotFoundException {
+		int handle = reserveHandle();
+		int length = readLength();
+		Object[] elements = new Object[initialCapacity(length)];
+		for (int i = 0; i < length; i++) {
+			if (i == elements.length)
+				elements = Arrays.copyOf(elements, grownCapacity(i, length));
+			elements[i] = readValue();
+		}
+
+		try {
+			Object collection = list ? List.of(elements) : Set.of(elements);
+			handles.set(handle, collection);
+			return collection;
+		} catch (RuntimeException e) { // Null or duplicate elements
+			throw (InvalidObjectException) new InvalidObjectException("Invalid immutable collection").initCause(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object readImmutableMap() throws IOException, ClassNotFoundException {
+		int handle = reserveHandle();
+		int length = readLength();
+		Map.Entry<Object, Object>[] entries = (Map.Entry<Object, Object>[]) new Map.Entry<?, ?>[initialCapacity(length)];
+		for (int i = 0; i < length; i++) {
+			if (i == entries.length)
+				entries = Arrays.copyOf(entries, grownCapacity(i, length));
+			Object key = readValue();
+			entries[i] = new AbstractMap.SimpleImmutableEntry<>(key, readValue());
+		}
+
+		try {
+			Map<Object, Object> map = Map.ofEntries(entries);
+			handles.set(handle, map);
+			return map;
+		} catch (RuntimeException e) { // Null or duplicate keys
+			throw (InvalidObjectException) new InvalidObjectException("Invalid immutable map").initCause(e);
+		}
+	}
+
+	private Object readObject() throws IOException, ClassNotFoundException {
+		Descriptor descriptor = readDescriptor();
+		BinaryPlan plan = descriptor.plan;
+		if (plan.kind == BinaryPlan.Kind.RECORD)
+			return readRecord(descriptor);
+
+		Object instance;
+		try {
+			instance = plan.instantiator.newInstance();
+		} catch (InvocationTargetException e) {
+			throw (InvalidObjectException) new InvalidObjectException("Couldn't create an instance of " + plan.type.getName()).initCause(e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw (InvalidClassException) new InvalidClassException(plan.type.getName(), "couldn't be instantiated").initCause(e);
+		}
+		handles.add(instance);
+
+		for (int index : descriptor.slotIndexes) {
+			if (index < 0)
+				readValue(); // Removed from the class
+			else
+				readSlot(instance, plan.slots[index]);
+		}
+		return instance;
+	}
+
+	private Object readRecord(Descriptor descriptor) throws IOException, ClassNotFoundException {
+		BinaryPlan plan = descriptor.plan;
+		int handle = reserveHandle();
+		Object[] values = plan.defaults.clone();
+		for (int index : descriptor.slotIndexes) {
+			Object value = readValue();
+			if (index >= 0)
+				values[index] = value;
+		}
+
+		try {
+			Object record = plan.factory.invokeExact(values);
+			handles.set(handle, record);
+			return record;
+		} catch (RuntimeException e) { // Either a mismatching component type, or thrown by the constructor
+			throw (InvalidObjectException) new InvalidObjectException("Couldn't create an instance of " + plan.type.getName()).initCause(e);
+		} catch (Throwable e) {
+			throw new IOException(e);
+		}
+	}
+
+	// Fields of type int, long and double are set without boxing when the stream has a matching value
+	private void readSlot(Object instance, BinaryPlan.Slot slot) throws IOException, ClassNotFoundException {
+		int tag = readByte();
+		try {
+			if (tag == INT && slot.intSetter != null)
+				slot.intSetter.accept(instance, unzigzag(readVarInt()));
+			else if (tag == LONG && slot.longSetter != null)
+				slot.longSetter.accept(instance, unzigzag(readVarLong()));
+			else if (tag == DOUBLE && slot.doubleSetter != null)
+				slot.doubleSetter.accept(instance, Double.longBitsToDouble(readRawLong()));
+			else
+				slot.accessor.set(instance, readValue(tag));
+		} catch (ClassCastException | NullPointerException e) {
+			throw (InvalidClassException) new InvalidClassException(slot.accessor.getField().getDeclaringClass().getName(),
+					"the stream value of the field '" + slot.name + "' doesn't match its type " + slot.type.getName()).initCause(e);
+		}
+	}
+
+	private Descriptor readDescriptor() throws IOException, ClassNotFoundException {
+		int index = readVarInt();
+		if (index > 0) {
+			if (index > descriptors.size())
+				throw new StreamCorruptedException("Invalid class reference " + index);
+			return descriptors.get(index - 1);
+		}
+
+		Class<?> type = resolve(readString());
+		BinaryPlan plan = BinaryPlan.of(type);
+		if (plan.kind != BinaryPlan.Kind.OBJECT && plan.kind != BinaryPlan.Kind.RECORD)
+			throw new InvalidClassException(type.getName(), plan.unsupportedReason != null ? plan.unsupportedReason : "not written field by field");
+
+		int length = readLength();
+		int[] slotIndexes = new int[initialCapacity(length)];
+		for (int i = 0; i < length; i++) {
+			if (i == slotIndexes.length)
+				slotIndexes = Arrays.copyOf(slotIndexes, grownCapacity(i, length));
+			slotIndexes[i] = plan.indexOf(readString());
+		}
+		Descriptor descriptor = new Descriptor(plan, slotIndexes);
+		descriptors.add(descriptor);
+		return descriptor;
+	}
+
+	private static BinaryPlan planOf(Class<?> type, BinaryPlan.Kind kind) throws InvalidClassException {
+		BinaryPlan plan = BinaryPlan.of(type);
+		if (plan.kind != kind)
+			throw new InvalidClassException(type.getName(), plan.unsupportedReason != null ? plan.unsupportedReason : "not a " + kind.name().toLowerCase());
+		return plan;
+	}
+
+	private static Object create(BinaryPlan plan) throws IOException {
+		try {
+			return plan.factory.invokeExact();
+		} catch (RuntimeException e) {
+			throw (InvalidObjectException) new InvalidObjectException("Couldn't create an instance of " + plan.type.getName()).initCause(e);
+		} catch (Throwable e) {
+			throw new IOException(e);
+		}
+	}
+
+	private int reserveHandle() {
+		handles.add(null); // Read as null by cycles
+		return handles.size() - 1;
+	}
+
+	private Class<?> resolve(String name) throws ClassNotFoundException {
+		Class<?> type = classes.get(name);
+		if (type == null) {
+			type = PRIMITIVE_CLASSES.get(name);
+			if (type == null)
+				type = Class.forName(name, false, classLoader);
+			classes.put(name, type);
+		}
+		return type;
+	}
+
+	private String readString() throws IOException {
+		int value = readVarInt();
+		if ((value & 1) != 0) {
+			int index = value >>> 1;
+			if (index >= strings.size())
+				throw new StreamCorruptedException("Invalid string reference " + index);
+			return strings.get(index);
+		}
+
+		int length = value >>> 1;
+		String string;
+		if (length <= limit - position) { // Decoded directly from the buffer
+			string = new String(buffer, position, length, StandardCharsets.UTF_8);
+			position += length;
+		} else {
+			string = new String(readRawBytes(length), StandardCharsets.UTF_8);
+		}
+		strings.add(string);
+		return string;
+	}
+
+	private int readLength() throws IOException {
+		int length = readVarInt();
+		if (length < 0)
+			throw new StreamCorruptedException("Invalid length " + length);
+		return length;
+	}
+
+	private static int initialCapacity(int length) {
+		return Math.min(length, MAX_PREALLOCATED);
+	}
+
+	// Doubled, up to the length read from the stream
+	private static int grownCapacity(int capacity, int length) {
+		return (int) Math.min(length, 2L * capacity);
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private int readVarInt() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new StreamCorruptedException("Malformed variable-length integer");
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new StreamCorruptedException("Malformed variable-length integer");
+	}
+
+	private int readRawInt() throws IOException {
+		return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+	}
+
+	private long readRawLong() throws IOException {
+		return ((long) readRawInt() << 32) | (readRawInt() & 0xFFFFFFFFL);
+	}
+
+	private int readByte() throws IOException {
+		if (position == limit && !fill())
+			throw new EOFException("Unexpected end of the binary stream");
+		return buffer[position++] & 0xFF;
+	}
+
+	private byte[] readRawBytes(int length) throws IOException {
+		int read = Math.min(length, limit - position);
+		byte[] bytes = new byte[Math.max(read, initialCapacity(length))];
+		System.arraycopy(buffer, position, bytes, 0, read);
+		position += read;
+		while (read < length) {
+			if (read == bytes.length)
+				bytes = Arrays.copyOf(bytes, grownCapacity(read, length));
+			int count = in.read(bytes, read, bytes.length - read);
+			if (count < 0)
+				throw new EOFException("Unexpected end of the binary stream");
+			read += count;
+		}
+		return bytes;
+	}
+
+	// Reads ahead until the buffer holds the given number of bytes, growing it as the bytes arrive
+	private void requireBytes(int count) throws IOException {
+		if (limit - position >= count)
+			return;
+
+		System.arraycopy(buffer, position, buffer, 0, limit - position);
+		limit -= position;
+		position = 0;
+		while (limit < count) {
+			if (limit == buffer.length)
+				buffer = Arrays.copyOf(buffer, grownCapacity(buffer.length, count));
+			int read = in.read(buffer, limit, buffer.length - limit);
+			if (read < 0)
+				throw new EOFException("Unexpected end of the binary stream");
+			limit += read;
+		}
+	}
+
+	private boolean fill() throws IOException {
+		int count = in.read(buffer, 0, buffer.length);
+		position = 0;
+		limit = Math.max(count, 0);
+		return count > 0;
+	}
+
+	/**
+	 * A class as written in the stream, with its fields mapped to the slots of the local plan.
+	 */
+	private static final class Descriptor {
+		final BinaryPlan plan;
+		final int[] slotIndexes; // Per field of the stream, -1 if the class no longer has it
+
+		Descriptor(BinaryPlan plan, int[] slotIndexes) {
+			this.plan = plan;
+			this.slotIndexes = slotIndexes;
+		}
+	}
+
+}
@@ -0,0 +1,403 @@
+package com.frejdh.util.common.serialization;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.UUID;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import static com.frejdh.util.common.serialization.BinarySerializer.*;
+
+/**
+ * Writes a single stream of the {@link BinarySerializer}, through its own buffer.
+ */
+final class BinaryOutput {
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[8192];
+	private int position;
+
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final Map<Class<?>, Integer> descriptors = new HashMap<>();
+	private final Map<Object, Integer> handles = new IdentityHashMap<>();
+
+	BinaryOutput(OutputStream out) {
+		this.out = out;
+	}
+
+	void writeHeader() throws IOException {
+		writeByte(MAGIC[0]);
+		writeByte(MAGIC[1]);
+		writeByte(VERSION);
+	}
+
+	void writeValue(Object value) throws IOException {
+		if (value == null) {
+			writeByte(NULL);
+			return;
+		}
+
+		Class<?> type = value.getClass();
+		if (type == String.class) {
+			writeByte(STRING);
+			writeString((String) value);
+		} else if (type == Integer.class) {
+			writeInt((Integer) value);
+		} else if (type == Long.class) {
+			writeLong((Long) value);
+		} else if (type == Double.class) {
+			writeDouble((Double) value);
+		} else if (type == Boolean.class) {
+			writeByte((Boolean) value ? TRUE : FALSE);
+		} else if (type == Float.class) {
+			writeByte(FLOAT);
+			writeRawInt(Float.floatToIntBits((Float) value));
+		} else if (type == Short.class) {
+			writeByte(SHORT);
+			writeVarInt(zigzag((Short) value));
+		} else if (type == Byte.class) {
+			writeByte(BYTE);
+			writeByte((Byte) value);
+		} else if (type == Character.class) {
+			writeByte(CHAR);
+			writeVarInt((Character) value);
+		} else if (type == BigInteger.class) {
+			writeByte(BIG_INTEGER);
+			writeBytes(((BigInteger) value).toByteArray());
+		} else if (type == BigDecimal.class) {
+			writeByte(BIG_DECIMAL);
+			writeString(value.toString());
+		} else if (type == UUID.class) {
+			writeByte(UUID);
+			writeRawLong(((UUID) value).getMostSignificantBits());
+			writeRawLong(((UUID) value).getLeastSignificantBits());
+		} else if (type == Date.class) {
+			writeByte(DATE);
+			writeVarLong(zigzag(((Date) value).getTime()));
+		} else if (type == Class.class) {
+			writeByte(CLASS);
+			writeString(((Class<?>) value).getName());
+		} else if (value instanceof Enum) {
+			writeByte(ENUM);
+			writeString(((Enum<?>) value).getDeclaringClass().getName());
+			writeString(((Enum<?>) value).name());
+		} else if (BinaryInput.isParsable(type)) {
+			writeByte(TEXT);
+			writeString(type.getName());
+			writeString(value.toString());
+		} else {
+			Integer handle = handles.get(value);
+			if (handle != null) {
+				writeByte(REFERENCE);
+				writeVarInt(handle);
+				return;
+			}
+			handles.put(value, handles.size());
+			writeReference(value, type);
+		}
+	}
+
+	private void writeReference(Object value, Class<?> type) throws IOException {
+		if (type.isArray()) {
+			if (type.getComponentType().isPrimitive())
+				writePrimitiveArray(value);
+			else
+				writeObjectArray((Object[]) value);
+			return;
+		}
+
+		BinaryPlan plan = BinaryPlan.of(type);
+		switch (plan.kind) {
+			case COLLECTION:
+				checkNaturalOrdering(value);
+				writeByte(COLLECTION);
+				writeString(type.getName());
+				writeElements((Collection<?>) value);
+				break;
+			case ARRAY_LIST_VIEW:
+				writeByte(COLLECTION);
+				writeString("java.util.ArrayList");
+				writeElements((Collection<?>) value);
+				break;
+			case IMMUTABLE_LIST:
+			case IMMUTABLE_SET:
+				writeByte(plan.kind == BinaryPlan.Kind.IMMUTABLE_LIST ? IMMUTABLE_LIST : IMMUTABLE_SET);
+				writeElements((Collection<?>) value);
+				break;
+			case MAP:
+				checkNaturalOrdering(value);
+				writeByte(MAP);
+				writeString(type.getName());
+				writeEntries((Map<?, ?>) value);
+				break;
+			case IMMUTABLE_MAP:
+				writeByte(IMMUTABLE_MAP);
+				writeEntries((Map<?, ?>) value);
+				break;
+			case OBJECT:
+			case RECORD:
+				writeByte(OBJECT);
+				writeDescriptor(plan);
+				writeSlots(plan, value);
+				break;
+			default:
+				throw new NotSerializableException(plan.unsupportedReason);
+		}
+	}
+
+	private void writeDescriptor(BinaryPlan plan) throws IOException {
+		Integer index = descriptors.get(plan.type);
+		if (index != null) {
+			writeVarInt(index + 1);
+			return;
+		}
+
+		descriptors.put(plan.type, descriptors.size());
+		writeVarInt(0);
+		writeString(plan.type.getName());
+		writeVarInt(plan.slots.length);
+		for (BinaryPlan.Slot slot : plan.slots) {
+			writeString(slot.name);
+		}
+	}
+
+	private void writeSlots(BinaryPlan plan, Object value) throws IOException {
+		for (BinaryPlan.Slot slot : plan.slots) {
+			if (slot.intGetter != null)
+				writeInt(slot.intGetter.applyAsInt(value));
+			else if (slot.longGetter != null)
+				writeLong(slot.longGetter.applyAsLong(value));
+			else if (slot.doubleGetter != null)
+				writeDouble(slot.doubleGetter.applyAsDouble(value));
+			else if (slot.accessor != null)
+				writeValue(slot.accessor.get(value));
+			else
+				writeValue(invoke(slot, value));
+		}
+	}
+
+	private static Object invoke(BinaryPlan.Slot slot, Object value) throws IOException {
+		try {
+			return slot.getter.invokeExact(value);
+		} catch (Error | RuntimeException e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IOException("The record component '" + slot.name + "' couldn't be read", e);
+		}
+	}
+
+	private void writeElements(Collection<?> collection) throws IOException {
+		writeVarInt(collection.size());
+		int count = 0;
+		for (Object element : collection) {
+			writeValue(element);
+			count++;
+		}
+		if (count != collection.size())
+			throw new ConcurrentModificationException("The collection was modified while written");
+	}
+
+	private void writeEntries(Map<?, ?> map) throws IOException {
+		writeVarInt(map.size());
+		int count = 0;
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			writeValue(entry.getKey());
+			writeValue(entry.getValue());
+			count++;
+		}
+		if (count != map.size())
+			throw new ConcurrentModificationException("The map was modified while written");
+	}
+
+	private static void checkNaturalOrdering(Object value) throws NotSerializableException {
+		boolean hasComparator = (value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null)
+				|| (value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null)
+				|| (value instanceof PriorityQueue && ((PriorityQueue<?>) value).comparator() != null)
+				|| (value instanceof PriorityBlockingQueue && ((PriorityBlockingQueue<?>) value).comparator() != null);
+		if (hasComparator)
+			throw new NotSerializableException(value.getClass().getName() + " can't be written in the binary format: only the natural ordering is supported");
+	}
+
+	private void writeObjectArray(Object[] array) throws IOException {
+		writeByte(OBJECT_ARRAY);
+		writeString(array.getClass().getComponentType().getName());
+		writeVarInt(array.length);
+		for (Object element : array) {
+			writeValue(element);
+		}
+	}
+
+	private void writePrimitiveArray(Object array) throws IOException {
+		writeByte(PRIMITIVE_ARRAY);
+		if (array instanceof int[]) {
+			writeByte(INT);
+			int[] values = (int[]) array;
+			writeVarInt(values.length);
+			for (int value : values) {
+				writeVarInt(zigzag(value));
+			}
+		} else if (array instanceof long[]) {
+			writeByte(LONG);
+			long[] values = (long[]) array;
+			writeVarInt(values.length);
+			for (long value : values) {
+				writeVarLong(zigzag(value));
+			}
+		} else if (array instanceof double[]) {
+			writeByte(DOUBLE);
+			double[] values = (double[]) array;
+			writeVarInt(values.length);
+			for (double value : values) {
+				writeRawLong(Double.doubleToLongBits(value));
+			}
+		} else if (array instanceof byte[]) {
+			writeByte(BYTE);
+			writeBytes((byte[]) array);
+		} else if (array instanceof boolean[]) {
+			writeByte(TRUE);
+			boolean[] values = (boolean[]) array;
+			writeVarInt(values.length);
+			for (boolean value : values) {
+				writeByte(value ? 1 : 0);
+			}
+		} else if (array instanceof char[]) {
+			writeByte(CHAR);
+			char[] values = (char[]) array;
+			writeVarInt(values.length);
+			for (char value : values) {
+				writeVarInt(value);
+			}
+		} else if (array instanceof short[]) {
+			writeByte(SHORT);
+			short[] values = (short[]) array;
+			writeVarInt(values.length);
+			for (short value : values) {
+				writeVarInt(zigzag(value));
+			}
+		} else {
+			writeByte(FLOAT);
+			float[] values = (float[]) array;
+			writeVarInt(values.length);
+			for (float value : values) {
+				writeRawInt(Float.floatToIntBits(value));
+			}
+		}
+	}
+
+	private void writeInt(int value) throws IOException {
+		writeByte(INT);
+		writeVarInt(zigzag(value));
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeByte(LONG);
+		writeVarLong(zigzag(value));
+	}
+
+	private void writeDouble(double value) throws IOException {
+		writeByte(DOUBLE);
+		writeRawLong(Double.doubleToLongBits(value));
+	}
+
+	// An index, shifted left with the lowest bit set, for strings already written. Otherwise the UTF-8 length shifted left, followed by the bytes
+	private void writeString(String value) throws IOException {
+		Integer index = strings.get(value);
+		if (index != null) {
+			writeVarInt((index << 1) | 1);
+			return;
+		}
+
+		strings.put(value, strings.size());
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length << 1);
+		writeRawBytes(bytes);
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		writeVarInt(bytes.length);
+		writeRawBytes(bytes);
+	}
+
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private void writeVarInt(int value) throws IOException {
+		ensure(5);
+		while ((value & ~0x7F) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	private void writeVarLong(long value) throws IOException {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	private void writeRawInt(int value) throws IOException {
+		ensure(4);
+		buffer[position++] = (byte) (value >>> 24);
+		buffer[position++] = (byte) (value >>> 16);
+		buffer[position++] = (byte) (value >>> 8);
+		buffer[position++] = (byte) value;
+	}
+
+	private void writeRawLong(long value) throws IOException {
+		writeRawInt((int) (value >>> 32));
+		writeRawInt((int) value);
+	}
+
+	private void writeByte(int value) throws IOException {
+		ensure(1);
+		buffer[position++] = (byte) value;
+	}
+
+	private void writeRawBytes(byte[] bytes) throws IOException {
+		if (bytes.length > buffer.length) {
+			flushBuffer();
+			out.write(bytes);
+			return;
+		}
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	private void ensure(int length) throws IOException {
+		if (position + length > buffer.length)
+			flushBuffer();
+	}
+
+	private void flushBuffer() throws IOException {
+		out.write(buffer, 0, position);
+		position = 0;
+	}
+
+	void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+}
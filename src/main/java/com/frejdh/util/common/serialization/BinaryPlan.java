@@ -0,0 +1,283 @@
+package com.frejdh.util.common.serialization;
+
+import com.frejdh.util.common.copying.Instantiators;
+import com.frejdh.util.common.toolbox.ClassMetadata;
+import com.frejdh.util.common.toolbox.FieldAccessor;
+
+import java.io.Externalizable;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Describes how instances of a class are written and read by the {@link BinarySerializer}. Resolved once per class.
+ * Strings, boxed primitives, arrays and the other value types of the format are handled by the streams themselves.
+ */
+final class BinaryPlan {
+
+	enum Kind {
+		/** Serializable classes written field by field */
+		OBJECT,
+		/** Serializable records, written component by component and created through the canonical constructor */
+		RECORD,
+		/** Mutable JDK collections, created through their public no-arg constructor */
+		COLLECTION,
+		MAP,
+		/** Immutable JDK collections, read back as the ones created by List.of(), Set.of() and Map.of() */
+		IMMUTABLE_LIST,
+		IMMUTABLE_SET,
+		IMMUTABLE_MAP,
+		/** Lists created by Arrays.asList(), read back as an ArrayList */
+		ARRAY_LIST_VIEW,
+		UNSUPPORTED
+	}
+
+	private static final ClassValue<BinaryPlan> PLANS = new ClassValue<>() {
+		@Override
+		protected BinaryPlan computeValue(Class<?> type) {
+			return build(type);
+		}
+	};
+
+	private static final Set<Class<?>> IMMUTABLE_LISTS = classesOf(List.of(), List.of(1), List.of(1, 2, 3), Collections.emptyList(), Collections.singletonList(1));
+	private static final Set<Class<?>> IMMUTABLE_SETS = classesOf(Set.of(), Set.of(1), Set.of(1, 2, 3), Collections.emptySet(), Collections.singleton(1));
+	private static final Set<Class<?>> IMMUTABLE_MAPS = classesOf(Map.of(), Map.of(1, 1), Map.of(1, 1, 2, 2, 3, 3), Collections.emptyMap(), Collections.singletonMap(1, 1));
+	private static final Class<?> ARRAY_LIST_VIEW_CLASS = Arrays.asList().getClass();
+
+	final Kind kind;
+	final Class<?> type;
+	final String unsupportedReason;
+	final Constructor<?> instantiator; // OBJECT
+	final MethodHandle factory; // COLLECTION and MAP: ()Object. RECORD: (Object[])Object
+	final Slot[] slots; // OBJECT and RECORD, in the order they are written
+	final Object[] defaults; // RECORD, the values of components missing from the stream
+	private final Map<String, Integer> slotIndexes;
+
+	private BinaryPlan(Kind kind, Class<?> type, String unsupportedReason, Constructor<?> instantiator, MethodHandle factory, Slot[] slots, Object[] defaults) {
+		this.kind = kind;
+		this.type = type;
+		this.unsupportedReason = unsupportedReason;
+		this.instantiator = instantiator;
+		this.factory = factory;
+		this.slots = slots;
+		this.defaults = defaults;
+		this.slotIndexes = new HashMap<>();
+		for (int i = 0; slots != null && i < slots.length; i++) {
+			slotIndexes.put(slots[i].name, i);
+		}
+	}
+
+	private static BinaryPlan of(Kind kind, Class<?> type) {
+		return new BinaryPlan(kind, type, null, null, null, null, null);
+	}
+
+	private static BinaryPlan unsupported(Class<?> type, String reason) {
+		return new BinaryPlan(Kind.UNSUPPORTED, type, type.getName() + " can't be written in the binary format: " + reason, null, null, null, null);
+	}
+
+	/**
+	 * @param type A class other than the value types of the format
+	 * @return The plan of the class, cached
+	 */
+	static BinaryPlan of(Class<?> type) {
+		return PLANS.get(type);
+	}
+
+	/**
+	 * @param name Name of a slot
+	 * @return Index of the slot, or -1 if there is no such slot
+	 */
+	int indexOf(String name) {
+		Integer index = slotIndexes.get(name);
+		return index != null ? index : -1;
+	}
+
+	private static BinaryPlan build(Class<?> type) {
+		if (type.isArray() || type.isPrimitive() || type.isInterface() || Modifier.isAbstract(type.getModifiers()))
+			return unsupported(type, "not a concrete class");
+		else if (type.isHidden())
+			return unsupported(type, "hidden classes, such as lambdas, are not supported");
+		else if (IMMUTABLE_LISTS.contains(type))
+			return of(Kind.IMMUTABLE_LIST, type);
+		else if (IMMUTABLE_SETS.contains(type))
+			return of(Kind.IMMUTABLE_SET, type);
+		else if (IMMUTABLE_MAPS.contains(type))
+			return of(Kind.IMMUTABLE_MAP, type);
+		else if (type == ARRAY_LIST_VIEW_CLASS)
+			return of(Kind.ARRAY_LIST_VIEW, type);
+		else if (type.getClassLoader() == null)
+			return buildForJdkClass(type);
+		else if (!Serializable.class.isAssignableFrom(type))
+			return unsupported(type, "the class isn't serializable");
+		else if (type.isRecord())
+			return buildForRecord(type);
+		return buildForObject(type);
+	}
+
+	private static BinaryPlan buildForJdkClass(Class<?> type) {
+		if (!Modifier.isPublic(type.getModifiers()) || (!Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)))
+			return unsupported(type, "only public collections and maps are supported among the JDK classes");
+
+		try {
+			MethodHandle factory = MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class))
+					.asType(MethodType.methodType(Object.class));
+			Kind kind = Map.class.isAssignableFrom(type) ? Kind.MAP : Kind.COLLECTION;
+			return new BinaryPlan(kind, type, null, null, factory, null, null);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return unsupported(type, "no public no-arg constructor");
+		}
+	}
+
+	private static BinaryPlan buildForRecord(Class<?> type) {
+		try {
+			RecordComponent[] components = type.getRecordComponents();
+			Slot[] slots = new Slot[components.length];
+			Class<?>[] parameterTypes = new Class<?>[components.length];
+			Object[] defaults = new Object[components.length];
+			for (int i = 0; i < components.length; i++) {
+				Method accessor = components[i].getAccessor();
+				accessor.setAccessible(true);
+				MethodHandle getter = MethodHandles.lookup().unreflect(accessor).asType(MethodType.methodType(Object.class, Object.class));
+				slots[i] = new Slot(components[i].getName(), getter);
+				parameterTypes[i] = components[i].getType();
+				defaults[i] = parameterTypes[i].isPrimitive() ? Array.get(Array.newInstance(parameterTypes[i], 1), 0) : null;
+			}
+
+			Constructor<?> canonical = type.getDeclaredConstructor(parameterTypes);
+			canonical.setAccessible(true);
+			MethodHandle factory = MethodHandles.lookup().unreflectConstructor(canonical).asSpreader(Object[].class, parameterTypes.length)
+					.asType(MethodType.methodType(Object.class, Object[].class));
+			return new BinaryPlan(Kind.RECORD, type, null, null, factory, slots, defaults);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return unsupported(type, "the record components couldn't be accessed (" + e + ")");
+		}
+	}
+
+	// The same fields as Java serialization: the non-static, non-transient fields of the serializable classes in the hierarchy
+	private static BinaryPlan buildForObject(Class<?> type) {
+		if (Externalizable.class.isAssignableFrom(type))
+			return unsupported(type, "externalizable classes are not supported");
+
+		List<Slot> slots = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+		for (Class<?> c = type; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+			if (hasSerializationHooks(c))
+				return unsupported(type, c.getName() + " customizes its serialization");
+
+			for (ClassMetadata.FieldInfo field : ClassMetadata.of(c).getDeclaredFields()) {
+				if (field.isStatic() || field.isTransient())
+					continue;
+
+				try {
+					String name = names.add(field.getName()) ? field.getName() : c.getName() + "." + field.getName(); // Hidden by a subclass
+					slots.add(new Slot(name, field.getAccessor()));
+				} catch (RuntimeException e) { // Usually an InaccessibleObjectException
+					return unsupported(type, "the field '" + field.getName() + "' couldn't be accessed (" + e.getMessage() + ")");
+				}
+			}
+		}
+
+		Constructor<?> instantiator = Instantiators.constructorFor(type);
+		if (instantiator == null)
+			return unsupported(type, "instances couldn't be created");
+		return new BinaryPlan(Kind.OBJECT, type, null, instantiator, null, slots.toArray(new Slot[0]), null);
+	}
+
+	private static boolean hasSerializationHooks(Class<?> type) {
+		for (ClassMetadata.MethodInfo method : ClassMetadata.of(type).getDeclaredMethods()) {
+			int parameters = method.getParameterCount();
+			switch (method.getName()) {
+				case "writeObject":
+					if (parameters == 1 && method.getParameterType(0) == ObjectOutputStream.class)
+						return true;
+					break;
+				case "readObject":
+					if (parameters == 1 && method.getParameterType(0) == ObjectInputStream.class)
+						return true;
+					break;
+				case "readObjectNoData":
+				case "writeReplace":
+				case "readResolve":
+					if (parameters == 0)
+						return true;
+					break;
+			}
+		}
+		return false;
+	}
+
+	private static Set<Class<?>> classesOf(Object... instances) {
+		Set<Class<?>> retval = new HashSet<>();
+		for (Object instance : instances) {
+			retval.add(instance.getClass());
+		}
+		return retval;
+	}
+
+	/**
+	 * A field or record component. Fields of type int, long and double are read and written without boxing.
+	 */
+	static final class Slot {
+		final String name;
+		final Class<?> type;
+		final FieldAccessor<Object, Object> accessor; // Fields
+		final MethodHandle getter; // Record components, (Object)Object
+		final ToIntFunction<Object> intGetter;
+		final ObjIntConsumer<Object> intSetter;
+		final ToLongFunction<Object> longGetter;
+		final ObjLongConsumer<Object> longSetter;
+		final ToDoubleFunction<Object> doubleGetter;
+		final ObjDoubleConsumer<Object> doubleSetter;
+
+		@SuppressWarnings("unchecked")
+		Slot(String name, FieldAccessor<?, ?> accessor) {
+			this.name = name;
+			this.type = accessor.getField().getType();
+			this.accessor = (FieldAccessor<Object, Object>) accessor;
+			this.getter = null;
+			this.intGetter = type == int.class ? this.accessor.intGetter() : null;
+			this.intSetter = type == int.class ? this.accessor.intSetter() : null;
+			this.longGetter = type == long.class ? this.accessor.longGetter() : null;
+			this.longSetter = type == long.class ? this.accessor.longSetter() : null;
+			this.doubleGetter = type == double.class ? this.accessor.doubleGetter() : null;
+			this.doubleSetter = type == double.class ? this.accessor.doubleSetter() : null;
+		}
+
+		Slot(String name, MethodHandle getter) {
+			this.name = name;
+			this.type = Object.class;
+			this.accessor = null;
+			this.getter = getter;
+			this.intGetter = null;
+			this.intSetter = null;
+			this.longGetter = null;
+			this.longSetter = null;
+			this.doubleGetter = null;
+			this.doubleSetter = null;
+		}
+	}
+
+}
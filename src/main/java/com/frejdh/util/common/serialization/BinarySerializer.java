@@ -0,0 +1,94 @@
+package com.frejdh.util.common.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compact, schema-less binary format. Every value starts with a tag byte, and integers are written as variable-length
+ * (zigzag) integers, so that small values take a single byte. Strings are written once per stream and referred to by index afterwards,
+ * and so are the field names of each class, which are written along with the first instance of the class.
+ * <br>
+ * Supported values:
+ * <ul>
+ *     <li>Strings, primitives and their wrappers, {@link java.math.BigInteger}, {@link java.math.BigDecimal}, {@link java.util.UUID},
+ *     {@link java.util.Date}, {@link Class}, enums and the {@code java.time} classes that can be parsed from their string form.</li>
+ *     <li>Arrays, public JDK collections and maps with a no-arg constructor, and the immutable ones of {@code List.of()} and the like.
+ *     Sorted collections must use the natural ordering.</li>
+ *     <li>Other serializable classes, written field by field with the same fields as Java serialization, and serializable records.
+ *     Classes customizing their serialization aren't supported, and neither are externalizable classes.</li>
+ * </ul>
+ * Shared references and cycles are preserved, except for cycles through records and immutable collections, which are read as null.
+ * Fields are matched by name when read, so fields can be added to and removed from a class without breaking earlier streams.
+ * <br>
+ * Unlike Java serialization, no code of the read classes is invoked other than the no-arg constructor of the first non-serializable superclass,
+ * the canonical constructor of records and the constructors of JDK collections.
+ * Classes are resolved through the context class loader of the reading thread, or the class loader of this library.
+ */
+final class BinarySerializer implements Serializer {
+
+	static final BinarySerializer INSTANCE = new BinarySerializer();
+	static final int[] MAGIC = {0xFB, 'B'};
+	static final int VERSION = 1;
+
+	// Tags of the values
+	static final int NULL = 0;
+	static final int TRUE = 1;
+	static final int FALSE = 2;
+	static final int BYTE = 3;
+	static final int SHORT = 4;
+	static final int CHAR = 5;
+	static final int INT = 6;
+	static final int LONG = 7;
+	static final int FLOAT = 8;
+	static final int DOUBLE = 9;
+	static final int STRING = 10;
+	static final int BIG_INTEGER = 11;
+	static final int BIG_DECIMAL = 12;
+	static final int UUID = 13;
+	static final int DATE = 14;
+	static final int CLASS = 15;
+	static final int ENUM = 16;
+	/** java.time values, as the class name and the string form */
+	static final int TEXT = 17;
+	/** Component type, length and the elements without tags */
+	static final int PRIMITIVE_ARRAY = 18;
+	static final int OBJECT_ARRAY = 19;
+	static final int COLLECTION = 20;
+	static final int MAP = 21;
+	static final int IMMUTABLE_LIST = 22;
+	static final int IMMUTABLE_SET = 23;
+	static final int IMMUTABLE_MAP = 24;
+	static final int OBJECT = 25;
+	/** An earlier array, collection or object, by the order it was written */
+	static final int REFERENCE = 26;
+
+	private BinarySerializer() {
+	}
+
+	@Override
+	public void write(Object object, OutputStream out) throws IOException {
+		BinaryOutput output = new BinaryOutput(out);
+		output.writeHeader();
+		output.writeValue(object);
+		output.flush();
+	}
+
+	@Override
+	public <E> E read(InputStream in, Class<E> type) throws IOException, ClassNotFoundException {
+		BinaryInput input = new BinaryInput(in, classLoader());
+		input.readHeader();
+		return type.cast(input.readValue());
+	}
+
+	private static ClassLoader classLoader() {
+		ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		return contextClassLoader != null ? contextClassLoader : BinarySerializer.class.getClassLoader();
+	}
+
+	@Override
+	public String toString() {
+		return "Serializer.binary()";
+	}
+
+}
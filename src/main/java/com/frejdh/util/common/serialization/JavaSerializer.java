@@ -0,0 +1,45 @@
+package com.frejdh.util.common.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+import java.io.OutputStream;
+
+/**
+ * Java serialization, which is how {@link com.frejdh.util.common.toolbox.SerializeUtils} has always written its files.
+ */
+final class JavaSerializer implements Serializer {
+
+	static final JavaSerializer INSTANCE = new JavaSerializer(null);
+	static final int[] MAGIC = {(ObjectStreamConstants.STREAM_MAGIC >> 8) & 0xFF, ObjectStreamConstants.STREAM_MAGIC & 0xFF};
+
+	private final ObjectInputFilter filter; // Null for the filter configured for the JVM, if any
+
+	JavaSerializer(ObjectInputFilter filter) {
+		this.filter = filter;
+	}
+
+	@Override
+	public void write(Object object, OutputStream out) throws IOException {
+		ObjectOutputStream objOut = new ObjectOutputStream(out);
+		objOut.writeObject(object); // Handles String and serializable
+		objOut.flush();
+	}
+
+	@Override
+	public <E> E read(InputStream in, Class<E> type) throws IOException, ClassNotFoundException {
+		ObjectInputStream objIn = new ObjectInputStream(in);
+		if (filter != null)
+			objIn.setObjectInputFilter(filter);
+		return type.cast(objIn.readObject());
+	}
+
+	@Override
+	public String toString() {
+		return filter != null ? "Serializer.java(" + filter + ")" : "Serializer.java()";
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.frejdh.util.common.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Writes objects to and reads objects from streams. Used by {@link com.frejdh.util.common.toolbox.SerializeUtils}.
+ * Example:<br>
+ * <pre>
+ * try (OutputStream out = Files.newOutputStream(path)) {
+ *     Serializer.binary().write(snapshot, out);
+ * }
+ * </pre>
+ * Implementations are thread-safe, and neither close nor buffer beyond their own needs the streams they are given.
+ *
+ * @author Kevin Frejdh
+ */
+public interface Serializer {
+
+	/**
+	 * Write an object, and everything it references.
+	 *
+	 * @param object The object to write. May be null
+	 * @param out The stream to write to. Flushed, but not closed
+	 * @throws IOException If the object can't be written, such as a {@link java.io.NotSerializableException}
+	 */
+	void write(Object object, OutputStream out) throws IOException;
+
+	/**
+	 * Read an object written by {@link #write(Object, OutputStream)}. The stream may be read past the end of the object.
+	 *
+	 * @param in The stream to read from. Not closed
+	 * @param type The expected class of the object
+	 * @param <E> The expected class of the object
+	 * @return The object, or null if null was written
+	 * @throws IOException If the stream is corrupt or can't be read
+	 * @throws ClassNotFoundException If a class of the stream can't be found
+	 * @throws ClassCastException If the object isn't of the expected class
+	 */
+	<E> E read(InputStream in, Class<E> type) throws IOException, ClassNotFoundException;
+
+	/**
+	 * Java serialization, through {@link java.io.ObjectOutputStream} and {@link java.io.ObjectInputStream}.
+	 * Supports every serializable class, including the ones customizing their serialization.
+	 *
+	 * @return The Java serializer
+	 */
+	static Serializer java() {
+		return JavaSerializer.INSTANCE;
+	}
+
+	/**
+	 * Java serialization, reading only the classes accepted by a filter. As reading a Java serialization stream may run code of
+	 * any serializable class on the class path, use this rather than {@link #java()} for files that may come from elsewhere.
+	 * Example:<br>
+	 * <pre>
+	 * Serializer serializer = Serializer.java(ObjectInputFilter.Config.createFilter("com.example.dto.*;java.util.*;!*"));
+	 * </pre>
+	 *
+	 * @param filter The filter of the classes, array lengths and depths read, replacing the filter configured for the JVM
+	 * @return A Java serializer reading through the filter
+	 */
+	static Serializer java(ObjectInputFilter filter) {
+		return new JavaSerializer(Objects.requireNonNull(filter, "The filter cannot be null"));
+	}
+
+	/**
+	 * A compact binary format, which is faster and smaller than Java serialization. See {@link BinarySerializer} for the supported classes.
+	 *
+	 * @return The binary serializer
+	 */
+	static Serializer binary() {
+		return BinarySerializer.INSTANCE;
+	}
+
+	/**
+	 * Detect the serializer that wrote a stream from its first bytes, without consuming them.
+	 *
+	 * @param in The stream to check. Must support {@link InputStream#mark(int)}
+	 * @return The serializer, or null if the format isn't recognized
+	 * @throws IOException If the stream can't be read
+	 * @throws IllegalArgumentException If the stream doesn't support mark
+	 */
+	static Serializer detect(InputStream in) throws IOException {
+		if (!in.markSupported())
+			throw new IllegalArgumentException("The stream must support mark()");
+
+		in.mark(2);
+		int first = in.read();
+		int second = in.read();
+		in.reset();
+		if (first == JavaSerializer.MAGIC[0] && second == JavaSerializer.MAGIC[1])
+			return java();
+		else if (first == BinarySerializer.MAGIC[0] && second == BinarySerializer.MAGIC[1])
+			return binary();
+		return null;
+	}
+
+}
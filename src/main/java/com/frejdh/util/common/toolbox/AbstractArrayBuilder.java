@@ -0,0 +1,159 @@
+package com.frejdh.util.common.toolbox;
+
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * Growable storage shared by the array builders. The elements are kept in the range {@code [head, tail)} of the array,
+ * with free space on both sides so that both appending and prepending are amortized constant time.
+ *
+ * @param <A> The array type
+ */
+abstract class AbstractArrayBuilder<A> {
+
+	static final int DEFAULT_CAPACITY = 10;
+	// Some VMs reserve header words in arrays
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	private final IntFunction<A> arrays;
+	A elements;
+	int head;
+	int tail;
+	private int capacity;
+	private boolean prepended;
+	boolean shared; // The array has been handed out by build()
+
+	/**
+	 * @param arrays Creates arrays of the builder's type and the given length
+	 * @param capacity The initial capacity
+	 */
+	AbstractArrayBuilder(IntFunction<A> arrays, int capacity) {
+		this.arrays = arrays;
+		this.elements = arrays.apply(checkCapacity(capacity));
+		this.capacity = capacity;
+	}
+
+	static int checkCapacity(int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("The capacity cannot be negative: " + capacity);
+		return capacity;
+	}
+
+	/**
+	 * @return The number of elements added so far
+	 */
+	public int size() {
+		return tail - head;
+	}
+
+	/**
+	 * @return True if no elements have been added
+	 */
+	public boolean isEmpty() {
+		return tail == head;
+	}
+
+	/**
+	 * Make sure that the given number of elements can be added without growing the builder again.
+	 * @param additional Number of elements that will be added
+	 */
+	public void ensureCapacity(int additional) {
+		if (shared || capacity - tail < checkCapacity(additional))
+			grow(additional, false);
+	}
+
+	/**
+	 * Remove all elements. The builder keeps its capacity.
+	 */
+	public void clear() {
+		if (shared) {
+			elements = arrays.apply(capacity);
+			shared = false;
+		}
+		head = tail = prepended ? capacity / 2 : 0;
+	}
+
+	/**
+	 * @return A new array containing the elements. The builder can be used further after building
+	 */
+	public A build() {
+		int size = size();
+		if (head == 0 && size == capacity) {
+			// Exactly sized, hand out the array itself and copy it when the builder is changed
+			shared = true;
+			return elements;
+		}
+		A retval = arrays.apply(size);
+		System.arraycopy(elements, head, retval, 0, size);
+		return retval;
+	}
+
+	int index(int index) {
+		return head + Objects.checkIndex(index, size());
+	}
+
+	/**
+	 * Make room for elements at the back.
+	 * @return The index of the first reserved element
+	 */
+	int reserveBack(int count) {
+		if (shared || capacity - tail < count)
+			grow(count, false);
+		int index = tail;
+		tail += count;
+		return index;
+	}
+
+	/**
+	 * Make room for elements at the front.
+	 * @return The index of the first reserved element
+	 */
+	int reserveFront(int count) {
+		prepended = true;
+		if (shared || head < count)
+			grow(count, true);
+		head -= count;
+		return head;
+	}
+
+	void appendArray(A values, int length) {
+		int index = reserveBack(length);
+		try {
+			System.arraycopy(values, 0, elements, index, length);
+		} catch (ArrayStoreException e) {
+			tail = index;
+			throw e;
+		}
+	}
+
+	void prependArray(A values, int length) {
+		int index = reserveFront(length);
+		try {
+			System.arraycopy(values, 0, elements, index, length);
+		} catch (ArrayStoreException e) {
+			head = index + length;
+			throw e;
+		}
+	}
+
+	private void grow(int count, boolean front) {
+		int size = size();
+		int required = size + count;
+		if (required < 0 || required > MAX_CAPACITY)
+			throw new OutOfMemoryError("Required array length " + Integer.toUnsignedString(required) + " is too large");
+
+		int newCapacity = (int) Math.min(MAX_CAPACITY, Math.max(required, Math.max(DEFAULT_CAPACITY, 2L * capacity)));
+		int slack = newCapacity - required;
+		// Builders that only append keep all free space at the back
+		int newHead = (prepended ? slack / 2 : 0) + (front ? count : 0);
+
+		A grown = arrays.apply(newCapacity);
+		System.arraycopy(elements, head, grown, newHead, size);
+		elements = grown;
+		capacity = newCapacity;
+		head = newHead;
+		tail = newHead + size;
+		shared = false;
+	}
+
+}
@@ -0,0 +1,176 @@
+package com.frejdh.util.common.toolbox;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntFunction;
+
+/**
+ * Builds an array of a specific component type, growing as elements are appended or prepended.
+ * Adding an element is amortized constant time, unlike {@link CommonUtils#appendToArray(Object[], Object)} which copies the array each time.
+ * Example:<br>
+ * <pre>
+ * String[] array = new ArrayBuilder&lt;&gt;(String[]::new)
+ * 		.append("b")
+ * 		.prepend("a")
+ * 		.appendAll(List.of("c", "d"))
+ * 		.build();
+ * </pre>
+ * See {@link IntArrayBuilder}, {@link LongArrayBuilder} and {@link DoubleArrayBuilder} for primitive arrays.
+ * Builders are not thread-safe.
+ *
+ * @param <T> The component type
+ * @author Kevin Frejdh
+ */
+public final class ArrayBuilder<T> extends AbstractArrayBuilder<T[]> {
+
+	private final T[] empty;
+
+	/**
+	 * @param generator Creates arrays of the wanted type and length, such as {@code String[]::new}
+	 */
+	public ArrayBuilder(IntFunction<T[]> generator) {
+		this(generator, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param generator Creates arrays of the wanted type and length, such as {@code String[]::new}
+	 * @param capacity The initial capacity
+	 */
+	public ArrayBuilder(IntFunction<T[]> generator, int capacity) {
+		super(generator, capacity);
+		this.empty = generator.apply(0);
+	}
+
+	/**
+	 * @param componentType The component type of the built arrays
+	 */
+	public ArrayBuilder(Class<T> componentType) {
+		this(componentType, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param componentType The component type of the built arrays
+	 * @param capacity The initial capacity
+	 */
+	public ArrayBuilder(Class<T> componentType, int capacity) {
+		this(generatorFor(componentType), capacity);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> IntFunction<T[]> generatorFor(Class<T> componentType) {
+		if (componentType.isPrimitive())
+			throw new IllegalArgumentException("Use the primitive array builders for primitive arrays, not: " + componentType);
+		return length -> (T[]) Array.newInstance(componentType, length);
+	}
+
+	/**
+	 * @param element Element to add last
+	 * @return This builder
+	 * @throws ArrayStoreException If the element isn't of the component type
+	 */
+	public ArrayBuilder<T> append(T element) {
+		int index = reserveBack(1);
+		try {
+			elements[index] = element;
+		} catch (ArrayStoreException e) {
+			tail--;
+			throw e;
+		}
+		return this;
+	}
+
+	/**
+	 * @param elements Elements to add last, in the given order
+	 * @return This builder
+	 * @throws ArrayStoreException If an element isn't of the component type
+	 */
+	@SafeVarargs
+	public final ArrayBuilder<T> appendAll(T... elements) {
+		int index = reserveBack(elements.length);
+		try {
+			for (int i = 0; i < elements.length; i++) { // One by one, so that the varargs array is only read
+				this.elements[index + i] = elements[i];
+			}
+		} catch (ArrayStoreException e) {
+			Arrays.fill(this.elements, index, tail, null);
+			tail = index;
+			throw e;
+		}
+		return this;
+	}
+
+	/**
+	 * @param elements Elements to add last, in the iteration order of the collection
+	 * @return This builder
+	 * @throws ArrayStoreException If an element isn't of the component type
+	 */
+	public ArrayBuilder<T> appendAll(Collection<? extends T> elements) {
+		T[] values = elements.toArray(empty);
+		appendArray(values, values.length);
+		return this;
+	}
+
+	/**
+	 * @param element Element to add first
+	 * @return This builder
+	 * @throws ArrayStoreException If the element isn't of the component type
+	 */
+	public ArrayBuilder<T> prepend(T element) {
+		int index = reserveFront(1);
+		try {
+			elements[index] = element;
+		} catch (ArrayStoreException e) {
+			head++;
+			throw e;
+		}
+		return this;
+	}
+
+	/**
+	 * @param elements Elements to add first, keeping their order. That is, the first given element becomes the first element of the array
+	 * @return This builder
+	 * @throws ArrayStoreException If an element isn't of the component type
+	 */
+	@SafeVarargs
+	public final ArrayBuilder<T> prependAll(T... elements) {
+		int index = reserveFront(elements.length);
+		try {
+			for (int i = 0; i < elements.length; i++) { // One by one, so that the varargs array is only read
+				this.elements[index + i] = elements[i];
+			}
+		} catch (ArrayStoreException e) {
+			Arrays.fill(this.elements, index, index + elements.length, null);
+			head = index + elements.length;
+			throw e;
+		}
+		return this;
+	}
+
+	/**
+	 * @param elements Elements to add first, keeping their iteration order
+	 * @return This builder
+	 * @throws ArrayStoreException If an element isn't of the component type
+	 */
+	public ArrayBuilder<T> prependAll(Collection<? extends T> elements) {
+		T[] values = elements.toArray(empty);
+		prependArray(values, values.length);
+		return this;
+	}
+
+	/**
+	 * @param index Index of the element, counted from the first element
+	 * @return The element
+	 */
+	public T get(int index) {
+		return elements[index(index)];
+	}
+
+	@Override
+	public void clear() {
+		if (!shared)
+			Arrays.fill(elements, head, tail, null); // Let the elements be garbage collected
+		super.clear();
+	}
+
+}
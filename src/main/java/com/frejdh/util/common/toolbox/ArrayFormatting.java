@@ -0,0 +1,235 @@
+package com.frejdh.util.common.toolbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Implementation of the array and collection to string methods of {@link CommonUtils}.
+ * Elements are written as {@code [a, b, c]}, and elements beyond the limit are replaced by {@code ... n more}.
+ */
+class ArrayFormatting {
+
+	// Guesses used for pre-sizing. Exact sizes aren't known before the elements have been converted
+	private static final int OBJECT_LENGTH_ESTIMATE = 16;
+	private static final int INT_LENGTH_ESTIMATE = 6;
+	private static final int LONG_LENGTH_ESTIMATE = 10;
+	private static final int DOUBLE_LENGTH_ESTIMATE = 12;
+	private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+	// Size of the chunks in which primitives are passed to an Appendable that isn't a StringBuilder
+	private static final int CHUNK_SIZE = 8192;
+
+	private ArrayFormatting() {
+	}
+
+	static int checkLimit(int maxElements) {
+		if (maxElements < 0)
+			throw new IllegalArgumentException("The element limit cannot be negative: " + maxElements);
+		return maxElements;
+	}
+
+	static StringBuilder builderFor(int length, int maxElements, int elementLength) {
+		long estimate = 2 + (long) Math.min(length, maxElements) * (elementLength + 2);
+		return new StringBuilder((int) Math.min(estimate, MAX_INITIAL_CAPACITY));
+	}
+
+	static String toString(Object[] array, int maxElements) {
+		if (array == null)
+			return "null";
+		try {
+			return append(builderFor(array.length, maxElements, OBJECT_LENGTH_ESTIMATE), array, maxElements).toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // StringBuilder doesn't throw
+		}
+	}
+
+	static String toString(Collection<?> collection, int maxElements) {
+		if (collection == null)
+			return "null";
+		try {
+			return append(builderFor(collection.size(), maxElements, OBJECT_LENGTH_ESTIMATE), collection, maxElements).toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // StringBuilder doesn't throw
+		}
+	}
+
+	static String toString(int[] array, int maxElements) {
+		if (array == null)
+			return "null";
+		try {
+			return appendTo(builderFor(array.length, maxElements, INT_LENGTH_ESTIMATE), array, maxElements, null, null).toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Nothing is written to an output
+		}
+	}
+
+	static String toString(long[] array, int maxElements) {
+		if (array == null)
+			return "null";
+		try {
+			return appendTo(builderFor(array.length, maxElements, LONG_LENGTH_ESTIMATE), array, maxElements, null, null).toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Nothing is written to an output
+		}
+	}
+
+	static String toString(double[] array, int maxElements) {
+		if (array == null)
+			return "null";
+		try {
+			return appendTo(builderFor(array.length, maxElements, DOUBLE_LENGTH_ESTIMATE), array, maxElements, null, null).toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Nothing is written to an output
+		}
+	}
+
+	static <A extends Appendable> A append(A out, Object[] array, int maxElements) throws IOException {
+		if (array == null)
+			return append(out, "null");
+
+		int shown = Math.min(array.length, maxElements);
+		out.append('[');
+		for (int i = 0; i < shown; i++) {
+			if (i > 0)
+				out.append(", ");
+			out.append(String.valueOf(array[i]));
+		}
+		return end(out, shown, array.length);
+	}
+
+	static <A extends Appendable> A append(A out, Collection<?> collection, int maxElements) throws IOException {
+		if (collection == null)
+			return append(out, "null");
+
+		int size = collection.size();
+		int shown = 0;
+		out.append('[');
+		for (Iterator<?> iterator = collection.iterator(); iterator.hasNext() && shown < maxElements; shown++) {
+			if (shown > 0)
+				out.append(", ");
+			Object element = iterator.next();
+			out.append(element == collection ? "(this Collection)" : String.valueOf(element));
+		}
+		return end(out, shown, size);
+	}
+
+	static <A extends Appendable> A append(A out, int[] array, int maxElements) throws IOException {
+		if (out instanceof StringBuilder) {
+			appendTo((StringBuilder) out, array, maxElements, null, null);
+			return out;
+		}
+		char[] buffer = newBuffer(out);
+		return flush(out, appendTo(new StringBuilder(CHUNK_SIZE + 32), array, maxElements, out, buffer), buffer);
+	}
+
+	static <A extends Appendable> A append(A out, long[] array, int maxElements) throws IOException {
+		if (out instanceof StringBuilder) {
+			appendTo((StringBuilder) out, array, maxElements, null, null);
+			return out;
+		}
+		char[] buffer = newBuffer(out);
+		return flush(out, appendTo(new StringBuilder(CHUNK_SIZE + 32), array, maxElements, out, buffer), buffer);
+	}
+
+	static <A extends Appendable> A append(A out, double[] array, int maxElements) throws IOException {
+		if (out instanceof StringBuilder) {
+			appendTo((StringBuilder) out, array, maxElements, null, null);
+			return out;
+		}
+		char[] buffer = newBuffer(out);
+		return flush(out, appendTo(new StringBuilder(CHUNK_SIZE + 32), array, maxElements, out, buffer), buffer);
+	}
+
+	// The primitives are written to the builder, which is passed on to the output in chunks if one is given.
+	// The buffer is used for the chunks passed to a Writer
+	private static StringBuilder appendTo(StringBuilder builder, int[] array, int maxElements, Appendable out, char[] buffer)
+			throws IOException {
+		if (array == null)
+			return builder.append("null");
+
+		int shown = Math.min(array.length, maxElements);
+		builder.append('[');
+		for (int i = 0; i < shown; i++) {
+			if (i > 0)
+				builder.append(", ");
+			builder.append(array[i]);
+			if (out != null && builder.length() >= CHUNK_SIZE)
+				flush(out, builder, buffer);
+		}
+		return end(builder, shown, array.length);
+	}
+
+	private static StringBuilder appendTo(StringBuilder builder, long[] array, int maxElements, Appendable out, char[] buffer)
+			throws IOException {
+		if (array == null)
+			return builder.append("null");
+
+		int shown = Math.min(array.length, maxElements);
+		builder.append('[');
+		for (int i = 0; i < shown; i++) {
+			if (i > 0)
+				builder.append(", ");
+			builder.append(array[i]);
+			if (out != null && builder.length() >= CHUNK_SIZE)
+				flush(out, builder, buffer);
+		}
+		return end(builder, shown, array.length);
+	}
+
+	private static StringBuilder appendTo(StringBuilder builder, double[] array, int maxElements, Appendable out, char[] buffer)
+			throws IOException {
+		if (array == null)
+			return builder.append("null");
+
+		int shown = Math.min(array.length, maxElements);
+		builder.append('[');
+		for (int i = 0; i < shown; i++) {
+			if (i > 0)
+				builder.append(", ");
+			builder.append(array[i]);
+			if (out != null && builder.length() >= CHUNK_SIZE)
+				flush(out, builder, buffer);
+		}
+		return end(builder, shown, array.length);
+	}
+
+	private static <A extends Appendable> A end(A out, int shown, int length) throws IOException {
+		if (shown < length)
+			out.append(shown > 0 ? ", ... " : "... ").append(Integer.toString(length - shown)).append(" more");
+		out.append(']');
+		return out;
+	}
+
+	private static StringBuilder end(StringBuilder builder, int shown, int length) {
+		if (shown < length)
+			builder.append(shown > 0 ? ", ... " : "... ").append(length - shown).append(" more");
+		return builder.append(']');
+	}
+
+	private static <A extends Appendable> A append(A out, String text) throws IOException {
+		out.append(text);
+		return out;
+	}
+
+	// Writers are given the characters directly, since Writer.append(CharSequence) converts the sequence to a string first
+	private static char[] newBuffer(Appendable out) {
+		return out instanceof Writer ? new char[CHUNK_SIZE + 32] : null;
+	}
+
+	private static <A extends Appendable> A flush(A out, StringBuilder chunk, char[] buffer) throws IOException {
+		if (buffer != null) {
+			for (int start = 0; start < chunk.length(); start += buffer.length) {
+				int end = Math.min(start + buffer.length, chunk.length());
+				chunk.getChars(start, end, buffer, 0);
+				((Writer) out).write(buffer, 0, end - start);
+			}
+		} else {
+			out.append(chunk);
+		}
+		chunk.setLength(0);
+		return out;
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.frejdh.util.common.toolbox;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads files concurrently for the asynchronous methods of {@link FileUtils}.
+ * Each call gets its own executor, which runs a virtual thread per file when the JDK supports them (Java 21 and later),
+ * and otherwise a pool of daemon threads. Either way, no more files than the given limit are read at the same time.
+ */
+final class AsyncFileLoader {
+
+	private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadExecutor();
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private AsyncFileLoader() {
+	}
+
+	/**
+	 * @param paths The files to load
+	 * @param maxConcurrency The maximum number of files to read at the same time
+	 * @return A future for each file, in the same order, completed with its content or null if it couldn't be loaded
+	 */
+	static List<CompletableFuture<String>> loadAll(Collection<Path> paths, int maxConcurrency) {
+		if (maxConcurrency < 1)
+			throw new IllegalArgumentException("The maximum concurrency must be positive: " + maxConcurrency);
+
+		List<CompletableFuture<String>> futures = new ArrayList<>(paths.size());
+		if (paths.isEmpty())
+			return futures;
+
+		Semaphore permits = new Semaphore(maxConcurrency); // Bounds the virtual threads, which aren't pooled
+		ExecutorService executor = newExecutor(Math.min(maxConcurrency, paths.size()));
+		try {
+			for (Path path : paths) {
+				futures.add(CompletableFuture.supplyAsync(() -> load(path, permits), executor));
+			}
+		} finally {
+			executor.shutdown(); // The submitted files are still loaded
+		}
+		return futures;
+	}
+
+	/**
+	 * @return Whether the files are loaded on virtual threads
+	 */
+	static boolean usesVirtualThreads() {
+		return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+	}
+
+	private static String load(Path path, Semaphore permits) {
+		permits.acquireUninterruptibly();
+		try {
+			return FileUtils.getFileAsString(path.toString());
+		} finally {
+			permits.release();
+		}
+	}
+
+	private static ExecutorService newExecutor(int threads) {
+		if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+			try {
+				return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+			} catch (Throwable e) {
+				throw new IllegalStateException("Couldn't create a virtual thread executor", e);
+			}
+		}
+
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "file-loader-" + THREAD_COUNTER.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// Executors.newVirtualThreadPerTaskExecutor() of Java 21, looked up as this library is compiled for older versions
+	private static MethodHandle findVirtualThreadExecutor() {
+		try {
+			MethodHandle factory = MethodHandles.publicLookup()
+					.findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+			((ExecutorService) factory.invokeExact()).shutdown(); // A preview feature before Java 21, which throws unless enabled
+			return factory;
+		} catch (Throwable e) {
+			return null;
+		}
+	}
+
+}
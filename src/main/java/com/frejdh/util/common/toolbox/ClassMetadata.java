@@ -0,0 +1,398 @@
+package com.frejdh.util.common.toolbox;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fields and methods of a class, read once and shared by the reflective parts of this library.
+ * Unlike {@link Class#getDeclaredFields()}, no arrays are copied when the metadata is used.
+ * Example:<br>
+ * <pre>
+ * for (ClassMetadata.FieldInfo field : ClassMetadata.of(Entity.class).getInstanceFields()) {
+ *     write(field.getName(), field.getAccessor().get(entity));
+ * }
+ * </pre>
+ * The fields are ordered by class, starting with the topmost superclass, and then in the order they were returned by the JVM.
+ * That order never changes once the metadata has been created.
+ * The metadata is cached through a {@link ClassValue}, so it doesn't keep a class or its class loader from being unloaded.
+ * The methods are read on first use, as most users only need the fields.
+ * The {@link Field} and {@link Method} instances are kept private, and copies are returned, so that making them accessible doesn't affect other users.
+ *
+ * @author Kevin Frejdh
+ */
+public final class ClassMetadata {
+
+	private static final LongAdder LOOKUPS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+	private static final ClassValue<ClassMetadata> REGISTRY = new ClassValue<>() {
+		@Override
+		protected ClassMetadata computeValue(Class<?> type) {
+			MISSES.increment();
+			return new ClassMetadata(type);
+		}
+	};
+
+	private final Class<?> type;
+	private final List<FieldInfo> fields;
+	private final List<FieldInfo> declaredFields;
+	private final List<FieldInfo> instanceFields;
+	private final Map<String, Integer> indexByName;
+	private final Map<String, Integer> indexByLowerCaseName;
+	private volatile List<MethodInfo> declaredMethods;
+
+	private ClassMetadata(Class<?> type) {
+		this.type = type;
+		Class<?> superclass = type.getSuperclass();
+		List<FieldInfo> inherited = superclass != null ? of(superclass).fields : Collections.emptyList();
+
+		// The superclass fields keep their indexes, so their FieldInfo instances are shared
+		List<FieldInfo> fields = new ArrayList<>(inherited);
+		Field[] declared = type.getDeclaredFields();
+		for (Field field : declared) {
+			fields.add(new FieldInfo(field, fields.size()));
+		}
+		this.fields = Collections.unmodifiableList(fields);
+		this.declaredFields = this.fields.subList(inherited.size(), fields.size());
+
+		List<FieldInfo> instanceFields = new ArrayList<>(fields.size());
+		for (FieldInfo field : fields) {
+			if (!field.isStatic())
+				instanceFields.add(field);
+		}
+		this.instanceFields = Collections.unmodifiableList(instanceFields);
+
+		// Fields of subclasses hide the ones of their superclasses
+		this.indexByName = new HashMap<>();
+		this.indexByLowerCaseName = new HashMap<>();
+		for (int end = fields.size(); end > 0; ) {
+			int start = end;
+			Class<?> declaringClass = fields.get(end - 1).getDeclaringClass();
+			while (start > 0 && fields.get(start - 1).getDeclaringClass() == declaringClass) {
+				start--;
+			}
+			for (int i = start; i < end; i++) {
+				String name = fields.get(i).getName();
+				indexByName.putIfAbsent(name, i);
+				indexByLowerCaseName.putIfAbsent(name.toLowerCase(Locale.ROOT), i);
+			}
+			end = start;
+		}
+	}
+
+	/**
+	 * Get the metadata of a class, reading it on first use.
+	 *
+	 * @param type The class
+	 * @return The shared metadata
+	 */
+	public static ClassMetadata of(Class<?> type) {
+		LOOKUPS.increment();
+		return REGISTRY.get(type);
+	}
+
+	/**
+	 * @return Number of lookups that found already read metadata
+	 */
+	public static long getHitCount() {
+		return Math.max(LOOKUPS.sum() - MISSES.sum(), 0);
+	}
+
+	/**
+	 * @return Number of lookups that had to read the metadata of a class, including the superclasses read along the way
+	 */
+	public static long getMissCount() {
+		return MISSES.sum();
+	}
+
+	/**
+	 * @return The described class
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * @return All fields, including static and inherited ones
+	 */
+	public List<FieldInfo> getFields() {
+		return fields;
+	}
+
+	/**
+	 * @return The fields declared by the class itself, including static ones. The same fields as {@link Class#getDeclaredFields()}
+	 */
+	public List<FieldInfo> getDeclaredFields() {
+		return declaredFields;
+	}
+
+	/**
+	 * @return All non-static fields, including inherited ones
+	 */
+	public List<FieldInfo> getInstanceFields() {
+		return instanceFields;
+	}
+
+	/**
+	 * @return The methods declared by the class itself. The same methods as {@link Class#getDeclaredMethods()}
+	 */
+	public List<MethodInfo> getDeclaredMethods() {
+		List<MethodInfo> declaredMethods = this.declaredMethods;
+		if (declaredMethods == null) { // Racing threads read equal methods, so any of them can be kept
+			Method[] declared = type.getDeclaredMethods();
+			MethodInfo[] methods = new MethodInfo[declared.length];
+			for (int i = 0; i < declared.length; i++) {
+				methods[i] = new MethodInfo(declared[i]);
+			}
+			this.declaredMethods = declaredMethods = Collections.unmodifiableList(Arrays.asList(methods));
+		}
+		return declaredMethods;
+	}
+
+	/**
+	 * @param name Name of the field
+	 * @return Index of the field in {@link #getFields()}, or -1 if there is no such field. Fields of subclasses hide the ones of superclasses
+	 */
+	public int indexOf(String name) {
+		Integer index = indexByName.get(name);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * Find a field by its name, ignoring case. An exact match is preferred.
+	 * Otherwise the first matching field of the most specific class is used.
+	 *
+	 * @param name Name of the field, in any case
+	 * @return Index of the field in {@link #getFields()}, or -1 if there is no such field
+	 */
+	public int indexOfIgnoreCase(String name) {
+		Integer index = indexByName.get(name);
+		if (index == null)
+			index = indexByLowerCaseName.get(name.toLowerCase(Locale.ROOT));
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * @param name Name of the field
+	 * @return The field, or null if there is no such field. Fields of subclasses hide the ones of superclasses
+	 */
+	public FieldInfo getField(String name) {
+		int index = indexOf(name);
+		return index >= 0 ? fields.get(index) : null;
+	}
+
+	/**
+	 * @param name Name of the field, in any case
+	 * @return The field, or null if there is no such field. See {@link #indexOfIgnoreCase(String)}
+	 */
+	public FieldInfo getFieldIgnoreCase(String name) {
+		int index = indexOfIgnoreCase(name);
+		return index >= 0 ? fields.get(index) : null;
+	}
+
+	/**
+	 * @param name Name of the field
+	 * @return A field declared by the class itself, or null if there is no such field
+	 */
+	public FieldInfo getDeclaredField(String name) {
+		FieldInfo field = getField(name);
+		return field != null && field.getDeclaringClass() == type ? field : null;
+	}
+
+	@Override
+	public String toString() {
+		return "ClassMetadata[" + type.getName() + "]";
+	}
+
+	/**
+	 * @param field The field to copy
+	 * @return A new instance of the field, which isn't accessible unless the field is public
+	 */
+	static Field copyOf(Field field) {
+		try {
+			return field.getDeclaringClass().getDeclaredField(field.getName());
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException("Declared field not found: " + field, e);
+		}
+	}
+
+	/**
+	 * @param method The method to copy
+	 * @return A new instance of the method, which isn't accessible unless the method is public
+	 */
+	static Method copyOf(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		try {
+			Method retval = declaringClass.getDeclaredMethod(method.getName(), method.getParameterTypes());
+			if (retval.equals(method))
+				return retval;
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Declared method not found: " + method, e);
+		}
+
+		// Only differs in the return type, like a bridge method, which getDeclaredMethod doesn't choose
+		for (Method retval : declaringClass.getDeclaredMethods()) {
+			if (retval.equals(method))
+				return retval;
+		}
+		throw new IllegalStateException("Declared method not found: " + method);
+	}
+
+	/**
+	 * A field and its precomputed properties.
+	 */
+	public static final class FieldInfo {
+		private final Field field;
+		private final int index;
+		private final int modifiers;
+		private volatile FieldAccessor<?, ?> accessor;
+
+		private FieldInfo(Field field, int index) {
+			this.field = field;
+			this.index = index;
+			this.modifiers = field.getModifiers();
+		}
+
+		/**
+		 * @return A copy of the field, which may be modified
+		 */
+		public Field getField() {
+			return copyOf(field);
+		}
+
+		/**
+		 * @return Index of the field in {@link ClassMetadata#getFields()}. The same for subclasses
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		public String getName() {
+			return field.getName();
+		}
+
+		public Class<?> getType() {
+			return field.getType();
+		}
+
+		public Class<?> getDeclaringClass() {
+			return field.getDeclaringClass();
+		}
+
+		public int getModifiers() {
+			return modifiers;
+		}
+
+		public boolean isStatic() {
+			return Modifier.isStatic(modifiers);
+		}
+
+		public boolean isFinal() {
+			return Modifier.isFinal(modifiers);
+		}
+
+		public boolean isTransient() {
+			return Modifier.isTransient(modifiers);
+		}
+
+		/**
+		 * Get an accessor for the field, creating it on first use. The accessor has its own copy of the field, which is made accessible.
+		 *
+		 * @return The accessor
+		 */
+		public FieldAccessor<?, ?> getAccessor() {
+			FieldAccessor<?, ?> accessor = this.accessor;
+			if (accessor == null) // Racing threads create equal accessors, so any of them can be kept
+				this.accessor = accessor = FieldAccessor.of(copyOf(field));
+			return accessor;
+		}
+
+		@Override
+		public String toString() {
+			return field.toString();
+		}
+	}
+
+	/**
+	 * A method and its precomputed properties.
+	 */
+	public static final class MethodInfo {
+		private final Method method;
+		private final Class<?>[] parameterTypes;
+		private final int modifiers;
+
+		private MethodInfo(Method method) {
+			this.method = method;
+			this.parameterTypes = method.getParameterTypes();
+			this.modifiers = method.getModifiers();
+		}
+
+		/**
+		 * @return A copy of the method, which may be modified
+		 */
+		public Method getMethod() {
+			return copyOf(method);
+		}
+
+		public String getName() {
+			return method.getName();
+		}
+
+		public Class<?> getDeclaringClass() {
+			return method.getDeclaringClass();
+		}
+
+		public Class<?> getReturnType() {
+			return method.getReturnType();
+		}
+
+		public int getParameterCount() {
+			return parameterTypes.length;
+		}
+
+		/**
+		 * @param index Index of the parameter
+		 * @return Type of the parameter
+		 */
+		public Class<?> getParameterType(int index) {
+			return parameterTypes[index];
+		}
+
+		/**
+		 * @return The parameter types, shared and not to be modified
+		 */
+		Class<?>[] parameterTypes() {
+			return parameterTypes;
+		}
+
+		public int getModifiers() {
+			return modifiers;
+		}
+
+		public boolean isStatic() {
+			return Modifier.isStatic(modifiers);
+		}
+
+		public boolean isBridge() {
+			return method.isBridge();
+		}
+
+		public boolean isSynthetic() {
+			return method.isSynthetic();
+		}
+
+		@Override
+		public String toString() {
+			return method.toString();
+		}
+	}
+
+}
@@ -1,9 +1,16 @@
 package com.frejdh.util.common.toolbox;
 
+import com.frejdh.util.common.compiled.CompiledAccessor;
+import com.frejdh.util.common.compiled.CompiledAccessors;
+import com.frejdh.util.common.copying.DeepCopier;
+import com.frejdh.util.common.merging.MergeStrategy;
+import com.frejdh.util.common.merging.Merger;
+
 import java.io.*;
-import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Generic toolbox class.
@@ -13,14 +20,63 @@ import java.util.*;
 @SuppressWarnings({"WeakerAccess", "unused", "UnusedReturnValue"})
 public class CommonUtils {
 
+	private static volatile MergeStrategy mergeStrategy = MergeStrategy.reflective();
+
+	// Frames are fetched lazily in batches, so only the top of the stack is walked regardless of its depth
+	private static final StackWalker STACK_WALKER = StackWalker.getInstance(EnumSet.of(StackWalker.Option.RETAIN_CLASS_REFERENCE), 4);
+	// Skips the public method of this class, the walk itself is not part of the stream
+	private static final Function<Stream<StackWalker.StackFrame>, Optional<StackWalker.StackFrame>> CURRENT_FRAME = frames -> frames.skip(1).findFirst();
+	private static final Function<Stream<StackWalker.StackFrame>, Optional<StackWalker.StackFrame>> CALLING_FRAME = frames -> frames.skip(2).findFirst();
+
+	/**
+	 * Decides which element is kept when duplicates are removed from a list.
+	 */
+	public enum DuplicateRetention {
+		/** Keep the first occurrence, at its position. */
+		KEEP_FIRST,
+		/** Keep the last occurrence, at its position. */
+		KEEP_LAST
+	}
+
 	/**
-	 * Match any number with. The decimal (.) and the negative character (-) are accepted
+	 * Match any number with. The decimal (.) and the negative character (-) are accepted.
+	 * See {@link NumberScanner} for other formats, and for parsing without creating substrings.
 	 *
 	 * @param str String to check
 	 * @return A boolean indicating whether the string was numeric or not
 	 */
 	public static boolean isNumeric(String str) {
-		return str.matches("-?\\d+(\\.\\d+)?");
+		return NumberScanner.standard().isNumeric(str);
+	}
+
+	/**
+	 * Set the strategy used by {@link #softMerge(Object, Object)}, {@link #softMergeInverse(Object, Object)} and {@link #overrideMerge(Object, Object)}.
+	 * Defaults to {@link MergeStrategy#reflective()}. Classes with a {@link CompiledAccessor} are merged through it regardless of the strategy.
+	 *
+	 * @param strategy The strategy to use, for example {@link MergeStrategy#generated()}
+	 */
+	public static void setMergeStrategy(MergeStrategy strategy) {
+		mergeStrategy = Objects.requireNonNull(strategy, "The merge strategy cannot be null");
+	}
+
+	/**
+	 * @return The strategy currently used for merging
+	 */
+	public static MergeStrategy getMergeStrategy() {
+		return mergeStrategy;
+	}
+
+	/**
+	 * Get the merger for a class. A {@link CompiledAccessor} generated at build time is preferred over the merge strategy.
+	 *
+	 * @param type Class to get the merger for
+	 * @param <T> Class type of the merged objects
+	 * @return The merger
+	 * @throws IllegalAccessException Access denied to a field of the class
+	 */
+	static <T> Merger<T> mergerFor(Class<T> type) throws IllegalAccessException {
+		CompiledAccessor<T> compiled = CompiledAccessors.find(type);
+		return compiled != null ? compiled : mergeStrategy.mergerFor(type);
 	}
 
 	/**
@@ -33,32 +89,13 @@ public class CommonUtils {
 	 * @throws IllegalAccessException Access denied to field
 	 * @throws InvalidClassException  The class of the two objects doesn't match
 	 */
-	@SuppressWarnings({"unchecked", "rawtypes"})
+	@SuppressWarnings("unchecked")
 	public static <T> T softMerge(T first, T second) throws IllegalAccessException, InvalidClassException {
 		if (!first.getClass().equals(second.getClass()))
 			throw new InvalidClassException("The class " + first.getClass().getCanonicalName() + " cannot be merged with the class " + second.getClass().getCanonicalName());
 
-		Field[] fields = first.getClass().getDeclaredFields();
-		for (Field field : fields) {
-			field.setAccessible(true);
-
-			// If final, skip!
-			if ((field.getModifiers() & Modifier.FINAL) == Modifier.FINAL) // getModifiers() is a bitmask, hence why bitwise comparison is used
-				continue;
-
-			Object firstVal = field.get(first);
-			Object secVal = field.get(second);
-
-			if (firstVal instanceof List && secVal instanceof List) { // If lists, merge
-				((List) firstVal).addAll((List) secVal);
-				field.set(first, firstVal);
-			} else {
-				Object value = (firstVal != null) ? firstVal : secVal;
-				field.set(first, value);
-			}
-
-			field.setAccessible(false);
-		}
+		Merger<T> merger = mergerFor((Class<T>) first.getClass());
+		merger.softMerge(first, second);
 		return first;
 	}
 
@@ -72,26 +109,13 @@ public class CommonUtils {
 	 * @throws IllegalAccessException Access denied to field
 	 * @throws InvalidClassException  The class of the two objects doesn't match
 	 */
+	@SuppressWarnings("unchecked")
 	public static <T> T softMergeInverse(T first, T second) throws IllegalAccessException, InvalidClassException {
 		if (!first.getClass().equals(second.getClass()))
 			throw new InvalidClassException("The class " + first.getClass().getCanonicalName() + " cannot be merged with the class " + second.getClass().getCanonicalName());
 
-		Field[] fields = first.getClass().getDeclaredFields();
-		for (Field field : fields) {
-			field.setAccessible(true);
-
-			// If final, skip!
-			if ((field.getModifiers() & Modifier.FINAL) == Modifier.FINAL) // getModifiers() is a bitmask, hence why bitwise comparison is used
-				continue;
-
-			Object firstVal = field.get(first);
-			Object secVal = field.get(second);
-
-			Object value = (secVal != null) ? secVal : firstVal;
-			field.set(first, value);
-
-			field.setAccessible(false);
-		}
+		Merger<T> merger = mergerFor((Class<T>) first.getClass());
+		merger.softMergeInverse(first, second);
 		return first;
 	}
 
@@ -112,123 +136,171 @@ public class CommonUtils {
 		if (!first.getClass().equals(second.getClass()))
 			throw new InvalidClassException("The class " + first.getClass().getCanonicalName() + " cannot be merged with the class " + second.getClass().getCanonicalName());
 
-		Field[] fields = first.getClass().getDeclaredFields();
-		Object retval = first.getClass().newInstance();
-		for (Field field : fields) {
-			field.setAccessible(true);
-
-			// If final, skip!
-			if ((field.getModifiers() & Modifier.FINAL) == Modifier.FINAL) // getModifiers() is a bitmask, hence why bitwise comparison is used
-				continue;
-
-			Object secVal = field.get(second);
-			field.set(retval, secVal);
-			field.setAccessible(false);
+		CompiledAccessor<T> compiled = CompiledAccessors.find((Class<T>) first.getClass());
+		if (compiled != null && compiled.canCopy()) {
+			T retval = compiled.newInstance();
+			compiled.copyFields(retval, second);
+			return retval;
 		}
-		return (T) retval;
+
+		Merger<T> merger = mergerFor((Class<T>) first.getClass());
+		T retval = (T) first.getClass().newInstance();
+		merger.copyFields(retval, second);
+		return retval;
 	}
 
 	/**
-	 * Removes all duplicates for a given fieldname in a List of objects
+	 * Removes all duplicates for a given fieldname in a List of objects. The last one of the duplicates is kept.
+	 * The field is matched case-insensitively among the non-final fields of the class, and null values are never considered duplicates.
 	 *
 	 * @param list List to delete duplicates in
 	 * @param fieldname Fieldname to remove duplicates for
 	 * @param <T> Class type of objects
-	 * @return A boolean with the result
+	 * @return The same list without the duplicates, or null if the list was null or empty
 	 * @throws IllegalAccessException Access denied to field
 	 */
 	public static <T> List<T> removeListDuplicatesByFieldName(List<T> list, String fieldname) throws IllegalAccessException {
+		return removeListDuplicatesByFieldName(list, fieldname, DuplicateRetention.KEEP_LAST);
+	}
+
+	/**
+	 * Removes all duplicates for a given fieldname in a List of objects.
+	 * The field is matched case-insensitively among the non-final fields of the class, and null values are never considered duplicates.
+	 *
+	 * @param list List to delete duplicates in
+	 * @param fieldname Fieldname to remove duplicates for
+	 * @param retention Which one of the duplicates to keep
+	 * @param <T> Class type of objects
+	 * @return The same list without the duplicates, or null if the list was null or empty
+	 * @throws IllegalAccessException Access denied to field
+	 */
+	public static <T> List<T> removeListDuplicatesByFieldName(List<T> list, String fieldname, DuplicateRetention retention) throws IllegalAccessException {
 		if (list == null || list.isEmpty())
 			return null;
 
-		Field[] fields = list.get(0).getClass().getDeclaredFields();
-		List<Integer> indexesToRemove = new ArrayList<>();
-		for (int i = 0; i < list.size() - 1; i++) {
-			T first = list.get(i);
+		Function<T, Object> keyExtractor = Deduplication.fieldKeyExtractor(list.get(0).getClass(), fieldname);
+		if (keyExtractor == null) // No such field, nothing can be a duplicate
+			return list;
 
-			for (int j = i + 1; j < list.size(); j++) {
-				T second = list.get(j);
-				for (Field field : fields) {
+		return Deduplication.replaceContent(list, Deduplication.distinctByKey(list, keyExtractor, retention));
+	}
 
-					// If final, skip!
-					if ((field.getModifiers() & Modifier.FINAL) == Modifier.FINAL) // getModifiers() is a bitmask, hence why bitwise comparison is used
-						continue;
-					else if (!field.getName().toLowerCase().equals(fieldname.toLowerCase())) // Not duplicate
-						continue;
-					field.setAccessible(true);
+	/**
+	 * Removes all duplicates in a List of objects, based on a key. Elements with a null key are never considered duplicates.
+	 *
+	 * @param list List to delete duplicates in
+	 * @param keyExtractor Function returning the key to compare the elements by. The key must implement equals() and hashCode()
+	 * @param retention Which one of the duplicates to keep
+	 * @param <T> Class type of objects
+	 * @param <K> Class type of the keys
+	 * @return The same list without the duplicates, or null if the list was null or empty
+	 */
+	public static <T, K> List<T> removeListDuplicates(List<T> list, Function<? super T, K> keyExtractor, DuplicateRetention retention) {
+		if (list == null || list.isEmpty())
+			return null;
 
-					Object firstVal = field.get(first);
-					Object secVal = field.get(second);
+		return Deduplication.replaceContent(list, Deduplication.distinctByKey(list, keyExtractor, retention));
+	}
 
-					if (firstVal != null && firstVal.equals(secVal))
-						indexesToRemove.add(i);
-					field.setAccessible(false);
-				}
-			}
-		}
+	/**
+	 * Removes all duplicates in a List of objects. Objects of classes overriding equals() are compared through it,
+	 * while other objects are compared field by field through {@link FieldEquality}. Null elements are never considered duplicates.
+	 * Use {@link FieldEquality#keyOf(Object)} as the key extractor of {@link #parallelRemoveListDuplicates(List, Function, DuplicateRetention, ParallelOptions)} for a parallel version.
+	 *
+	 * @param list List to delete duplicates in
+	 * @param retention Which one of the duplicates to keep
+	 * @param <T> Class type of objects
+	 * @return The same list without the duplicates, or null if the list was null or empty
+	 */
+	public static <T> List<T> removeListDuplicatesByFields(List<T> list, DuplicateRetention retention) {
+		return removeListDuplicates(list, FieldEquality::keyOf, retention);
+	}
 
-		for (int i = indexesToRemove.size() - 1; i >= 0; i--) {
-			list.remove(indexesToRemove.get(i).intValue());
-		}
+	/**
+	 * Parallel version of {@link #removeListDuplicatesByFieldName(List, String, DuplicateRetention)}.
+	 * Lists below the threshold of the options are processed sequentially. The result is the same as the sequential version.
+	 *
+	 * @param list List to delete duplicates in
+	 * @param fieldname Fieldname to remove duplicates for
+	 * @param retention Which one of the duplicates to keep
+	 * @param options Pool and threshold to use, for example {@link ParallelOptions#defaults()}
+	 * @param <T> Class type of objects
+	 * @return The same list without the duplicates, or null if the list was null or empty
+	 * @throws IllegalAccessException Access denied to field
+	 */
+	public static <T> List<T> parallelRemoveListDuplicatesByFieldName(List<T> list, String fieldname, DuplicateRetention retention, ParallelOptions options) throws IllegalAccessException {
+		if (list == null || list.isEmpty())
+			return null;
 
-		return list;
+		Function<T, Object> keyExtractor = Deduplication.fieldKeyExtractor(list.get(0).getClass(), fieldname);
+		if (keyExtractor == null) // No such field, nothing can be a duplicate
+			return list;
+
+		return parallelRemoveListDuplicates(list, keyExtractor, retention, options);
+	}
+
+	/**
+	 * Parallel version of {@link #removeListDuplicates(List, Function, DuplicateRetention)}. The key extractor must be thread-safe.
+	 * Lists below the threshold of the options are processed sequentially. The result is the same as the sequential version.
+	 *
+	 * @param list List to delete duplicates in
+	 * @param keyExtractor Function returning the key to compare the elements by. The key must implement equals() and hashCode()
+	 * @param retention Which one of the duplicates to keep
+	 * @param options Pool and threshold to use, for example {@link ParallelOptions#defaults()}
+	 * @param <T> Class type of objects
+	 * @param <K> Class type of the keys
+	 * @return The same list without the duplicates, or null if the list was null or empty
+	 */
+	public static <T, K> List<T> parallelRemoveListDuplicates(List<T> list, Function<? super T, K> keyExtractor, DuplicateRetention retention, ParallelOptions options) {
+		if (list == null || list.isEmpty())
+			return null;
+		else if (!options.isParallel(list.size()))
+			return removeListDuplicates(list, keyExtractor, retention);
+
+		return Deduplication.replaceContent(list, ParallelDeduplication.distinctByKey(list, keyExtractor, retention, options));
 	}
 
 	/**
 	 * Merges two objects together in case they are duplicates. ONLY fields with the value null in the first found object are replaced with the corresponding value of the duplicate one. Uses equals().
+	 * Lists found in both objects are concatenated, after which their duplicates are merged in the same way.
+	 * The first found objects are kept in their original order. Runs in linear time, and nested lists are handled without recursion.
 	 *
-	 * @param list The object with the highest priority. Only null values can be replaced.
+	 * @param list The list to merge the duplicates of. The first found objects have the highest priority.
 	 * @param <T> Class type of objects
-	 * @return A new instance which is the merged result
+	 * @return The same list with the duplicates merged
 	 * @throws IllegalAccessException Access denied to field
 	 */
-	@SuppressWarnings({"unchecked", "rawtypes"})
 	public static <T> List<T> softMergeDuplicates(List<T> list) throws IllegalAccessException {
 		if (list == null || list.isEmpty())
 			return list;
 
-		Set<T> tempList = new LinkedHashSet<>();
-		boolean duplicate;
-		for (int i = 0; i < list.size(); i++) {
-			T el1 = list.get(i);
-			duplicate = false;
-
-			for (int j = i + 1; j < list.size(); j++) {
-				T el2 = list.get(j);
-
-				if (el1.equals(el2)) {
-					Field[] fields = el1.getClass().getDeclaredFields();
-					for (Field field : fields) {
-						field.setAccessible(true);
-						Object firstVal = field.get(el1);
-						Object secVal = field.get(el2);
-
-						if (firstVal instanceof List && secVal instanceof List) { // If lists, merge
-							((List) firstVal).addAll((List) secVal);
-							softMergeDuplicates((List) firstVal);
-							field.set(el1, firstVal);
-						} else {
-							Object value = (firstVal != null) ? firstVal : secVal;
-							field.set(el1, value);
-						}
-
-						field.setAccessible(false);
-					}
-					duplicate = true;
-				}
-			}
+		Deduplication.softMergeDuplicates(list);
+		return list;
+	}
 
-			if (!duplicate)
-				tempList.add(el1);
-		}
+	/**
+	 * Parallel version of {@link #softMergeDuplicates(List)}. The top level list is grouped and merged in parallel,
+	 * while nested lists are handled sequentially. Lists below the threshold of the options are processed sequentially.
+	 * The result is the same as the sequential version.
+	 *
+	 * @param list The list to merge the duplicates of. The first found objects have the highest priority.
+	 * @param options Pool and threshold to use, for example {@link ParallelOptions#defaults()}
+	 * @param <T> Class type of objects
+	 * @return The same list with the duplicates merged
+	 * @throws IllegalAccessException Access denied to field
+	 */
+	public static <T> List<T> parallelSoftMergeDuplicates(List<T> list, ParallelOptions options) throws IllegalAccessException {
+		if (list == null || list.isEmpty())
+			return list;
+		else if (!options.isParallel(list.size()))
+			return softMergeDuplicates(list);
 
-		list.clear();
-		list.addAll(tempList);
+		ParallelDeduplication.softMergeDuplicates(list, options);
 		return list;
 	}
 
 	/**
-	 * Checks if two objects equals each other based on all fields.
+	 * Checks if two objects equals each other based on all fields declared by their class. See {@link FieldEquality} for how the fields are compared.
 	 *
 	 * @param first Object 1 to compare with
 	 * @param second Object 2 to compare with
@@ -237,24 +309,43 @@ public class CommonUtils {
 	 * @throws IllegalAccessException Access denied to field
 	 * @throws InvalidClassException  The class of the two objects doesn't match
 	 */
+	@SuppressWarnings("unchecked")
 	public static <T> boolean allFieldsEquals(T first, T second) throws IllegalAccessException, InvalidClassException {
 		if (!first.getClass().equals(second.getClass()))
 			throw new InvalidClassException("The class " + first.getClass().getCanonicalName() + " cannot be merged with the class " + second.getClass().getCanonicalName());
 
-		Field[] fields = first.getClass().getDeclaredFields();
-		for (Field field : fields) {
-			field.setAccessible(true);
-			Object firstVal = field.get(first);
-			Object secVal = field.get(second);
+		return FieldEquality.of((Class<T>) first.getClass()).fieldsEqual(first, second);
+	}
 
-			if (!firstVal.equals(secVal))
-				return false;
-		}
-		return true;
+	/**
+	 * Hash an object based on all fields declared by its class, consistent with {@link #allFieldsEquals(Object, Object)}.
+	 *
+	 * @param obj Object to hash
+	 * @param <T> Class type of the object
+	 * @return The hash code, or 0 if the object was null
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> int fieldsHashCode(T obj) {
+		if (obj == null)
+			return 0;
+		return FieldEquality.of((Class<T>) obj.getClass()).fieldsHashCode(obj);
 	}
 
 	/**
-	 * Recast an object so that it works between different class-loaders
+	 * Deep-copy an object. See {@link DeepCopier} for the supported classes.
+	 *
+	 * @param obj Object to copy
+	 * @param <T> Class type of the object
+	 * @return The copy, or null if the object was null
+	 * @throws DeepCopier.UnsupportedTypeException If a class in the object graph can't be copied
+	 */
+	public static <T> T deepCopy(T obj) {
+		return DeepCopier.standard().copy(obj);
+	}
+
+	/**
+	 * Recast an object so that it works between different class-loaders.
+	 * The class-loader of this library is used for resolving the classes.
 	 *
 	 * @param obj Object to cast
 	 * @param <T> Class to be used for casting
@@ -262,28 +353,64 @@ public class CommonUtils {
 	 * @throws IOException            If IO related exceptions occur
 	 * @throws ClassNotFoundException If the class couldn't be found according to the class-loader
 	 */
-	@SuppressWarnings({"unchecked", "TryFinallyCanBeTryWithResources"})
 	public static <T> T recastObject(Object obj) throws IOException, ClassNotFoundException {
-		if (obj != null) {
-			ByteArrayOutputStream baous = new ByteArrayOutputStream();
-			{
-				ObjectOutputStream oos = new ObjectOutputStream(baous);
+		return recastObject(obj, CommonUtils.class.getClassLoader());
+	}
+
+	/**
+	 * Recast an object so that it works between different class-loaders. The object graph is deep-copied through a {@link DeepCopier},
+	 * unless it contains classes that it doesn't support (such as classes with custom serialization methods),
+	 * in which case the object is serialized and deserialized instead.
+	 *
+	 * @param obj Object to cast
+	 * @param classLoader The class-loader to resolve the classes with
+	 * @param <T> Class to be used for casting
+	 * @return The object after recast
+	 * @throws IOException            If IO related exceptions occur
+	 * @throws ClassNotFoundException If the class couldn't be found according to the class-loader
+	 */
+	public static <T> T recastObject(Object obj, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+		if (obj == null)
+			return null;
+
+		try {
+			return DeepCopier.forClassLoader(classLoader).copy(obj);
+		} catch (DeepCopier.UnsupportedTypeException e) {
+			return recastObjectBySerialization(obj, classLoader);
+		} catch (TypeNotPresentException e) {
+			throw new ClassNotFoundException(e.typeName(), e.getCause());
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "TryFinallyCanBeTryWithResources"})
+	private static <T> T recastObjectBySerialization(Object obj, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream baous = new ByteArrayOutputStream();
+		{
+			ObjectOutputStream oos = new ObjectOutputStream(baous);
+			try {
+				oos.writeObject(obj);
+			} finally {
 				try {
-					oos.writeObject(obj);
-				} finally {
-					try {
-						oos.close();
-					} catch (Exception ignored) {
-					}
+					oos.close();
+				} catch (Exception ignored) {
 				}
 			}
+		}
 
-			byte[] bb = baous.toByteArray();
-			if (bb.length > 0) {
-				ByteArrayInputStream bais = new ByteArrayInputStream(bb);
-				ObjectInputStream ois = new ObjectInputStream(bais);
-				return (T) ois.readObject();
-			}
+		byte[] bb = baous.toByteArray();
+		if (bb.length > 0) {
+			ByteArrayInputStream bais = new ByteArrayInputStream(bb);
+			ObjectInputStream ois = new ObjectInputStream(bais) {
+				@Override
+				protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+					try {
+						return Class.forName(desc.getName(), false, classLoader);
+					} catch (ClassNotFoundException e) {
+						return super.resolveClass(desc); // Primitive types
+					}
+				}
+			};
+			return (T) ois.readObject();
 		}
 		return null;
 	}
@@ -295,11 +422,8 @@ public class CommonUtils {
 	 * @return The method name
 	 */
 	public static String getCallingMethodName(boolean showParenthesis) {
-		try {
-			return new Throwable().getStackTrace()[2].getMethodName() + (showParenthesis ? "()" : "");
-		} catch (Throwable e) {
-			throw new RuntimeException("Undefined method name. How is this possible?", e);
-		}
+		String name = STACK_WALKER.walk(CALLING_FRAME).map(StackWalker.StackFrame::getMethodName).orElseThrow(CommonUtils::undefinedMethodName);
+		return showParenthesis ? name + "()" : name;
 	}
 
 	/**
@@ -309,11 +433,32 @@ public class CommonUtils {
 	 * @return The method name
 	 */
 	public static String getMethodName(boolean showParenthesis) {
-		try {
-			return new Throwable().getStackTrace()[1].getMethodName() + (showParenthesis ? "()" : "");
-		} catch (Throwable e) {
-			throw new RuntimeException("Undefined method name. How is this possible?", e);
-		}
+		String name = STACK_WALKER.walk(CURRENT_FRAME).map(StackWalker.StackFrame::getMethodName).orElseThrow(CommonUtils::undefinedMethodName);
+		return showParenthesis ? name + "()" : name;
+	}
+
+	/**
+	 * Get the stack frame of the method that called the method that you're located in.
+	 * Gives access to the class, method name and line number, without building any strings.
+	 *
+	 * @return The stack frame. The declaring class is retained.
+	 */
+	public static StackWalker.StackFrame getCallingFrame() {
+		return STACK_WALKER.walk(CALLING_FRAME).orElseThrow(CommonUtils::undefinedMethodName);
+	}
+
+	/**
+	 * Get the stack frame of the method that you're currently located in.
+	 * Gives access to the class, method name and line number, without building any strings.
+	 *
+	 * @return The stack frame. The declaring class is retained.
+	 */
+	public static StackWalker.StackFrame getCurrentFrame() {
+		return STACK_WALKER.walk(CURRENT_FRAME).orElseThrow(CommonUtils::undefinedMethodName);
+	}
+
+	private static RuntimeException undefinedMethodName() {
+		return new RuntimeException("Undefined method name. How is this possible?");
 	}
 
 	/**
@@ -322,9 +467,18 @@ public class CommonUtils {
 	 * @return A stacktrace string
 	 */
 	public static String stacktraceToString(Throwable e) {
-		StringWriter stacktrace = new StringWriter();
-		e.printStackTrace(new PrintWriter(stacktrace));
-		return stacktrace.toString();
+		return StackTraceRenderer.defaults().toString(e);
+	}
+
+	/**
+	 * Get a stacktrace in the form of a string, with the size of the string bounded by the renderer.
+	 * Use {@link StackTraceRenderer#render(Throwable, Appendable)} to write the stacktrace directly to an output instead.
+	 * @param e The exception to derive the stacktrace string from
+	 * @param renderer The renderer to use, with the wanted limits and filters
+	 * @return A stacktrace string
+	 */
+	public static String stacktraceToString(Throwable e, StackTraceRenderer renderer) {
+		return renderer.toString(e);
 	}
 
 	/**
@@ -332,87 +486,191 @@ public class CommonUtils {
 	 * @return A stacktrace string
 	 */
 	public static String stacktraceToString() {
-		StringWriter stacktrace = new StringWriter();
-		new Exception().printStackTrace(new PrintWriter(stacktrace));
-		return stacktrace.toString();
+		return StackTraceRenderer.defaults().toString(new Exception());
 	}
 
 	/**
-	 * Prepend an element to an array.
+	 * Prepend an element to an array. Use an {@link ArrayBuilder} when adding multiple elements.
 	 *
-	 * @param array 	Array to prepend the element to
+	 * @param array 	Array to prepend the element to. Null is treated as an empty array
 	 * @param element 	The element that should be added
-	 * @return A new instance of the array
+	 * @return A new instance of the array, with the same component type. If the array was null, the type of the element is used
 	 */
-	@SuppressWarnings("unchecked")
 	public static <T> T[] prependToArray(T[] array, T element) {
-		if (array == null) {
-			array = (T[]) new Object[1];
-		}
-
-		final int oldLength = array.length;
-		final int newLength = oldLength + 1;
-		T[] newArray = (T[]) new Object[newLength];
-		System.arraycopy(array, 0, newArray, 1, newLength);
-		newArray[0] = element;
-		return newArray;
+		ArrayBuilder<T> builder = arrayBuilderFor(array, element);
+		builder.append(element);
+		if (array != null)
+			builder.appendAll(array);
+		return builder.build();
 	}
 
 	/**
-	 * Append an element to an array.
+	 * Append an element to an array. Use an {@link ArrayBuilder} when adding multiple elements.
 	 *
-	 * @param array 	Array to append the element to
+	 * @param array 	Array to append the element to. Null is treated as an empty array
 	 * @param element 	The element that should be added
-	 * @return A new instance of the array
+	 * @return A new instance of the array, with the same component type. If the array was null, the type of the element is used
 	 */
-	@SuppressWarnings("unchecked")
 	public static <T> T[] appendToArray(T[] array, T element) {
-		if (array == null) {
-			array = (T[]) new Object[1];
-		}
+		ArrayBuilder<T> builder = arrayBuilderFor(array, element);
+		if (array != null)
+			builder.appendAll(array);
+		return builder.append(element).build();
+	}
 
-		final int oldLength = array.length;
-		final int newLength = oldLength + 1;
-		array = Arrays.copyOf(array, newLength);
-		array[oldLength] = element;
-		return array;
+	// Sized exactly, so that the built array is the builder's own
+	@SuppressWarnings("unchecked")
+	private static <T> ArrayBuilder<T> arrayBuilderFor(T[] array, T element) {
+		if (array != null)
+			return new ArrayBuilder<>((Class<T>) array.getClass().getComponentType(), array.length + 1);
+		return new ArrayBuilder<>(element != null ? (Class<T>) element.getClass() : (Class<T>) Object.class, 1);
 	}
 
 	/**
 	 * Creates a string based on an array. The internal toString() method is used for each element.
-	 * Example output: <i>["element 1", "element 2"]</i>.
+	 * Example output: <i>[element 1, element 2]</i>.
 	 *
 	 * @param array	Array that is to be converted to string.
 	 * @param <T>	Object type for the array.
 	 * @return A string based on the array elements.
 	 */
 	public static <T> String arrayToString(T[] array) {
-		if (array == null)
-			return "null";
-		else if (array.length == 0)
-			return "[]";
-
-		StringBuilder sb = new StringBuilder("[").append(array[0]);
-		boolean isFirst = true;
-		for (int i = 1; i < array.length; i++) {
-			sb.append(array[i]);
-
-			// Check if another element exists
-			if (i + 1 != array.length) {
-				sb.append(", ");
-			}
-		}
-		return sb.append("]").toString();
+		return ArrayFormatting.toString(array, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a string based on an array, showing at most the given number of elements.
+	 * Example output with a limit of 2: <i>[element 1, element 2, ... 8 more]</i>.
+	 *
+	 * @param array	Array that is to be converted to string.
+	 * @param maxElements The maximum number of elements to show.
+	 * @param <T>	Object type for the array.
+	 * @return A string based on the array elements.
+	 */
+	public static <T> String arrayToString(T[] array, int maxElements) {
+		return ArrayFormatting.toString(array, ArrayFormatting.checkLimit(maxElements));
+	}
+
+	/**
+	 * @param array	Array that is to be converted to string.
+	 * @param maxElements The maximum number of elements to show.
+	 * @return A string based on the array elements, without boxing them.
+	 * @see #arrayToString(Object[], int)
+	 */
+	public static String arrayToString(int[] array, int maxElements) {
+		return ArrayFormatting.toString(array, ArrayFormatting.checkLimit(maxElements));
+	}
+
+	/**
+	 * @param array	Array that is to be converted to string.
+	 * @param maxElements The maximum number of elements to show.
+	 * @return A string based on the array elements, without boxing them.
+	 * @see #arrayToString(Object[], int)
+	 */
+	public static String arrayToString(long[] array, int maxElements) {
+		return ArrayFormatting.toString(array, ArrayFormatting.checkLimit(maxElements));
+	}
+
+	/**
+	 * @param array	Array that is to be converted to string.
+	 * @param maxElements The maximum number of elements to show.
+	 * @return A string based on the array elements, without boxing them.
+	 * @see #arrayToString(Object[], int)
+	 */
+	public static String arrayToString(double[] array, int maxElements) {
+		return ArrayFormatting.toString(array, ArrayFormatting.checkLimit(maxElements));
+	}
+
+	/**
+	 * Creates a string based on a collection, showing at most the given number of elements.
+	 * Uses the same format as {@link #arrayToString(Object[], int)}.
+	 *
+	 * @param collection Collection that is to be converted to string.
+	 * @param maxElements The maximum number of elements to show.
+	 * @return A string based on the collection elements.
+	 */
+	public static String collectionToString(Collection<?> collection, int maxElements) {
+		return ArrayFormatting.toString(collection, ArrayFormatting.checkLimit(maxElements));
+	}
+
+	/**
+	 * Writes an array directly to an output, such as a log buffer or a {@link Writer}, instead of creating a string.
+	 * Uses the same format as {@link #arrayToString(Object[], int)}.
+	 *
+	 * @param out The output to write to.
+	 * @param array	Array that is to be written.
+	 * @param maxElements The maximum number of elements to show.
+	 * @param <A> Type of the output.
+	 * @return The given output.
+	 * @throws IOException If the output couldn't be written to.
+	 */
+	public static <A extends Appendable> A appendArray(A out, Object[] array, int maxElements) throws IOException {
+		return ArrayFormatting.append(out, array, ArrayFormatting.checkLimit(maxElements));
+	}
+
+	/**
+	 * @param out The output to write to.
+	 * @param array	Array that is to be written, without boxing the elements.
+	 * @param maxElements The maximum number of elements to show.
+	 * @param <A> Type of the output.
+	 * @return The given output.
+	 * @throws IOException If the output couldn't be written to.
+	 * @see #appendArray(Appendable, Object[], int)
+	 */
+	public static <A extends Appendable> A appendArray(A out, int[] array, int maxElements) throws IOException {
+		return ArrayFormatting.append(out, array, ArrayFormatting.checkLimit(maxElements));
+	}
+
+	/**
+	 * @param out The output to write to.
+	 * @param array	Array that is to be written, without boxing the elements.
+	 * @param maxElements The maximum number of elements to show.
+	 * @param <A> Type of the output.
+	 * @return The given output.
+	 * @throws IOException If the output couldn't be written to.
+	 * @see #appendArray(Appendable, Object[], int)
+	 */
+	public static <A extends Appendable> A appendArray(A out, long[] array, int maxElements) throws IOException {
+		return ArrayFormatting.append(out, array, ArrayFormatting.checkLimit(maxElements));
+	}
+
+	/**
+	 * @param out The output to write to.
+	 * @param array	Array that is to be written, without boxing the elements.
+	 * @param maxElements The maximum number of elements to show.
+	 * @param <A> Type of the output.
+	 * @return The given output.
+	 * @throws IOException If the output couldn't be written to.
+	 * @see #appendArray(Appendable, Object[], int)
+	 */
+	public static <A extends Appendable> A appendArray(A out, double[] array, int maxElements) throws IOException {
+		return ArrayFormatting.append(out, array, ArrayFormatting.checkLimit(maxElements));
+	}
+
+	/**
+	 * Writes a collection directly to an output, instead of creating a string.
+	 * Uses the same format as {@link #arrayToString(Object[], int)}.
+	 *
+	 * @param out The output to write to.
+	 * @param collection Collection that is to be written.
+	 * @param maxElements The maximum number of elements to show.
+	 * @param <A> Type of the output.
+	 * @return The given output.
+	 * @throws IOException If the output couldn't be written to.
+	 */
+	public static <A extends Appendable> A appendCollection(A out, Collection<?> collection, int maxElements) throws IOException {
+		return ArrayFormatting.append(out, collection, ArrayFormatting.checkLimit(maxElements));
 	}
 
 	/**
-	 * String to list. Elements separated by comma
+	 * String to list. Elements separated by comma.
+	 * Use a {@link Tokenizer} directly to reuse the separators, or to get the elements lazily.
 	 * @param text Text to separate into lists
 	 * @param separatorCharacters Separator characters as one string
 	 * @return A list
 	 */
 	public static List<String> stringToList(String text, String separatorCharacters) {
-		return new ArrayList<>(Arrays.asList(text.split("\\s*[" + separatorCharacters + "]\\s*"))); // Mutable
+		return Tokenizer.of(separatorCharacters).split(text); // Mutable
 	}
 
 	/**
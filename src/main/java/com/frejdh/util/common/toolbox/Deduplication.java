@@ -0,0 +1,169 @@
+package com.frejdh.util.common.toolbox;
+
+import com.frejdh.util.common.merging.MergePlan;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Linear time implementations of the list deduplication methods found in {@link CommonUtils}.
+ */
+class Deduplication {
+
+	/**
+	 * Resolve a key extractor reading a non-final field of a class, matched case-insensitively. An exact match is preferred.
+	 *
+	 * @param type Class declaring or inheriting the field
+	 * @param fieldname Name of the field
+	 * @return A key extractor, or null if no such field exists
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Function<T, Object> fieldKeyExtractor(Class<?> type, String fieldname) {
+		ClassMetadata.FieldInfo field = ClassMetadata.of(type).getFieldIgnoreCase(fieldname);
+		if (field == null || field.isFinal())
+			return null;
+		return ((FieldAccessor<T, Object>) field.getAccessor()).getter();
+	}
+
+	/**
+	 * Get the elements to keep, in their original order. Elements with a null key are never considered duplicates.
+	 *
+	 * @param list List to deduplicate
+	 * @param keyExtractor Key to compare the elements by
+	 * @param retention Which of the duplicates to keep
+	 * @return A new list with the remaining elements
+	 */
+	static <T, K> List<T> distinctByKey(List<T> list, Function<? super T, K> keyExtractor, CommonUtils.DuplicateRetention retention) {
+		List<T> retval = new ArrayList<>();
+		Set<K> keys = new HashSet<>();
+		if (retention == CommonUtils.DuplicateRetention.KEEP_FIRST) {
+			for (T element : list) {
+				K key = keyExtractor.apply(element);
+				if (key == null || keys.add(key))
+					retval.add(element);
+			}
+		} else {
+			for (ListIterator<T> it = list.listIterator(list.size()); it.hasPrevious(); ) {
+				T element = it.previous();
+				K key = keyExtractor.apply(element);
+				if (key == null || keys.add(key))
+					retval.add(element);
+			}
+			Collections.reverse(retval);
+		}
+		return retval;
+	}
+
+	/**
+	 * Merge the duplicates of a list, and thereafter the nested lists that the duplicates were appended to.
+	 * Nested lists are processed iteratively, and each list instance at most once.
+	 *
+	 * @param list List to merge the duplicates of
+	 * @throws IllegalAccessException Access denied to a field
+	 */
+	static void softMergeDuplicates(List<?> list) throws IllegalAccessException {
+		softMergeNestedDuplicates(list, softMergeGroups(list));
+	}
+
+	/**
+	 * Merge the duplicates of the nested lists that were appended to while merging, iteratively.
+	 * Each list is processed at most once, so lists holding themselves, directly or through their elements, are processed once.
+	 *
+	 * @param list The top level list, which has already been processed
+	 * @param appended The nested lists appended to while merging the top level list, in the order of the merges
+	 * @throws IllegalAccessException Access denied to a field
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static void softMergeNestedDuplicates(List<?> list, List<List> appended) throws IllegalAccessException {
+		Set<List> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<List> pending = new ArrayDeque<>();
+		visited.add(list);
+
+		List<List> current = appended;
+		while (current != null) {
+			for (List nested : current) {
+				if (visited.add(nested))
+					pending.add(nested);
+			}
+			current = pending.isEmpty() ? null : softMergeGroups(pending.poll());
+		}
+	}
+
+	/**
+	 * Group the elements by equals() and hashCode(), merge every group into its first element, and keep only the first elements.
+	 * All elements are grouped before any of them are modified, as merging may change their hash codes.
+	 *
+	 * @param list List to merge the duplicates of
+	 * @return The nested lists that the lists of the duplicates were appended to
+	 * @throws IllegalAccessException Access denied to a field
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static <T> List<List> softMergeGroups(List<T> list) throws IllegalAccessException {
+		Map<T, Integer> groupIndexes = new HashMap<>(Math.max(16, (int) (list.size() / 0.75f) + 1));
+		List<T> firstElements = new ArrayList<>();
+		List<T> duplicates = new ArrayList<>();
+		int[] duplicateGroups = new int[list.size()];
+
+		for (T element : list) {
+			Integer groupIndex = groupIndexes.putIfAbsent(element, firstElements.size());
+			if (groupIndex == null) {
+				firstElements.add(element);
+			} else {
+				duplicateGroups[duplicates.size()] = groupIndex;
+				duplicates.add(element);
+			}
+		}
+
+		if (duplicates.isEmpty())
+			return Collections.emptyList();
+
+		List<List> appended = new ArrayList<>();
+		for (int i = 0; i < duplicates.size(); i++) {
+			T first = firstElements.get(duplicateGroups[i]);
+			T duplicate = duplicates.get(i);
+			if (first == duplicate || first == null || first.getClass() != duplicate.getClass()) // Nothing to merge
+				continue;
+
+			softMerge(first, duplicate, appended);
+		}
+
+		replaceContent(list, firstElements);
+		return appended;
+	}
+
+	/**
+	 * Merge a duplicate into the first element of its group. The lists of final fields are concatenated as well.
+	 *
+	 * @param appended The lists of the first element that the lists of the duplicate are appended to are added to this
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static <T> void softMerge(T first, T duplicate, List<List> appended) throws IllegalAccessException {
+		Class<T> type = (Class<T>) first.getClass();
+		MergePlan<T> plan = MergePlan.of(type);
+		plan.collectMergedLists(first, duplicate, appended);
+		CommonUtils.mergerFor(type).softMerge(first, duplicate);
+		plan.appendFinalLists(first, duplicate);
+	}
+
+	/**
+	 * Replace the content of a list, unless nothing has been removed.
+	 */
+	static <T> List<T> replaceContent(List<T> list, List<T> content) {
+		if (content.size() != list.size()) {
+			list.clear();
+			list.addAll(content);
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.frejdh.util.common.toolbox;
+
+/**
+ * Builds a {@code double[]}, growing as elements are appended or prepended. Adding an element is amortized constant time.
+ * Builders are not thread-safe.
+ *
+ * @see ArrayBuilder
+ * @author Kevin Frejdh
+ */
+public final class DoubleArrayBuilder extends AbstractArrayBuilder<double[]> {
+
+	/**
+	 * Create a builder with the default capacity.
+	 */
+	public DoubleArrayBuilder() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity The initial capacity
+	 */
+	public DoubleArrayBuilder(int capacity) {
+		super(double[]::new, capacity);
+	}
+
+	/**
+	 * @param element Element to add last
+	 * @return This builder
+	 */
+	public DoubleArrayBuilder append(double element) {
+		int index = reserveBack(1); // Before reading the array, which may be replaced
+		elements[index] = element;
+		return this;
+	}
+
+	/**
+	 * @param elements Elements to add last, in the given order
+	 * @return This builder
+	 */
+	public DoubleArrayBuilder appendAll(double... elements) {
+		appendArray(elements, elements.length);
+		return this;
+	}
+
+	/**
+	 * @param element Element to add first
+	 * @return This builder
+	 */
+	public DoubleArrayBuilder prepend(double element) {
+		int index = reserveFront(1); // Before reading the array, which may be replaced
+		elements[index] = element;
+		return this;
+	}
+
+	/**
+	 * @param elements Elements to add first, keeping their order. That is, the first given element becomes the first element of the array
+	 * @return This builder
+	 */
+	public DoubleArrayBuilder prependAll(double... elements) {
+		prependArray(elements, elements.length);
+		return this;
+	}
+
+	/**
+	 * @param index Index of the element, counted from the first element
+	 * @return The element
+	 */
+	public double get(int index) {
+		return elements[index(index)];
+	}
+
+}
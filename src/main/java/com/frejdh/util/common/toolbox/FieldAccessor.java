@@ -0,0 +1,312 @@
+package com.frejdh.util.common.toolbox;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reads and writes a field through method handles that are resolved once, instead of looking up the field for each access.
+ * Accessors are cached per field, see {@link ClassMetadata}. Example:<br>
+ * <pre>
+ * FieldAccessor&lt;Entity, String&gt; name = FieldAccessor.of(Entity.class, "name", String.class);
+ * ToIntFunction&lt;Entity&gt; count = FieldAccessor.of(Entity.class, "count", int.class).intGetter();
+ * for (Entity entity : entities) {
+ *     write(name.get(entity), count.applyAsInt(entity));
+ * }
+ * </pre>
+ * The primitive getters and setters avoid boxing. For static fields the instance is ignored.
+ *
+ * @param <T> Type of the instances holding the field
+ * @param <V> Type of the value. The wrapper type for primitive fields
+ * @author Kevin Frejdh
+ */
+public final class FieldAccessor<T, V> {
+
+	private final Field field;
+	private final MethodHandle getter; // (Object)<field type>
+	private final MethodHandle setter; // (Object, <field type>)void, null if the field can't be written
+	private final MethodHandle genericGetter; // (Object)Object
+	private final MethodHandle genericSetter; // (Object, Object)void
+
+	private FieldAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+		this.field = field;
+		this.getter = getter;
+		this.setter = setter;
+		this.genericGetter = getter.asType(MethodType.methodType(Object.class, Object.class));
+		this.genericSetter = setter != null ? setter.asType(MethodType.methodType(void.class, Object.class, Object.class)) : null;
+	}
+
+	/**
+	 * Get an accessor for a field declared by a class or one of its superclasses.
+	 *
+	 * @param type The class holding the field
+	 * @param fieldName Name of the field
+	 * @param valueType Type of the field. Wrapper types and primitive types are interchangeable
+	 * @param <T> Type of the instances holding the field
+	 * @param <V> Type of the value
+	 * @return The accessor, cached per field
+	 * @throws NoSuchFieldException If the field doesn't exist
+	 * @throws ClassCastException If the field isn't of the given value type
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, V> FieldAccessor<T, V> of(Class<T> type, String fieldName, Class<V> valueType) throws NoSuchFieldException {
+		FieldAccessor<?, ?> accessor = of(type, fieldName);
+		if (MethodInvoker.wrap(valueType) != MethodInvoker.wrap(accessor.field.getType()))
+			throw new ClassCastException("The field " + accessor.field + " isn't of type " + valueType.getName());
+		return (FieldAccessor<T, V>) accessor;
+	}
+
+	/**
+	 * Get an accessor for a field declared by a class or one of its superclasses, without a checked value type.
+	 *
+	 * @param type The class holding the field
+	 * @param fieldName Name of the field
+	 * @return The accessor, cached per field
+	 * @throws NoSuchFieldException If the field doesn't exist
+	 */
+	public static FieldAccessor<?, ?> of(Class<?> type, String fieldName) throws NoSuchFieldException {
+		ClassMetadata.FieldInfo field = ClassMetadata.of(type).getField(fieldName);
+		if (field == null)
+			throw new NoSuchFieldException(type.getName() + "." + fieldName);
+		return field.getAccessor();
+	}
+
+	/**
+	 * @param field The field to access
+	 * @return An accessor for the field, not cached
+	 */
+	public static FieldAccessor<?, ?> of(Field field) {
+		field.setAccessible(true);
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		boolean isStatic = Modifier.isStatic(field.getModifiers());
+		try {
+			MethodHandle getter = lookup.unreflectGetter(field);
+			MethodHandle setter = null;
+			if (!isStatic || !Modifier.isFinal(field.getModifiers()))
+				setter = setterFor(lookup, field);
+
+			if (isStatic) {
+				getter = MethodHandles.dropArguments(getter, 0, Object.class);
+				setter = setter != null ? MethodHandles.dropArguments(setter, 0, Object.class) : null;
+			} else {
+				getter = getter.asType(getter.type().changeParameterType(0, Object.class));
+				setter = setter != null ? setter.asType(setter.type().changeParameterType(0, Object.class)) : null;
+			}
+			return new FieldAccessor<>(field, getter, setter);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Accessible field couldn't be unreflected: " + field, e);
+		}
+	}
+
+	// Final fields of records and hidden classes can't be written, even when accessible
+	private static MethodHandle setterFor(MethodHandles.Lookup lookup, Field field) {
+		try {
+			return lookup.unreflectSetter(field);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return A copy of the accessed field, as the accessor may be shared
+	 */
+	public Field getField() {
+		return ClassMetadata.copyOf(field);
+	}
+
+	/**
+	 * @return False if the field is final and can't be written, for example a static final field
+	 */
+	public boolean isWritable() {
+		return setter != null;
+	}
+
+	/**
+	 * @param instance Instance holding the field. Ignored for static fields
+	 * @return The value of the field
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(T instance) {
+		try {
+			return (V) (Object) genericGetter.invokeExact((Object) instance);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * @param instance Instance holding the field. Ignored for static fields
+	 * @param value The new value of the field
+	 * @throws UnsupportedOperationException If the field can't be written
+	 */
+	public void set(T instance, V value) {
+		checkWritable();
+		try {
+			genericSetter.invokeExact((Object) instance, (Object) value);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * @return The getter as a function
+	 */
+	public Function<T, V> getter() {
+		return this::get;
+	}
+
+	/**
+	 * @return The setter as a consumer
+	 * @throws UnsupportedOperationException If the field can't be written
+	 */
+	public BiConsumer<T, V> setter() {
+		checkWritable();
+		return this::set;
+	}
+
+	/**
+	 * @return A getter for an int field, or a field that can be widened to an int, without boxing
+	 * @throws IllegalArgumentException If the field can't be read as an int
+	 */
+	public ToIntFunction<T> intGetter() {
+		MethodHandle handle = primitiveGetter(int.class);
+		return instance -> {
+			try {
+				return (int) handle.invokeExact((Object) instance);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		};
+	}
+
+	/**
+	 * @return A setter for an int field, or a field that an int can be widened to, without boxing
+	 * @throws IllegalArgumentException If the field can't be written with an int
+	 * @throws UnsupportedOperationException If the field can't be written
+	 */
+	public ObjIntConsumer<T> intSetter() {
+		MethodHandle handle = primitiveSetter(int.class);
+		return (instance, value) -> {
+			try {
+				handle.invokeExact((Object) instance, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		};
+	}
+
+	/**
+	 * @return A getter for a long field, or a field that can be widened to a long, without boxing
+	 * @throws IllegalArgumentException If the field can't be read as a long
+	 */
+	public ToLongFunction<T> longGetter() {
+		MethodHandle handle = primitiveGetter(long.class);
+		return instance -> {
+			try {
+				return (long) handle.invokeExact((Object) instance);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		};
+	}
+
+	/**
+	 * @return A setter for a long field, or a field that a long can be widened to, without boxing
+	 * @throws IllegalArgumentException If the field can't be written with a long
+	 * @throws UnsupportedOperationException If the field can't be written
+	 */
+	public ObjLongConsumer<T> longSetter() {
+		MethodHandle handle = primitiveSetter(long.class);
+		return (instance, value) -> {
+			try {
+				handle.invokeExact((Object) instance, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		};
+	}
+
+	/**
+	 * @return A getter for a double field, or a field that can be widened to a double, without boxing
+	 * @throws IllegalArgumentException If the field can't be read as a double
+	 */
+	public ToDoubleFunction<T> doubleGetter() {
+		MethodHandle handle = primitiveGetter(double.class);
+		return instance -> {
+			try {
+				return (double) handle.invokeExact((Object) instance);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		};
+	}
+
+	/**
+	 * @return A setter for a double field, or a field that a double can be widened to, without boxing
+	 * @throws IllegalArgumentException If the field can't be written with a double
+	 * @throws UnsupportedOperationException If the field can't be written
+	 */
+	public ObjDoubleConsumer<T> doubleSetter() {
+		MethodHandle handle = primitiveSetter(double.class);
+		return (instance, value) -> {
+			try {
+				handle.invokeExact((Object) instance, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		};
+	}
+
+	// The exact getter, (Object)<field type>, for callers in this package that invoke it without boxing
+	MethodHandle getterHandle() {
+		return getter;
+	}
+
+	private MethodHandle primitiveGetter(Class<?> type) {
+		if (!field.getType().isPrimitive())
+			throw new IllegalArgumentException("The field " + field + " isn't primitive");
+		try {
+			return getter.asType(MethodType.methodType(type, Object.class));
+		} catch (WrongMethodTypeException e) {
+			throw new IllegalArgumentException("The field " + field + " can't be read as " + type, e);
+		}
+	}
+
+	private MethodHandle primitiveSetter(Class<?> type) {
+		checkWritable();
+		if (!field.getType().isPrimitive())
+			throw new IllegalArgumentException("The field " + field + " isn't primitive");
+		try {
+			return setter.asType(MethodType.methodType(void.class, Object.class, type));
+		} catch (WrongMethodTypeException e) {
+			throw new IllegalArgumentException("The field " + field + " can't be written with " + type, e);
+		}
+	}
+
+	private void checkWritable() {
+		if (setter == null)
+			throw new UnsupportedOperationException("The field " + field + " can't be written");
+	}
+
+	private static RuntimeException rethrow(Throwable e) {
+		CommonUtils.sneakyThrow(e);
+		return null; // Never reached
+	}
+
+	@Override
+	public String toString() {
+		return "FieldAccessor[" + field + "]";
+	}
+
+}
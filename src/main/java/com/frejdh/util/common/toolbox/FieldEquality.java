@@ -0,0 +1,385 @@
+package com.frejdh.util.common.toolbox;
+
+import com.frejdh.util.common.compiled.CompiledAccessor;
+import com.frejdh.util.common.compiled.CompiledAccessors;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Field-wise equality and hashing, for classes that don't implement equals() and hashCode() themselves.
+ * The non-static fields declared by the class are compared, the same fields as {@link CommonUtils#allFieldsEquals(Object, Object)}.
+ * Example:<br>
+ * <pre>
+ * Function&lt;Entity, Object&gt; key = FieldEquality.cheapestFirst(Entity.class).keyExtractor();
+ * Set&lt;Object&gt; seen = new HashSet&lt;&gt;();
+ * for (Entity entity : entities) {
+ *     if (seen.add(key.apply(entity)))
+ *         write(entity);
+ * }
+ * </pre>
+ * Primitive fields are read and compared without boxing, with {@code float} and {@code double} values compared like {@link Float#compare(float, float)}.
+ * Arrays are compared by content, nested arrays included, and other values through equals().
+ * The comparison returns as soon as a field differs. The plan is built once per class and cached, and a generated
+ * {@link CompiledAccessor} is used instead of reflection when there is one.
+ *
+ * @param <T> The compared class
+ * @author Kevin Frejdh
+ */
+public final class FieldEquality<T> {
+
+	private static final ClassValue<FieldEquality<?>> DECLARATION_ORDER = new ClassValue<>() {
+		@Override
+		protected FieldEquality<?> computeValue(Class<?> type) {
+			return new FieldEquality<>(type, false);
+		}
+	};
+	private static final ClassValue<FieldEquality<?>> CHEAPEST_FIRST = new ClassValue<>() {
+		@Override
+		protected FieldEquality<?> computeValue(Class<?> type) {
+			return new FieldEquality<>(type, true);
+		}
+	};
+	private static final ClassValue<Boolean> OVERRIDES_EQUALS = new ClassValue<>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return type.getMethod("equals", Object.class).getDeclaringClass() != Object.class;
+			} catch (NoSuchMethodException e) {
+				return false; // Interfaces and primitives
+			}
+		}
+	};
+	private static final Set<Class<?>> CHEAP_TYPES = Set.of(Boolean.class, Character.class, Byte.class, Short.class,
+			Integer.class, Long.class, Float.class, Double.class, Class.class);
+
+	private final Class<T> type;
+	private final CompiledAccessor<T> compiled;
+	private final Comparison[] compared; // In comparison order
+	private final Comparison[] hashed; // In declaration order, so that the hash is the same for both orders
+	private final List<Field> fields;
+
+	private FieldEquality(Class<T> type, boolean cheapestFirst) {
+		this.type = type;
+		this.compiled = CompiledAccessors.find(type);
+
+		List<Comparison> comparisons = new ArrayList<>();
+		for (ClassMetadata.FieldInfo field : ClassMetadata.of(type).getDeclaredFields()) {
+			if (!field.isStatic())
+				comparisons.add(comparisonOf(field));
+		}
+		this.hashed = comparisons.toArray(new Comparison[0]);
+		if (cheapestFirst)
+			comparisons.sort(Comparator.comparingInt(comparison -> comparison.cost)); // Stable, so equal costs keep their order
+		this.compared = comparisons.toArray(new Comparison[0]);
+
+		List<Field> fields = new ArrayList<>(compared.length);
+		for (Comparison comparison : compared) {
+			fields.add(comparison.field);
+		}
+		this.fields = Collections.unmodifiableList(fields);
+	}
+
+	/**
+	 * Get the equality of a class, comparing the fields in the order they are declared.
+	 *
+	 * @param type The compared class
+	 * @param <T> The compared class
+	 * @return The equality, cached per class
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> FieldEquality<T> of(Class<T> type) {
+		return (FieldEquality<T>) DECLARATION_ORDER.get(type);
+	}
+
+	/**
+	 * Get the equality of a class, comparing the cheapest fields first. Primitives are compared first,
+	 * then wrappers and enums, strings, other objects, and lastly arrays, collections and maps.
+	 * The result is the same as {@link #of(Class)}, but unequal instances are usually found earlier.
+	 *
+	 * @param type The compared class
+	 * @param <T> The compared class
+	 * @return The equality, cached per class
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> FieldEquality<T> cheapestFirst(Class<T> type) {
+		return (FieldEquality<T>) CHEAPEST_FIRST.get(type);
+	}
+
+	/**
+	 * Get a key to deduplicate objects by, for example through {@link CommonUtils#removeListDuplicates(java.util.List, Function, CommonUtils.DuplicateRetention)}.
+	 * Objects whose class overrides equals() are their own key, while other objects are compared field by field.
+	 * The hash code of the fields is computed when the key is created, so the object must not be modified while the key is used.
+	 *
+	 * @param instance The object to get the key of
+	 * @return The key, or null if the object was null
+	 */
+	public static Object keyOf(Object instance) {
+		if (instance == null)
+			return null;
+		else if (OVERRIDES_EQUALS.get(instance.getClass()))
+			return instance;
+		return new Key(cheapestFirst(instance.getClass()), instance);
+	}
+
+	/**
+	 * @return The compared class
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+
+	/**
+	 * @return The compared fields, in the order they are compared
+	 */
+	public List<Field> getFields() {
+		return fields;
+	}
+
+	/**
+	 * Compare two objects field by field. Instances of other classes, subclasses included, are never equal.
+	 *
+	 * @param first Object 1 to compare with
+	 * @param second Object 2 to compare with
+	 * @return True if both are null, or if all fields are equal
+	 */
+	public boolean fieldsEqual(T first, T second) {
+		if (first == second)
+			return true;
+		else if (first == null || second == null || first.getClass() != type || second.getClass() != type)
+			return false;
+		else if (compiled != null)
+			return compiled.fieldsEqual(first, second);
+
+		try {
+			for (Comparison comparison : compared) {
+				if (!comparison.equal(first, second))
+					return false;
+			}
+			return true;
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Hash an object field by field, consistent with {@link #fieldsEqual(Object, Object)}.
+	 * The hash is computed like {@link Arrays#hashCode(Object[])} for the values of the fields, in the order they are declared.
+	 *
+	 * @param instance The object to hash
+	 * @return The hash code, or 0 if the object was null
+	 */
+	public int fieldsHashCode(T instance) {
+		if (instance == null)
+			return 0;
+		else if (compiled != null)
+			return compiled.fieldsHashCode(instance);
+
+		try {
+			int hash = 1;
+			for (Comparison comparison : hashed) {
+				hash = 31 * hash + comparison.hash(instance);
+			}
+			return hash;
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * @return A key extractor for instances of the class, see {@link #keyOf(Object)}
+	 */
+	public Function<T, Object> keyExtractor() {
+		if (OVERRIDES_EQUALS.get(type))
+			return instance -> instance;
+		return instance -> instance != null ? new Key(this, instance) : null;
+	}
+
+	private static int costOf(Class<?> type) {
+		if (type.isPrimitive())
+			return 0;
+		else if (type.isEnum() || CHEAP_TYPES.contains(type))
+			return 1;
+		else if (type == String.class)
+			return 2;
+		else if (type.isArray() || Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type))
+			return 4;
+		return 3;
+	}
+
+	private static Comparison comparisonOf(ClassMetadata.FieldInfo field) {
+		Class<?> fieldType = field.getType();
+		MethodHandle getter = field.getAccessor().getterHandle();
+		int cost = costOf(fieldType);
+
+		if (fieldType == boolean.class) {
+			return new Comparison(field.getField(), cost) {
+				boolean equal(Object first, Object second) throws Throwable {
+					return (boolean) getter.invokeExact(first) == (boolean) getter.invokeExact(second);
+				}
+
+				int hash(Object instance) throws Throwable {
+					return Boolean.hashCode((boolean) getter.invokeExact(instance));
+				}
+			};
+		} else if (fieldType == long.class) {
+			return new Comparison(field.getField(), cost) {
+				boolean equal(Object first, Object second) throws Throwable {
+					return (long) getter.invokeExact(first) == (long) getter.invokeExact(second);
+				}
+
+				int hash(Object instance) throws Throwable {
+					return Long.hashCode((long) getter.invokeExact(instance));
+				}
+			};
+		} else if (fieldType == float.class) {
+			return new Comparison(field.getField(), cost) {
+				boolean equal(Object first, Object second) throws Throwable {
+					return Float.compare((float) getter.invokeExact(first), (float) getter.invokeExact(second)) == 0;
+				}
+
+				int hash(Object instance) throws Throwable {
+					return Float.hashCode((float) getter.invokeExact(instance));
+				}
+			};
+		} else if (fieldType == double.class) {
+			return new Comparison(field.getField(), cost) {
+				boolean equal(Object first, Object second) throws Throwable {
+					return Double.compare((double) getter.invokeExact(first), (double) getter.invokeExact(second)) == 0;
+				}
+
+				int hash(Object instance) throws Throwable {
+					return Double.hashCode((double) getter.invokeExact(instance));
+				}
+			};
+		} else if (fieldType.isPrimitive()) {
+			// byte, char, short and int. Their wrappers all hash to the int value
+			MethodHandle intGetter = getter.asType(MethodType.methodType(int.class, Object.class));
+			return new Comparison(field.getField(), cost) {
+				boolean equal(Object first, Object second) throws Throwable {
+					return (int) intGetter.invokeExact(first) == (int) intGetter.invokeExact(second);
+				}
+
+				int hash(Object instance) throws Throwable {
+					return (int) intGetter.invokeExact(instance);
+				}
+			};
+		}
+
+		MethodHandle objectGetter = getter.asType(MethodType.methodType(Object.class, Object.class));
+		if (fieldType.isArray()) {
+			return new Comparison(field.getField(), cost) {
+				boolean equal(Object first, Object second) throws Throwable {
+					return Objects.deepEquals((Object) objectGetter.invokeExact(first), (Object) objectGetter.invokeExact(second));
+				}
+
+				int hash(Object instance) throws Throwable {
+					return arrayHashCode((Object) objectGetter.invokeExact(instance));
+				}
+			};
+		}
+		return new Comparison(field.getField(), cost) {
+			boolean equal(Object first, Object second) throws Throwable {
+				return Objects.equals((Object) objectGetter.invokeExact(first), (Object) objectGetter.invokeExact(second));
+			}
+
+			int hash(Object instance) throws Throwable {
+				return Objects.hashCode((Object) objectGetter.invokeExact(instance));
+			}
+		};
+	}
+
+	// The hash of an array, consistent with Objects.deepEquals()
+	private static int arrayHashCode(Object array) {
+		if (array instanceof Object[])
+			return Arrays.deepHashCode((Object[]) array);
+		else if (array instanceof int[])
+			return Arrays.hashCode((int[]) array);
+		else if (array instanceof long[])
+			return Arrays.hashCode((long[]) array);
+		else if (array instanceof double[])
+			return Arrays.hashCode((double[]) array);
+		else if (array instanceof byte[])
+			return Arrays.hashCode((byte[]) array);
+		else if (array instanceof char[])
+			return Arrays.hashCode((char[]) array);
+		else if (array instanceof boolean[])
+			return Arrays.hashCode((boolean[]) array);
+		else if (array instanceof float[])
+			return Arrays.hashCode((float[]) array);
+		else if (array instanceof short[])
+			return Arrays.hashCode((short[]) array);
+		return 0; // null
+	}
+
+	private static RuntimeException rethrow(Throwable e) {
+		CommonUtils.sneakyThrow(e);
+		return null; // Never reached
+	}
+
+	@Override
+	public String toString() {
+		return "FieldEquality[" + type.getName() + "]";
+	}
+
+	/**
+	 * Reads and compares a single field.
+	 */
+	private abstract static class Comparison {
+		final Field field;
+		final int cost;
+
+		Comparison(Field field, int cost) {
+			this.field = field;
+			this.cost = cost;
+		}
+
+		abstract boolean equal(Object first, Object second) throws Throwable;
+
+		abstract int hash(Object instance) throws Throwable;
+	}
+
+	/**
+	 * An object compared by its fields, with the hash code computed once.
+	 */
+	private static final class Key {
+		private final FieldEquality<Object> equality;
+		private final Object instance;
+		private final int hash;
+
+		@SuppressWarnings("unchecked")
+		Key(FieldEquality<?> equality, Object instance) {
+			this.equality = (FieldEquality<Object>) equality;
+			this.instance = instance;
+			this.hash = this.equality.fieldsHashCode(instance);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other)
+				return true;
+			else if (!(other instanceof Key))
+				return false;
+
+			Key key = (Key) other;
+			return hash == key.hash && equality.fieldsEqual(instance, key.instance);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
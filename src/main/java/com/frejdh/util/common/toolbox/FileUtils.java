@@ -1,14 +1,54 @@
 package com.frejdh.util.common.toolbox;
 
-import java.io.ByteArrayOutputStream;
+import com.frejdh.util.common.exceptions.SizeLimitExceededException;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class FileUtils {
 
+	/**
+	 * Files of at least this many bytes are memory mapped by {@link #getFileAsByteBuffer(String)}.
+	 */
+	public static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * The maximum number of files read at the same time by {@link #getFilesAsStringsAsync(Collection)}.
+	 */
+	public static final int DEFAULT_LOAD_CONCURRENCY = 32;
+
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final int READ_BUFFER_SIZE = 8 * 0x400;
+	private static final ThreadLocal<byte[]> READ_BUFFERS = ThreadLocal.withInitial(() -> new byte[READ_BUFFER_SIZE]);
+
+	private static volatile ResourceCache resourceCache;
+
 	/**
 	 * Load a file as an InputStream
 	 * @param absolutePath The absolute path for the file
@@ -23,50 +63,339 @@ public class FileUtils {
 	}
 
 	/**
-	 * Load a file as an string
+	 * Load a file as an string, decoded as UTF-8. The file is read into an array of the size of the file.
 	 * @param absolutePath The absolute path for the file
 	 * @return A string or null
 	 */
 	public static String getFileAsString(String absolutePath) {
-		return inputStreamToString(getFileAsStream(absolutePath));
+		byte[] bytes = getFileAsBytes(absolutePath);
+		return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+	}
+
+	/**
+	 * Load a file as an array, read into an array of the size of the file.
+	 * @param absolutePath The absolute path for the file
+	 * @return An array or null
+	 */
+	public static byte[] getFileAsBytes(String absolutePath) {
+		try (FileChannel channel = FileChannel.open(Paths.get(absolutePath), StandardOpenOption.READ)) {
+			return readFully(channel, channel.size());
+		} catch (IOException | InvalidPathException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Load a file as a read-only buffer.
+	 * Files of at least {@link #MAPPING_THRESHOLD} bytes are memory mapped, and the mapping stays valid until the buffer is garbage collected.
+	 * On Windows, a mapped file can't be deleted before then.
+	 * Smaller files are read into a heap buffer of the size of the file.
+	 * @param absolutePath The absolute path for the file
+	 * @return A buffer positioned at the start of the file, or null
+	 */
+	public static ByteBuffer getFileAsByteBuffer(String absolutePath) {
+		try (FileChannel channel = FileChannel.open(Paths.get(absolutePath), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size >= MAPPING_THRESHOLD && size <= MAX_ARRAY_SIZE)
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			return ByteBuffer.wrap(readFully(channel, size)).asReadOnlyBuffer();
+		} catch (IOException | InvalidPathException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stream the lines of a UTF-8 file, without loading the whole file. Lines end with \n or \r\n.
+	 * Like {@link java.nio.file.Files#lines(java.nio.file.Path)}, the stream must be closed to close the file. Example:<br>
+	 * <pre>
+	 * try (Stream&lt;String&gt; lines = FileUtils.lines("/var/log/app.log")) {
+	 *     long errors = lines.filter(line -&gt; line.contains("ERROR")).count();
+	 * }
+	 * </pre>
+	 * @param absolutePath The absolute path for the file
+	 * @return A lazy stream of the lines
+	 * @throws IOException If the file couldn't be opened. Errors while reading are thrown as an {@link UncheckedIOException}
+	 */
+	public static Stream<String> lines(String absolutePath) throws IOException {
+		return records(absolutePath, '\n', StandardCharsets.UTF_8, false, true, true).map(String.class::cast);
+	}
+
+	/**
+	 * Stream the records of a file, without loading the whole file. The stream must be closed to close the file.
+	 * @param absolutePath The absolute path for the file
+	 * @param delimiter The character ending each record, which must be a single byte in the charset, such as ';' in UTF-8.
+	 *                  The last record may lack it
+	 * @param charset The charset of the file. Malformed input is replaced
+	 * @param parallel Whether to return a parallel stream, for which the file is split into ranges of whole records
+	 * @return A lazy stream of the records
+	 * @throws IOException If the file couldn't be opened. Errors while reading are thrown as an {@link UncheckedIOException}
+	 * @throws IllegalArgumentException If the delimiter isn't a single byte in the charset
+	 */
+	public static Stream<String> records(String absolutePath, char delimiter, Charset charset, boolean parallel) throws IOException {
+		return records(absolutePath, delimiter, charset, parallel, false, true).map(String.class::cast);
+	}
+
+	/**
+	 * Stream the records of a file as views, without creating a string for each record. The stream must be closed to close the file.
+	 * A view is only valid until the next record is read by the same thread, as the same char buffer is reused for every record.
+	 * Convert views to strings with {@link CharSequence#toString()} to keep them. Example:<br>
+	 * <pre>
+	 * try (Stream&lt;CharSequence&gt; records = FileUtils.recordViews(path, '\n', StandardCharsets.UTF_8, true)) {
+	 *     double sum = records.mapToDouble(NumberScanner.standard()::parseDouble).sum();
+	 * }
+	 * </pre>
+	 * @param absolutePath The absolute path for the file
+	 * @param delimiter The character ending each record, which must be a single byte in the charset. The last record may lack it
+	 * @param charset The charset of the file. Malformed input is replaced
+	 * @param parallel Whether to return a parallel stream, for which the file is split into ranges of whole records
+	 * @return A lazy stream of the records
+	 * @throws IOException If the file couldn't be opened. Errors while reading are thrown as an {@link UncheckedIOException}
+	 * @throws IllegalArgumentException If the delimiter isn't a single byte in the charset
+	 */
+	public static Stream<CharSequence> recordViews(String absolutePath, char delimiter, Charset charset, boolean parallel) throws IOException {
+		return records(absolutePath, delimiter, charset, parallel, false, false);
+	}
+
+	private static Stream<CharSequence> records(String absolutePath, char delimiter, Charset charset, boolean parallel, boolean lines, boolean strings) throws IOException {
+		Objects.requireNonNull(charset, "The charset cannot be null");
+		byte[] encodedDelimiter = String.valueOf(delimiter).getBytes(charset);
+		if (delimiter >= 0x80 || encodedDelimiter.length != 1 || encodedDelimiter[0] != delimiter)
+			throw new IllegalArgumentException("The delimiter '" + delimiter + "' isn't a single byte in " + charset);
+
+		FileChannel channel = FileChannel.open(Paths.get(absolutePath), StandardOpenOption.READ);
+		try {
+			long end = parallel ? channel.size() : Long.MAX_VALUE; // Sequential streams read until the end, even if the size is unknown
+			RecordSpliterator spliterator = new RecordSpliterator(channel, 0, end, (byte) delimiter, charset, lines, strings);
+			return StreamSupport.stream(spliterator, parallel).onClose(() -> {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Load files as strings concurrently, with at most {@link #DEFAULT_LOAD_CONCURRENCY} files read at the same time.
+	 * @param paths The files to load
+	 * @return A future completed with the content of each file, in the order of the paths. Files that couldn't be loaded are mapped to null
+	 * @see #getFilesAsStringsAsync(Collection, int)
+	 */
+	public static CompletableFuture<Map<Path, String>> getFilesAsStringsAsync(Collection<Path> paths) {
+		return getFilesAsStringsAsync(paths, DEFAULT_LOAD_CONCURRENCY);
+	}
+
+	/**
+	 * Load files as strings concurrently, such as the configuration files read at startup.
+	 * The files are read on virtual threads when the JDK supports them (Java 21 and later), and otherwise on a pool of daemon threads.
+	 * Example:<br>
+	 * <pre>
+	 * Map&lt;Path, String&gt; configs = FileUtils.getFilesAsStringsAsync(paths, 64).join();
+	 * </pre>
+	 * @param paths The files to load
+	 * @param maxConcurrency The maximum number of files to read at the same time
+	 * @return A future completed with the content of each file, in the order of the paths. Files that couldn't be loaded are mapped to null
+	 * @throws IllegalArgumentException If the maximum concurrency isn't positive
+	 */
+	public static CompletableFuture<Map<Path, String>> getFilesAsStringsAsync(Collection<Path> paths, int maxConcurrency) {
+		List<Path> orderedPaths = new ArrayList<>(paths);
+		List<CompletableFuture<String>> futures = AsyncFileLoader.loadAll(orderedPaths, maxConcurrency);
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+			Map<Path, String> retval = new LinkedHashMap<>();
+			for (int i = 0; i < orderedPaths.size(); i++) {
+				retval.put(orderedPaths.get(i), futures.get(i).join());
+			}
+			return retval;
+		});
+	}
+
+	/**
+	 * Load files as strings concurrently, and stream them as they are loaded. See {@link #getFilesAsStringsAsync(Collection, int)}.
+	 * @param paths The files to load
+	 * @param maxConcurrency The maximum number of files to read at the same time
+	 * @return A stream of the path and content of each file, in the order they are loaded. Files that couldn't be loaded have null content.
+	 *         The stream waits for the files as it is consumed. It throws a {@link java.util.concurrent.CompletionException} if interrupted,
+	 *         or when it reaches a file that failed with an exception, such as a null path
+	 * @throws IllegalArgumentException If the maximum concurrency isn't positive
+	 */
+	public static Stream<Map.Entry<Path, String>> streamFilesAsStrings(Collection<Path> paths, int maxConcurrency) {
+		List<Path> orderedPaths = new ArrayList<>(paths);
+		List<CompletableFuture<String>> futures = AsyncFileLoader.loadAll(orderedPaths, maxConcurrency);
+		BlockingQueue<Integer> completed = new LinkedBlockingQueue<>(); // The indexes of the futures, including the failed ones
+		for (int i = 0; i < futures.size(); i++) {
+			int index = i;
+			futures.get(i).whenComplete((content, failure) -> completed.add(index));
+		}
+
+		return IntStream.range(0, futures.size()).mapToObj(ignored -> {
+			int index;
+			try {
+				index = completed.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CompletionException(e);
+			}
+			return new AbstractMap.SimpleImmutableEntry<>(orderedPaths.get(index), futures.get(index).join()); // Rethrows a failure
+		});
+	}
+
+	// Reads into an array of the expected size, and grows it if the file turns out to be larger, as the files of /proc do
+	private static byte[] readFully(FileChannel channel, long expectedSize) throws IOException {
+		if (expectedSize > MAX_ARRAY_SIZE)
+			throw new IOException("The file is too large for an array: " + expectedSize + " bytes");
+
+		byte[] bytes = new byte[expectedSize > 0 ? (int) expectedSize : 4 * 0x400];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (channel.read(buffer) != -1) {
+			if (buffer.hasRemaining())
+				continue;
+
+			ByteBuffer next = ByteBuffer.allocate(1);
+			if (channel.read(next) == -1)
+				break;
+			else if (bytes.length == MAX_ARRAY_SIZE)
+				throw new IOException("The file is too large for an array");
+
+			int length = bytes.length;
+			bytes = Arrays.copyOf(bytes, (int) Math.min(MAX_ARRAY_SIZE, length * 2L));
+			buffer = ByteBuffer.wrap(bytes);
+			buffer.position(length);
+			buffer.put(next.get(0));
+		}
+		return buffer.position() == bytes.length ? bytes : Arrays.copyOf(bytes, buffer.position());
+	}
+
+	/**
+	 * Set a cache for the resources loaded by {@link #getResourceFileAsString(String)} and {@link #getResourceFileAsStream(String)}.
+	 * Resources aren't cached by default.
+	 * @param resourceCache The cache to use, or null to read the resources from the class path on every call
+	 */
+	public static void setResourceCache(ResourceCache resourceCache) {
+		FileUtils.resourceCache = resourceCache;
+	}
+
+	/**
+	 * @return The cache for the resources, or null if resources aren't cached
+	 */
+	public static ResourceCache getResourceCache() {
+		return resourceCache;
 	}
 
 	/**
 	 * Load a file as an InputStream
 	 * @param relativePath The relative path from the resource directory
 	 * @return An InputStream or null
+	 * @see #setResourceCache(ResourceCache)
 	 */
 	public static InputStream getResourceFileAsStream(String relativePath) {
-		return FileUtils.class.getResourceAsStream(!relativePath.startsWith("/") ? "/" + relativePath : relativePath);
+		ResourceCache cache = resourceCache;
+		return cache != null ? cache.getStream(relativePath) : openResource(resourceName(relativePath));
 	}
 
 	/**
 	 * Load a file as a string.
 	 * @param relativePath The relative path from the resource directory
 	 * @return A string or null if the file couldn't be loaded
+	 * @see #setResourceCache(ResourceCache)
 	 */
 	public static String getResourceFileAsString(String relativePath) {
-		return inputStreamToString(getResourceFileAsStream(relativePath));
+		ResourceCache cache = resourceCache;
+		if (cache != null) {
+			return cache.getString(relativePath);
+		}
+
+		InputStream inputStream = openResource(resourceName(relativePath));
+		if (inputStream == null) {
+			return null;
+		}
+
+		try (InputStream in = inputStream) {
+			return readString(in, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return null;
+		}
 	}
 
-	// One of the faster ways to convert a stream.
+	static InputStream openResource(String name) {
+		return FileUtils.class.getResourceAsStream(name);
+	}
+
+	static String resourceName(String relativePath) {
+		return !relativePath.startsWith("/") ? "/" + relativePath : relativePath;
+	}
+
+	/**
+	 * Read the rest of a stream as a UTF-8 string. The stream isn't closed.
+	 * @param inputStream The stream to read
+	 * @return A string or null if the stream is null or couldn't be read
+	 * @see #readString(InputStream, Charset, int, long)
+	 */
 	public static String inputStreamToString(InputStream inputStream) {
 		if (inputStream == null) {
 			return null;
 		}
 
 		try {
-			ByteArrayOutputStream result = new ByteArrayOutputStream();
-			byte[] buffer = new byte[4 * 0x400]; // 4KB
-			int length;
-			while ((length = inputStream.read(buffer)) != -1) {
-				result.write(buffer, 0, length);
+			return readString(inputStream, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Read the rest of a stream as a string. The stream isn't closed.
+	 * @param inputStream The stream to read
+	 * @param charset The charset of the stream. Malformed input is replaced, as by {@link String#String(byte[], Charset)}
+	 * @return The string
+	 * @throws IOException If the stream couldn't be read
+	 */
+	public static String readString(InputStream inputStream, Charset charset) throws IOException {
+		return readString(inputStream, charset, -1, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Read the rest of a stream as a string, such as the payload of an HTTP response. The stream isn't closed.
+	 * Streams of up to 8 KB are read into a buffer reused by each thread, and larger ones into an array sized after the hint.
+	 * @param inputStream The stream to read
+	 * @param charset The charset of the stream. Malformed input is replaced, as by {@link String#String(byte[], Charset)}
+	 * @param sizeHint The expected number of bytes, such as the Content-Length of a response, or a negative number if unknown
+	 * @param maxBytes The maximum number of bytes to read
+	 * @return The string
+	 * @throws SizeLimitExceededException If the stream has more than maxBytes bytes. At most one byte beyond the limit is read
+	 * @throws IOException If the stream couldn't be read
+	 */
+	public static String readString(InputStream inputStream, Charset charset, int sizeHint, long maxBytes) throws IOException {
+		Objects.requireNonNull(inputStream, "The stream cannot be null");
+		Objects.requireNonNull(charset, "The charset cannot be null");
+		byte[] bytes = sizeHint > READ_BUFFER_SIZE ? new byte[(int) Math.max(Math.min(sizeHint, maxBytes), READ_BUFFER_SIZE)] : READ_BUFFERS.get();
+		int count = 0;
+		while (true) {
+			int length = (int) Math.min(bytes.length - count, maxBytes - count);
+			if (length > 0) {
+				length = inputStream.read(bytes, count, length);
+				if (length == -1)
+					break;
+				count += length;
+				continue;
 			}
 
-			return result.toString(StandardCharsets.UTF_8.name());
-		} catch (NullPointerException | IOException e ) {
-			return null;
+			// The array is full, or the limit is reached. Check for more before growing the array
+			int next = inputStream.read();
+			if (next == -1)
+				break;
+			else if (count >= maxBytes)
+				throw new SizeLimitExceededException(maxBytes);
+			else if (count == MAX_ARRAY_SIZE)
+				throw new IOException("The stream is too large for a string");
+
+			bytes = Arrays.copyOf(bytes, (int) Math.min(Math.min(MAX_ARRAY_SIZE, maxBytes), count * 2L));
+			bytes[count++] = (byte) next;
 		}
+		return new String(bytes, 0, count, charset);
 	}
 
 }
@@ -0,0 +1,350 @@
+package com.frejdh.util.common.toolbox;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A resolved method, invoked through a cached {@link MethodHandle}.
+ * Invokers are looked up by class, method name and argument types, and the lookup is only done once per combination.
+ * Example:<br>
+ * <pre>
+ * MethodInvoker invoker = MethodInvoker.find(plugin.getClass(), "handle", Event.class);
+ * for (Event event : events) {
+ *     invoker.invoke(plugin, event);
+ * }
+ * </pre>
+ *
+ * @author Kevin Frejdh
+ */
+public final class MethodInvoker {
+
+	private static final ClassValue<Map<Signature, MethodInvoker>> INVOKERS = new ClassValue<>() {
+		@Override
+		protected Map<Signature, MethodInvoker> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private final Method method;
+	private final MethodHandle handle; // The method's own type, with the instance first for non-static methods
+	private final MethodHandle spreader; // (Object, Object[])Object
+	private final Map<Class<?>, Object> interfaces = new ConcurrentHashMap<>();
+
+	private MethodInvoker(Method method, MethodHandle handle) {
+		this.method = method;
+		this.handle = handle;
+		int parameterCount = method.getParameterCount();
+		MethodHandle spreader = handle.asType(handle.type().generic()).asSpreader(Object[].class, parameterCount);
+		if (Modifier.isStatic(method.getModifiers()))
+			spreader = MethodHandles.dropArguments(spreader, 0, Object.class);
+		this.spreader = spreader.asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+	}
+
+	/**
+	 * Find a method of a class, or one of its superclasses or interfaces, that accepts arguments of the given types.
+	 * Boxed argument types match primitive parameters, and a null type matches any non-primitive parameter.
+	 * If several methods of the class and its supertypes match, the most specific one is used, like the compiler would.
+	 *
+	 * @param type The class to search, usually the class of the instance to invoke the method on
+	 * @param methodName Name of the method
+	 * @param argumentTypes Types of the arguments that will be passed. Null for an argument that will be null
+	 * @return The invoker, cached for the combination of class, name and argument types
+	 * @throws NoSuchMethodException If no method accepts the argument types
+	 * @throws IllegalArgumentException If several methods accept the argument types, and none of them is the most specific
+	 */
+	public static MethodInvoker find(Class<?> type, String methodName, Class<?>... argumentTypes) throws NoSuchMethodException {
+		Signature signature = new Signature(methodName, argumentTypes);
+		Map<Signature, MethodInvoker> invokers = INVOKERS.get(type);
+		MethodInvoker invoker = invokers.get(signature);
+		if (invoker == null) {
+			Method method = resolve(type, methodName, argumentTypes);
+			invoker = invokers.computeIfAbsent(new Signature(methodName, argumentTypes.clone()), key -> of(method));
+		}
+		return invoker;
+	}
+
+	/**
+	 * @param method The method to invoke
+	 * @return An invoker for the method, not cached
+	 */
+	public static MethodInvoker of(Method method) {
+		method.setAccessible(true);
+		try {
+			return new MethodInvoker(method, MethodHandles.lookup().unreflect(method).asFixedArity());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Accessible method couldn't be unreflected: " + method, e);
+		}
+	}
+
+	/**
+	 * @return The resolved method
+	 */
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return A handle for the method, with the instance as the first parameter if the method isn't static
+	 */
+	public MethodHandle getHandle() {
+		return handle;
+	}
+
+	/**
+	 * Invoke the method. Exceptions thrown by the method are thrown as they are.
+	 *
+	 * @param instance Instance to invoke the method on. Ignored for static methods
+	 * @param arguments Arguments to pass on to the method
+	 * @return The return value, or null for void methods
+	 * @throws Throwable Anything thrown by the method
+	 */
+	public Object invoke(Object instance, Object... arguments) throws Throwable {
+		return (Object) spreader.invokeExact(instance, arguments);
+	}
+
+	/**
+	 * Get the method as an implementation of a functional interface, such as {@link java.util.function.BiFunction}.
+	 * For non-static methods the instance is the first parameter of the interface method.
+	 * The implementations are cached per interface. They are created like lambdas, so that they invoke the method directly,
+	 * unless that isn't possible, for example when the interface isn't visible to the class of the method. Then a slower proxy is used.
+	 *
+	 * @param functionalInterface The interface to implement
+	 * @param <F> Type of the interface
+	 * @return The implementation
+	 * @throws IllegalArgumentException If the interface isn't a functional interface, or if its method doesn't match the method
+	 */
+	public <F> F asInterface(Class<F> functionalInterface) {
+		return functionalInterface.cast(interfaces.computeIfAbsent(functionalInterface, this::implement));
+	}
+
+	private Object implement(Class<?> functionalInterface) {
+		Method abstractMethod = abstractMethodOf(functionalInterface);
+		MethodType samType = abstractMethod != null
+				? MethodType.methodType(abstractMethod.getReturnType(), abstractMethod.getParameterTypes())
+				: null;
+		MethodType instantiatedType = samType != null ? instantiatedType(samType) : null;
+		if (instantiatedType != null) {
+			try {
+				// The lambda class is defined next to the class of the method, which can therefore be private
+				MethodHandles.Lookup caller = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+				CallSite site = LambdaMetafactory.metafactory(caller, abstractMethod.getName(), MethodType.methodType(functionalInterface),
+						samType, caller.unreflect(method), instantiatedType);
+				return site.getTarget().invoke();
+			} catch (Throwable e) {
+				// Not accessible from the class of the method, fall back to a proxy
+			}
+		}
+		return MethodHandleProxies.asInterfaceInstance(functionalInterface, handle);
+	}
+
+	// The single abstract method of an interface, or null if there isn't exactly one
+	private static Method abstractMethodOf(Class<?> functionalInterface) {
+		if (!functionalInterface.isInterface())
+			return null;
+
+		Method retval = null;
+		for (Method method : functionalInterface.getMethods()) {
+			if (!Modifier.isAbstract(method.getModifiers()) || isObjectMethod(method))
+				continue;
+			if (retval != null && !(retval.getName().equals(method.getName()) && Arrays.equals(retval.getParameterTypes(), method.getParameterTypes())))
+				return null;
+			retval = method;
+		}
+		return retval;
+	}
+
+	private static boolean isObjectMethod(Method method) {
+		try {
+			Object.class.getMethod(method.getName(), method.getParameterTypes());
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * The type of the interface method specialized to the types of the method, as the lambda casts the arguments to them.
+	 * @return The type, or null if the method can't implement the interface method
+	 */
+	private MethodType instantiatedType(MethodType samType) {
+		MethodType handleType = handle.type();
+		if (samType.parameterCount() != handleType.parameterCount())
+			return null;
+
+		MethodType retval = samType;
+		for (int i = 0; i < samType.parameterCount(); i++) {
+			Class<?> samParameter = samType.parameterType(i);
+			Class<?> parameter = wrap(handleType.parameterType(i));
+			if (!samParameter.isPrimitive() && samParameter.isAssignableFrom(parameter))
+				retval = retval.changeParameterType(i, parameter);
+		}
+
+		Class<?> samReturn = samType.returnType();
+		Class<?> returnType = handleType.returnType();
+		if (samReturn != void.class && returnType == void.class)
+			return null;
+		if (!samReturn.isPrimitive() && returnType != void.class && samReturn.isAssignableFrom(wrap(returnType)))
+			retval = retval.changeReturnType(wrap(returnType));
+		return retval;
+	}
+
+	// Collects the applicable methods of the whole hierarchy, as the most specific one may be inherited from a superclass
+	private static Method resolve(Class<?> type, String methodName, Class<?>[] argumentTypes) throws NoSuchMethodException {
+		List<ClassMetadata.MethodInfo> candidates = new ArrayList<>(1);
+		for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+			addApplicable(candidates, ClassMetadata.of(current).getDeclaredMethods(), methodName, argumentTypes);
+		}
+
+		// Default methods
+		Deque<Class<?>> queue = new ArrayDeque<>();
+		Set<Class<?>> visited = new HashSet<>();
+		for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+			queue.addAll(Arrays.asList(current.getInterfaces()));
+		}
+		while (!queue.isEmpty()) {
+			Class<?> current = queue.poll();
+			if (!visited.add(current))
+				continue;
+			addApplicable(candidates, ClassMetadata.of(current).getDeclaredMethods(), methodName, argumentTypes);
+			queue.addAll(Arrays.asList(current.getInterfaces()));
+		}
+
+		if (candidates.isEmpty())
+			throw new NoSuchMethodException(type.getName() + "." + methodName + argumentsToString(argumentTypes));
+		return mostSpecific(candidates, methodName, argumentTypes).getMethod(); // Only the resolved method is copied
+	}
+
+	/**
+	 * Add the applicable methods to the candidates, unless they are overridden by a candidate.
+	 * Superclasses must be added after their subclasses. Interfaces may be added in any order after the classes.
+	 */
+	private static void addApplicable(List<ClassMetadata.MethodInfo> candidates, List<ClassMetadata.MethodInfo> methods, String methodName,
+			Class<?>[] argumentTypes) {
+		for (ClassMetadata.MethodInfo method : methods) {
+			if (!method.getName().equals(methodName) || method.isBridge() || method.isSynthetic()
+					|| !isApplicable(method.parameterTypes(), argumentTypes))
+				continue;
+
+			int overriding = -1;
+			for (int i = 0; i < candidates.size() && overriding == -1; i++) {
+				if (Arrays.equals(candidates.get(i).parameterTypes(), method.parameterTypes()))
+					overriding = i;
+			}
+			if (overriding == -1)
+				candidates.add(method);
+			else if (candidates.get(overriding).getDeclaringClass().isAssignableFrom(method.getDeclaringClass()))
+				candidates.set(overriding, method); // A default method of a subinterface, found after the one it overrides
+		}
+	}
+
+	private static ClassMetadata.MethodInfo mostSpecific(List<ClassMetadata.MethodInfo> candidates, String methodName, Class<?>[] argumentTypes) {
+		if (candidates.size() == 1)
+			return candidates.get(0);
+
+		for (ClassMetadata.MethodInfo candidate : candidates) {
+			boolean mostSpecific = true;
+			for (ClassMetadata.MethodInfo other : candidates) {
+				if (other != candidate && !isMoreSpecific(candidate.parameterTypes(), other.parameterTypes())) {
+					mostSpecific = false;
+					break;
+				}
+			}
+			if (mostSpecific)
+				return candidate;
+		}
+		throw new IllegalArgumentException("Ambiguous method call " + methodName + argumentsToString(argumentTypes) + ", candidates: " + candidates);
+	}
+
+	private static boolean isApplicable(Class<?>[] parameterTypes, Class<?>[] argumentTypes) {
+		if (parameterTypes.length != argumentTypes.length)
+			return false;
+		for (int i = 0; i < parameterTypes.length; i++) {
+			Class<?> parameter = parameterTypes[i];
+			Class<?> argument = argumentTypes[i];
+			if (argument == null) {
+				if (parameter.isPrimitive())
+					return false;
+			} else if (parameter.isPrimitive() ? wrap(parameter) != argument : !parameter.isAssignableFrom(argument)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isMoreSpecific(Class<?>[] first, Class<?>[] second) {
+		for (int i = 0; i < first.length; i++) {
+			if (first[i] == second[i])
+				continue;
+			if (first[i].isPrimitive() && wrap(first[i]) == second[i])
+				return false; // The boxed parameter is an exact match for a boxed argument
+			if (!wrap(second[i]).isAssignableFrom(wrap(first[i])))
+				return false;
+		}
+		return true;
+	}
+
+	static Class<?> wrap(Class<?> type) {
+		return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+	}
+
+	private static String argumentsToString(Class<?>[] argumentTypes) {
+		StringBuilder builder = new StringBuilder("(");
+		for (int i = 0; i < argumentTypes.length; i++) {
+			if (i > 0)
+				builder.append(", ");
+			builder.append(argumentTypes[i] != null ? argumentTypes[i].getName() : "null");
+		}
+		return builder.append(')').toString();
+	}
+
+	@Override
+	public String toString() {
+		return "MethodInvoker[" + method + "]";
+	}
+
+	/**
+	 * Cache key of a lookup.
+	 */
+	private static final class Signature {
+		private final String name;
+		private final Class<?>[] argumentTypes;
+		private final int hash;
+
+		Signature(String name, Class<?>[] argumentTypes) {
+			this.name = name;
+			this.argumentTypes = argumentTypes;
+			this.hash = 31 * name.hashCode() + Arrays.hashCode(argumentTypes);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Signature))
+				return false;
+			Signature other = (Signature) o;
+			return hash == other.hash && name.equals(other.name) && Arrays.equals(argumentTypes, other.argumentTypes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+}
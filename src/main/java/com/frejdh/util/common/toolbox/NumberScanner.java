@@ -0,0 +1,329 @@
+package com.frejdh.util.common.toolbox;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Validates and parses decimal numbers directly from a {@link CharSequence} (or a range of one), without creating any objects.
+ * Instances are immutable. The {@link #standard()} scanner accepts the same numbers as {@link CommonUtils#isNumeric(String)},
+ * that is an optional minus sign, digits and an optional decimal part. Example:<br>
+ * <pre>
+ * NumberScanner scanner = NumberScanner.standard().withExponent(true).withLocale(Locale.US);
+ * double value = scanner.parseDouble(line, start, end); // Accepts "-1,234.5e3"
+ * </pre>
+ * Only ASCII digits are accepted. A grouping separator may only occur between two digits of the integer part.
+ *
+ * @author Kevin Frejdh
+ */
+public final class NumberScanner {
+
+	private static final char NO_SEPARATOR = '\uFFFF';
+	private static final NumberScanner STANDARD = new NumberScanner(false, false, '.', NO_SEPARATOR);
+
+	// Doubles can represent these exactly, which makes the product or quotient of them and a small significand correctly rounded
+	private static final double[] EXACT_POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+	// Larger exponents over- or underflow anyway, capping them keeps the exponent from overflowing
+	private static final int MAX_EXPONENT_DIGITS_VALUE = 100_000;
+	// Returned by the scanning for invalid input, as no valid input can produce it
+	private static final double INVALID = Double.NaN;
+
+	private final boolean exponent;
+	private final boolean leadingPlus;
+	private final char decimalSeparator;
+	private final char groupingSeparator;
+
+	private NumberScanner(boolean exponent, boolean leadingPlus, char decimalSeparator, char groupingSeparator) {
+		this.exponent = exponent;
+		this.leadingPlus = leadingPlus;
+		this.decimalSeparator = decimalSeparator;
+		this.groupingSeparator = groupingSeparator;
+	}
+
+	/**
+	 * @return A scanner accepting an optional minus sign, digits and an optional decimal part separated by a dot.
+	 * Matches the regular expression {@code -?\d+(\.\d+)?}
+	 */
+	public static NumberScanner standard() {
+		return STANDARD;
+	}
+
+	/**
+	 * @param exponent Whether to accept an exponent, such as {@code 1.5e-3} or {@code 2E10}
+	 * @return A copy of this scanner, with exponents accepted or rejected
+	 */
+	public NumberScanner withExponent(boolean exponent) {
+		return new NumberScanner(exponent, leadingPlus, decimalSeparator, groupingSeparator);
+	}
+
+	/**
+	 * @param leadingPlus Whether to accept a leading plus sign
+	 * @return A copy of this scanner, with a leading plus sign accepted or rejected
+	 */
+	public NumberScanner withLeadingPlus(boolean leadingPlus) {
+		return new NumberScanner(exponent, leadingPlus, decimalSeparator, groupingSeparator);
+	}
+
+	/**
+	 * @param decimalSeparator The character separating the integer part from the decimal part
+	 * @return A copy of this scanner, using the given decimal separator
+	 */
+	public NumberScanner withDecimalSeparator(char decimalSeparator) {
+		return new NumberScanner(exponent, leadingPlus, checkSeparator(decimalSeparator, groupingSeparator), groupingSeparator);
+	}
+
+	/**
+	 * @param groupingSeparator The character used to group the digits of the integer part, such as the comma in {@code 1,000}
+	 * @return A copy of this scanner, accepting the given grouping separator
+	 */
+	public NumberScanner withGroupingSeparator(char groupingSeparator) {
+		return new NumberScanner(exponent, leadingPlus, decimalSeparator, checkSeparator(groupingSeparator, decimalSeparator));
+	}
+
+	/**
+	 * @return A copy of this scanner, not accepting any grouping separator
+	 */
+	public NumberScanner withoutGroupingSeparator() {
+		return new NumberScanner(exponent, leadingPlus, decimalSeparator, NO_SEPARATOR);
+	}
+
+	/**
+	 * @param locale The locale to take the decimal and grouping separators from
+	 * @return A copy of this scanner, using the separators of the locale
+	 */
+	public NumberScanner withLocale(Locale locale) {
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+		return new NumberScanner(exponent, leadingPlus, symbols.getDecimalSeparator(), symbols.getGroupingSeparator());
+	}
+
+	private static char checkSeparator(char separator, char other) {
+		if (separator == other)
+			throw new IllegalArgumentException("The decimal and grouping separators cannot be the same: '" + separator + "'");
+		if (isDigit(separator) || separator == '-' || separator == '+' || separator == 'e' || separator == 'E')
+			throw new IllegalArgumentException("Illegal separator: '" + separator + "'");
+		return separator;
+	}
+
+	/**
+	 * @param str Characters to check
+	 * @return Whether all the characters form a number accepted by this scanner
+	 */
+	public boolean isNumeric(CharSequence str) {
+		return isNumeric(str, 0, str.length());
+	}
+
+	/**
+	 * @param str Characters to check
+	 * @param start Index of the first character, inclusive
+	 * @param end Index of the last character, exclusive
+	 * @return Whether the characters in the range form a number accepted by this scanner
+	 */
+	public boolean isNumeric(CharSequence str, int start, int end) {
+		Objects.checkFromToIndex(start, end, str.length());
+		return !Double.isNaN(scan(str, start, end, false));
+	}
+
+	/**
+	 * @param str Characters to parse
+	 * @return The parsed value
+	 * @throws NumberFormatException If the characters don't form a number accepted by this scanner
+	 * @see #parseDouble(CharSequence, int, int)
+	 */
+	public double parseDouble(CharSequence str) {
+		return parseDouble(str, 0, str.length());
+	}
+
+	/**
+	 * Parse a range of characters into a double. The result is the closest double to the value, like {@link Double#parseDouble(String)}.
+	 * Numbers with more than 15 to 16 significant digits, or with an exponent beyond 22, are passed on to {@link Double#parseDouble(String)}.
+	 *
+	 * @param str Characters to parse
+	 * @param start Index of the first character, inclusive
+	 * @param end Index of the last character, exclusive
+	 * @return The parsed value
+	 * @throws NumberFormatException If the characters don't form a number accepted by this scanner
+	 */
+	public double parseDouble(CharSequence str, int start, int end) {
+		Objects.checkFromToIndex(start, end, str.length());
+		double value = scan(str, start, end, true);
+		if (Double.isNaN(value))
+			throw invalidNumber(str, start, end);
+		return value;
+	}
+
+	/**
+	 * @param str Characters to parse
+	 * @return The parsed value
+	 * @throws NumberFormatException If the characters don't form an integer accepted by this scanner, or if it's out of range
+	 * @see #parseLong(CharSequence, int, int)
+	 */
+	public long parseLong(CharSequence str) {
+		return parseLong(str, 0, str.length());
+	}
+
+	/**
+	 * Parse a range of characters into a long. Decimal parts and exponents are not accepted.
+	 *
+	 * @param str Characters to parse
+	 * @param start Index of the first character, inclusive
+	 * @param end Index of the last character, exclusive
+	 * @return The parsed value
+	 * @throws NumberFormatException If the characters don't form an integer accepted by this scanner, or if it's out of range
+	 */
+	public long parseLong(CharSequence str, int start, int end) {
+		Objects.checkFromToIndex(start, end, str.length());
+		int i = start;
+		boolean negative = false;
+		if (i < end) {
+			char c = str.charAt(i);
+			if (c == '-') {
+				negative = true;
+				i++;
+			} else if (c == '+' && leadingPlus) {
+				i++;
+			}
+		}
+
+		// Accumulated negatively, since Long.MIN_VALUE has no positive counterpart
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplicationLimit = limit / 10;
+		long result = 0;
+		int digits = 0;
+		for (; i < end; i++) {
+			char c = str.charAt(i);
+			if (isDigit(c)) {
+				int digit = c - '0';
+				if (result < multiplicationLimit || result * 10 < limit + digit)
+					throw invalidNumber(str, start, end);
+				result = result * 10 - digit;
+				digits++;
+			} else if (!isGrouping(str, i, end, digits)) {
+				throw invalidNumber(str, start, end);
+			}
+		}
+
+		if (digits == 0)
+			throw invalidNumber(str, start, end);
+		return negative ? result : -result;
+	}
+
+	/**
+	 * Validate, and if requested compute, the number in the range.
+	 * @return The value, or {@link #INVALID} if the range is not a number accepted by this scanner
+	 */
+	private double scan(CharSequence str, int start, int end, boolean compute) {
+		int i = start;
+		boolean negative = false;
+		if (i < end) {
+			char c = str.charAt(i);
+			if (c == '-') {
+				negative = true;
+				i++;
+			} else if (c == '+' && leadingPlus) {
+				i++;
+			}
+		}
+
+		long significand = 0;
+		int exponent10 = 0;
+		boolean truncated = false;
+
+		int integerDigits = 0;
+		for (; i < end; i++) {
+			char c = str.charAt(i);
+			if (isDigit(c)) {
+				integerDigits++;
+				if (significand <= (Long.MAX_VALUE - 9) / 10) {
+					significand = significand * 10 + (c - '0');
+				} else {
+					exponent10++;
+					truncated |= c != '0';
+				}
+			} else if (!isGrouping(str, i, end, integerDigits)) {
+				break;
+			}
+		}
+		if (integerDigits == 0)
+			return INVALID;
+
+		if (i < end && str.charAt(i) == decimalSeparator) {
+			int decimalDigits = 0;
+			for (i++; i < end && isDigit(str.charAt(i)); i++) {
+				decimalDigits++;
+				if (significand <= (Long.MAX_VALUE - 9) / 10) {
+					significand = significand * 10 + (str.charAt(i) - '0');
+					exponent10--;
+				} else {
+					truncated |= str.charAt(i) != '0';
+				}
+			}
+			if (decimalDigits == 0)
+				return INVALID;
+		}
+
+		if (this.exponent && i < end && (str.charAt(i) == 'e' || str.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (str.charAt(i) == '-' || str.charAt(i) == '+'))
+				negativeExponent = str.charAt(i++) == '-';
+
+			int exponentValue = 0;
+			int exponentDigits = 0;
+			for (; i < end && isDigit(str.charAt(i)); i++) {
+				exponentDigits++;
+				if (exponentValue < MAX_EXPONENT_DIGITS_VALUE)
+					exponentValue = exponentValue * 10 + (str.charAt(i) - '0');
+			}
+			if (exponentDigits == 0)
+				return INVALID;
+			exponent10 += negativeExponent ? -exponentValue : exponentValue;
+		}
+
+		if (i != end)
+			return INVALID;
+		else if (!compute)
+			return 0;
+
+		double value;
+		if (significand == 0 && !truncated)
+			value = 0;
+		else if (!truncated && significand <= MAX_EXACT_SIGNIFICAND && exponent10 >= -22 && exponent10 <= 22)
+			value = exponent10 >= 0 ? significand * EXACT_POWERS_OF_TEN[exponent10] : significand / EXACT_POWERS_OF_TEN[-exponent10];
+		else
+			return parseWithDoubleParser(str, start, end);
+		return negative ? -value : value;
+	}
+
+	// Only used when the result can't be computed exactly by the scan
+	private double parseWithDoubleParser(CharSequence str, int start, int end) {
+		StringBuilder normalized = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			char c = str.charAt(i);
+			if (c == decimalSeparator)
+				normalized.append('.');
+			else if (c != groupingSeparator)
+				normalized.append(c);
+		}
+		return Double.parseDouble(normalized.toString());
+	}
+
+	// A grouping separator has to be directly preceded and followed by a digit
+	private boolean isGrouping(CharSequence str, int index, int end, int digitsBefore) {
+		return str.charAt(index) == groupingSeparator && groupingSeparator != NO_SEPARATOR
+				&& digitsBefore > 0 && isDigit(str.charAt(index - 1))
+				&& index + 1 < end && isDigit(str.charAt(index + 1));
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static NumberFormatException invalidNumber(CharSequence str, int start, int end) {
+		return new NumberFormatException("For input string: \"" + str.subSequence(start, end) + "\"");
+	}
+
+}
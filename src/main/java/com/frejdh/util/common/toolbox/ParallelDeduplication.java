@@ -0,0 +1,253 @@
+package com.frejdh.util.common.toolbox;
+
+import com.frejdh.util.common.merging.MergePlan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+import static com.frejdh.util.common.toolbox.CommonUtils.sneakyThrow;
+
+/**
+ * Parallel implementations of the methods in {@link Deduplication}. The input is split into contiguous chunks which are
+ * processed on a {@link ForkJoinPool}, after which the partial results are combined in order.
+ * The results are identical to the ones of the sequential implementations.
+ */
+class ParallelDeduplication {
+
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int SHARED = -1;
+
+	/**
+	 * Parallel version of {@link Deduplication#distinctByKey(List, Function, CommonUtils.DuplicateRetention)}.
+	 * Keys are extracted and deduplicated within each chunk in parallel, leaving only the chunk-local survivors to be combined.
+	 */
+	static <T, K> List<T> distinctByKey(List<T> list, Function<? super T, K> keyExtractor, CommonUtils.DuplicateRetention retention, ParallelOptions options) {
+		List<T> elements = randomAccess(list);
+		boolean keepFirst = retention == CommonUtils.DuplicateRetention.KEEP_FIRST;
+		Chunks chunks = new Chunks(elements.size(), options.getPool());
+		List<List<T>> survivors = chunks.newResults();
+		List<List<K>> survivorKeys = chunks.newResults();
+
+		chunks.forEach(options.getPool(), (chunk, from, to) -> {
+			List<T> chunkSurvivors = new ArrayList<>();
+			List<K> chunkKeys = new ArrayList<>();
+			Set<K> keys = new HashSet<>();
+			for (int i = keepFirst ? from : to - 1; keepFirst ? i < to : i >= from; i += keepFirst ? 1 : -1) {
+				T element = elements.get(i);
+				K key = keyExtractor.apply(element);
+				if (key == null || keys.add(key)) {
+					chunkSurvivors.add(element);
+					chunkKeys.add(key);
+				}
+			}
+			survivors.set(chunk, chunkSurvivors);
+			survivorKeys.set(chunk, chunkKeys);
+		});
+
+		// Combine in the same direction as the chunks were processed. For KEEP_LAST, both are in reverse order
+		List<T> retval = new ArrayList<>();
+		Set<K> keys = new HashSet<>();
+		for (int c = 0; c < chunks.count; c++) {
+			int chunk = keepFirst ? c : chunks.count - 1 - c;
+			List<T> chunkSurvivors = survivors.get(chunk);
+			List<K> chunkKeys = survivorKeys.get(chunk);
+			for (int i = 0; i < chunkSurvivors.size(); i++) {
+				K key = chunkKeys.get(i);
+				if (key == null || keys.add(key))
+					retval.add(chunkSurvivors.get(i));
+			}
+		}
+
+		if (!keepFirst)
+			Collections.reverse(retval);
+		return retval;
+	}
+
+	/**
+	 * Parallel version of {@link Deduplication#softMergeDuplicates(List)}. The top level list is grouped and merged in parallel,
+	 * after which nested lists are handled sequentially.
+	 * Merging appends to the lists held by the elements, so if a list is held by elements of different groups, it would be appended to
+	 * concurrently and in another order than by the sequential version. Such lists are rare, and fall back to the sequential version.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static <T> void softMergeDuplicates(List<T> list, ParallelOptions options) throws IllegalAccessException {
+		List<T> elements = randomAccess(list);
+		ForkJoinPool pool = options.getPool();
+		Chunks chunks = new Chunks(elements.size(), pool);
+
+		// 1. Group within each chunk. Every element gets the index of the first equal element in its chunk
+		int[] localFirst = new int[elements.size()];
+		chunks.forEach(pool, (chunk, from, to) -> {
+			Map<T, Integer> firstIndexes = new HashMap<>();
+			for (int i = from; i < to; i++) {
+				Integer firstIndex = firstIndexes.putIfAbsent(elements.get(i), i);
+				localFirst[i] = firstIndex != null ? firstIndex : i;
+			}
+		});
+
+		// 2. Combine the chunk-local groups in order. Only the first element of each chunk-local group is hashed again
+		int[] groups = new int[elements.size()];
+		List<T> firstElements = new ArrayList<>();
+		Map<T, Integer> groupIndexes = new HashMap<>();
+		for (int i = 0; i < elements.size(); i++) {
+			if (localFirst[i] != i) {
+				groups[i] = groups[localFirst[i]];
+				continue;
+			}
+
+			T element = elements.get(i);
+			Integer groupIndex = groupIndexes.putIfAbsent(element, firstElements.size());
+			if (groupIndex == null) {
+				groups[i] = firstElements.size();
+				firstElements.add(element);
+			} else {
+				groups[i] = groupIndex;
+			}
+		}
+
+		if (firstElements.size() == elements.size())
+			return;
+
+		// 3. Order the duplicates by group, and by index within each group. Then check that no list is held by several groups
+		int[] groupOffsets = new int[firstElements.size() + 1];
+		for (int i = 0; i < elements.size(); i++) {
+			groupOffsets[groups[i] + 1]++;
+		}
+		for (int g = 0; g < firstElements.size(); g++) {
+			groupOffsets[g + 1] += groupOffsets[g];
+		}
+		int[] groupedIndexes = new int[elements.size()];
+		int[] positions = Arrays.copyOf(groupOffsets, firstElements.size());
+		for (int i = 0; i < elements.size(); i++) {
+			groupedIndexes[positions[groups[i]]++] = i;
+		}
+
+		Chunks groupChunks = new Chunks(firstElements.size(), pool);
+		List<Map<List, Integer>> listOwners = groupChunks.newResults(); // The group holding each list, or SHARED
+		groupChunks.forEach(pool, (chunk, from, to) -> {
+			Map<List, Integer> owners = new IdentityHashMap<>();
+			List<List> lists = new ArrayList<>();
+			for (int g = from; g < to; g++) {
+				if (groupOffsets[g + 1] - groupOffsets[g] == 1) // Not merged
+					continue;
+
+				for (int j = groupOffsets[g]; j < groupOffsets[g + 1]; j++) {
+					T element = elements.get(groupedIndexes[j]);
+					try {
+						if (element != null)
+							MergePlan.of((Class<T>) element.getClass()).collectLists(element, lists);
+					} catch (IllegalAccessException e) {
+						sneakyThrow(e);
+					}
+				}
+				for (List nested : lists) {
+					Integer owner = owners.putIfAbsent(nested, g);
+					if (owner != null && owner != g)
+						owners.put(nested, SHARED);
+				}
+				lists.clear();
+			}
+			listOwners.set(chunk, owners);
+		});
+
+		Map<List, Integer> owners = new IdentityHashMap<>();
+		for (Map<List, Integer> chunkOwners : listOwners) {
+			for (Map.Entry<List, Integer> entry : chunkOwners.entrySet()) {
+				Integer owner = owners.putIfAbsent(entry.getKey(), entry.getValue());
+				if (entry.getValue() == SHARED || (owner != null && !owner.equals(entry.getValue()))) {
+					Deduplication.softMergeDuplicates(list); // Nothing has been modified yet
+					return;
+				}
+			}
+		}
+
+		// 4. Merge the groups in parallel. Each group only modifies its own elements and lists
+		List<List<List>> appendedByIndex = new ArrayList<>(Collections.nCopies(elements.size(), null)); // Set for distinct indexes
+		groupChunks.forEach(pool, (chunk, from, to) -> {
+			for (int g = from; g < to; g++) {
+				T first = firstElements.get(g);
+				for (int j = groupOffsets[g] + 1; j < groupOffsets[g + 1]; j++) { // The first index of a group is the first element
+					T duplicate = elements.get(groupedIndexes[j]);
+					if (first == duplicate || first == null || first.getClass() != duplicate.getClass())
+						continue;
+
+					List<List> appended = new ArrayList<>(1);
+					try {
+						Deduplication.softMerge(first, duplicate, appended);
+					} catch (IllegalAccessException e) {
+						sneakyThrow(e);
+					}
+					if (!appended.isEmpty())
+						appendedByIndex.set(groupedIndexes[j], appended);
+				}
+			}
+		});
+
+		// In the order of the duplicates, like the sequential version, as that is the order the nested lists are processed in
+		List<List> appended = new ArrayList<>();
+		for (List<List> lists : appendedByIndex) {
+			if (lists != null)
+				appended.addAll(lists);
+		}
+
+		Deduplication.replaceContent(list, firstElements);
+		Deduplication.softMergeNestedDuplicates(list, appended);
+	}
+
+	private static <T> List<T> randomAccess(List<T> list) {
+		return list instanceof RandomAccess ? list : new ArrayList<>(list);
+	}
+
+	@FunctionalInterface
+	private interface ChunkAction {
+		void accept(int chunk, int from, int to);
+	}
+
+	/**
+	 * Splits a range of indexes into contiguous chunks.
+	 */
+	private static final class Chunks {
+		final int size;
+		final int count;
+		final int chunkSize;
+
+		Chunks(int size, ForkJoinPool pool) {
+			this.size = size;
+			this.chunkSize = Math.max(1, (size + pool.getParallelism() * CHUNKS_PER_THREAD - 1) / (pool.getParallelism() * CHUNKS_PER_THREAD));
+			this.count = (size + chunkSize - 1) / chunkSize;
+		}
+
+		/**
+		 * @return A list with a null result for every chunk, to be set by the chunks
+		 */
+		<E> List<E> newResults() {
+			return new ArrayList<>(Collections.nCopies(count, null));
+		}
+
+		/**
+		 * Run the action for every chunk and wait for all of them to complete. Exceptions are rethrown.
+		 */
+		void forEach(ForkJoinPool pool, ChunkAction action) {
+			List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+			for (int chunk = 0; chunk < count; chunk++) {
+				final int c = chunk;
+				tasks.add(pool.submit(() -> action.accept(c, c * chunkSize, Math.min(size, (c + 1) * chunkSize))));
+			}
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.frejdh.util.common.toolbox;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Options for the parallel variants of the list operations in {@link CommonUtils}. Instances are immutable.
+ * Example:<br>
+ * <pre>
+ * CommonUtils.parallelSoftMergeDuplicates(list, ParallelOptions.defaults().withThreshold(50_000));
+ * </pre>
+ *
+ * @author Kevin Frejdh
+ */
+public final class ParallelOptions {
+
+	/**
+	 * Lists smaller than this are processed sequentially by default.
+	 */
+	public static final int DEFAULT_THRESHOLD = 10_000;
+
+	private static final ParallelOptions DEFAULTS = new ParallelOptions(null, DEFAULT_THRESHOLD);
+
+	private final ForkJoinPool pool;
+	private final int threshold;
+
+	private ParallelOptions(ForkJoinPool pool, int threshold) {
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * @return Options using the common {@link ForkJoinPool} and a threshold of {@link #DEFAULT_THRESHOLD}
+	 */
+	public static ParallelOptions defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * @param pool The pool to run the tasks on
+	 * @return A copy of these options, using the given pool
+	 */
+	public ParallelOptions withPool(ForkJoinPool pool) {
+		return new ParallelOptions(Objects.requireNonNull(pool, "The pool cannot be null"), threshold);
+	}
+
+	/**
+	 * @param threshold The minimum list size for which the work is split up. Smaller lists are processed sequentially
+	 * @return A copy of these options, using the given threshold
+	 */
+	public ParallelOptions withThreshold(int threshold) {
+		if (threshold < 0)
+			throw new IllegalArgumentException("The threshold cannot be negative: " + threshold);
+		return new ParallelOptions(pool, threshold);
+	}
+
+	/**
+	 * @return The pool to run the tasks on. The common pool unless another one has been set
+	 */
+	public ForkJoinPool getPool() {
+		return pool != null ? pool : ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * @return The minimum list size for which the work is split up
+	 */
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @param size Size of the input
+	 * @return Whether an input of the given size should be processed in parallel
+	 */
+	boolean isParallel(int size) {
+		return size >= threshold && size > 1 && getPool().getParallelism() > 1;
+	}
+
+}
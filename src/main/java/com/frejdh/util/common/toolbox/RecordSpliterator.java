@@ -0,0 +1,197 @@
+package com.frejdh.util.common.toolbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splits a range of a file into records ending with a single-byte delimiter. Used by the record streams of {@link FileUtils}.
+ * <br>
+ * The bytes are read into a heap buffer, from which each record is decoded either into a string,
+ * or into a char buffer reused for every record. Before traversal, a range can be split at a record boundary close to its middle,
+ * so that the parts can be processed in parallel. The parts share the channel, as positional reads don't change its position.
+ */
+final class RecordSpliterator implements Spliterator<CharSequence> {
+
+	static final int BUFFER_SIZE = 256 * 0x400;
+	/** Ranges smaller than twice this aren't split */
+	static final long MIN_SPLIT_SIZE = 1024 * 1024;
+
+	private final FileChannel channel;
+	private final byte delimiter;
+	private final Charset charset;
+	private final boolean lines; // Strip a \r before the delimiter
+	private final boolean strings; // Give the consumers strings rather than the reused char buffer
+	private long start;
+	private long end;
+	private long readPosition; // The position in the file of the next byte to read into the buffer
+	private ByteBuffer buffer; // In read mode. Allocated once the traversal starts
+	private int scanned; // The number of unread bytes already scanned for the delimiter
+	private CharsetDecoder decoder;
+	private CharBuffer chars;
+
+	/**
+	 * @param channel The file to read
+	 * @param start The position of the first record
+	 * @param end The position after the last record, or {@link Long#MAX_VALUE} to read to the end of the file without splitting
+	 * @param delimiter The delimiter, which must be encoded as the same single byte by the charset
+	 * @param charset The charset of the records
+	 * @param lines Whether to strip a carriage return before the delimiter
+	 * @param strings Whether to give the consumers a string for each record, rather than the reused char buffer
+	 */
+	RecordSpliterator(FileChannel channel, long start, long end, byte delimiter, Charset charset, boolean lines, boolean strings) {
+		this.channel = channel;
+		this.start = start;
+		this.end = end;
+		this.readPosition = start;
+		this.delimiter = delimiter;
+		this.charset = charset;
+		this.lines = lines;
+		this.strings = strings;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super CharSequence> action) {
+		try {
+			if (buffer == null) {
+				buffer = ByteBuffer.allocate((int) Math.max(0x400, Math.min(BUFFER_SIZE, end - start)));
+				buffer.limit(0);
+				if (!strings) {
+					decoder = charset.newDecoder()
+							.onMalformedInput(CodingErrorAction.REPLACE)
+							.onUnmappableCharacter(CodingErrorAction.REPLACE);
+					chars = CharBuffer.allocate(0x400);
+				}
+			}
+
+			int delimiterIndex;
+			while ((delimiterIndex = indexOfDelimiter()) == -1 && fill());
+			if (delimiterIndex == -1 && !buffer.hasRemaining())
+				return false;
+
+			int recordEnd = delimiterIndex != -1 ? delimiterIndex : buffer.limit(); // The last record may lack a delimiter
+			int next = delimiterIndex != -1 ? delimiterIndex + 1 : buffer.limit();
+			if (lines && recordEnd > buffer.position() && buffer.get(recordEnd - 1) == '\r')
+				recordEnd--;
+			if (strings) {
+				String record = new String(buffer.array(), buffer.position(), recordEnd - buffer.position(), charset);
+				buffer.position(next);
+				scanned = 0;
+				action.accept(record);
+			} else {
+				decode(recordEnd);
+				buffer.position(next);
+				scanned = 0;
+				action.accept(chars);
+			}
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public Spliterator<CharSequence> trySplit() {
+		if (buffer != null || end == Long.MAX_VALUE || end - start < 2 * MIN_SPLIT_SIZE)
+			return null;
+
+		try {
+			long splitPosition = nextRecordStart(start + (end - start) / 2);
+			if (splitPosition == -1)
+				return null;
+
+			RecordSpliterator prefix = new RecordSpliterator(channel, start, splitPosition, delimiter, charset, lines, strings);
+			start = readPosition = splitPosition;
+			return prefix;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public long estimateSize() {
+		return end == Long.MAX_VALUE ? Long.MAX_VALUE : end - start; // Bytes rather than records, which are unknown
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	private int indexOfDelimiter() {
+		byte[] bytes = buffer.array();
+		for (int i = buffer.position() + scanned, limit = buffer.limit(); i < limit; i++) {
+			if (bytes[i] == delimiter)
+				return i;
+		}
+		scanned = buffer.remaining();
+		return -1;
+	}
+
+	// Reads more of the range into the buffer, growing it if a record doesn't fit
+	private boolean fill() throws IOException {
+		if (readPosition >= end)
+			return false;
+
+		buffer.compact();
+		if (!buffer.hasRemaining()) {
+			ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+			grown.put(buffer.flip());
+			buffer = grown;
+		}
+
+		buffer.limit(buffer.position() + (int) Math.min(buffer.remaining(), end - readPosition));
+		int read = channel.read(buffer, readPosition);
+		buffer.flip();
+		if (read == -1) {
+			end = readPosition;
+			return false;
+		}
+		readPosition += read;
+		return true;
+	}
+
+	// Decodes the bytes from the position of the buffer to the given index into the char buffer
+	private void decode(int recordEnd) throws IOException {
+		int limit = buffer.limit();
+		buffer.limit(recordEnd);
+		decoder.reset();
+		chars.clear();
+		CoderResult result;
+		while ((result = decoder.decode(buffer, chars, true)).isOverflow()) {
+			chars = CharBuffer.allocate(chars.capacity() * 2).put(chars.flip());
+		}
+		while (!result.isError() && (result = decoder.flush(chars)).isOverflow()) {
+			chars = CharBuffer.allocate(chars.capacity() * 2).put(chars.flip());
+		}
+		if (result.isError())
+			result.throwException();
+		chars.flip();
+		buffer.limit(limit);
+	}
+
+	// The position after the first delimiter at or after the given position, or -1 if there is none before the end of the range
+	private long nextRecordStart(long from) throws IOException {
+		ByteBuffer probe = ByteBuffer.allocate(8 * 0x400);
+		for (long position = from; position < end; position += probe.limit()) {
+			probe.clear().limit((int) Math.min(probe.capacity(), end - position));
+			if (channel.read(probe, position) == -1)
+				return -1;
+			probe.flip();
+			for (int i = 0; i < probe.limit(); i++) {
+				if (probe.get(i) == delimiter)
+					return position + i + 1 < end ? position + i + 1 : -1;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -1,14 +1,18 @@
 package com.frejdh.util.common.toolbox;
 
+import com.frejdh.util.common.compiled.CompiledAccessor;
+import com.frejdh.util.common.compiled.CompiledAccessors;
 import com.frejdh.util.common.functional.ThrowingConsumer;
 import com.frejdh.util.common.functional.ThrowingFunction;
-import com.frejdh.util.common.invocations.Operators;
 import org.apiguardian.api.API;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * Util class for easier usage of reflection.
@@ -21,6 +25,8 @@ public class ReflectionUtils {
 
 	/**
 	 * Invoke a method for a given instance.
+	 * The method may be declared by the class of the instance or by any of its superclasses and interfaces.
+	 * The method lookup is cached, see {@link MethodInvoker} to also skip the lookup of the cached method.
 	 *
 	 * @param instance Instance to execute the method on
 	 * @param methodName Name of the method
@@ -28,28 +34,23 @@ public class ReflectionUtils {
 	 * @return The return value from the invocation, or `null` if none.
 	 */
 	public static Object invokeMethod(Object instance, String methodName, Object... params) throws NoSuchMethodException, IllegalArgumentException, IllegalAccessException {
-		int paramCount = params.length;
-		Method method;
-		Object requiredObj = null;
-		Class<?>[] classArray = new Class<?>[paramCount];
-		for (int i = 0; i < paramCount; i++) {
-			classArray[i] = params[i].getClass();
+		Class<?>[] classArray = new Class<?>[params.length];
+		for (int i = 0; i < params.length; i++) {
+			classArray[i] = params[i] != null ? params[i].getClass() : null;
 		}
 
+		MethodInvoker invoker = MethodInvoker.find(instance.getClass(), methodName, classArray);
 		try {
-			method = instance.getClass().getDeclaredMethod(methodName, classArray);
-			method.setAccessible(true);
-			requiredObj = method.invoke(instance, params);
-		} catch (InvocationTargetException e) {
-			throw new RuntimeException(e);
+			return invoker.invoke(instance, params);
+		} catch (Throwable e) {
+			throw new RuntimeException(new InvocationTargetException(e));
 		}
-
-		return requiredObj;
 	}
 
 	/**
-	 * Replace a non-primitive and static value found inside a class.
-	 * This method also works on variables that are final (for JDK 11 or below).
+	 * Replace a non-primitive value found inside an instance.
+	 * This method also works on variables that are final. The field is looked up once, see {@link FieldAccessor} for faster repeated access.
+	 * Non-final fields of classes with a {@link CompiledAccessor} are written without reflection.
 	 *
 	 * @param instanceWithVariable The class containing the variable to edit.
 	 * @param fieldName The name of the field to edit.
@@ -58,7 +59,18 @@ public class ReflectionUtils {
 	 * @throws IllegalAccessException Security related exception.
 	 */
 	@API(status = API.Status.DEPRECATED, since = "12")
+	@SuppressWarnings("unchecked")
 	public static void setVariable(Object instanceWithVariable, String fieldName, Object newValue) throws NoSuchFieldException, IllegalAccessException {
+		CompiledAccessor<Object> compiled = (CompiledAccessor<Object>) CompiledAccessors.find(instanceWithVariable.getClass());
+		if (compiled != null && compiled.hasField(fieldName) && compiled.set(instanceWithVariable, fieldName, newValue))
+			return;
+
+		FieldAccessor<Object, Object> accessor = (FieldAccessor<Object, Object>) FieldAccessor.of(instanceWithVariable.getClass(), fieldName);
+		if (accessor.isWritable()) {
+			accessor.set(instanceWithVariable, newValue);
+			return;
+		}
+
 		Field field = setFieldToAccessible(instanceWithVariable.getClass(), fieldName);
 		field.set(instanceWithVariable, newValue);
 		field.setAccessible(false);
@@ -67,6 +79,7 @@ public class ReflectionUtils {
 	/**
 	 * Replace a non-primitive and static value found inside a class.
 	 * This method also works on variables that are final (for JDK 11 or below).
+	 * Non-final fields are looked up once, see {@link FieldAccessor} for faster repeated access.
 	 *
 	 * @param classWithVariable The class containing the variable to edit.
 	 * @param fieldName The name of the field to edit.
@@ -75,7 +88,15 @@ public class ReflectionUtils {
 	 * @throws IllegalAccessException Security related exception.
 	 */
 	@API(status = API.Status.DEPRECATED, since = "12")
+	@SuppressWarnings("unchecked")
 	public static void setStaticVariable(Class<?> classWithVariable, String fieldName, Object newValue) throws NoSuchFieldException, IllegalAccessException {
+		FieldAccessor<Object, Object> accessor = (FieldAccessor<Object, Object>) FieldAccessor.of(classWithVariable, fieldName);
+		if (accessor.isWritable()) {
+			accessor.set(null, newValue);
+			return;
+		}
+
+		// Static final fields can only be written by removing the final modifier
 		doOperationWithFieldAccessEnabled(
 				classWithVariable,
 				fieldName,
@@ -87,7 +108,7 @@ public class ReflectionUtils {
 
 	/**
 	 * Get a non-primitive and static value found inside of a class.
-	 * This method also works on variables that are final (for JDK 11 or below).
+	 * This method also works on variables that are final. The field is looked up once, see {@link FieldAccessor} for faster repeated access.
 	 *
 	 * @param classWithVariable The class containing the variable to fetch.
 	 * @param fieldName The name of the field to get.
@@ -96,16 +117,13 @@ public class ReflectionUtils {
 	 */
 	@API(status = API.Status.DEPRECATED, since = "12")
 	public static <T> T getVariable(Class<?> classWithVariable, String fieldName, Class<T> castTo) throws NoSuchFieldException, IllegalAccessException {
-		return doOperationWithFieldAccessEnabled(
-				classWithVariable,
-				fieldName,
-				(Field field) -> castTo.cast(field.get(null))
-		);
+		return castTo.cast(FieldAccessor.of(classWithVariable, fieldName).get(null));
 	}
 
 	/**
 	 * Get a non-primitive and non-static value found inside a class.
-	 * This method also works on variables that are final (for JDK 11 or below).
+	 * This method also works on variables that are final. The field is looked up once, see {@link FieldAccessor} for faster repeated access.
+	 * Classes with a {@link CompiledAccessor} are read without reflection.
 	 *
 	 * @param instanceWithVariable The instance containing the variable to fetch.
 	 * @param fieldName The name of the field to get.
@@ -113,12 +131,14 @@ public class ReflectionUtils {
 	 * @throws IllegalAccessException Security related exception.
 	 */
 	@API(status = API.Status.DEPRECATED, since = "12")
+	@SuppressWarnings("unchecked")
 	public static <I, T> T getVariable(I instanceWithVariable, String fieldName, Class<T> castTo) throws NoSuchFieldException, IllegalAccessException {
-		return doOperationWithFieldAccessEnabled(
-				instanceWithVariable.getClass(),
-				fieldName,
-				(Field field) -> Operators.safeCall(() -> castTo.cast(field.get(instanceWithVariable)))
-		);
+		CompiledAccessor<I> compiled = CompiledAccessors.find((Class<I>) instanceWithVariable.getClass());
+		if (compiled != null && compiled.hasField(fieldName))
+			return castTo.cast(compiled.get(instanceWithVariable, fieldName));
+
+		FieldAccessor<?, ?> accessor = FieldAccessor.of(instanceWithVariable.getClass(), fieldName);
+		return castTo.cast(((FieldAccessor<Object, ?>) accessor).get(instanceWithVariable));
 	}
 
 	private static void doOperationWithFieldAccessEnabled(Class<?> classWithField, String fieldName, ThrowingConsumer<Field> operation) throws NoSuchFieldException, IllegalAccessException {
@@ -150,17 +170,18 @@ public class ReflectionUtils {
 	 */
 	@API(status = API.Status.DEPRECATED, since = "12")
 	public static Field setFieldToAccessible(Class<?> classWithField, String fieldName) throws NoSuchFieldException, IllegalAccessException {
+		ReflectionUtils.IllegalAccessController.disableWarning(false);
 		try {
-			ReflectionUtils.IllegalAccessController.disableWarning(false);
 			Field field = classWithField.getDeclaredField(fieldName);
 			field.setAccessible(true);
 			Field modifiers = field.getClass().getDeclaredField("modifiers");
 			modifiers.setAccessible(true);
 			modifiers.setInt(field, field.getModifiers() & ~Modifier.FINAL);
-			ReflectionUtils.IllegalAccessController.enableWarning(false);
 			return field;
 		} catch (NoSuchFieldException e) {
 			throw new NoSuchFieldException(classWithField.getCanonicalName() + "$" + fieldName);
+		} finally {
+			ReflectionUtils.IllegalAccessController.enableWarning(false);
 		}
 	}
 
@@ -199,79 +220,161 @@ public class ReflectionUtils {
 
 	/**
 	 * Class for handling illegal access warnings.
+	 * The state is an immutable snapshot replaced through compare-and-set, so it can be used from several threads at once.
+	 * Non-forced disables are counted, and the warnings are enabled again once every disable has been matched by an enable.
+	 * The logger is swapped through handles that are resolved once. Without a logger to swap (JDK 8, or JDK 17 and above) only the state is kept.
 	 */
 	protected static class IllegalAccessController {
 		protected enum WarningState {
 			FORCE_ENABLED, ENABLED, FORCE_DISABLED, DISABLED
 		}
 
-		private static WarningState state = WarningState.ENABLED;
-		private static Object loggerObj;
-		private static Object unsafeObj;
-		private static Class<?> loggerClass;
-		private static Long offset;
-		private static boolean isDisabled;
+		private static final AtomicReference<State> STATE = new AtomicReference<>(new State(WarningState.ENABLED, 0));
+
+		/**
+		 * @return The current state
+		 */
+		protected static WarningState getState() {
+			return STATE.get().warningState;
+		}
+
+		/**
+		 * @return The number of non-forced disables that haven't been matched by an enable
+		 */
+		protected static int getDisableCount() {
+			return STATE.get().disableCount;
+		}
 
 		/**
 		 * If forced has been used, you may reset to a normal state by calling this method.
+		 * The state is then decided by the non-forced disables that haven't been matched by an enable.
 		 */
 		public static void resetForcedState() {
-			if (state.equals(WarningState.FORCE_ENABLED))
-				state = WarningState.ENABLED;
-			else if (state.equals(WarningState.FORCE_DISABLED))
-				state = WarningState.DISABLED;
+			update(current -> current.withWarningState(current.disableCount > 0 ? WarningState.DISABLED : WarningState.ENABLED));
 		}
 
 		public static void disableWarning(boolean force) {
-			if (force)
-				state = WarningState.FORCE_DISABLED;
-			else if (!state.equals(WarningState.FORCE_ENABLED))
-				state = WarningState.DISABLED;
+			update(current -> {
+				if (force)
+					return current.withWarningState(WarningState.FORCE_DISABLED);
+				int disableCount = current.disableCount + 1;
+				return current.warningState == WarningState.ENABLED
+						? new State(WarningState.DISABLED, disableCount)
+						: new State(current.warningState, disableCount);
+			});
+		}
+
+		public static void enableWarning(boolean force) {
+			update(current -> {
+				if (force)
+					return current.withWarningState(WarningState.FORCE_ENABLED);
+				int disableCount = Math.max(current.disableCount - 1, 0);
+				return current.warningState == WarningState.DISABLED && disableCount == 0
+						? new State(WarningState.ENABLED, 0)
+						: new State(current.warningState, disableCount);
+			});
+		}
+
+		private static void update(UnaryOperator<State> operation) {
+			State current;
+			do {
+				current = STATE.get();
+			} while (!STATE.compareAndSet(current, operation.apply(current)));
+			reconcile();
+		}
 
-			if (isDisabled || state.equals(WarningState.FORCE_ENABLED))
+		// Every state change creates a new instance, so an unchanged reference means that no other thread has changed the state.
+		// A thread that swapped the logger for an outdated state sees the change and swaps it again
+		private static void reconcile() {
+			if (!LoggerAccess.AVAILABLE)
 				return;
+			State state;
+			do {
+				state = STATE.get();
+				LoggerAccess.suppress(state.isSuppressed());
+			} while (STATE.get() != state);
+		}
+
+		/**
+		 * Immutable snapshot of the controller state.
+		 */
+		private static final class State {
+			private final WarningState warningState;
+			private final int disableCount;
 
-			try {
-				// Couldn't import the 'unsafe' package on JDK 11 but the following works (somehow):
-				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
-				Field field = unsafeClass.getDeclaredField("theUnsafe");
-				field.setAccessible(true);
-				Object unsafe = field.get(null);
-
-				Method getObjectVolatile = unsafeClass.getDeclaredMethod("getObjectVolatile", Object.class, long.class);
-				Method putObjectVolatile = unsafeClass.getDeclaredMethod("putObjectVolatile", Object.class, long.class, Object.class);
-				Method staticFieldOffset = unsafeClass.getDeclaredMethod("staticFieldOffset", Field.class);
-
-				loggerClass = Class.forName("jdk.internal.module.IllegalAccessLogger");
-				Field loggerField = loggerClass.getDeclaredField("logger");
-				offset = (Long) staticFieldOffset.invoke(unsafe, loggerField);
-				unsafeObj = getObjectVolatile.invoke(unsafe, loggerClass, offset);
-				putObjectVolatile.invoke(unsafe, loggerClass, offset, null);
-				isDisabled = true;
-			} catch (Exception ignored) {
+			State(WarningState warningState, int disableCount) {
+				this.warningState = warningState;
+				this.disableCount = disableCount;
 			}
-		}
 
-		@SuppressWarnings("CallToPrintStackTrace")
-		public static void enableWarning(boolean force) {
-			if (force) {
-				state = WarningState.FORCE_ENABLED;
+			State withWarningState(WarningState warningState) {
+				return new State(warningState, disableCount);
 			}
-			else if (!state.equals(WarningState.FORCE_DISABLED)) {
-				state = WarningState.ENABLED;
+
+			boolean isSuppressed() {
+				return warningState == WarningState.FORCE_DISABLED || warningState == WarningState.DISABLED;
 			}
+		}
 
-			if (isDisabled && !state.equals(WarningState.FORCE_DISABLED)) {
+		/**
+		 * Swaps the logger of {@code jdk.internal.module.IllegalAccessLogger} through {@code sun.misc.Unsafe}.
+		 * The handles are resolved when the class is initialized.
+		 */
+		private static final class LoggerAccess {
+			private static final boolean AVAILABLE;
+			private static final MethodHandle GET_LOGGER; // ()Object
+			private static final MethodHandle COMPARE_AND_SWAP_LOGGER; // (Object, Object)boolean
+			private static final AtomicReference<Object> SAVED_LOGGER = new AtomicReference<>();
+
+			static {
+				MethodHandle getLogger = null;
+				MethodHandle compareAndSwapLogger = null;
 				try {
+					// Couldn't import the 'unsafe' package on JDK 11 but the following works (somehow):
 					Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
-					Method putObjectVolatile = unsafeClass.getDeclaredMethod("putObjectVolatile", Object.class, long.class, Object.class);
 					Field field = unsafeClass.getDeclaredField("theUnsafe");
 					field.setAccessible(true);
 					Object unsafe = field.get(null);
-					putObjectVolatile.invoke(unsafe, loggerClass, offset, unsafeObj);
-					isDisabled = false;
-				} catch (ClassNotFoundException | IllegalAccessException | InvocationTargetException | NoSuchFieldException | NoSuchMethodException e) {
-					e.printStackTrace();
+
+					Field loggerField = Class.forName("jdk.internal.module.IllegalAccessLogger").getDeclaredField("logger");
+					Object base = unsafeClass.getMethod("staticFieldBase", Field.class).invoke(unsafe, loggerField);
+					long offset = (Long) unsafeClass.getMethod("staticFieldOffset", Field.class).invoke(unsafe, loggerField);
+
+					MethodHandles.Lookup lookup = MethodHandles.lookup();
+					getLogger = MethodHandles.insertArguments(
+							lookup.unreflect(unsafeClass.getMethod("getObjectVolatile", Object.class, long.class)), 0, unsafe, base, offset);
+					compareAndSwapLogger = MethodHandles.insertArguments(
+							lookup.unreflect(unsafeClass.getMethod("compareAndSwapObject", Object.class, long.class, Object.class, Object.class)), 0, unsafe, base, offset);
+				} catch (ReflectiveOperationException | RuntimeException ignored) {
+				}
+				AVAILABLE = compareAndSwapLogger != null;
+				GET_LOGGER = getLogger;
+				COMPARE_AND_SWAP_LOGGER = compareAndSwapLogger;
+			}
+
+			private LoggerAccess() {
+			}
+
+			/**
+			 * Remove or restore the logger. Idempotent, so concurrent calls for the same state don't interfere.
+			 *
+			 * @param suppress True to remove the logger, false to restore it
+			 * @return True if the logger was swapped by this call
+			 */
+			static boolean suppress(boolean suppress) {
+				try {
+					if (suppress) {
+						Object logger = (Object) GET_LOGGER.invokeExact();
+						if (logger == null)
+							return false;
+						SAVED_LOGGER.compareAndSet(null, logger);
+						return (boolean) COMPARE_AND_SWAP_LOGGER.invokeExact(logger, (Object) null);
+					}
+					Object logger = SAVED_LOGGER.get();
+					return logger != null && (boolean) COMPARE_AND_SWAP_LOGGER.invokeExact((Object) null, logger);
+				} catch (Throwable e) {
+					CommonUtils.sneakyThrow(e);
+					return false;
 				}
 			}
 		}
@@ -0,0 +1,254 @@
+package com.frejdh.util.common.toolbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded in-memory cache of resources, keeping the bytes and the decoded UTF-8 string of each resource.
+ * The least recently used resources are evicted once the cached bytes and strings exceed the maximum size.
+ * Used by {@link FileUtils#getResourceFileAsString(String)} and {@link FileUtils#getResourceFileAsStream(String)} once set through
+ * {@link FileUtils#setResourceCache(ResourceCache)}.
+ * Example:<br>
+ * <pre>
+ * FileUtils.setResourceCache(new ResourceCache(16 * 1024 * 1024));
+ * String template = FileUtils.getResourceFileAsString("templates/mail.html"); // Read from the class path once
+ * </pre>
+ * Missing resources aren't cached, and neither are resources larger than the maximum size. Instances are thread-safe.
+ *
+ * @author Kevin Frejdh
+ */
+public final class ResourceCache {
+
+	private final long maxSize;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true); // In access order
+	private long size;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param maxSize The maximum number of bytes to keep. Strings count as two bytes per character
+	 */
+	public ResourceCache(long maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("The maximum size cannot be negative: " + maxSize);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Get the content of a resource, read from the class path on the first call.
+	 * @param relativePath The relative path from the resource directory
+	 * @return A copy of the content, or null if the resource couldn't be loaded
+	 */
+	public byte[] getBytes(String relativePath) {
+		Entry entry = getEntry(relativePath);
+		return entry != null ? entry.bytes.clone() : null;
+	}
+
+	/**
+	 * Get a stream over the content of a resource, read from the class path on the first call.
+	 * @param relativePath The relative path from the resource directory
+	 * @return A stream, or null if the resource couldn't be loaded
+	 */
+	public InputStream getStream(String relativePath) {
+		Entry entry = getEntry(relativePath);
+		return entry != null ? new ByteArrayInputStream(entry.bytes) : null;
+	}
+
+	/**
+	 * Get a resource as a UTF-8 string, read from the class path and decoded on the first call.
+	 * @param relativePath The relative path from the resource directory
+	 * @return A string, or null if the resource couldn't be loaded
+	 */
+	public String getString(String relativePath) {
+		Entry entry = getEntry(relativePath);
+		if (entry == null)
+			return null;
+
+		String string = entry.string;
+		if (string == null) {
+			string = new String(entry.bytes, StandardCharsets.UTF_8);
+			synchronized (this) {
+				if (entry.string == null && entries.get(entry.name) == entry) { // Not evicted meanwhile
+					entry.string = string;
+					size += 2L * string.length();
+					evict();
+				}
+			}
+		}
+		return string;
+	}
+
+	/**
+	 * Remove a resource, so that it is read again on the next call.
+	 * @param relativePath The relative path from the resource directory
+	 */
+	public synchronized void invalidate(String relativePath) {
+		Entry entry = entries.remove(FileUtils.resourceName(relativePath));
+		if (entry != null)
+			size -= entry.size();
+	}
+
+	/**
+	 * Remove all resources. The statistics are kept.
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return The maximum number of bytes to keep
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return A snapshot of the statistics of this cache
+	 */
+	public synchronized Stats getStats() {
+		return new Stats(hits, misses, evictions, entries.size(), size);
+	}
+
+	private Entry getEntry(String relativePath) {
+		String name = FileUtils.resourceName(relativePath);
+		synchronized (this) {
+			Entry entry = entries.get(name);
+			if (entry != null) {
+				hits++;
+				return entry;
+			}
+			misses++;
+		}
+
+		byte[] bytes = load(name); // Outside of the lock, as the class path may be slow
+		if (bytes == null)
+			return null;
+
+		Entry entry = new Entry(name, bytes);
+		if (entry.size() > maxSize)
+			return entry;
+
+		synchronized (this) {
+			Entry existing = entries.putIfAbsent(name, entry); // Loaded by another thread meanwhile
+			if (existing != null)
+				return existing;
+			size += entry.size();
+			evict();
+		}
+		return entry;
+	}
+
+	private static byte[] load(String name) {
+		try (InputStream in = FileUtils.openResource(name)) {
+			return in != null ? in.readAllBytes() : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	// Called while holding the lock
+	private void evict() {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			size -= iterator.next().getValue().size();
+			iterator.remove();
+			evictions++;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ResourceCache{maxSize=" + maxSize + ", " + getStats() + "}";
+	}
+
+	private static final class Entry {
+		final String name;
+		final byte[] bytes;
+		volatile String string; // Decoded on first use
+
+		Entry(String name, byte[] bytes) {
+			this.name = name;
+			this.bytes = bytes;
+		}
+
+		long size() {
+			String string = this.string;
+			return bytes.length + (string != null ? 2L * string.length() : 0);
+		}
+	}
+
+	/**
+	 * Statistics of a {@link ResourceCache}, at the time they were fetched.
+	 */
+	public static final class Stats {
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+		private final int entryCount;
+		private final long size;
+
+		private Stats(long hits, long misses, long evictions, int entryCount, long size) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.entryCount = entryCount;
+			this.size = size;
+		}
+
+		/**
+		 * @return The number of lookups of cached resources
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		/**
+		 * @return The number of lookups of resources that had to be read, including the ones that couldn't be loaded
+		 */
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * @return The share of lookups of cached resources, between 0 and 1. 0 if there have been no lookups
+		 */
+		public double getHitRate() {
+			long lookups = hits + misses;
+			return lookups > 0 ? (double) hits / lookups : 0;
+		}
+
+		/**
+		 * @return The number of resources evicted to keep the cache within its maximum size. Invalidated resources aren't counted
+		 */
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/**
+		 * @return The number of cached resources
+		 */
+		public int getEntryCount() {
+			return entryCount;
+		}
+
+		/**
+		 * @return The number of cached bytes, with strings counted as two bytes per character
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", entryCount=" + entryCount + ", size=" + size;
+		}
+	}
+
+}
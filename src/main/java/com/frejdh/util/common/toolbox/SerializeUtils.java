@@ -1,18 +1,38 @@
 package com.frejdh.util.common.toolbox;
 
+import com.frejdh.util.common.serialization.Serializer;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputFilter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Generic serialize-handler class.
+ * Files are written through the configured {@link Serializer}, which is Java serialization unless changed through {@link #setSerializer(Serializer)}.
+ * The format of a file is detected when it is read. Files of the binary format are always read, while files of Java serialization are
+ * only read while it is the configured serializer, as reading them may run code of any serializable class on the class path.
+ * See {@link #setAcceptedSerializers(Collection)} to change which formats are read.
+ * JSON files are plain UTF-8 JSON, streamed to and from the file without holding the whole document as a string.
  *
  * @author Kevin Frejdh
  */
@@ -26,6 +46,45 @@ public class SerializeUtils {
 			.registerTypeAdapter(Calendar.class, new DateUtils.GregorianCalendarDeserializer())
 			.create();
 
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Legacy JSON files hold a single string, so no class is read
+	private static final Serializer LEGACY_JSON = Serializer.java(ObjectInputFilter.Config.createFilter("!*"));
+
+	private static volatile Serializer serializer = Serializer.java();
+	private static volatile List<Serializer> acceptedSerializers; // Null for the configured and the binary serializer
+
+	/**
+	 * Set the serializer used for writing files, and for reading files of an unknown format.
+	 * Defaults to {@link Serializer#java()}.
+	 *
+	 * @param serializer The serializer to use, for example {@link Serializer#binary()}
+	 */
+	public static void setSerializer(Serializer serializer) {
+		SerializeUtils.serializer = Objects.requireNonNull(serializer, "The serializer cannot be null");
+	}
+
+	/**
+	 * @return The serializer currently used for writing files
+	 */
+	public static Serializer getSerializer() {
+		return serializer;
+	}
+
+	/**
+	 * Set the serializers whose files are read by {@link #deserializeFromFile(String, String, Class)}, which rejects files of other formats.
+	 * A file is read by the accepted serializer of its format, so that a filter of {@link Serializer#java(java.io.ObjectInputFilter)} applies.
+	 * By default, the configured serializer and {@link Serializer#binary()} are accepted. Example:<br>
+	 * <pre>
+	 * SerializeUtils.setAcceptedSerializers(List.of(Serializer.binary(), Serializer.java(filter))); // Java serialization through a filter
+	 * </pre>
+	 *
+	 * @param serializers The accepted serializers, or null for the default
+	 */
+	public static void setAcceptedSerializers(Collection<Serializer> serializers) {
+		SerializeUtils.acceptedSerializers = serializers != null ? List.copyOf(serializers) : null;
+	}
+
 	/**
 	 * Creates/overrides a filename with serialized data.
 	 *
@@ -33,15 +92,28 @@ public class SerializeUtils {
 	 * @param object   An object containing the object to save.
 	 * @throws IOException Throws IOException if the IO is interrupted
 	 */
-	@SuppressWarnings("ResultOfMethodCallIgnored")
 	public static <E> void serializeToFile(String directory, String filename, E object) throws IOException {
+		serializeToFile(directory, filename, object, serializer);
+	}
+
+	/**
+	 * Creates/overrides a filename with serialized data, written by the given serializer.
+	 *
+	 * @param directory  The directory of the file, created if missing. Null for the current directory.
+	 * @param filename   A string setting the filename.
+	 * @param object     An object containing the object to save.
+	 * @param serializer The serializer to write the file with.
+	 * @throws IOException Throws IOException if the IO is interrupted
+	 */
+	@SuppressWarnings("ResultOfMethodCallIgnored")
+	public static <E> void serializeToFile(String directory, String filename, E object, Serializer serializer) throws IOException {
 		if (directory != null) {
 			new File(directory).mkdirs();
 		}
 		String path = (directory != null ? directory + OperatingSystemUtils.getPathSeparator() : "") + filename;
 
-		try (FileOutputStream outputFile = new FileOutputStream(path); ObjectOutputStream objOut = new ObjectOutputStream(outputFile)) {
-			objOut.writeObject(object); // Handles String and serializable
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(path))) {
+			serializer.write(object, out);
 		}
 	}
 
@@ -70,41 +142,81 @@ public class SerializeUtils {
 
 	/**
 	 * Deserializes a filename and returns an object. If text, a String is returned.
+	 * Files of a format that isn't accepted are rejected, see {@link #setAcceptedSerializers(Collection)}.
 	 *
 	 * @param filename is the string containing the filename.
 	 * @return A list of saved series
-	 * @throws IOException            Throws IOException if the IO is interrupted
+	 * @throws IOException            Throws IOException if the IO is interrupted, or if the format of the file isn't accepted
 	 * @throws ClassNotFoundException If the data in the filename does not represent a java object.
 	 */
-	@SuppressWarnings("unchecked")
 	public static <E> E deserializeFromFile(String directory, String filename, Class<E> returnType) throws IOException, ClassNotFoundException {
 		String path = (directory != null ? directory + OperatingSystemUtils.getPathSeparator() : "") + filename;
 
-		try (FileInputStream inputFile = new FileInputStream(path); ObjectInputStream objIn = new ObjectInputStream(inputFile)) {
-			return (E) objIn.readObject();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+			Serializer detected = Serializer.detect(in);
+			return (detected != null ? acceptedSerializerOf(detected, path) : serializer).read(in, returnType);
+		}
+	}
+
+	// The accepted serializer of the same format as the detected one
+	private static Serializer acceptedSerializerOf(Serializer detected, String path) throws IOException {
+		Serializer configured = serializer;
+		List<Serializer> accepted = acceptedSerializers;
+		for (Serializer candidate : accepted != null ? accepted : List.of(configured, Serializer.binary())) {
+			if (candidate.getClass() == detected.getClass())
+				return candidate;
 		}
+		throw new IOException("The format of " + path + ", written by " + detected + ", isn't accepted");
 	}
 
 	/**
-	 * Creates/overrides a filename with serialized data in JSON format.
+	 * Creates/overrides a filename with serialized data in pretty-printed JSON format.
+	 * The JSON is streamed to the file as it is generated.
 	 *
 	 * @param filename A string setting the filename.
 	 * @param object   An object containing the object to save.
 	 * @throws IOException Throws an IOException if the IO is interrupted
 	 */
 	public static <E> void serializeToJsonFile(String directory, String filename, E object) throws IOException {
-		serializeToFile(directory, filename, GSON.toJson(object));
+		serializeToJsonFile(directory, filename, object, true);
 	}
 
 	/**
 	 * Creates/overrides a filename with serialized data in JSON format.
+	 * The JSON is streamed to the file as it is generated, without building it as a string first.
+	 *
+	 * @param directory      The directory of the file, created if missing. Null for the current directory.
+	 * @param filename       A string setting the filename.
+	 * @param object         An object containing the object to save.
+	 * @param prettyPrinting True to indent the JSON, false for compact JSON.
+	 * @throws IOException Throws an IOException if the IO is interrupted
+	 */
+	@SuppressWarnings("ResultOfMethodCallIgnored")
+	public static <E> void serializeToJsonFile(String directory, String filename, E object, boolean prettyPrinting) throws IOException {
+		if (directory != null) {
+			new File(directory).mkdirs();
+		}
+		String path = (directory != null ? directory + OperatingSystemUtils.getPathSeparator() : "") + filename;
+
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8), BUFFER_SIZE);
+			 JsonWriter jsonWriter = GSON.newJsonWriter(writer)) {
+			if (!prettyPrinting)
+				jsonWriter.setIndent("");
+			GSON.toJson(object, object != null ? object.getClass() : Object.class, jsonWriter);
+		} catch (JsonIOException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException("Couldn't write JSON", e);
+		}
+	}
+
+	/**
+	 * Creates/overrides a filename with serialized data in pretty-printed JSON format.
 	 *
 	 * @param relativeFilename A string setting the filename relative to the resource directory.
 	 * @param object   An object containing the object to save.
 	 * @throws IOException Throws an IOException if the IO is interrupted
 	 */
 	public static <E> void serializeToJsonFile(String relativeFilename, E object) throws IOException {
-		serializeToFile(relativeFilename, GSON.toJson(object));
+		serializeToJsonFile(null, relativeFilename, object);
 	}
 
 	/**
@@ -120,7 +232,8 @@ public class SerializeUtils {
 	}
 
 	/**
-	 * Deserializes a filename and returns an object for a JSON file.
+	 * Deserializes a filename and returns an object for a JSON file. The JSON is parsed as it is read from the file.
+	 * Files written by earlier versions, which stored the JSON as a serialized string, are read as well.
 	 *
 	 * @param filename is the string containing the filename.
 	 * @return A list of saved series
@@ -128,10 +241,16 @@ public class SerializeUtils {
 	 * @throws ClassNotFoundException If the data in the filename does not represent a java object.
 	 */
 	public static <E> E deserializeFromJsonFile(String directory, String filename, Class<E> targetClass) throws IOException, ClassNotFoundException {
-		String retval = deserializeFromFile(directory, filename, String.class);
-		try {
-			return GSON.fromJson(retval, targetClass);
-		} catch (Exception e) {
+		String path = (directory != null ? directory + OperatingSystemUtils.getPathSeparator() : "") + filename;
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(path), BUFFER_SIZE)) {
+			Serializer legacy = Serializer.detect(in);
+			if (legacy != null)
+				return GSON.fromJson((legacy == Serializer.java() ? LEGACY_JSON : legacy).read(in, String.class), targetClass);
+			return GSON.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), targetClass);
+		} catch (JsonIOException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException("Couldn't load JSON", e);
+		} catch (JsonParseException | ClassCastException e) {
 			throw new IOException("Couldn't load JSON", e);
 		}
 	}
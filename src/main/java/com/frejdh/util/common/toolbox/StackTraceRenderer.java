@@ -0,0 +1,381 @@
+package com.frejdh.util.common.toolbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Renders stack traces directly to an {@link Appendable}, such as a {@link java.io.Writer} or a {@link StringBuilder}.
+ * Instances are immutable. The {@link #defaults()} renderer produces the same output as {@link Throwable#printStackTrace()},
+ * the other options can be used to bound the size of the output.
+ * Example:<br>
+ * <pre>
+ * StackTraceRenderer renderer = StackTraceRenderer.defaults()
+ * 		.withMaxFrames(200)
+ * 		.withMaxChars(16_384)
+ * 		.withFolding(true)
+ * 		.withSkippedPackages(StackTraceRenderer.REFLECTION_PACKAGES);
+ * renderer.render(exception, writer);
+ * </pre>
+ *
+ * @author Kevin Frejdh
+ */
+public final class StackTraceRenderer {
+
+	/**
+	 * Packages containing the frames of reflective and method handle invocations.
+	 */
+	public static final List<String> REFLECTION_PACKAGES = List.of("java.lang.reflect", "java.lang.invoke", "jdk.internal.reflect", "sun.reflect");
+
+	// Longest sequence of frames that is detected as repeating, for example mutual recursion
+	private static final int MAX_FOLDED_PERIOD = 16;
+	private static final String CAUSE_CAPTION = "Caused by: ";
+	private static final String SUPPRESSED_CAPTION = "Suppressed: ";
+	private static final StackTraceRenderer DEFAULTS = new StackTraceRenderer(Integer.MAX_VALUE, Integer.MAX_VALUE, false, new String[0]);
+
+	private final int maxFrames;
+	private final int maxChars;
+	private final boolean folding;
+	private final String[] skippedPackages;
+
+	private StackTraceRenderer(int maxFrames, int maxChars, boolean folding, String[] skippedPackages) {
+		this.maxFrames = maxFrames;
+		this.maxChars = maxChars;
+		this.folding = folding;
+		this.skippedPackages = skippedPackages;
+	}
+
+	/**
+	 * @return A renderer without any limits, producing the same output as {@link Throwable#printStackTrace()}
+	 */
+	public static StackTraceRenderer defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * @param maxFrames The maximum number of frames to render, for the throwable and all of its causes combined.
+	 *                  The number of omitted frames is written in their place
+	 * @return A copy of this renderer, using the given frame budget
+	 */
+	public StackTraceRenderer withMaxFrames(int maxFrames) {
+		if (maxFrames < 0)
+			throw new IllegalArgumentException("The frame budget cannot be negative: " + maxFrames);
+		return new StackTraceRenderer(maxFrames, maxChars, folding, skippedPackages);
+	}
+
+	/**
+	 * @param maxChars The maximum number of characters to render. The output is cut off at the budget and followed by a truncation line
+	 * @return A copy of this renderer, using the given character budget
+	 */
+	public StackTraceRenderer withMaxChars(int maxChars) {
+		if (maxChars < 0)
+			throw new IllegalArgumentException("The character budget cannot be negative: " + maxChars);
+		return new StackTraceRenderer(maxFrames, maxChars, folding, skippedPackages);
+	}
+
+	/**
+	 * @param folding If true, repeated sequences of frames (for example recursion) and repeated identical causes are rendered once,
+	 *                followed by the number of further repetitions
+	 * @return A copy of this renderer, with folding enabled or disabled
+	 */
+	public StackTraceRenderer withFolding(boolean folding) {
+		return new StackTraceRenderer(maxFrames, maxChars, folding, skippedPackages);
+	}
+
+	/**
+	 * @param packages Packages of which the frames shouldn't be rendered, including their sub-packages.
+	 *                 The number of skipped frames is written in their place
+	 * @return A copy of this renderer, skipping the given packages in addition to the previously skipped ones
+	 */
+	public StackTraceRenderer withSkippedPackages(Collection<String> packages) {
+		String[] skipped = new String[skippedPackages.length + packages.size()];
+		System.arraycopy(skippedPackages, 0, skipped, 0, skippedPackages.length);
+		int i = skippedPackages.length;
+		for (String pkg : packages) {
+			Objects.requireNonNull(pkg, "The package cannot be null");
+			skipped[i++] = pkg.endsWith(".") ? pkg : pkg + ".";
+		}
+		return new StackTraceRenderer(maxFrames, maxChars, folding, skipped);
+	}
+
+	/**
+	 * @param packages Packages of which the frames shouldn't be rendered, including their sub-packages
+	 * @return A copy of this renderer, skipping the given packages in addition to the previously skipped ones
+	 * @see #withSkippedPackages(Collection)
+	 */
+	public StackTraceRenderer withSkippedPackages(String... packages) {
+		return withSkippedPackages(List.of(packages));
+	}
+
+	/**
+	 * Render a stack trace as a string.
+	 *
+	 * @param throwable The throwable to render, including its causes and suppressed throwables
+	 * @return The stack trace string
+	 */
+	public String toString(Throwable throwable) {
+		StringBuilder builder = new StringBuilder(Math.min(maxChars, 1024));
+		try {
+			render(throwable, builder);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // StringBuilder doesn't throw
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Render a stack trace directly to an output.
+	 *
+	 * @param throwable The throwable to render, including its causes and suppressed throwables
+	 * @param out The output to append the lines to
+	 * @throws IOException If the output couldn't be written to
+	 */
+	public void render(Throwable throwable, Appendable out) throws IOException {
+		Output output = new Output(out, maxChars);
+		try {
+			new Rendering(output).render(throwable);
+		} catch (BudgetExceeded e) {
+			output.truncate();
+		}
+	}
+
+	private boolean isSkipped(StackTraceElement frame) {
+		if (skippedPackages.length == 0)
+			return false;
+		String className = frame.getClassName();
+		for (String pkg : skippedPackages) {
+			if (className.startsWith(pkg))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Number of times the sequence of frames starting at the index repeats directly after itself.
+	 * Sets {@code period[0]} to the length of the sequence.
+	 */
+	private static int repetitions(StackTraceElement[] trace, int from, int to, int[] period) {
+		int best = 0;
+		period[0] = 1;
+		for (int p = 1; p <= MAX_FOLDED_PERIOD && from + 2 * p <= to; p++) {
+			int repeats = 0;
+			int next = from + p;
+			while (next + p <= to && sameFrames(trace, from, next, p)) {
+				repeats++;
+				next += p;
+			}
+			// Prefer the shortest period, as a longer one that is a multiple of it covers the same frames.
+			// Folding less than two frames would only make the output longer
+			if (repeats * p >= 2 && repeats * p > best * period[0]) {
+				best = repeats;
+				period[0] = p;
+			}
+		}
+		return best;
+	}
+
+	private static boolean sameFrames(StackTraceElement[] trace, int first, int second, int length) {
+		for (int i = 0; i < length; i++) {
+			if (!trace[first + i].equals(trace[second + i]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * State of a single rendering.
+	 */
+	private final class Rendering {
+		private final Output out;
+		private final Set<Throwable> dejaVu = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final int[] period = new int[1];
+		private int frameBudget = maxFrames;
+
+		Rendering(Output out) {
+			this.out = out;
+		}
+
+		void render(Throwable throwable) throws IOException {
+			dejaVu.add(throwable);
+			out.line("", "", String.valueOf(throwable));
+			StackTraceElement[] trace = throwable.getStackTrace();
+			frames(trace, trace.length, "");
+			renderEnclosed(throwable, trace, "");
+		}
+
+		// Renders the suppressed throwables, then the chain of causes without recursing into it
+		private void renderEnclosed(Throwable throwable, StackTraceElement[] trace, String prefix) throws IOException {
+			for (Throwable suppressed : throwable.getSuppressed()) {
+				renderSuppressed(suppressed, trace, prefix + "\t");
+			}
+
+			Throwable previous = throwable;
+			int previousOwnFrames = trace.length;
+			int foldedCauses = 0;
+			for (Throwable cause = throwable.getCause(); cause != null; cause = cause.getCause()) {
+				if (dejaVu.contains(cause)) {
+					foldedCauses = flushFoldedCauses(foldedCauses, prefix);
+					out.line(prefix, CAUSE_CAPTION, "[CIRCULAR REFERENCE: " + cause + "]");
+					return;
+				}
+				dejaVu.add(cause);
+
+				StackTraceElement[] causeTrace = cause.getStackTrace();
+				int ownFrames = ownFrames(causeTrace, trace);
+				if (folding && isRepeatedCause(previous, trace, previousOwnFrames, cause, causeTrace, ownFrames)) {
+					foldedCauses++;
+				} else {
+					foldedCauses = flushFoldedCauses(foldedCauses, prefix);
+					out.line(prefix, CAUSE_CAPTION, String.valueOf(cause));
+					frames(causeTrace, ownFrames, prefix);
+					if (ownFrames != causeTrace.length)
+						out.line(prefix, "\t... ", (causeTrace.length - ownFrames) + " more");
+				}
+
+				for (Throwable suppressed : cause.getSuppressed()) {
+					renderSuppressed(suppressed, causeTrace, prefix + "\t");
+				}
+				previous = cause;
+				previousOwnFrames = ownFrames;
+				trace = causeTrace;
+			}
+			flushFoldedCauses(foldedCauses, prefix);
+		}
+
+		private void renderSuppressed(Throwable suppressed, StackTraceElement[] enclosingTrace, String prefix) throws IOException {
+			if (dejaVu.contains(suppressed)) {
+				out.line(prefix, SUPPRESSED_CAPTION, "[CIRCULAR REFERENCE: " + suppressed + "]");
+				return;
+			}
+			dejaVu.add(suppressed);
+
+			StackTraceElement[] trace = suppressed.getStackTrace();
+			int ownFrames = ownFrames(trace, enclosingTrace);
+			out.line(prefix, SUPPRESSED_CAPTION, String.valueOf(suppressed));
+			frames(trace, ownFrames, prefix);
+			if (ownFrames != trace.length)
+				out.line(prefix, "\t... ", (trace.length - ownFrames) + " more");
+			renderEnclosed(suppressed, trace, prefix);
+		}
+
+		private boolean isRepeatedCause(Throwable previous, StackTraceElement[] previousTrace, int previousOwnFrames,
+										Throwable cause, StackTraceElement[] trace, int ownFrames) {
+			return previous.getClass() == cause.getClass()
+					&& Objects.equals(previous.getMessage(), cause.getMessage())
+					&& (ownFrames == 0 || ownFrames == previousOwnFrames && sameOwnFrames(previousTrace, trace, ownFrames));
+		}
+
+		private boolean sameOwnFrames(StackTraceElement[] first, StackTraceElement[] second, int count) {
+			for (int i = 0; i < count; i++) {
+				if (!first[i].equals(second[i]))
+					return false;
+			}
+			return true;
+		}
+
+		private int flushFoldedCauses(int foldedCauses, String prefix) throws IOException {
+			if (foldedCauses > 0)
+				out.line(prefix, "\t... ", "cause repeated " + foldedCauses + (foldedCauses == 1 ? " more time" : " more times"));
+			return 0;
+		}
+
+		// Number of frames that aren't in common with the enclosing trace
+		private int ownFrames(StackTraceElement[] trace, StackTraceElement[] enclosingTrace) {
+			int m = trace.length - 1;
+			int n = enclosingTrace.length - 1;
+			while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+				m--;
+				n--;
+			}
+			return m + 1;
+		}
+
+		private void frames(StackTraceElement[] trace, int count, String prefix) throws IOException {
+			int skipped = 0;
+			int i = 0;
+			while (i < count) {
+				int repeats = folding ? repetitions(trace, i, count, period) : 0;
+				int end = repeats > 0 ? i + period[0] : i + 1;
+				for (; i < end; i++) {
+					if (isSkipped(trace[i])) {
+						skipped++;
+						continue;
+					}
+					skipped = flushSkipped(skipped, prefix);
+					if (frameBudget <= 0) {
+						out.line(prefix, "\t... ", (count - i) + " frames omitted");
+						return;
+					}
+					out.line(prefix, "\tat ", trace[i].toString());
+					frameBudget--;
+				}
+				if (repeats > 0) {
+					skipped = flushSkipped(skipped, prefix);
+					out.line(prefix, "\t... ", "above " + period[0] + (period[0] == 1 ? " frame" : " frames") + " repeated " + repeats + (repeats == 1 ? " more time" : " more times"));
+					i += repeats * period[0];
+				}
+			}
+			flushSkipped(skipped, prefix);
+		}
+
+		private int flushSkipped(int skipped, String prefix) throws IOException {
+			if (skipped > 0)
+				out.line(prefix, "\t... ", skipped + (skipped == 1 ? " frame skipped" : " frames skipped"));
+			return 0;
+		}
+	}
+
+	/**
+	 * Appends lines to the output, keeping track of the character budget.
+	 */
+	private static final class Output {
+		private static final String LINE_SEPARATOR = System.lineSeparator();
+		private final Appendable out;
+		private int remaining;
+
+		Output(Appendable out, int maxChars) {
+			this.out = out;
+			this.remaining = maxChars;
+		}
+
+		void line(String prefix, String caption, String text) throws IOException {
+			append(prefix);
+			append(caption);
+			append(text);
+			append(LINE_SEPARATOR);
+		}
+
+		private void append(String text) throws IOException {
+			if (text.length() <= remaining) {
+				out.append(text);
+				remaining -= text.length();
+			} else {
+				out.append(text, 0, remaining);
+				remaining = 0;
+				throw BudgetExceeded.INSTANCE;
+			}
+		}
+
+		void truncate() throws IOException {
+			out.append(LINE_SEPARATOR).append("\t... [truncated]").append(LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Unwinds the rendering once the character budget has been used up.
+	 */
+	private static final class BudgetExceeded extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		static final BudgetExceeded INSTANCE = new BudgetExceeded();
+
+		private BudgetExceeded() {
+			super("The character budget has been used up", null, false, false); // Shared, so without a cause or a stack trace
+		}
+	}
+
+}
@@ -0,0 +1,233 @@
+package com.frejdh.util.common.toolbox;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Splits text on a set of separator characters, ignoring whitespace around the separators.
+ * Gives the same result as {@link String#split(String)} with the expression {@code \s*[separators]\s*},
+ * where the separators are taken literally. That is, trailing empty tokens are removed, and text without any separator gives a single token.
+ * Instances are immutable and can be reused between threads. Example:<br>
+ * <pre>
+ * Tokenizer tokenizer = Tokenizer.of(",;");
+ * tokenizer.stream(header).map(CharSequence::toString)...
+ * </pre>
+ * The lazy variants return views of the text instead of copies. They must not be used after the text has been modified.
+ *
+ * @author Kevin Frejdh
+ */
+public final class Tokenizer {
+
+	private final long lowSeparators; // Characters 0-63
+	private final long highSeparators; // Characters 64-127
+	private final char[] otherSeparators; // Sorted
+
+	private Tokenizer(long lowSeparators, long highSeparators, char[] otherSeparators) {
+		this.lowSeparators = lowSeparators;
+		this.highSeparators = highSeparators;
+		this.otherSeparators = otherSeparators;
+	}
+
+	/**
+	 * @param separatorCharacters Separator characters as one string. Each character is a separator on its own
+	 * @return A tokenizer for the separators
+	 * @throws IllegalArgumentException If no separators were given
+	 */
+	public static Tokenizer of(String separatorCharacters) {
+		if (separatorCharacters.isEmpty())
+			throw new IllegalArgumentException("At least one separator character is required");
+
+		long low = 0;
+		long high = 0;
+		StringBuilder other = new StringBuilder();
+		for (int i = 0; i < separatorCharacters.length(); i++) {
+			char c = separatorCharacters.charAt(i);
+			if (c < 64)
+				low |= 1L << c;
+			else if (c < 128)
+				high |= 1L << (c - 64);
+			else if (other.indexOf(String.valueOf(c)) < 0)
+				other.append(c);
+		}
+		char[] others = other.toString().toCharArray();
+		Arrays.sort(others);
+		return new Tokenizer(low, high, others);
+	}
+
+	/**
+	 * @param text Text to split
+	 * @return The tokens, as a new mutable list
+	 */
+	public List<String> split(CharSequence text) {
+		return splitInto(text, new ArrayList<>());
+	}
+
+	/**
+	 * @param text Text to split
+	 * @param target Collection to add the tokens to
+	 * @param <C> Type of the collection
+	 * @return The given collection
+	 */
+	public <C extends Collection<? super String>> C splitInto(CharSequence text, C target) {
+		Tokens tokens = new Tokens(text);
+		while (tokens.hasNext()) {
+			tokens.advance();
+			target.add(text.subSequence(tokens.tokenStart, tokens.tokenEnd).toString());
+		}
+		return target;
+	}
+
+	/**
+	 * @param text Text to split
+	 * @return The tokens, found lazily, as views of the text
+	 */
+	public Iterator<CharSequence> iterator(CharSequence text) {
+		return new Tokens(text);
+	}
+
+	/**
+	 * @param text Text to split
+	 * @return The tokens, found lazily, as views of the text
+	 */
+	public Stream<CharSequence> stream(CharSequence text) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(text), Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	private boolean isSeparator(char c) {
+		if (c < 64)
+			return (lowSeparators & (1L << c)) != 0;
+		else if (c < 128)
+			return (highSeparators & (1L << (c - 64))) != 0;
+		return otherSeparators.length > 0 && Arrays.binarySearch(otherSeparators, c) >= 0;
+	}
+
+	// Same as \s in a regular expression
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || (c >= '\t' && c <= '\r');
+	}
+
+	/**
+	 * Finds the tokens one at a time. Empty tokens are held back until a non-empty token follows them,
+	 * since trailing empty tokens are removed.
+	 */
+	private final class Tokens implements Iterator<CharSequence> {
+		private final CharSequence text;
+		private int position;
+		private boolean matched;
+		private int pendingEmpty;
+		private int nextStart = -1;
+		private int nextEnd;
+		int tokenStart;
+		int tokenEnd;
+
+		Tokens(CharSequence text) {
+			this.text = text;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (pendingEmpty > 0 || nextStart >= 0)
+				return true;
+			findNonEmpty();
+			return pendingEmpty > 0 || nextStart >= 0;
+		}
+
+		@Override
+		public CharSequence next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			advance();
+			return CharBuffer.wrap(text, tokenStart, tokenEnd);
+		}
+
+		// Moves to the next token, hasNext() must have returned true
+		void advance() {
+			if (pendingEmpty > 0) {
+				pendingEmpty--;
+				tokenStart = tokenEnd = nextStart >= 0 ? nextStart : 0;
+			} else {
+				tokenStart = nextStart;
+				tokenEnd = nextEnd;
+				nextStart = -1;
+			}
+		}
+
+		private void findNonEmpty() {
+			int length = text.length();
+			while (position <= length) {
+				int start = position;
+				int end = findSeparator(start, length);
+				if (end < 0) {
+					// The last token. Without any separator, the whole text is a token, even when empty
+					position = length + 1;
+					if (start < length || !matched) {
+						nextStart = start;
+						nextEnd = length;
+						return;
+					}
+					pendingEmpty = 0;
+					return;
+				}
+
+				matched = true;
+				if (end > start) {
+					nextStart = start;
+					nextEnd = end;
+					return;
+				}
+				pendingEmpty++;
+			}
+			pendingEmpty = 0;
+		}
+
+		/**
+		 * Find the next separator, including the surrounding whitespace. Moves the position to after it.
+		 * @return The end of the token before the separator, or -1 if there are no more separators
+		 */
+		private int findSeparator(int from, int length) {
+			int i = from;
+			while (i < length) {
+				char c = text.charAt(i);
+				if (isSeparator(c) && !isWhitespace(c)) {
+					position = skipWhitespace(i + 1, length);
+					return i;
+				} else if (isWhitespace(c)) {
+					// Like the greedy \s* of the expression, the last separator before the end of the whitespace is used
+					int whitespaceEnd = skipWhitespace(i, length);
+					int separator = -1;
+					for (int j = Math.min(whitespaceEnd, length - 1); j >= i; j--) {
+						if (isSeparator(text.charAt(j))) {
+							separator = j;
+							break;
+						}
+					}
+					if (separator >= 0) {
+						position = skipWhitespace(separator + 1, length);
+						return i;
+					}
+					i = whitespaceEnd;
+				} else {
+					i++;
+				}
+			}
+			return -1;
+		}
+
+		private int skipWhitespace(int from, int length) {
+			while (from < length && isWhitespace(text.charAt(from))) {
+				from++;
+			}
+			return from;
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.frejdh.util.common.benchmarks;
+
+import com.frejdh.util.common.copying.DeepCopier;
+import com.frejdh.util.common.toolbox.CommonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link DeepCopier}, used by {@link CommonUtils#recastObject(Object)}, with the previous serialization round-trip.
+ * Run through the main method using the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeepCopyBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int nodeCount;
+
+	private Node root;
+
+	@Setup
+	public void setup() {
+		root = new Node(0);
+		Node previous = root;
+		for (int i = 1; i < nodeCount; i++) {
+			Node node = new Node(i);
+			node.parent = previous;
+			previous.children.add(node);
+			previous.attributes.put("child" + i, node.name);
+			if (i % 10 == 0)
+				previous = root;
+			else
+				previous = node;
+		}
+	}
+
+	@Benchmark
+	public Object serialization() throws IOException, ClassNotFoundException {
+		return serializationRoundTrip(root);
+	}
+
+	@Benchmark
+	public Object deepCopier() {
+		return DeepCopier.standard().copy(root);
+	}
+
+	// The implementation of CommonUtils.recastObject before the deep copier was introduced
+	private static Object serializationRoundTrip(Object obj) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(obj);
+		oos.flush();
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+		return ois.readObject();
+	}
+
+	public static class Node implements Serializable {
+		private final int id;
+		private final String name;
+		private Node parent;
+		private final List<Node> children = new ArrayList<>();
+		private final Map<String, String> attributes = new HashMap<>();
+		private final double[] weights = new double[8];
+
+		Node(int id) {
+			this.id = id;
+			this.name = "node" + id;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(DeepCopyBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
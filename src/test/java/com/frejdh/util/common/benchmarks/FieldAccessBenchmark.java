@@ -0,0 +1,106 @@
+package com.frejdh.util.common.benchmarks;
+
+import com.frejdh.util.common.toolbox.FieldAccessor;
+import com.frejdh.util.common.toolbox.ReflectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares reading fields through {@link FieldAccessor} with {@link ReflectionUtils#getVariable(Object, String, Class)},
+ * a cached {@link Field} and direct access.
+ * Run through the main method using the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldAccessBenchmark {
+
+	private Entity entity;
+	private Field nameField;
+	private Function<Entity, String> nameGetter;
+	private ToIntFunction<Entity> countGetter;
+
+	@Setup
+	public void setup() throws Exception {
+		entity = new Entity();
+		nameField = Entity.class.getDeclaredField("name");
+		nameField.setAccessible(true);
+		nameGetter = FieldAccessor.of(Entity.class, "name", String.class).getter();
+		countGetter = FieldAccessor.of(Entity.class, "count", int.class).intGetter();
+	}
+
+	@Benchmark
+	public Object direct() {
+		return entity.name;
+	}
+
+	@Benchmark
+	public Object cachedField() throws Exception {
+		return nameField.get(entity);
+	}
+
+	@Benchmark
+	public Object reflectionUtils() throws Exception {
+		return ReflectionUtils.getVariable(entity, "name", String.class);
+	}
+
+	@Benchmark
+	public Object legacyReflectionUtils() throws Exception {
+		return legacyGetVariable(entity, "name", String.class);
+	}
+
+	@Benchmark
+	public Object accessor() {
+		return nameGetter.apply(entity);
+	}
+
+	@Benchmark
+	public int primitiveAccessor() {
+		return countGetter.applyAsInt(entity);
+	}
+
+	@Benchmark
+	public int boxedAccessor() throws Exception {
+		return ReflectionUtils.getVariable(entity, "count", Integer.class);
+	}
+
+	// The implementation of ReflectionUtils.getVariable before FieldAccessor was used, without the modifiers hack of JDK 11 and below
+	private static <T> T legacyGetVariable(Object instance, String fieldName, Class<T> castTo) throws Exception {
+		Field field = instance.getClass().getDeclaredField(fieldName);
+		boolean wasAccessible = field.canAccess(instance);
+		field.setAccessible(true);
+		T value = castTo.cast(field.get(instance));
+		if (!wasAccessible)
+			field.setAccessible(false);
+		return value;
+	}
+
+	public static class Entity {
+		private String name = "entity";
+		private int count = 42;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(FieldAccessBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
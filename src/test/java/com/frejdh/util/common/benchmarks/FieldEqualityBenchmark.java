@@ -0,0 +1,124 @@
+package com.frejdh.util.common.benchmarks;
+
+import com.frejdh.util.common.toolbox.CommonUtils;
+import com.frejdh.util.common.toolbox.FieldEquality;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares field-wise equality through {@link FieldEquality} with the previous reflective {@link CommonUtils#allFieldsEquals(Object, Object)},
+ * for equal entities and for entities differing only in their last primitive field.
+ * Also measures deduplicating a list of entities that don't override equals().
+ * Run through the main method using the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldEqualityBenchmark {
+
+	private Entity first;
+	private Entity equal;
+	private Entity different;
+	private List<Entity> entities;
+
+	@Setup
+	public void setup() {
+		first = new Entity("entity", 1);
+		equal = new Entity("entity", 1);
+		different = new Entity("entity", 1);
+		different.version = 2;
+
+		entities = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			entities.add(new Entity("entity" + (i % 100), i % 10));
+		}
+	}
+
+	@Benchmark
+	public boolean legacyEqual() throws Exception {
+		return legacyAllFieldsEquals(first, equal);
+	}
+
+	@Benchmark
+	public boolean legacyDifferent() throws Exception {
+		return legacyAllFieldsEquals(first, different);
+	}
+
+	@Benchmark
+	public boolean declarationOrderEqual() {
+		return FieldEquality.of(Entity.class).fieldsEqual(first, equal);
+	}
+
+	@Benchmark
+	public boolean declarationOrderDifferent() {
+		return FieldEquality.of(Entity.class).fieldsEqual(first, different);
+	}
+
+	@Benchmark
+	public boolean cheapestFirstDifferent() {
+		return FieldEquality.cheapestFirst(Entity.class).fieldsEqual(first, different);
+	}
+
+	@Benchmark
+	public int hashCodeOfFields() {
+		return FieldEquality.of(Entity.class).fieldsHashCode(first);
+	}
+
+	@Benchmark
+	public List<Entity> removeDuplicatesByFields() {
+		return CommonUtils.removeListDuplicatesByFields(new ArrayList<>(entities), CommonUtils.DuplicateRetention.KEEP_FIRST);
+	}
+
+	// The implementation of CommonUtils.allFieldsEquals before FieldEquality was used
+	private static <T> boolean legacyAllFieldsEquals(T first, T second) throws IllegalAccessException {
+		for (Field field : first.getClass().getDeclaredFields()) {
+			field.setAccessible(true);
+			Object firstVal = field.get(first);
+			Object secVal = field.get(second);
+
+			if (!firstVal.equals(secVal))
+				return false;
+		}
+		return true;
+	}
+
+	public static class Entity {
+		private static final int[] SCORES = {1, 2, 3, 4}; // Shared, as the previous implementation compared arrays by reference
+
+		private String name;
+		private List<String> tags = List.of("a", "b", "c");
+		private int[] scores = SCORES;
+		private double ratio = 0.5;
+		private int count;
+		private long version = 1;
+
+		Entity(String name, int count) {
+			this.name = name;
+			this.count = count;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(FieldEqualityBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.frejdh.util.common.benchmarks;
+
+import com.frejdh.util.common.toolbox.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading files of different sizes through {@link FileUtils} with the previous stream-based implementation.
+ * The files are in the page cache after the first iteration, so this measures the copying rather than the disk.
+ * Decoding a string from a mapping goes through a char buffer of twice the size of the file, which is why {@link FileUtils#getFileAsString(String)} doesn't map.
+ * Run through the main method using the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileReadingBenchmark {
+
+	@Param({"4096", "262144", "4194304", "67108864"})
+	public int size;
+
+	private Path file;
+
+	@Setup
+	public void setup() throws IOException {
+		file = Files.createTempFile("file-reading", ".txt");
+		StringBuilder builder = new StringBuilder(size);
+		for (int i = 0; builder.length() < size; i++) {
+			builder.append(i % 80 == 79 ? '\n' : i % 101 == 0 ? 'ö' : (char) ('a' + i % 26));
+		}
+		Files.write(file, builder.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public String stringStreamed() throws IOException {
+		try (InputStream in = new FileInputStream(file.toString())) {
+			return inputStreamToStringBefore(in);
+		}
+	}
+
+	@Benchmark
+	public String string() {
+		return FileUtils.getFileAsString(file.toString());
+	}
+
+	@Benchmark
+	public String stringFromMapping() {
+		return StandardCharsets.UTF_8.decode(FileUtils.getFileAsByteBuffer(file.toString())).toString();
+	}
+
+	@Benchmark
+	public byte[] bytes() {
+		return FileUtils.getFileAsBytes(file.toString());
+	}
+
+	@Benchmark
+	public int byteBuffer() {
+		ByteBuffer buffer = FileUtils.getFileAsByteBuffer(file.toString());
+		int sum = 0;
+		for (int i = 0; i < buffer.limit(); i += 4096) { // Touch every page
+			sum += buffer.get(i);
+		}
+		return sum;
+	}
+
+	// The implementation of FileUtils.getFileAsString before the file size was used
+	private static String inputStreamToStringBefore(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4 * 0x400]; // 4KB
+		int length;
+		while ((length = inputStream.read(buffer)) != -1) {
+			result.write(buffer, 0, length);
+		}
+		return result.toString(StandardCharsets.UTF_8.name());
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(FileReadingBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.frejdh.util.common.benchmarks;
+
+import com.frejdh.util.common.merging.MergeStrategy;
+import com.frejdh.util.common.merging.Merger;
+import com.frejdh.util.common.toolbox.CommonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cached merge plans used by {@link CommonUtils} with the previous, purely reflective implementation,
+ * and with the mergers of {@link MergeStrategy#generated()}.
+ * The merged instance is recreated before every invocation, as merging fills its null fields.
+ * Run through the main method using the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeBenchmark {
+
+	@Param({"5", "50", "500"})
+	public int fieldCount;
+
+	private Class<?> type;
+	private Object first;
+	private Object second;
+	private Merger<Object> generated;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws ReflectiveOperationException {
+		type = MergeFixtures.forFieldCount(fieldCount);
+		second = MergeFixtures.populate(type, 2);
+		generated = MergeStrategy.generated().mergerFor((Class<Object>) type);
+	}
+
+	@Setup(Level.Invocation)
+	public void resetFirst() throws ReflectiveOperationException {
+		first = MergeFixtures.populate(type, 1);
+	}
+
+	@Benchmark
+	public Object softMergeReflective() throws IllegalAccessException {
+		return reflectiveSoftMerge(first, second);
+	}
+
+	@Benchmark
+	public Object softMergePlan() throws Exception {
+		return CommonUtils.softMerge(first, second);
+	}
+
+	@Benchmark
+	public Object softMergeGenerated() {
+		generated.softMerge(first, second);
+		return first;
+	}
+
+	@Benchmark
+	public Object softMergeInverseReflective() throws IllegalAccessException {
+		return reflectiveSoftMergeInverse(first, second);
+	}
+
+	@Benchmark
+	public Object softMergeInversePlan() throws Exception {
+		return CommonUtils.softMergeInverse(first, second);
+	}
+
+	@Benchmark
+	public Object softMergeInverseGenerated() {
+		generated.softMergeInverse(first, second);
+		return first;
+	}
+
+	// The implementation of CommonUtils.softMerge before merge plans were introduced
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static <T> T reflectiveSoftMerge(T first, T second) throws IllegalAccessException {
+		Field[] fields = first.getClass().getDeclaredFields();
+		for (Field field : fields) {
+			field.setAccessible(true);
+			if ((field.getModifiers() & Modifier.FINAL) == Modifier.FINAL)
+				continue;
+
+			Object firstVal = field.get(first);
+			Object secVal = field.get(second);
+
+			if (firstVal instanceof List && secVal instanceof List) {
+				((List) firstVal).addAll((List) secVal);
+				field.set(first, firstVal);
+			} else {
+				Object value = (firstVal != null) ? firstVal : secVal;
+				field.set(first, value);
+			}
+			field.setAccessible(false);
+		}
+		return first;
+	}
+
+	// The implementation of CommonUtils.softMergeInverse before merge plans were introduced
+	private static <T> T reflectiveSoftMergeInverse(T first, T second) throws IllegalAccessException {
+		Field[] fields = first.getClass().getDeclaredFields();
+		for (Field field : fields) {
+			field.setAccessible(true);
+			if ((field.getModifiers() & Modifier.FINAL) == Modifier.FINAL)
+				continue;
+
+			Object firstVal = field.get(first);
+			Object secVal = field.get(second);
+			field.set(first, (secVal != null) ? secVal : firstVal);
+			field.setAccessible(false);
+		}
+		return first;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(MergeBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
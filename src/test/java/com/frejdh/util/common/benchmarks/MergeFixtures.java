@@ -0,0 +1,82 @@
+package com.frejdh.util.common.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Classes with a fixed number of fields, half of them references and half of them primitives.
+ */
+public class MergeFixtures {
+
+	/**
+	 * Create an instance of a fixture class where every other reference field is null.
+	 *
+	 * @param type Fixture class to instantiate
+	 * @param seed Value to derive the field values from
+	 * @return A populated instance
+	 */
+	public static <T> T populate(Class<T> type, int seed) throws ReflectiveOperationException {
+		T instance = type.getDeclaredConstructor().newInstance();
+		int index = 0;
+		for (Field field : type.getDeclaredFields()) {
+			if ((field.getModifiers() & Modifier.STATIC) != 0)
+				continue;
+			if (field.getType() == int.class)
+				field.setInt(instance, seed + index);
+			else if (index % 2 == 0)
+				field.set(instance, seed + "-" + index);
+			index++;
+		}
+		return instance;
+	}
+
+	public static Class<?> forFieldCount(int fieldCount) {
+		switch (fieldCount) {
+			case 5: return Fields5.class;
+			case 50: return Fields50.class;
+			case 500: return Fields500.class;
+			default: throw new IllegalArgumentException("No fixture with " + fieldCount + " fields");
+		}
+	}
+
+	public static class Fields5 {
+		String s0, s1, s2;
+		int i0, i1;
+	}
+
+	public static class Fields50 {
+		String s0, s1, s2, s3, s4, s5, s6, s7, s8, s9, s10, s11, s12, s13, s14, s15, s16, s17, s18, s19;
+		String s20, s21, s22, s23, s24;
+		int i0, i1, i2, i3, i4, i5, i6, i7, i8, i9, i10, i11, i12, i13, i14, i15, i16, i17, i18, i19;
+		int i20, i21, i22, i23, i24;
+	}
+
+	public static class Fields500 {
+		String s0, s1, s2, s3, s4, s5, s6, s7, s8, s9, s10, s11, s12, s13, s14, s15, s16, s17, s18, s19;
+		String s20, s21, s22, s23, s24, s25, s26, s27, s28, s29, s30, s31, s32, s33, s34, s35, s36, s37, s38, s39;
+		String s40, s41, s42, s43, s44, s45, s46, s47, s48, s49, s50, s51, s52, s53, s54, s55, s56, s57, s58, s59;
+		String s60, s61, s62, s63, s64, s65, s66, s67, s68, s69, s70, s71, s72, s73, s74, s75, s76, s77, s78, s79;
+		String s80, s81, s82, s83, s84, s85, s86, s87, s88, s89, s90, s91, s92, s93, s94, s95, s96, s97, s98, s99;
+		String s100, s101, s102, s103, s104, s105, s106, s107, s108, s109, s110, s111, s112, s113, s114, s115, s116, s117, s118, s119;
+		String s120, s121, s122, s123, s124, s125, s126, s127, s128, s129, s130, s131, s132, s133, s134, s135, s136, s137, s138, s139;
+		String s140, s141, s142, s143, s144, s145, s146, s147, s148, s149, s150, s151, s152, s153, s154, s155, s156, s157, s158, s159;
+		String s160, s161, s162, s163, s164, s165, s166, s167, s168, s169, s170, s171, s172, s173, s174, s175, s176, s177, s178, s179;
+		String s180, s181, s182, s183, s184, s185, s186, s187, s188, s189, s190, s191, s192, s193, s194, s195, s196, s197, s198, s199;
+		String s200, s201, s202, s203, s204, s205, s206, s207, s208, s209, s210, s211, s212, s213, s214, s215, s216, s217, s218, s219;
+		String s220, s221, s222, s223, s224, s225, s226, s227, s228, s229, s230, s231, s232, s233, s234, s235, s236, s237, s238, s239;
+		String s240, s241, s242, s243, s244, s245, s246, s247, s248, s249;
+		int i0, i1, i2, i3, i4, i5, i6, i7, i8, i9, i10, i11, i12, i13, i14, i15, i16, i17, i18, i19;
+		int i20, i21, i22, i23, i24, i25, i26, i27, i28, i29, i30, i31, i32, i33, i34, i35, i36, i37, i38, i39;
+		int i40, i41, i42, i43, i44, i45, i46, i47, i48, i49, i50, i51, i52, i53, i54, i55, i56, i57, i58, i59;
+		int i60, i61, i62, i63, i64, i65, i66, i67, i68, i69, i70, i71, i72, i73, i74, i75, i76, i77, i78, i79;
+		int i80, i81, i82, i83, i84, i85, i86, i87, i88, i89, i90, i91, i92, i93, i94, i95, i96, i97, i98, i99;
+		int i100, i101, i102, i103, i104, i105, i106, i107, i108, i109, i110, i111, i112, i113, i114, i115, i116, i117, i118, i119;
+		int i120, i121, i122, i123, i124, i125, i126, i127, i128, i129, i130, i131, i132, i133, i134, i135, i136, i137, i138, i139;
+		int i140, i141, i142, i143, i144, i145, i146, i147, i148, i149, i150, i151, i152, i153, i154, i155, i156, i157, i158, i159;
+		int i160, i161, i162, i163, i164, i165, i166, i167, i168, i169, i170, i171, i172, i173, i174, i175, i176, i177, i178, i179;
+		int i180, i181, i182, i183, i184, i185, i186, i187, i188, i189, i190, i191, i192, i193, i194, i195, i196, i197, i198, i199;
+		int i200, i201, i202, i203, i204, i205, i206, i207, i208, i209, i210, i211, i212, i213, i214, i215, i216, i217, i218, i219;
+		int i220, i221, i222, i223, i224, i225, i226, i227, i228, i229, i230, i231, i232, i233, i234, i235, i236, i237, i238, i239;
+		int i240, i241, i242, i243, i244, i245, i246, i247, i248, i249;
+	}
+}
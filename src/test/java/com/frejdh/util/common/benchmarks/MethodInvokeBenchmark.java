@@ -0,0 +1,107 @@
+package com.frejdh.util.common.benchmarks;
+
+import com.frejdh.util.common.toolbox.MethodInvoker;
+import com.frejdh.util.common.toolbox.ReflectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Compares invoking a method through {@link MethodInvoker}, its functional interfaces, a proxy of the method handle,
+ * {@link ReflectionUtils#invokeMethod(Object, String, Object...)}, a cached {@link Method} and direct invocation.
+ * Run through the main method using the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodInvokeBenchmark {
+
+	private Entity entity;
+	private Method addMethod;
+	private MethodInvoker invoker;
+	private BiFunction<Entity, Integer, Integer> function;
+	private Adder adder;
+	private Adder proxy;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		entity = new Entity();
+		addMethod = Entity.class.getDeclaredMethod("add", int.class);
+		addMethod.setAccessible(true);
+		invoker = MethodInvoker.of(addMethod);
+		function = invoker.asInterface(BiFunction.class);
+		adder = invoker.asInterface(Adder.class);
+		proxy = MethodHandleProxies.asInterfaceInstance(Adder.class, invoker.getHandle());
+	}
+
+	@Benchmark
+	public int direct() {
+		return entity.add(1);
+	}
+
+	@Benchmark
+	public Object cachedMethod() throws Exception {
+		return addMethod.invoke(entity, 1);
+	}
+
+	@Benchmark
+	public Object reflectionUtils() throws Exception {
+		return ReflectionUtils.invokeMethod(entity, "add", 1);
+	}
+
+	@Benchmark
+	public Object invoker() throws Throwable {
+		return invoker.invoke(entity, 1);
+	}
+
+	@Benchmark
+	public Object function() {
+		return function.apply(entity, 1);
+	}
+
+	@Benchmark
+	public int primitiveInterface() {
+		return adder.add(entity, 1);
+	}
+
+	@Benchmark
+	public int proxiedInterface() {
+		return proxy.add(entity, 1);
+	}
+
+	public interface Adder {
+		int add(Entity instance, int value);
+	}
+
+	public static class Entity {
+		private int count = 42;
+
+		private int add(int value) {
+			return count + value;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(MethodInvokeBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
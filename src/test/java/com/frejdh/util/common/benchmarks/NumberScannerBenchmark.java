@@ -0,0 +1,108 @@
+package com.frejdh.util.common.benchmarks;
+
+import com.frejdh.util.common.toolbox.CommonUtils;
+import com.frejdh.util.common.toolbox.NumberScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link NumberScanner}, used by {@link CommonUtils#isNumeric(String)}, with the previous regular expression.
+ * Each invocation processes a batch of CSV-like fields, of which a part isn't numeric.
+ * Run through the main method using the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberScannerBenchmark {
+
+	private static final Pattern NUMERIC = Pattern.compile("-?\\d+(\\.\\d+)?");
+
+	@Param({"0.1", "0.5"})
+	public double nonNumericRatio;
+
+	private String[] fields;
+	private String line;
+	private int[] offsets;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		fields = new String[1000];
+		StringBuilder builder = new StringBuilder();
+		offsets = new int[fields.length + 1];
+		for (int i = 0; i < fields.length; i++) {
+			if (random.nextDouble() < nonNumericRatio)
+				fields[i] = "name" + i;
+			else
+				fields[i] = random.nextBoolean() ? Integer.toString(random.nextInt()) : Double.toString(random.nextInt(1_000_000) / 100.0);
+			offsets[i] = builder.length();
+			builder.append(fields[i]).append(';');
+		}
+		offsets[fields.length] = builder.length();
+		line = builder.toString();
+	}
+
+	@Benchmark
+	public void isNumericRegex(Blackhole blackhole) {
+		for (String field : fields) {
+			blackhole.consume(field.matches("-?\\d+(\\.\\d+)?"));
+		}
+	}
+
+	@Benchmark
+	public void isNumericPrecompiledPattern(Blackhole blackhole) {
+		for (String field : fields) {
+			blackhole.consume(NUMERIC.matcher(field).matches());
+		}
+	}
+
+	@Benchmark
+	public void isNumericScanner(Blackhole blackhole) {
+		for (String field : fields) {
+			blackhole.consume(CommonUtils.isNumeric(field));
+		}
+	}
+
+	@Benchmark
+	public void parseSubstrings(Blackhole blackhole) {
+		for (int i = 0; i < fields.length; i++) {
+			String field = line.substring(offsets[i], offsets[i + 1] - 1);
+			if (NUMERIC.matcher(field).matches())
+				blackhole.consume(Double.parseDouble(field));
+		}
+	}
+
+	@Benchmark
+	public void parseRanges(Blackhole blackhole) {
+		NumberScanner scanner = NumberScanner.standard();
+		for (int i = 0; i < fields.length; i++) {
+			if (scanner.isNumeric(line, offsets[i], offsets[i + 1] - 1))
+				blackhole.consume(scanner.parseDouble(line, offsets[i], offsets[i + 1] - 1));
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(NumberScannerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
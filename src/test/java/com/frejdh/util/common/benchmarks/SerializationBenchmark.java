@@ -0,0 +1,130 @@
+package com.frejdh.util.common.benchmarks;
+
+import com.frejdh.util.common.serialization.Serializer;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing and reading a snapshot through {@link Serializer#binary()}, {@link Serializer#java()} and Gson.
+ * The sizes of the outputs are printed before the benchmarks are run.
+ * Run through the main method using the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+	private static final Gson GSON = new Gson();
+
+	private Snapshot snapshot;
+	private byte[] binary;
+	private byte[] java;
+	private byte[] json;
+
+	@Setup
+	public void setup() throws IOException {
+		snapshot = Snapshot.create(1000);
+		binary = write(Serializer.binary(), snapshot);
+		java = write(Serializer.java(), snapshot);
+		json = GSON.toJson(snapshot).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public byte[] writeBinary() throws IOException {
+		return write(Serializer.binary(), snapshot);
+	}
+
+	@Benchmark
+	public byte[] writeJava() throws IOException {
+		return write(Serializer.java(), snapshot);
+	}
+
+	@Benchmark
+	public byte[] writeGson() {
+		return GSON.toJson(snapshot).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public Snapshot readBinary() throws Exception {
+		return Serializer.binary().read(new ByteArrayInputStream(binary), Snapshot.class);
+	}
+
+	@Benchmark
+	public Snapshot readJava() throws Exception {
+		return Serializer.java().read(new ByteArrayInputStream(java), Snapshot.class);
+	}
+
+	@Benchmark
+	public Snapshot readGson() {
+		return GSON.fromJson(new String(json, StandardCharsets.UTF_8), Snapshot.class);
+	}
+
+	private static byte[] write(Serializer serializer, Object value) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		serializer.write(value, out);
+		return out.toByteArray();
+	}
+
+	public static class Snapshot implements Serializable {
+		private long timestamp;
+		private String source;
+		private List<Reading> readings;
+
+		static Snapshot create(int size) {
+			Snapshot snapshot = new Snapshot();
+			snapshot.timestamp = 1_700_000_000_000L;
+			snapshot.source = "sensor-array";
+			snapshot.readings = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				Reading reading = new Reading();
+				reading.sensor = "sensor-" + (i % 20);
+				reading.unit = i % 2 == 0 ? "celsius" : "percent";
+				reading.sequence = i;
+				reading.value = i * 0.75;
+				reading.valid = i % 7 != 0;
+				snapshot.readings.add(reading);
+			}
+			return snapshot;
+		}
+	}
+
+	public static class Reading implements Serializable {
+		private String sensor;
+		private String unit;
+		private int sequence;
+		private double value;
+		private boolean valid;
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		SerializationBenchmark sizes = new SerializationBenchmark();
+		sizes.setup();
+		System.out.println("Binary: " + sizes.binary.length + " bytes, Java: " + sizes.java.length + " bytes, Gson: " + sizes.json.length + " bytes");
+		new Runner(new OptionsBuilder().include(SerializationBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.frejdh.util.common.benchmarks;
+
+import com.frejdh.util.common.toolbox.CommonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares the stack walking {@link CommonUtils#getCallingMethodName(boolean)} with the previous implementation,
+ * which materialized the whole stack trace of a {@link Throwable}.
+ * Run through the main method using the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackWalkBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int stackDepth;
+
+	@Benchmark
+	public Object callingMethodNameThrowable() {
+		return atDepth(stackDepth, StackWalkBenchmark::throwableCallingMethodName);
+	}
+
+	@Benchmark
+	public Object callingMethodNameStackWalker() {
+		return atDepth(stackDepth, () -> CommonUtils.getCallingMethodName(false));
+	}
+
+	@Benchmark
+	public Object callingFrame() {
+		return atDepth(stackDepth, CommonUtils::getCallingFrame);
+	}
+
+	private static Object atDepth(int depth, Supplier<Object> action) {
+		return depth <= 1 ? action.get() : atDepth(depth - 1, action);
+	}
+
+	// The implementation of CommonUtils.getCallingMethodName before StackWalker was used
+	private static String throwableCallingMethodName() {
+		return new Throwable().getStackTrace()[2].getMethodName();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(StackWalkBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.frejdh.util.common.compiled;
+
+import com.frejdh.util.common.toolbox.CommonUtils;
+import com.frejdh.util.common.toolbox.ReflectionUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompiledAccessorsTest {
+
+	@Test
+	void accessorsAreFoundByName() {
+		assertEquals("com.frejdh.util.common.compiled.CompiledFixture_CompiledAccessor", CompiledAccessors.accessorNameOf(CompiledFixture.class));
+		assertSame(CompiledAccessors.find(CompiledFixture.class), CompiledAccessors.find(CompiledFixture.class));
+		assertEquals(CompiledFixture.class, CompiledAccessors.find(CompiledFixture.class).getType());
+		assertNull(CompiledAccessors.find(CompiledAccessorsTest.class));
+		assertNull(CompiledAccessors.find(String.class));
+	}
+
+	@Test
+	void toolboxPrefersTheAccessor() throws Exception {
+		CompiledFixture first = new CompiledFixture();
+		first.setTags(new ArrayList<>(List.of("a")));
+		CompiledFixture second = new CompiledFixture();
+		second.name = "second";
+		second.setTags(List.of("b"));
+
+		// Reflection reads and writes the fields directly, so only the accessor calls the getters and setters
+		int accesses = CompiledFixture.ACCESSES.get();
+		CommonUtils.softMerge(first, second);
+		assertEquals("second", first.name);
+		assertEquals(List.of("a", "b"), first.getTags());
+		assertTrue(CompiledFixture.ACCESSES.get() > accesses);
+
+		accesses = CompiledFixture.ACCESSES.get();
+		CompiledFixture copy = CommonUtils.deepCopy(first);
+		assertTrue(CompiledFixture.ACCESSES.get() > accesses);
+		assertNotSame(first.getTags(), copy.getTags());
+
+		accesses = CompiledFixture.ACCESSES.get();
+		assertTrue(CommonUtils.allFieldsEquals(first, copy));
+		assertTrue(CompiledFixture.ACCESSES.get() > accesses);
+
+		accesses = CompiledFixture.ACCESSES.get();
+		assertEquals(CommonUtils.fieldsHashCode(first), CommonUtils.fieldsHashCode(copy));
+		assertTrue(CompiledFixture.ACCESSES.get() > accesses);
+
+		accesses = CompiledFixture.ACCESSES.get();
+		ReflectionUtils.setVariable(copy, "count", 2);
+		assertEquals(accesses + 1, CompiledFixture.ACCESSES.get());
+		assertEquals(2, ReflectionUtils.getVariable(copy, "count", Integer.class).intValue());
+		assertEquals(accesses + 2, CompiledFixture.ACCESSES.get());
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.frejdh.util.common.compiled;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class with a {@link CompiledAccessor} generated by the processor module, which checks that it matches this class.
+ * The getters and setters count their invocations, as only the accessor uses them.
+ */
+@CompiledAccess
+public class CompiledFixture {
+	static final AtomicInteger ACCESSES = new AtomicInteger();
+
+	String name;
+	private int count;
+	private List<String> tags;
+
+	public int getCount() {
+		ACCESSES.incrementAndGet();
+		return count;
+	}
+
+	public void setCount(int count) {
+		ACCESSES.incrementAndGet();
+		this.count = count;
+	}
+
+	public List<String> getTags() {
+		ACCESSES.incrementAndGet();
+		return tags;
+	}
+
+	public void setTags(List<String> tags) {
+		ACCESSES.incrementAndGet();
+		this.tags = tags;
+	}
+}
@@ -0,0 +1,136 @@
+package com.frejdh.util.common.compiled;
+
+/**
+ * Generated by com.frejdh.util.common.processor.CompiledAccessProcessor for {@link com.frejdh.util.common.compiled.CompiledFixture}. Do not edit.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class CompiledFixture_CompiledAccessor implements com.frejdh.util.common.compiled.CompiledAccessor<com.frejdh.util.common.compiled.CompiledFixture> {
+
+	@Override
+	public Class<com.frejdh.util.common.compiled.CompiledFixture> getType() {
+		return com.frejdh.util.common.compiled.CompiledFixture.class;
+	}
+
+	@Override
+	public void softMerge(com.frejdh.util.common.compiled.CompiledFixture first, com.frejdh.util.common.compiled.CompiledFixture second) {
+		{
+			java.lang.String value = first.name;
+			if (value == null) {
+				first.name = second.name;
+			}
+		}
+		{
+			java.util.List value = first.getTags();
+			if (value == null) {
+				first.setTags(second.getTags());
+			} else if (value instanceof java.util.List) {
+				Object other = second.getTags();
+				if (other instanceof java.util.List)
+					value.addAll((java.util.List) other);
+			}
+		}
+	}
+
+	@Override
+	public void softMergeInverse(com.frejdh.util.common.compiled.CompiledFixture first, com.frejdh.util.common.compiled.CompiledFixture second) {
+		{
+			java.lang.String value = second.name;
+			if (value != null)
+				first.name = value;
+		}
+		first.setCount(second.getCount());
+		{
+			java.util.List value = second.getTags();
+			if (value != null)
+				first.setTags(value);
+		}
+	}
+
+	@Override
+	public void copyFields(com.frejdh.util.common.compiled.CompiledFixture target, com.frejdh.util.common.compiled.CompiledFixture source) {
+		target.name = source.name;
+		target.setCount(source.getCount());
+		target.setTags(source.getTags());
+	}
+
+	@Override
+	public boolean fieldsEqual(com.frejdh.util.common.compiled.CompiledFixture first, com.frejdh.util.common.compiled.CompiledFixture second) {
+		if (first.getCount() != second.getCount())
+			return false;
+		if (!java.util.Objects.equals(first.name, second.name))
+			return false;
+		if (!java.util.Objects.equals(first.getTags(), second.getTags()))
+			return false;
+		return true;
+	}
+
+	@Override
+	public int fieldsHashCode(com.frejdh.util.common.compiled.CompiledFixture instance) {
+		int hash = 1;
+		hash = 31 * hash + java.util.Objects.hashCode(instance.name);
+		hash = 31 * hash + instance.getCount();
+		hash = 31 * hash + java.util.Objects.hashCode(instance.getTags());
+		return hash;
+	}
+
+	@Override
+	public boolean canCopy() {
+		return true;
+	}
+
+	@Override
+	public com.frejdh.util.common.compiled.CompiledFixture newInstance() {
+		return new com.frejdh.util.common.compiled.CompiledFixture();
+	}
+
+	@Override
+	public void copyFields(com.frejdh.util.common.compiled.CompiledFixture target, com.frejdh.util.common.compiled.CompiledFixture source, java.util.function.UnaryOperator<Object> copier) {
+		target.name = (java.lang.String) copier.apply(source.name);
+		target.setCount(source.getCount());
+		target.setTags((java.util.List) copier.apply(source.getTags()));
+	}
+
+	@Override
+	public boolean hasField(String fieldName) {
+		switch (fieldName) {
+			case "name":
+			case "count":
+			case "tags":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	public Object get(com.frejdh.util.common.compiled.CompiledFixture instance, String fieldName) throws NoSuchFieldException {
+		switch (fieldName) {
+			case "name":
+				return instance.name;
+			case "count":
+				return instance.getCount();
+			case "tags":
+				return instance.getTags();
+			default:
+				throw new NoSuchFieldException("com.frejdh.util.common.compiled.CompiledFixture." + fieldName);
+		}
+	}
+
+	@Override
+	public boolean set(com.frejdh.util.common.compiled.CompiledFixture instance, String fieldName, Object value) throws NoSuchFieldException {
+		switch (fieldName) {
+			case "name":
+				instance.name = (java.lang.String) value;
+				return true;
+			case "count":
+				instance.setCount((int) value);
+				return true;
+			case "tags":
+				instance.setTags((java.util.List) value);
+				return true;
+			default:
+				throw new NoSuchFieldException("com.frejdh.util.common.compiled.CompiledFixture." + fieldName);
+		}
+	}
+
+}
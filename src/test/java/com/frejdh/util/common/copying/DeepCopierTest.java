@@ -0,0 +1,240 @@
+package com.frejdh.util.common.copying;
+
+import com.frejdh.util.common.toolbox.CommonUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DeepCopierTest {
+
+	@Test
+	void copiesObjectGraphs() {
+		Pojo pojo = new Pojo();
+		pojo.self = pojo;
+		pojo.names.add("name");
+		pojo.shared = new int[]{1, 2, 3};
+		pojo.sameShared = pojo.shared;
+		pojo.map.put("key", new ArrayList<>(Arrays.asList(LocalDate.of(2020, 1, 1))));
+		pojo.sorted.addAll(Arrays.asList("b", "a", "c"));
+		pojo.immutable = List.of("x", "y");
+		pojo.type = Type.SECOND;
+		pojo.transientValue = "transient";
+
+		Pojo copy = DeepCopier.standard().copy(pojo);
+		assertNotSame(pojo, copy);
+		assertSame(copy, copy.self, "Cycles should point to the copy");
+		assertNotSame(pojo.names, copy.names);
+		assertEquals(pojo.names, copy.names);
+		assertNotSame(pojo.shared, copy.shared);
+		assertArrayEquals(pojo.shared, copy.shared);
+		assertSame(copy.shared, copy.sameShared, "Shared references should stay shared");
+		assertEquals(pojo.map, copy.map);
+		assertNotSame(pojo.map.get("key"), copy.map.get("key"));
+		assertSame(pojo.map.get("key").get(0), copy.map.get("key").get(0), "Immutables should be shared");
+		assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<>(copy.sorted));
+		assertEquals(pojo.immutable, copy.immutable);
+		assertSame(Type.SECOND, copy.type);
+		assertEquals("final", copy.finalValue);
+		assertNull(copy.transientValue, "Transient fields of serializable classes are not copied");
+	}
+
+	@Test
+	void copiesRecordsAndNonSerializableClasses() {
+		NotSerializable original = new NotSerializable(new Point(1, 2));
+		NotSerializable copy = CommonUtils.deepCopy(original);
+		assertNotSame(original, copy);
+		assertNotSame(original.point, copy.point);
+		assertEquals(original.point, copy.point);
+		assertEquals(original.transientValue, copy.transientValue);
+	}
+
+	@Test
+	void unsupportedClassesAreRejected() {
+		Runnable lambda = () -> {};
+		assertThrows(DeepCopier.UnsupportedTypeException.class, () -> DeepCopier.standard().copy(lambda));
+		assertThrows(DeepCopier.UnsupportedTypeException.class, () -> DeepCopier.standard().copy(new CustomSerialization()));
+	}
+
+	@Test
+	void copiesViewsAndEnumCollections() {
+		List<List<String>> unmodifiable = Collections.unmodifiableList(new ArrayList<>(List.of(new ArrayList<>(List.of("a")))));
+		List<List<String>> copy = DeepCopier.standard().copy(unmodifiable);
+		assertEquals(unmodifiable, copy);
+		assertSame(unmodifiable.getClass(), copy.getClass());
+		assertNotSame(unmodifiable.get(0), copy.get(0));
+		assertThrows(UnsupportedOperationException.class, () -> copy.add(List.of()));
+
+		SortedMap<String, Integer> synchronizedMap = Collections.synchronizedSortedMap(new TreeMap<String, Integer>(Comparator.reverseOrder()));
+		synchronizedMap.put("a", 1);
+		synchronizedMap.put("b", 2);
+		SortedMap<String, Integer> mapCopy = DeepCopier.standard().copy(synchronizedMap);
+		assertSame(synchronizedMap.getClass(), mapCopy.getClass());
+		assertEquals(List.of("b", "a"), new ArrayList<>(mapCopy.keySet()));
+
+		Set<Type> set = Collections.unmodifiableSet(new LinkedHashSet<>(List.of(Type.SECOND, Type.FIRST)));
+		assertEquals(List.of(Type.SECOND, Type.FIRST), new ArrayList<>(DeepCopier.standard().<Set<Type>>copy(set)));
+
+		EnumMap<Type, List<String>> enumMap = new EnumMap<>(Type.class);
+		enumMap.put(Type.SECOND, new ArrayList<>(List.of("a")));
+		EnumMap<Type, List<String>> enumMapCopy = DeepCopier.standard().copy(enumMap);
+		assertEquals(enumMap, enumMapCopy);
+		assertNotSame(enumMap.get(Type.SECOND), enumMapCopy.get(Type.SECOND));
+
+		EnumSet<DayOfWeek> days = EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
+		EnumSet<DayOfWeek> daysCopy = DeepCopier.standard().copy(days);
+		assertEquals(days, daysCopy);
+		assertNotSame(days, daysCopy);
+	}
+
+	@Test
+	void recastFallsBackToSerialization() throws Exception {
+		CustomSerialization original = new CustomSerialization();
+		original.value = "value";
+		CustomSerialization copy = CommonUtils.recastObject(original);
+		assertNotSame(original, copy);
+		assertEquals("value", copy.value);
+	}
+
+	@Test
+	void recastsBetweenClassLoaders() throws Exception {
+		ClassLoader isolated = new IsolatingClassLoader(RecastFixture.class);
+		RecastFixture fixture = new RecastFixture();
+		fixture.names.add("name");
+		fixture.day = DayOfWeek.MONDAY;
+		fixture.self = fixture;
+		fixture.values = new Object[]{fixture, 1L, new EnumMap<>(Map.of(DayOfWeek.FRIDAY, "friday"))};
+
+		Object recast = DeepCopier.forClassLoader(isolated).copy(fixture);
+		assertNotEquals(RecastFixture.class, recast.getClass());
+		assertEquals(RecastFixture.class.getName(), recast.getClass().getName());
+		assertSame(isolated, recast.getClass().getClassLoader());
+
+		RecastFixture roundTrip = CommonUtils.recastObject(recast, RecastFixture.class.getClassLoader());
+		assertEquals(fixture.names, roundTrip.names);
+		assertSame(DayOfWeek.MONDAY, roundTrip.day);
+		assertSame(roundTrip, roundTrip.self);
+		assertSame(roundTrip, roundTrip.values[0]);
+		assertEquals(1L, roundTrip.values[1]);
+		assertEquals(fixture.values[2], roundTrip.values[2]);
+		assertThrows(DeepCopier.UnsupportedTypeException.class, () -> DeepCopier.forClassLoader(isolated).copy(new EnumMap<>(DayOfWeek.class)));
+	}
+
+	@Test
+	void recastReusesThePlans() throws Exception {
+		ClassLoader isolated = new IsolatingClassLoader(RecastFixture.class);
+		Object first = CommonUtils.recastObject(new RecastFixture(), isolated);
+		CopyPlan plan = DeepCopier.forClassLoader(isolated).planFor(RecastFixture.class);
+		Object second = CommonUtils.recastObject(new RecastFixture(), isolated);
+
+		assertSame(first.getClass(), second.getClass());
+		assertSame(DeepCopier.forClassLoader(isolated), DeepCopier.forClassLoader(isolated));
+		assertSame(plan, DeepCopier.forClassLoader(isolated).planFor(RecastFixture.class));
+		assertSame(DeepCopier.standard(), DeepCopier.forClassLoader(null));
+	}
+
+	enum Type {
+		FIRST,
+		SECOND {
+			@Override
+			public String toString() {
+				return "second";
+			}
+		}
+	}
+
+	record Point(int x, int y) {
+	}
+
+	public static class Pojo implements Serializable {
+		private final String finalValue = "final";
+		private transient String transientValue;
+		private Pojo self;
+		private List<String> names = new ArrayList<>();
+		private int[] shared;
+		private int[] sameShared;
+		private Map<String, List<LocalDate>> map = new HashMap<>();
+		private TreeSet<String> sorted = new TreeSet<>(Comparator.reverseOrder());
+		private List<String> immutable;
+		private Type type;
+	}
+
+	static class NotSerializable {
+		private final Point point;
+		private transient String transientValue = "transient";
+
+		NotSerializable(Point point) {
+			this.point = point;
+		}
+	}
+
+	static class CustomSerialization implements Serializable {
+		private String value;
+
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			out.defaultWriteObject();
+		}
+	}
+
+	/**
+	 * Loads its own copies of the given classes, delegating everything else to the parent.
+	 */
+	private static class IsolatingClassLoader extends ClassLoader {
+		private final List<String> isolated = new ArrayList<>();
+
+		IsolatingClassLoader(Class<?>... classes) {
+			super(DeepCopierTest.class.getClassLoader());
+			for (Class<?> c : classes) {
+				isolated.add(c.getName());
+			}
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!isolated.contains(name))
+				return super.loadClass(name, resolve);
+
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> loaded = findLoadedClass(name);
+				if (loaded != null)
+					return loaded;
+
+				try (InputStream stream = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+					if (stream == null)
+						throw new ClassNotFoundException(name);
+					byte[] bytes = stream.readAllBytes();
+					return defineClass(name, bytes, 0, bytes.length);
+				} catch (IOException e) {
+					throw new ClassNotFoundException(name, e);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.frejdh.util.common.copying;
+
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Top-level so that it can be loaded by an isolated class loader without nest-mates.
+ */
+public class RecastFixture implements Serializable {
+	RecastFixture self;
+	List<String> names = new ArrayList<>();
+	DayOfWeek day;
+	Object[] values;
+}
@@ -0,0 +1,80 @@
+package com.frejdh.util.common.merging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MergeStrategyTest {
+
+	@Test
+	@EnabledForJreRange(min = JRE.JAVA_15)
+	void generatedMergerIsUsedWhenPossible() throws Exception {
+		Merger<Pojo> merger = MergeStrategy.generated().mergerFor(Pojo.class);
+		assertFalse(merger instanceof MergePlan);
+		assertTrue(MergeStrategy.generated().mergerFor(Pojo.class) == merger, "The merger should be cached");
+	}
+
+	@Test
+	void generatedStrategyFallsBackToPlan() throws Exception {
+		assertTrue(MergeStrategy.generated().mergerFor(Runnable.class) instanceof MergePlan);
+	}
+
+	@Test
+	void strategiesHaveTheSameSemantics() throws Exception {
+		for (MergeStrategy strategy : Arrays.asList(MergeStrategy.reflective(), MergeStrategy.generated())) {
+			Merger<Pojo> merger = strategy.mergerFor(Pojo.class);
+
+			Pojo first = new Pojo(null, 1, 1L, new int[]{1}, new ArrayList<>(Arrays.asList("a")));
+			merger.softMerge(first, new Pojo("second", 2, 2L, new int[]{2}, new ArrayList<>(Arrays.asList("b"))));
+			assertEquals("second", first.name);
+			assertEquals(1, first.count);
+			assertEquals(1L, first.total);
+			assertArrayEquals(new int[]{1}, first.values);
+			assertEquals(Arrays.asList("a", "b"), first.tags);
+
+			first = new Pojo("first", 1, 1L, null, null);
+			merger.softMergeInverse(first, new Pojo(null, 2, 2L, new int[]{2}, null));
+			assertEquals("first", first.name);
+			assertEquals(2, first.count);
+			assertEquals(2L, first.total);
+			assertArrayEquals(new int[]{2}, first.values);
+
+			merger.copyFields(first, new Pojo());
+			assertNull(first.name);
+			assertEquals(0, first.count);
+			assertNull(first.values);
+		}
+	}
+
+	private static class Pojo {
+		private static String ignoredStatic = "static";
+		private final String ignoredFinal = "final";
+		private String name;
+		private int count;
+		private long total;
+		private int[] values;
+		private List<String> tags;
+
+		Pojo() {
+		}
+
+		Pojo(String name, int count, long total, int[] values, List<String> tags) {
+			this.name = name;
+			this.count = count;
+			this.total = total;
+			this.values = values;
+			this.tags = tags;
+		}
+	}
+
+}
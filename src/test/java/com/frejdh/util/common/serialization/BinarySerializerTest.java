@@ -0,0 +1,243 @@
+package com.frejdh.util.common.serialization;
+
+import com.frejdh.util.common.toolbox.SerializeUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputFilter;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinarySerializerTest {
+
+	@Test
+	void valuesAreReadBack() throws Exception {
+		Map<String, Object> values = new LinkedHashMap<>();
+		values.put("int", -42);
+		values.put("long", Long.MIN_VALUE);
+		values.put("double", 0.25);
+		values.put("float", 1.5f);
+		values.put("short", (short) -3);
+		values.put("byte", (byte) 7);
+		values.put("char", 'x');
+		values.put("boolean", true);
+		values.put("string", "text åäö");
+		values.put("bigInteger", new BigInteger("-123456789012345678901234567890"));
+		values.put("bigDecimal", new BigDecimal("1.50"));
+		values.put("uuid", UUID.randomUUID());
+		values.put("date", new Date(1234567890L));
+		values.put("class", int[].class);
+		values.put("enum", State.DONE);
+		values.put("localDate", LocalDate.of(2024, 2, 29));
+		values.put("instant", Instant.ofEpochSecond(1_700_000_000L, 5));
+		values.put("immutableList", List.of(1, 2));
+		values.put("immutableSet", Set.of("a"));
+		values.put("immutableMap", Map.of("k", "v"));
+		values.put("arraysAsList", Arrays.asList("a", null));
+		values.put("null", null);
+
+		Map<String, Object> copy = roundTrip(values);
+		assertEquals(LinkedHashMap.class, copy.getClass());
+		assertEquals(values, copy);
+		assertEquals(ArrayList.class, copy.get("arraysAsList").getClass());
+	}
+
+	@Test
+	void primitiveArraysAreReadBack() throws Exception {
+		Object[] arrays = {new int[]{1, -1, Integer.MAX_VALUE}, new long[]{Long.MAX_VALUE}, new double[]{Double.NaN}, new byte[]{1, 2},
+				new boolean[]{true, false}, new char[]{'a'}, new short[]{-1}, new float[]{0.5f}, new String[][]{{"a"}, null}};
+		assertTrue(Arrays.deepEquals(arrays, roundTrip(arrays)));
+	}
+
+	@Test
+	void objectsAreReadFieldByField() throws Exception {
+		Entity entity = new Entity("first", 3);
+		entity.tags.add("tag");
+		entity.scores = new int[]{1, 2};
+		entity.point = new Point(1, 2);
+		entity.child = new Entity("child", 4);
+		entity.child.parent = entity; // A cycle
+		entity.shared = entity.tags;
+		entity.cache = "not written";
+
+		Entity copy = roundTrip(entity);
+		assertEquals("first", copy.name);
+		assertEquals(3, copy.count);
+		assertEquals(10L, copy.id);
+		assertEquals(0.5, copy.ratio);
+		assertEquals(List.of("tag"), copy.tags);
+		assertSame(copy.tags, copy.shared);
+		assertArrayEquals(new int[]{1, 2}, copy.scores);
+		assertEquals(new Point(1, 2), copy.point);
+		assertSame(copy, copy.child.parent);
+		assertNull(copy.cache); // Transient
+		assertEquals(State.NEW, copy.state);
+	}
+
+	@Test
+	void outputIsSmallerThanJavaSerialization() throws Exception {
+		List<Entity> entities = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			entities.add(new Entity("entity", i));
+		}
+		int binary = write(Serializer.binary(), entities).length;
+		int java = write(Serializer.java(), entities).length;
+		assertTrue(binary * 2 < java, binary + " bytes compared to " + java);
+	}
+
+	@Test
+	void unsupportedValuesAreRejected() {
+		assertThrows(NotSerializableException.class, () -> write(Serializer.binary(), new Object()));
+		assertThrows(NotSerializableException.class, () -> write(Serializer.binary(), new TreeSet<>(Comparator.reverseOrder())));
+		assertThrows(NotSerializableException.class, () -> write(Serializer.binary(), new Hooked()));
+		assertThrows(StreamCorruptedException.class, () -> Serializer.binary().read(new ByteArrayInputStream(new byte[]{1, 2, 3}), Object.class));
+	}
+
+	@Test
+	void lengthsBeyondTheStreamAreRejected() throws Exception {
+		byte[] maxLength = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+		byte[] stringClass = {2 * 16, 'j', 'a', 'v', 'a', '.', 'l', 'a', 'n', 'g', '.', 'S', 't', 'r', 'i', 'n', 'g'};
+		for (byte[] value : List.of(
+				concat(new byte[]{BinarySerializer.PRIMITIVE_ARRAY, BinarySerializer.INT}, maxLength),
+				concat(new byte[]{BinarySerializer.PRIMITIVE_ARRAY, BinarySerializer.BYTE}, maxLength),
+				concat(new byte[]{BinarySerializer.OBJECT_ARRAY}, stringClass, maxLength),
+				concat(new byte[]{BinarySerializer.IMMUTABLE_LIST}, maxLength),
+				concat(new byte[]{BinarySerializer.IMMUTABLE_MAP}, maxLength),
+				new byte[]{BinarySerializer.STRING, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07})) { // Not a reference
+			byte[] stream = concat(new byte[]{(byte) BinarySerializer.MAGIC[0], (byte) BinarySerializer.MAGIC[1], BinarySerializer.VERSION}, value, new byte[100]);
+			assertThrows(EOFException.class, () -> Serializer.binary().read(new ByteArrayInputStream(stream), Object.class));
+		}
+
+		Object[] large = new Object[BinaryInput.MAX_PREALLOCATED * 3 + 1]; // Read past the preallocated length
+		Arrays.fill(large, "a");
+		large[large.length - 1] = large;
+		Object[] read = roundTrip(large);
+		assertEquals(large.length, read.length);
+		assertSame(read, read[read.length - 1]);
+		long[] longs = new long[BinaryInput.MAX_PREALLOCATED * 3 + 1];
+		Arrays.fill(longs, -1);
+		assertArrayEquals(longs, roundTrip(longs));
+		byte[] bytes = new byte[BinaryInput.MAX_PREALLOCATED * 3 + 1];
+		Arrays.fill(bytes, (byte) 1);
+		assertArrayEquals(bytes, roundTrip(bytes));
+		List<Integer> list = Collections.nCopies(BinaryInput.MAX_PREALLOCATED + 1, 1);
+		assertEquals(list, roundTrip(List.copyOf(list)));
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.writeBytes(part);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	void filesOfEitherFormatAreRead(@TempDir Path directory) throws Exception {
+		Map<String, Integer> value = new HashMap<>(Map.of("a", 1));
+		SerializeUtils.serializeToFile(directory.toString(), "java.bin", value, Serializer.java());
+		SerializeUtils.serializeToFile(directory.toString(), "binary.bin", value, Serializer.binary());
+
+		assertEquals(value, SerializeUtils.deserializeFromFile(directory.toString(), "java.bin", Map.class));
+		assertEquals(value, SerializeUtils.deserializeFromFile(directory.toString(), "binary.bin", Map.class));
+		assertSame(Serializer.java(), SerializeUtils.getSerializer());
+	}
+
+	@Test
+	void javaFilesAreOnlyReadWhenAccepted(@TempDir Path directory) throws Exception {
+		List<String> value = List.of("a");
+		SerializeUtils.serializeToFile(directory.toString(), "java.bin", value, Serializer.java());
+		try {
+			SerializeUtils.setSerializer(Serializer.binary());
+			assertThrows(IOException.class, () -> SerializeUtils.deserializeFromFile(directory.toString(), "java.bin", List.class));
+
+			SerializeUtils.setAcceptedSerializers(List.of(Serializer.binary(), Serializer.java(ObjectInputFilter.Config.createFilter("java.lang.*;java.util.*;!*"))));
+			assertEquals(value, SerializeUtils.deserializeFromFile(directory.toString(), "java.bin", List.class));
+
+			SerializeUtils.serializeToFile(directory.toString(), "entity.bin", new Base(), Serializer.java());
+			assertThrows(InvalidClassException.class, () -> SerializeUtils.deserializeFromFile(directory.toString(), "entity.bin", Base.class));
+		} finally {
+			SerializeUtils.setSerializer(Serializer.java());
+			SerializeUtils.setAcceptedSerializers(null);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T value) throws IOException, ClassNotFoundException {
+		byte[] bytes = write(Serializer.binary(), value);
+		ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+		assertSame(Serializer.binary(), Serializer.detect(in));
+		return (T) Serializer.binary().read(in, Object.class);
+	}
+
+	private static byte[] write(Serializer serializer, Object value) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		serializer.write(value, out);
+		return out.toByteArray();
+	}
+
+	enum State { NEW, DONE }
+
+	record Point(int x, int y) implements Serializable {
+	}
+
+	static class Base implements Serializable {
+		long id = 10;
+	}
+
+	static class Entity extends Base {
+		String name;
+		int count;
+		double ratio = 0.5;
+		List<String> tags = new ArrayList<>();
+		List<String> shared;
+		int[] scores;
+		Point point;
+		Entity child;
+		Entity parent;
+		State state = State.NEW;
+		transient String cache;
+
+		Entity(String name, int count) {
+			this.name = name;
+			this.count = count;
+		}
+	}
+
+	static class Hooked implements Serializable {
+		private void writeObject(java.io.ObjectOutputStream out) throws IOException {
+			out.defaultWriteObject();
+		}
+	}
+
+}
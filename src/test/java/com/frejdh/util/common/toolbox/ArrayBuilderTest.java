@@ -0,0 +1,92 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ArrayBuilderTest {
+
+	@Test
+	void appendsAndPrependsInOrder() {
+		ArrayBuilder<String> builder = new ArrayBuilder<>(String[]::new, 0);
+		for (int i = 0; i < 100; i++) {
+			builder.append("a" + i).prepend("p" + i);
+		}
+		builder.appendAll(List.of("x", "y")).prependAll("first", "second");
+
+		String[] array = builder.build();
+		assertEquals(String[].class, array.getClass());
+		assertEquals(204, array.length);
+		assertEquals("first", array[0]);
+		assertEquals("second", array[1]);
+		assertEquals("p99", array[2]);
+		assertEquals("p0", array[101]);
+		assertEquals("a0", array[102]);
+		assertEquals("a99", array[201]);
+		assertEquals("y", builder.get(203));
+		assertThrows(IndexOutOfBoundsException.class, () -> builder.get(204));
+	}
+
+	@Test
+	void builtArraysAreIndependent() {
+		ArrayBuilder<Integer> builder = new ArrayBuilder<>(Integer.class, 2).append(1).append(2);
+		Integer[] first = builder.build();
+		builder.append(3);
+		Integer[] second = builder.build();
+		assertArrayEquals(new Integer[]{1, 2}, first);
+		assertArrayEquals(new Integer[]{1, 2, 3}, second);
+
+		builder.clear();
+		assertArrayEquals(new Integer[]{1, 2}, first);
+		assertEquals(0, builder.build().length);
+	}
+
+	@Test
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	void rejectsWrongTypes() {
+		ArrayBuilder raw = new ArrayBuilder<>(String.class).append("a");
+		assertThrows(ArrayStoreException.class, () -> raw.append(1));
+		assertThrows(ArrayStoreException.class, () -> raw.prependAll(new Object[]{"b", 2}));
+		assertThrows(ArrayStoreException.class, () -> raw.appendAll(new Object[]{"c", 3}));
+		assertArrayEquals(new String[]{"a"}, (Object[]) raw.build());
+		assertThrows(IllegalArgumentException.class, () -> new ArrayBuilder<>(int.class));
+	}
+
+	@Test
+	void primitiveBuilders() {
+		IntArrayBuilder ints = new IntArrayBuilder(1);
+		for (int i = 0; i < 50; i++) {
+			ints.append(i);
+		}
+		ints.prependAll(-2, -1);
+		int[] intArray = ints.build();
+		assertEquals(52, intArray.length);
+		assertEquals(-2, intArray[0]);
+		assertEquals(49, intArray[51]);
+
+		assertArrayEquals(new long[]{0, 1, 2}, new LongArrayBuilder().append(1).prepend(0).appendAll(2).build());
+		assertArrayEquals(new double[]{0.5, 1.5}, new DoubleArrayBuilder().appendAll(0.5, 1.5).build());
+	}
+
+	@Test
+	void commonUtilsArrayMethods() {
+		String[] array = {"b", "c"};
+		String[] prepended = CommonUtils.prependToArray(array, "a");
+		String[] appended = CommonUtils.appendToArray(array, "d");
+		assertEquals(Arrays.asList("a", "b", "c"), Arrays.asList(prepended));
+		assertEquals(Arrays.asList("b", "c", "d"), Arrays.asList(appended));
+		assertNotSame(array, appended);
+
+		String[] fromNull = CommonUtils.appendToArray(null, "a");
+		assertArrayEquals(new String[]{"a"}, fromNull);
+		assertSame(Object[].class, CommonUtils.prependToArray(null, null).getClass());
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ArrayFormattingTest {
+
+	@Test
+	void arrayToStringMatchesArraysToString() {
+		String[] array = {"a", null, "c"};
+		assertEquals(Arrays.toString(array), CommonUtils.arrayToString(array));
+		assertEquals("[]", CommonUtils.arrayToString(new String[0]));
+		assertEquals("null", CommonUtils.arrayToString((String[]) null));
+	}
+
+	@Test
+	void limitsElements() {
+		Integer[] array = {1, 2, 3, 4};
+		assertEquals("[1, 2, ... 2 more]", CommonUtils.arrayToString(array, 2));
+		assertEquals("[... 4 more]", CommonUtils.arrayToString(array, 0));
+		assertEquals("[1, 2, 3, 4]", CommonUtils.arrayToString(array, 4));
+		assertEquals("[1, ... 3 more]", CommonUtils.collectionToString(Arrays.asList(array), 1));
+		assertThrows(IllegalArgumentException.class, () -> CommonUtils.arrayToString(array, -1));
+	}
+
+	@Test
+	void primitiveArraysMatchArraysToString() {
+		int[] ints = IntStream.range(-5000, 5000).toArray();
+		long[] longs = {Long.MIN_VALUE, 0, Long.MAX_VALUE};
+		double[] doubles = {0.5, -1e300, Double.NaN};
+		assertEquals(Arrays.toString(ints), CommonUtils.arrayToString(ints, Integer.MAX_VALUE));
+		assertEquals(Arrays.toString(longs), CommonUtils.arrayToString(longs, 3));
+		assertEquals(Arrays.toString(doubles), CommonUtils.arrayToString(doubles, 3));
+		assertEquals("[0.5, ... 2 more]", CommonUtils.arrayToString(doubles, 1));
+	}
+
+	@Test
+	void appendsToOutputs() throws IOException {
+		int[] ints = IntStream.range(0, 20_000).toArray();
+		StringWriter writer = new StringWriter();
+		assertSame(writer, CommonUtils.appendArray(writer, ints, Integer.MAX_VALUE));
+		assertEquals(Arrays.toString(ints), writer.toString());
+
+		StringBuilder builder = new StringBuilder("values: ");
+		CommonUtils.appendArray(builder, new long[]{1, 2}, 5);
+		CommonUtils.appendArray(builder.append(' '), new Object[]{"x"}, 5);
+		assertEquals("values: [1, 2] [x]", builder.toString());
+
+		List<Object> self = new ArrayList<>();
+		self.add(self);
+		assertEquals(self.toString(), CommonUtils.appendCollection(new StringWriter(), self, 10).toString());
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClassMetadataTest {
+
+	@Test
+	void fieldsAreOrderedFromTheTopmostSuperclass() {
+		ClassMetadata metadata = ClassMetadata.of(Child.class);
+		assertEquals(List.of("id", "name", "CONSTANT", "name", "count"), names(metadata.getFields()));
+		assertEquals(List.of("CONSTANT", "name", "count"), names(metadata.getDeclaredFields()));
+		assertEquals(List.of("id", "name", "name", "count"), names(metadata.getInstanceFields()));
+
+		// Superclass fields are shared, with the same indexes
+		for (ClassMetadata.FieldInfo field : ClassMetadata.of(Parent.class).getFields()) {
+			assertSame(field, metadata.getFields().get(field.getIndex()));
+		}
+	}
+
+	@Test
+	void fieldsAreFoundByName() {
+		ClassMetadata metadata = ClassMetadata.of(Child.class);
+		assertEquals(Child.class, metadata.getField("name").getDeclaringClass()); // Hides the field of the parent
+		assertEquals(Parent.class, metadata.getField("id").getDeclaringClass());
+		assertNull(metadata.getDeclaredField("id"));
+		assertEquals(-1, metadata.indexOf("missing"));
+
+		assertEquals("count", metadata.getFieldIgnoreCase("COUNT").getName());
+		assertEquals("CONSTANT", metadata.getFieldIgnoreCase("constant").getName());
+		assertNull(metadata.getFieldIgnoreCase("missing"));
+	}
+
+	@Test
+	void fieldFlagsAndAccessors() {
+		ClassMetadata.FieldInfo constant = ClassMetadata.of(Child.class).getField("CONSTANT");
+		assertTrue(constant.isStatic());
+		assertTrue(constant.isFinal());
+		assertFalse(ClassMetadata.of(Child.class).getField("count").isFinal());
+		assertTrue(ClassMetadata.of(Parent.class).getField("id").isTransient());
+
+		ClassMetadata.FieldInfo count = ClassMetadata.of(Child.class).getField("count");
+		assertSame(count.getAccessor(), count.getAccessor());
+		@SuppressWarnings("unchecked")
+		FieldAccessor<Child, Integer> accessor = (FieldAccessor<Child, Integer>) count.getAccessor();
+		assertEquals(3, accessor.intGetter().applyAsInt(new Child()));
+	}
+
+	@Test
+	void fieldsAndMethodsAreCopied() {
+		ClassMetadata.FieldInfo count = ClassMetadata.of(Child.class).getField("count");
+		assertNotSame(count.getField(), count.getField()); // Making one accessible doesn't affect the others
+		assertNotSame(count.getAccessor().getField(), count.getAccessor().getField());
+		assertEquals(count.getField(), count.getAccessor().getField());
+
+		ClassMetadata metadata = ClassMetadata.of(Child.class);
+		assertSame(metadata.getDeclaredMethods(), metadata.getDeclaredMethods()); // Read once
+		ClassMetadata.MethodInfo method = metadata.getDeclaredMethods().get(0);
+		assertNotSame(method.getMethod(), method.getMethod());
+		for (Class<?> type : List.of(Child.class, Covariant.class)) { // Covariant has a bridge method with the same parameters
+			List<Method> methods = new ArrayList<>();
+			for (ClassMetadata.MethodInfo info : ClassMetadata.of(type).getDeclaredMethods()) {
+				methods.add(info.getMethod());
+			}
+			assertEquals(List.of(type.getDeclaredMethods()), methods);
+		}
+	}
+
+	@Test
+	void lookupsAreCounted() {
+		ClassMetadata.of(Child.class);
+		long hits = ClassMetadata.getHitCount();
+		long misses = ClassMetadata.getMissCount();
+		assertSame(ClassMetadata.of(Child.class), ClassMetadata.of(Child.class));
+		assertTrue(ClassMetadata.getHitCount() >= hits + 2);
+
+		ClassMetadata.of(Unused.class);
+		assertTrue(ClassMetadata.getMissCount() >= misses + 1);
+	}
+
+	private static List<String> names(List<ClassMetadata.FieldInfo> fields) {
+		List<String> names = new ArrayList<>();
+		for (ClassMetadata.FieldInfo field : fields) {
+			names.add(field.getName());
+		}
+		return names;
+	}
+
+	public static class Parent {
+		private transient int id;
+		private String name;
+	}
+
+	public static class Child extends Parent {
+		public static final String CONSTANT = "constant";
+		private String name;
+		private int count = 3;
+
+		private int count() {
+			return count;
+		}
+	}
+
+	public static class Unused {
+	}
+
+	public static class Covariant implements Supplier<String> {
+		@Override
+		public String get() {
+			return "covariant";
+		}
+	}
+
+}
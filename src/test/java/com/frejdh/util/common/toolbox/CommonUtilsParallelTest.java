@@ -0,0 +1,164 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that the parallel variants produce exactly the same output as the sequential ones.
+ */
+public class CommonUtilsParallelTest {
+
+	private static final int SIZE = 20_000;
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	private final ParallelOptions options = ParallelOptions.defaults().withPool(pool).withThreshold(0);
+
+	@AfterEach
+	void shutdownPool() {
+		pool.shutdown();
+	}
+
+	@Test
+	void removeListDuplicatesByFieldNameMatchesSequential() throws Exception {
+		for (CommonUtils.DuplicateRetention retention : CommonUtils.DuplicateRetention.values()) {
+			List<Item> sequential = CommonUtils.removeListDuplicatesByFieldName(items(1), "key", retention);
+			List<Item> parallel = CommonUtils.parallelRemoveListDuplicatesByFieldName(items(1), "key", retention, options);
+			assertEquals(describe(sequential), describe(parallel), "Retention " + retention);
+		}
+	}
+
+	@Test
+	void removeListDuplicatesMatchesSequentialForLinkedLists() {
+		List<Item> sequential = CommonUtils.removeListDuplicates(new LinkedList<>(items(2)), item -> item.key, CommonUtils.DuplicateRetention.KEEP_LAST);
+		List<Item> parallel = CommonUtils.parallelRemoveListDuplicates(new LinkedList<>(items(2)), item -> item.key, CommonUtils.DuplicateRetention.KEEP_LAST, options);
+		assertEquals(describe(sequential), describe(parallel));
+	}
+
+	@Test
+	void softMergeDuplicatesMatchesSequential() throws Exception {
+		List<Item> sequential = CommonUtils.softMergeDuplicates(items(3));
+		List<Item> parallel = CommonUtils.parallelSoftMergeDuplicates(items(3), options);
+		assertEquals(describe(sequential), describe(parallel));
+	}
+
+	@Test
+	void softMergeDuplicatesProcessesNestedListsInTheSequentialOrder() throws Exception {
+		assertEquals(describeNodes(CommonUtils.softMergeDuplicates(orderedNodes())),
+				describeNodes(CommonUtils.parallelSoftMergeDuplicates(orderedNodes(), options)));
+	}
+
+	@Test
+	void softMergeDuplicatesHandlesListsSharedByGroups() throws Exception {
+		assertEquals(describeNodes(CommonUtils.softMergeDuplicates(sharedNodes())),
+				describeNodes(CommonUtils.parallelSoftMergeDuplicates(sharedNodes(), options)));
+	}
+
+	/**
+	 * The b group is merged first, appending a duplicate of y to the list of a1, which is only merged if that list is processed afterwards.
+	 */
+	private static List<Node> orderedNodes() {
+		Node a1 = new Node("a", new Node("y", null));
+		Node b1 = new Node("b", new Node("x", null));
+		b1.children.get(0).children = a1.children;
+		return new ArrayList<>(List.of(a1, b1, new Node("b", new Node("x", new Node("y", null))), new Node("a", new Node("y", null))));
+	}
+
+	/**
+	 * Every group appends to the same list.
+	 */
+	private static List<Node> sharedNodes() {
+		List<Node> nodes = new ArrayList<>();
+		List<Node> shared = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Node first = new Node("p" + i, null);
+			first.children = shared;
+			nodes.add(first);
+		}
+		for (int i = 0; i < 100; i++) {
+			nodes.add(new Node("p" + i, new Node("n" + i, null)));
+		}
+		return nodes;
+	}
+
+	/**
+	 * Deterministic items with plenty of duplicates, some null keys and some null values.
+	 */
+	private static List<Item> items(long seed) {
+		Random random = new Random(seed);
+		List<Item> items = new ArrayList<>(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			Item item = new Item();
+			item.key = random.nextInt(10) == 0 ? null : random.nextInt(SIZE / 4);
+			item.name = random.nextBoolean() ? null : "name-" + i;
+			item.values = random.nextInt(4) == 0 ? null : new ArrayList<>();
+			if (item.values != null)
+				item.values.add(i);
+			item.index = i;
+			items.add(item);
+		}
+		return items;
+	}
+
+	private static String describeNodes(List<Node> nodes) {
+		StringBuilder retval = new StringBuilder("[");
+		for (Node node : nodes) {
+			retval.append(node.key).append(node.children != null ? describeNodes(node.children) : "").append(',');
+		}
+		return retval.append(']').toString();
+	}
+
+	private static List<String> describe(List<Item> items) {
+		List<String> retval = new ArrayList<>();
+		for (Item item : items) {
+			retval.add(item.index + ":" + item.key + ":" + item.name + ":" + item.values);
+		}
+		return retval;
+	}
+
+	public static class Item {
+		private Integer key;
+		private String name;
+		private List<Integer> values;
+		private int index;
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Item && key != null && key.equals(((Item) o).key);
+		}
+
+		@Override
+		public int hashCode() {
+			return key != null ? key : -index - 1;
+		}
+	}
+
+	public static class Node {
+		private String key;
+		private List<Node> children;
+
+		Node(String key, Node child) {
+			this.key = key;
+			this.children = new ArrayList<>();
+			if (child != null)
+				children.add(child);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Node && key.equals(((Node) o).key);
+		}
+
+		@Override
+		public int hashCode() {
+			return key.hashCode();
+		}
+	}
+
+}
@@ -0,0 +1,253 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InvalidClassException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommonUtilsTest {
+
+	@Test
+	void softMergeOnlyReplacesNullValues() throws Exception {
+		MergePojo first = new MergePojo("first", null, 1, new ArrayList<>(Arrays.asList("a")));
+		MergePojo second = new MergePojo("second", "description", 2, new ArrayList<>(Arrays.asList("b")));
+
+		MergePojo retval = CommonUtils.softMerge(first, second);
+		assertSame(first, retval);
+		assertEquals("first", retval.name);
+		assertEquals("description", retval.description);
+		assertEquals(1, retval.count);
+		assertEquals(Arrays.asList("a", "b"), retval.tags);
+		assertEquals("constant", retval.constant);
+	}
+
+	@Test
+	void softMergeInverseReplacesWithNonNullValues() throws Exception {
+		MergePojo first = new MergePojo("first", "description", 1, null);
+		MergePojo second = new MergePojo("second", null, 2, null);
+
+		MergePojo retval = CommonUtils.softMergeInverse(first, second);
+		assertSame(first, retval);
+		assertEquals("second", retval.name);
+		assertEquals("description", retval.description);
+		assertEquals(2, retval.count);
+		assertNull(retval.tags);
+	}
+
+	@Test
+	void overrideMergeCopiesAllValues() throws Exception {
+		MergePojo first = new MergePojo("first", "description", 1, null);
+		MergePojo second = new MergePojo("second", null, 2, new ArrayList<>());
+
+		MergePojo retval = CommonUtils.overrideMerge(first, second);
+		assertNotSame(first, retval);
+		assertEquals("second", retval.name);
+		assertNull(retval.description);
+		assertEquals(2, retval.count);
+		assertSame(second.tags, retval.tags);
+	}
+
+	@Test
+	void mergeRequiresSameClass() {
+		assertThrows(InvalidClassException.class, () -> CommonUtils.softMerge((Object) "string", (Object) 1));
+	}
+
+	@Test
+	void removeListDuplicatesByFieldNameKeepsLastByDefault() throws Exception {
+		MergePojo a1 = new MergePojo("a", "1", 1, null);
+		MergePojo b = new MergePojo("b", "2", 2, null);
+		MergePojo a2 = new MergePojo("a", "3", 3, null);
+		MergePojo a3 = new MergePojo("a", "4", 4, null);
+		MergePojo nullName1 = new MergePojo(null, "5", 5, null);
+		MergePojo nullName2 = new MergePojo(null, "6", 6, null);
+		List<MergePojo> list = new ArrayList<>(Arrays.asList(a1, b, a2, nullName1, a3, nullName2));
+
+		List<MergePojo> retval = CommonUtils.removeListDuplicatesByFieldName(list, "NAME");
+		assertSame(list, retval);
+		assertEquals(Arrays.asList(b, nullName1, a3, nullName2), retval);
+	}
+
+	@Test
+	void removeListDuplicatesCanKeepFirst() throws Exception {
+		MergePojo a1 = new MergePojo("a", "1", 1, null);
+		MergePojo b = new MergePojo("b", "2", 2, null);
+		MergePojo a2 = new MergePojo("a", "3", 3, null);
+		List<MergePojo> list = new ArrayList<>(Arrays.asList(a1, b, a2));
+
+		assertEquals(Arrays.asList(a1, b), CommonUtils.removeListDuplicatesByFieldName(new ArrayList<>(list), "name", CommonUtils.DuplicateRetention.KEEP_FIRST));
+		assertEquals(Arrays.asList(a1, b), CommonUtils.removeListDuplicates(new ArrayList<>(list), pojo -> pojo.name, CommonUtils.DuplicateRetention.KEEP_FIRST));
+		assertEquals(Arrays.asList(b, a2), CommonUtils.removeListDuplicates(new ArrayList<>(list), pojo -> pojo.name, CommonUtils.DuplicateRetention.KEEP_LAST));
+		assertNull(CommonUtils.removeListDuplicatesByFieldName(new ArrayList<MergePojo>(), "name"));
+	}
+
+	@Test
+	void softMergeDuplicatesMergesIntoFirstOccurrence() throws Exception {
+		Node first = new Node(1, null, new ArrayList<>(Arrays.asList(new Node(10, "x", null))));
+		Node other = new Node(2, "other", null);
+		Node duplicate = new Node(1, "name", new ArrayList<>(Arrays.asList(new Node(10, null, null), new Node(11, "y", null))));
+		List<Node> list = new ArrayList<>(Arrays.asList(first, other, duplicate));
+
+		List<Node> retval = CommonUtils.softMergeDuplicates(list);
+		assertSame(list, retval);
+		assertEquals(2, retval.size());
+		assertSame(first, retval.get(0));
+		assertSame(other, retval.get(1));
+		assertEquals("name", first.name);
+		assertEquals(2, first.children.size(), "Nested duplicates should be merged as well");
+		assertEquals("x", first.children.get(0).name);
+		assertEquals("y", first.children.get(1).name);
+	}
+
+	@Test
+	void softMergeDuplicatesHandlesCycles() throws Exception {
+		List<Node> list = new ArrayList<>();
+		list.add(new Node(1, null, list));
+		list.add(new Node(1, "name", list));
+
+		CommonUtils.softMergeDuplicates(list);
+		assertEquals(1, list.size());
+		assertEquals("name", list.get(0).name);
+	}
+
+	@Test
+	void softMergeDuplicatesOnlyProcessesAppendedLists() throws Exception {
+		Node kept = new Node(1, null, new ArrayList<>(Arrays.asList(new Node(10, "x", null), new Node(10, "y", null))));
+		Node copied = new Node(2, null, null);
+		List<Node> children = new ArrayList<>(Arrays.asList(new Node(20, "x", null), new Node(20, "y", null)));
+		CommonUtils.softMergeDuplicates(new ArrayList<>(Arrays.asList(kept, copied, new Node(1, "name", null), new Node(2, "name", children))));
+
+		assertEquals(2, kept.children.size(), "Nothing was appended to the list");
+		assertSame(children, copied.children);
+		assertEquals(2, copied.children.size(), "The list was copied rather than appended to");
+	}
+
+	@Test
+	void softMergeDuplicatesConcatenatesFinalLists() throws Exception {
+		FinalNode first = new FinalNode(1, new Node(10, "x", null));
+		FinalNode duplicate = new FinalNode(1, new Node(10, "y", null));
+		duplicate.children.add(new Node(11, "z", null));
+		List<FinalNode> list = CommonUtils.softMergeDuplicates(new ArrayList<>(Arrays.asList(first, duplicate)));
+
+		assertEquals(1, list.size());
+		assertEquals(2, first.children.size(), "The duplicate's elements should be appended, and their duplicates merged");
+		assertEquals("x", first.children.get(0).name);
+		assertEquals("z", first.children.get(1).name);
+	}
+
+	@Test
+	void softMergeDuplicatesProcessesEachListOnce() throws Exception {
+		// Merging the q nodes appends p3 to the already processed list of p nodes, and merging p3 would append q3 to the q nodes again
+		List<Node> pNodes = new ArrayList<>();
+		List<Node> qNodes = new ArrayList<>();
+		List<Node> p3Nodes = new ArrayList<>();
+		Node p1 = new Node(2, "p1", qNodes);
+		Node p3 = new Node(2, "p3", new ArrayList<>(Arrays.asList(new Node(3, "q3", p3Nodes))));
+		p3Nodes.add(p3);
+		pNodes.add(p1);
+		qNodes.add(new Node(3, "q1", pNodes));
+		List<Node> list = new ArrayList<>(Arrays.asList(
+				new Node(1, "a1", pNodes),
+				new Node(1, "a2", new ArrayList<>(Arrays.asList(new Node(2, "p2", new ArrayList<>(Arrays.asList(new Node(3, "q2", p3Nodes)))))))));
+
+		CommonUtils.softMergeDuplicates(list);
+		assertEquals(1, list.size());
+		assertEquals(Arrays.asList(p1, p3), pNodes); // Not processed again
+		assertSame(p3, pNodes.get(1));
+		assertEquals(1, qNodes.size());
+		assertEquals("q1", qNodes.get(0).name);
+	}
+
+	@Test
+	void methodNamesAreReadFromTheStack() {
+		assertEquals("methodNamesAreReadFromTheStack", CommonUtils.getMethodName(false));
+		assertEquals("methodNamesAreReadFromTheStack()", CommonUtils.getMethodName(true));
+		assertEquals("methodNamesAreReadFromTheStack", callingMethodName());
+	}
+
+	@Test
+	void framesRetainClassAndLine() {
+		StackWalker.StackFrame frame = CommonUtils.getCurrentFrame();
+		assertEquals(CommonUtilsTest.class, frame.getDeclaringClass());
+		assertEquals("framesRetainClassAndLine", frame.getMethodName());
+		assertTrue(frame.getLineNumber() > 0);
+		assertEquals("framesRetainClassAndLine", callingFrame().getMethodName());
+	}
+
+	private static String callingMethodName() {
+		return CommonUtils.getCallingMethodName(false);
+	}
+
+	private static StackWalker.StackFrame callingFrame() {
+		return CommonUtils.getCallingFrame();
+	}
+
+	public static class FinalNode {
+		private final int id;
+		private final List<Node> children = new ArrayList<>();
+
+		public FinalNode(int id, Node child) {
+			this.id = id;
+			children.add(child);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof FinalNode && ((FinalNode) o).id == id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+	}
+
+	public static class Node {
+		private int id;
+		private String name;
+		private List<Node> children;
+
+		public Node(int id, String name, List<Node> children) {
+			this.id = id;
+			this.name = name;
+			this.children = children;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Node && ((Node) o).id == id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+	}
+
+	public static class MergePojo {
+		private final String constant = "constant";
+		private String name;
+		private String description;
+		private int count;
+		private List<String> tags;
+
+		public MergePojo() {
+		}
+
+		public MergePojo(String name, String description, int count, List<String> tags) {
+			this.name = name;
+			this.description = description;
+			this.count = count;
+			this.tags = tags;
+		}
+	}
+
+}
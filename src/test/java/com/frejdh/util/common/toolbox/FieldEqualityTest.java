@@ -0,0 +1,142 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FieldEqualityTest {
+
+	@Test
+	void fieldsAreComparedByValue() {
+		FieldEquality<Sample> equality = FieldEquality.of(Sample.class);
+		Sample first = new Sample("name", 1);
+		Sample second = new Sample("name", 1);
+		assertTrue(equality.fieldsEqual(first, second));
+		assertEquals(equality.fieldsHashCode(first), equality.fieldsHashCode(second));
+
+		second.ratio = Double.NaN;
+		first.ratio = Double.NaN;
+		assertTrue(equality.fieldsEqual(first, second)); // Like Double.compare()
+		second.ratio = -0.0;
+		first.ratio = 0.0;
+		assertFalse(equality.fieldsEqual(first, second));
+
+		assertTrue(equality.fieldsEqual(null, null));
+		assertFalse(equality.fieldsEqual(first, null));
+		assertEquals(0, equality.fieldsHashCode(null));
+	}
+
+	@Test
+	void arraysAreComparedByContent() {
+		FieldEquality<Sample> equality = FieldEquality.of(Sample.class);
+		Sample first = new Sample(null, 1);
+		Sample second = new Sample(null, 1);
+		first.scores = new int[]{1, 2};
+		second.scores = new int[]{1, 2};
+		first.matrix = new String[][]{{"a"}, {"b"}};
+		second.matrix = new String[][]{{"a"}, {"b"}};
+		assertTrue(equality.fieldsEqual(first, second));
+		assertEquals(equality.fieldsHashCode(first), equality.fieldsHashCode(second));
+
+		second.matrix[1][0] = "c";
+		assertFalse(equality.fieldsEqual(first, second));
+	}
+
+	@Test
+	void cheapestFieldsAreComparedFirst() {
+		List<String> names = new ArrayList<>();
+		for (Field field : FieldEquality.cheapestFirst(Sample.class).getFields()) {
+			names.add(field.getName());
+		}
+		assertEquals(List.of("count", "ratio", "flag", "state", "name", "other", "entry", "tags", "scores", "matrix"), names);
+		assertEquals("name", FieldEquality.of(Sample.class).getFields().get(0).getName());
+
+		Sample sample = new Sample("name", 2);
+		sample.tags = List.of("a");
+		assertEquals(FieldEquality.of(Sample.class).fieldsHashCode(sample), FieldEquality.cheapestFirst(Sample.class).fieldsHashCode(sample));
+	}
+
+	@Test
+	void otherClassesAreNeverEqual() {
+		FieldEquality<Object> equality = FieldEquality.of(Object.class);
+		assertTrue(equality.getFields().isEmpty());
+		assertFalse(equality.fieldsEqual(new Object(), "text"));
+		assertTrue(equality.fieldsEqual(new Object(), new Object()));
+	}
+
+	@Test
+	void keysUseEqualsWhenOverridden() {
+		assertSame("text", FieldEquality.keyOf("text"));
+		assertNull(FieldEquality.keyOf(null));
+		assertEquals(FieldEquality.keyOf(new Sample("name", 1)), FieldEquality.keyOf(new Sample("name", 1)));
+		assertFalse(FieldEquality.keyOf(new Sample("name", 1)).equals(FieldEquality.keyOf(new Sample("name", 2))));
+		assertEquals(FieldEquality.keyOf(new Sample("name", 1)), FieldEquality.of(Sample.class).keyExtractor().apply(new Sample("name", 1)));
+	}
+
+	@Test
+	void duplicatesAreRemovedByFields() throws Exception {
+		List<Sample> list = new ArrayList<>(List.of(new Sample("a", 1), new Sample("b", 1), new Sample("a", 1), new Sample("a", 2)));
+		Sample first = list.get(0);
+		CommonUtils.removeListDuplicatesByFields(list, CommonUtils.DuplicateRetention.KEEP_FIRST);
+		assertEquals(3, list.size());
+		assertSame(first, list.get(0));
+
+		List<Named> named = new ArrayList<>(List.of(new Named("a"), new Named("A"), new Named("b")));
+		CommonUtils.removeListDuplicatesByFields(named, CommonUtils.DuplicateRetention.KEEP_FIRST);
+		assertEquals(2, named.size()); // Through the overridden equals()
+
+		assertTrue(CommonUtils.allFieldsEquals(new Sample(null, 1), new Sample(null, 1)));
+		assertEquals(CommonUtils.fieldsHashCode(new Sample(null, 1)), CommonUtils.fieldsHashCode(new Sample(null, 1)));
+	}
+
+	enum State { ON, OFF }
+
+	static class Sample {
+		static int instances;
+		String name;
+		List<String> tags;
+		int[] scores;
+		int count;
+		Object other;
+		String[][] matrix;
+		double ratio;
+		Map.Entry<String, String> entry;
+		boolean flag;
+		State state = State.ON;
+
+		Sample(String name, int count) {
+			this.name = name;
+			this.count = count;
+			instances++;
+		}
+	}
+
+	static class Named {
+		final String name;
+
+		Named(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Named && ((Named) other).name.equalsIgnoreCase(name);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(name.toLowerCase());
+		}
+	}
+
+}
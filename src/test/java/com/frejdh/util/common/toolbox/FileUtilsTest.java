@@ -0,0 +1,219 @@
+package com.frejdh.util.common.toolbox;
+
+import com.frejdh.util.common.exceptions.SizeLimitExceededException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileUtilsTest {
+
+	@Test
+	void filesAreReadWhole(@TempDir Path directory) throws Exception {
+		for (int size : new int[]{0, 10, 5000, (int) FileUtils.MAPPING_THRESHOLD + 3}) {
+			String content = textOfLength(size);
+			Path file = directory.resolve("file" + size + ".txt");
+			Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+			assertEquals(content, FileUtils.getFileAsString(file.toString()));
+			assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), FileUtils.getFileAsBytes(file.toString()));
+
+			ByteBuffer buffer = FileUtils.getFileAsByteBuffer(file.toString());
+			assertTrue(buffer.isReadOnly());
+			assertEquals(Files.size(file), buffer.remaining());
+			assertEquals(content, StandardCharsets.UTF_8.decode(buffer).toString());
+		}
+	}
+
+	@Test
+	void filesWithoutSizeAreRead() {
+		Path file = Paths.get("/proc/self/status"); // Reported as empty by the file system
+		if (Files.isReadable(file)) {
+			String content = FileUtils.getFileAsString(file.toString());
+			assertTrue(content.contains("Name:"));
+		}
+	}
+
+	@Test
+	void missingFilesAreNull(@TempDir Path directory) {
+		String missing = directory.resolve("missing.txt").toString();
+		assertFalse(Files.exists(Paths.get(missing)));
+		assertNull(FileUtils.getFileAsString(missing));
+		assertNull(FileUtils.getFileAsBytes(missing));
+		assertNull(FileUtils.getFileAsByteBuffer(missing));
+	}
+
+	@Test
+	void streamsAreDecodedAcrossReads() throws Exception {
+		String content = textOfLength(100_000) + "\uD83D\uDE00"; // Ends with a surrogate pair
+		for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, StandardCharsets.ISO_8859_1}) {
+			String expected = new String(content.getBytes(charset), charset);
+			assertEquals(expected, FileUtils.readString(new TrickleInputStream(expected.getBytes(charset)), charset));
+			assertEquals(expected, FileUtils.readString(new ByteArrayInputStream(expected.getBytes(charset)), charset, 10, Long.MAX_VALUE));
+		}
+		assertEquals(content, FileUtils.inputStreamToString(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+		assertEquals("", FileUtils.readString(new ByteArrayInputStream(new byte[0]), StandardCharsets.UTF_8, 1 << 20, 0));
+		assertEquals("a\uFFFDb", FileUtils.readString(new ByteArrayInputStream(new byte[]{'a', (byte) 0xFF, 'b'}), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void streamErrorsAreReported() {
+		byte[] payload = new byte[50_000];
+		SizeLimitExceededException e = assertThrows(SizeLimitExceededException.class,
+				() -> FileUtils.readString(new ByteArrayInputStream(payload), StandardCharsets.UTF_8, payload.length, 40_000));
+		assertEquals(40_000, e.getLimit());
+
+		InputStream failing = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("Connection reset");
+			}
+		};
+		assertEquals("Connection reset", assertThrows(IOException.class, () -> FileUtils.readString(failing, StandardCharsets.UTF_8)).getMessage());
+		assertNull(FileUtils.inputStreamToString(failing));
+		assertNull(FileUtils.inputStreamToString(null));
+	}
+
+	@Test
+	void linesAreStreamed(@TempDir Path directory) throws Exception {
+		String longLine = textOfLength(600_000).replace('\n', ' '); // Longer than the read buffer
+		String content = "first\r\n\nthird \u20AC\n" + longLine + "\nlast";
+		Path file = directory.resolve("lines.txt");
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+		try (Stream<String> lines = FileUtils.lines(file.toString())) {
+			assertEquals(Arrays.asList("first", "", "third \u20AC", longLine, "last"), lines.collect(Collectors.toList()));
+		}
+		Files.write(file, "a;b;;c;".getBytes(StandardCharsets.ISO_8859_1));
+		try (Stream<String> records = FileUtils.records(file.toString(), ';', StandardCharsets.ISO_8859_1, false)) {
+			assertEquals(Arrays.asList("a", "b", "", "c"), records.collect(Collectors.toList()));
+		}
+
+		Path proc = Paths.get("/proc/self/status"); // Reported as empty by the file system
+		if (Files.isReadable(proc)) {
+			try (Stream<String> lines = FileUtils.lines(proc.toString())) {
+				assertTrue(lines.anyMatch(line -> line.startsWith("Name:")));
+			}
+		}
+	}
+
+	@Test
+	void recordsAreSplitForParallelStreams(@TempDir Path directory) throws Exception {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; builder.length() < 5 * RecordSpliterator.MIN_SPLIT_SIZE; i++) {
+			builder.append(i).append(",\u00F6").append(i % 13).append('\n');
+		}
+		Path file = directory.resolve("records.csv");
+		Files.write(file, builder.toString().getBytes(StandardCharsets.UTF_8));
+		List<String> expected = Arrays.asList(builder.toString().split("\n"));
+
+		try (Stream<String> records = FileUtils.records(file.toString(), '\n', StandardCharsets.UTF_8, true)) {
+			assertTrue(records.isParallel());
+			assertEquals(expected, records.collect(Collectors.toList()));
+		}
+		try (Stream<CharSequence> views = FileUtils.recordViews(file.toString(), '\n', StandardCharsets.UTF_8, true)) {
+			assertEquals(expected.stream().mapToInt(String::length).sum(), views.mapToInt(CharSequence::length).sum());
+		}
+		try (Stream<CharSequence> views = FileUtils.recordViews(file.toString(), '\n', StandardCharsets.UTF_8, false)) {
+			assertEquals(expected, views.map(CharSequence::toString).collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	void delimitersMustBeSingleBytes(@TempDir Path directory) throws Exception {
+		Path file = Files.createFile(directory.resolve("empty.txt"));
+		assertThrows(IllegalArgumentException.class, () -> FileUtils.records(file.toString(), '\u20AC', StandardCharsets.UTF_8, false));
+		assertThrows(IllegalArgumentException.class, () -> FileUtils.records(file.toString(), '\n', StandardCharsets.UTF_16, false));
+		try (Stream<String> lines = FileUtils.lines(file.toString())) {
+			assertEquals(0, lines.count());
+		}
+		assertThrows(IOException.class, () -> FileUtils.lines(directory.resolve("missing.txt").toString()));
+	}
+
+	@Test
+	void filesAreLoadedConcurrently(@TempDir Path directory) throws Exception {
+		List<Path> paths = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Path file = directory.resolve("config" + i + ".properties");
+			Files.write(file, ("index=" + i).getBytes(StandardCharsets.UTF_8));
+			paths.add(file);
+		}
+		paths.add(directory.resolve("missing.properties"));
+
+		Map<Path, String> contents = FileUtils.getFilesAsStringsAsync(paths, 8).get(10, TimeUnit.SECONDS);
+		assertEquals(paths, new ArrayList<>(contents.keySet()));
+		assertEquals("index=57", contents.get(paths.get(57)));
+		assertNull(contents.get(directory.resolve("missing.properties")));
+
+		Map<Path, String> streamed = new HashMap<>();
+		try (Stream<Map.Entry<Path, String>> entries = FileUtils.streamFilesAsStrings(paths, 4)) {
+			entries.forEach(entry -> streamed.put(entry.getKey(), entry.getValue()));
+		}
+		assertEquals(contents, streamed);
+
+		assertTrue(FileUtils.getFilesAsStringsAsync(Collections.emptyList()).get().isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> FileUtils.getFilesAsStringsAsync(paths, 0));
+	}
+
+	@Test
+	void failedFilesAreRethrown(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("config.properties");
+		Files.write(file, "key=value".getBytes(StandardCharsets.UTF_8));
+		List<Path> paths = Arrays.asList(file, null);
+
+		ExecutionException failure = assertThrows(ExecutionException.class, () -> FileUtils.getFilesAsStringsAsync(paths, 2).get(10, TimeUnit.SECONDS));
+		assertTrue(failure.getCause() instanceof NullPointerException);
+		try (Stream<Map.Entry<Path, String>> entries = FileUtils.streamFilesAsStrings(paths, 2)) {
+			CompletionException streamFailure = assertThrows(CompletionException.class, () -> entries.forEach(entry -> assertEquals(file, entry.getKey())));
+			assertTrue(streamFailure.getCause() instanceof NullPointerException);
+		}
+	}
+
+	// Returns at most 3 bytes per read, to split characters between reads
+	private static class TrickleInputStream extends ByteArrayInputStream {
+		TrickleInputStream(byte[] bytes) {
+			super(bytes);
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			return super.read(b, off, Math.min(len, 3));
+		}
+	}
+
+	// Includes characters of two and three bytes in UTF-8
+	private static String textOfLength(int length) {
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; builder.length() < length; i++) {
+			builder.append(i % 50 == 0 ? '\n' : i % 17 == 0 ? 'ö' : i % 31 == 0 ? '€' : (char) ('a' + i % 26));
+		}
+		return builder.toString();
+	}
+
+}
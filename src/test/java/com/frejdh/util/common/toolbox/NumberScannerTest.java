@@ -0,0 +1,82 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NumberScannerTest {
+
+	private static final String[] CANDIDATES = {
+			"0", "-0", "123", "-123", "1.5", "-1.5", "00.001", "1.", ".5", "-", "", "+1", "1e5", "1.5E-3",
+			"1,000", "--1", "1-", " 1", "1 ", "abc", "1.2.3", "١٢٣", "9999999999999999999999"
+	};
+
+	@Test
+	void standardMatchesTheRegex() {
+		for (String candidate : CANDIDATES) {
+			assertEquals(candidate.matches("-?\\d+(\\.\\d+)?"), CommonUtils.isNumeric(candidate), candidate);
+		}
+	}
+
+	@Test
+	void optionalFormats() {
+		NumberScanner scanner = NumberScanner.standard().withExponent(true).withLeadingPlus(true).withGroupingSeparator(',');
+		assertTrue(scanner.isNumeric("+1,234.5e-3"));
+		assertTrue(scanner.isNumeric("1E10"));
+		assertFalse(scanner.isNumeric("1e"));
+		assertFalse(scanner.isNumeric(",1"));
+		assertFalse(scanner.isNumeric("1,"));
+		assertFalse(scanner.isNumeric("1,,000"));
+		assertFalse(scanner.isNumeric("1.000,5"));
+		assertFalse(NumberScanner.standard().isNumeric("1e10"));
+
+		NumberScanner german = NumberScanner.standard().withLocale(Locale.GERMANY);
+		assertEquals(1234.5, german.parseDouble("1.234,5"));
+		assertThrows(IllegalArgumentException.class, () -> NumberScanner.standard().withGroupingSeparator('.'));
+	}
+
+	@Test
+	void parsesRanges() {
+		String line = "id;12.25;-7;x";
+		NumberScanner scanner = NumberScanner.standard();
+		assertTrue(scanner.isNumeric(line, 3, 8));
+		assertFalse(scanner.isNumeric(line, 2, 8));
+		assertEquals(12.25, scanner.parseDouble(line, 3, 8));
+		assertEquals(-7L, scanner.parseLong(line, 9, 11));
+		assertThrows(IndexOutOfBoundsException.class, () -> scanner.isNumeric(line, 10, 20));
+	}
+
+	@Test
+	void parseDoubleMatchesDoubleParser() {
+		NumberScanner scanner = NumberScanner.standard().withExponent(true);
+		Random random = new Random(42);
+		for (int i = 0; i < 10_000; i++) {
+			double value = i % 2 == 0 ? random.nextDouble() * Math.pow(10, random.nextInt(40) - 20) : random.nextInt(1_000_000) / 100.0;
+			String text = Double.toString(random.nextBoolean() ? value : -value);
+			assertEquals(Double.parseDouble(text), scanner.parseDouble(text), text);
+		}
+		for (String text : new String[]{"-0", "0.0", "123456789012345678901234567890", "1e400", "1e-400", "4.9e-324", "0.1000000000000000055511151231257827"}) {
+			assertEquals(Double.parseDouble(text), scanner.parseDouble(text), text);
+		}
+		assertThrows(NumberFormatException.class, () -> scanner.parseDouble("1.e5"));
+	}
+
+	@Test
+	void parseLongChecksRange() {
+		NumberScanner scanner = NumberScanner.standard().withGroupingSeparator('_');
+		assertEquals(Long.MAX_VALUE, scanner.parseLong(Long.toString(Long.MAX_VALUE)));
+		assertEquals(Long.MIN_VALUE, scanner.parseLong(Long.toString(Long.MIN_VALUE)));
+		assertEquals(1_000_000L, scanner.parseLong("1_000_000"));
+		assertThrows(NumberFormatException.class, () -> scanner.parseLong("9223372036854775808"));
+		assertThrows(NumberFormatException.class, () -> scanner.parseLong("1.0"));
+		assertThrows(NumberFormatException.class, () -> scanner.parseLong("+1"));
+		assertThrows(NumberFormatException.class, () -> scanner.parseLong("-"));
+	}
+
+}
@@ -5,7 +5,28 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.EnabledForJreRange;
 import org.junit.jupiter.api.condition.JRE;
 
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class ReflectionUtilsTest {
 
@@ -25,6 +46,230 @@ public class ReflectionUtilsTest {
 		assertEquals("staticFinal", msg);
 	}
 
+	@Test
+	void invokesInheritedMethodsWithPrimitiveParameters() throws Exception {
+		InvocationTestClass instance = new InvocationTestClass();
+		assertEquals(5, ReflectionUtils.invokeMethod(instance, "add", 2, 3));
+		assertEquals("object", ReflectionUtils.invokeMethod(instance, "describe", new Object()));
+		assertEquals("string", ReflectionUtils.invokeMethod(instance, "describe", "text"));
+		assertEquals("string", ReflectionUtils.invokeMethod(instance, "describe", (Object) null)); // Most specific, like the compiler
+		assertEquals("boxed", ReflectionUtils.invokeMethod(instance, "box", 1));
+		assertEquals("static", ReflectionUtils.invokeMethod(instance, "staticMethod"));
+		assertNull(ReflectionUtils.invokeMethod(instance, "nothing"));
+		assertThrows(NoSuchMethodException.class, () -> ReflectionUtils.invokeMethod(instance, "add", 2L, 3L));
+	}
+
+	@Test
+	void invokesTheMostSpecificMethodOfTheHierarchy() throws Exception {
+		OverloadTestClass instance = new OverloadTestClass();
+		assertEquals("inherited string", ReflectionUtils.invokeMethod(instance, "describe", "text"));
+		assertEquals("object", ReflectionUtils.invokeMethod(instance, "describe", new Object()));
+		assertEquals("overridden", ReflectionUtils.invokeMethod(instance, "name", "text"));
+		assertEquals("default", ReflectionUtils.invokeMethod(instance, "greet", "text"));
+	}
+
+	@Test
+	void invocationExceptionsAreWrapped() {
+		RuntimeException e = assertThrows(RuntimeException.class, () -> ReflectionUtils.invokeMethod(new InvocationTestClass(), "fail"));
+		assertEquals(InvocationTargetException.class, e.getCause().getClass());
+		assertEquals("failed", e.getCause().getCause().getMessage());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void invokersAreCachedAndTyped() throws Throwable {
+		MethodInvoker invoker = MethodInvoker.find(InvocationTestClass.class, "add", Integer.class, Integer.class);
+		assertSame(invoker, MethodInvoker.find(InvocationTestClass.class, "add", Integer.class, Integer.class));
+		assertEquals(7, invoker.invoke(new InvocationTestClass(), 3, 4));
+
+		BiFunction<Object, Object, Object> describe = MethodInvoker.find(InvocationTestClass.class, "describe", String.class).asInterface(BiFunction.class);
+		assertEquals("string", describe.apply(new InvocationTestClass(), "text"));
+		assertFalse(Proxy.isProxyClass(describe.getClass())); // Invokes the method directly, like a lambda
+
+		Adder adder = MethodInvoker.find(InvocationBaseClass.class, "add", Integer.class, Integer.class).asInterface(Adder.class);
+		assertEquals(7, adder.add(new InvocationTestClass(), 3, 4)); // A private method, without boxing
+		assertFalse(Proxy.isProxyClass(adder.getClass()));
+		Supplier<Object> staticMethod = MethodInvoker.find(InvocationTestClass.class, "staticMethod").asInterface(Supplier.class);
+		assertEquals("static", staticMethod.get());
+		assertThrows(WrongMethodTypeException.class, () -> MethodInvoker.find(InvocationBaseClass.class, "nothing").asInterface(Supplier.class));
+	}
+
+	public interface Adder {
+		int add(Object instance, int first, int second);
+	}
+
+	@Test
+	void getsAndSetsVariablesThroughAccessors() throws Exception {
+		FieldTestClass instance = new FieldTestClass();
+		assertEquals("final", ReflectionUtils.getVariable(instance, "finalVariable", String.class));
+		assertEquals("base", ReflectionUtils.getVariable(instance, "baseVariable", String.class));
+		assertEquals("staticFinal", ReflectionUtils.getVariable(FieldTestClass.class, "staticFinalVariable", String.class));
+
+		ReflectionUtils.setVariable(instance, "finalVariable", "changed");
+		assertEquals("changed", ReflectionUtils.getVariable(instance, "finalVariable", String.class));
+		ReflectionUtils.setStaticVariable(FieldTestClass.class, "staticVariable", "changed");
+		assertEquals("changed", FieldTestClass.staticVariable);
+		assertThrows(NoSuchFieldException.class, () -> ReflectionUtils.getVariable(instance, "missing", String.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void accessorsAreCachedAndTyped() throws Exception {
+		FieldAccessor<FieldTestClass, String> accessor = FieldAccessor.of(FieldTestClass.class, "baseVariable", String.class);
+		assertSame(accessor, FieldAccessor.of(FieldTestClass.class, "baseVariable", String.class));
+		assertThrows(ClassCastException.class, () -> FieldAccessor.of(FieldTestClass.class, "baseVariable", Integer.class));
+
+		FieldTestClass instance = new FieldTestClass();
+		Function<FieldTestClass, String> getter = accessor.getter();
+		BiConsumer<FieldTestClass, String> setter = accessor.setter();
+		setter.accept(instance, "set");
+		assertEquals("set", getter.apply(instance));
+
+		FieldAccessor<Object, Object> staticFinal = (FieldAccessor<Object, Object>) FieldAccessor.of(FieldTestClass.class, "staticFinalVariable");
+		assertFalse(staticFinal.isWritable());
+		assertThrows(UnsupportedOperationException.class, () -> staticFinal.set(null, "changed"));
+	}
+
+	@Test
+	void primitiveAccessorsDontBox() throws Exception {
+		FieldAccessor<FieldTestClass, Integer> count = FieldAccessor.of(FieldTestClass.class, "count", int.class);
+		ToIntFunction<FieldTestClass> getter = count.intGetter();
+		ObjIntConsumer<FieldTestClass> setter = count.intSetter();
+		ToLongFunction<FieldTestClass> widened = count.longGetter();
+
+		FieldTestClass instance = new FieldTestClass();
+		setter.accept(instance, 5);
+		assertEquals(5, getter.applyAsInt(instance));
+		assertEquals(5L, widened.applyAsLong(instance));
+		assertEquals(Integer.valueOf(5), count.get(instance));
+		assertThrows(IllegalArgumentException.class, count::longSetter); // Narrowing
+		assertThrows(IllegalArgumentException.class, () -> FieldAccessor.of(FieldTestClass.class, "baseVariable").intGetter());
+	}
+
+	@Test
+	void illegalAccessWarningDisablesAreCounted() {
+		ReflectionUtils.IllegalAccessController.disableWarning(false);
+		ReflectionUtils.IllegalAccessController.disableWarning(false);
+		ReflectionUtils.IllegalAccessController.enableWarning(false);
+		assertEquals(ReflectionUtils.IllegalAccessController.WarningState.DISABLED, ReflectionUtils.IllegalAccessController.getState());
+		ReflectionUtils.IllegalAccessController.enableWarning(false);
+		assertEquals(ReflectionUtils.IllegalAccessController.WarningState.ENABLED, ReflectionUtils.IllegalAccessController.getState());
+
+		ReflectionUtils.disableIllegalAccessWarning();
+		ReflectionUtils.IllegalAccessController.disableWarning(false);
+		ReflectionUtils.IllegalAccessController.enableWarning(false);
+		ReflectionUtils.IllegalAccessController.enableWarning(false); // Unmatched enables are ignored
+		assertEquals(ReflectionUtils.IllegalAccessController.WarningState.FORCE_DISABLED, ReflectionUtils.IllegalAccessController.getState());
+		ReflectionUtils.IllegalAccessController.resetForcedState();
+		assertEquals(ReflectionUtils.IllegalAccessController.WarningState.ENABLED, ReflectionUtils.IllegalAccessController.getState());
+		assertEquals(0, ReflectionUtils.IllegalAccessController.getDisableCount());
+	}
+
+	@Test
+	void illegalAccessWarningStateIsThreadSafe() throws Exception {
+		int threadCount = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threadCount; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int j = 0; j < 10_000; j++) {
+						ReflectionUtils.IllegalAccessController.disableWarning(false);
+						ReflectionUtils.IllegalAccessController.enableWarning(false);
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(0, ReflectionUtils.IllegalAccessController.getDisableCount());
+		assertEquals(ReflectionUtils.IllegalAccessController.WarningState.ENABLED, ReflectionUtils.IllegalAccessController.getState());
+	}
+
+	public static class InvocationBaseClass {
+		private int add(int first, int second) {
+			return first + second;
+		}
+
+		protected String describe(Object value) {
+			return "object";
+		}
+
+		void nothing() {
+		}
+
+		String box(int value) {
+			return "primitive";
+		}
+	}
+
+	public static class InvocationTestClass extends InvocationBaseClass {
+		public String describe(String value) {
+			return "string";
+		}
+
+		String box(Integer value) {
+			return "boxed";
+		}
+
+		static String staticMethod() {
+			return "static";
+		}
+
+		void fail() {
+			throw new IllegalStateException("failed");
+		}
+	}
+
+	public interface Greeter {
+		default String greet(String name) {
+			return "default";
+		}
+	}
+
+	public static class OverloadBaseClass {
+		String describe(String value) {
+			return "inherited string";
+		}
+
+		String name(String value) {
+			return "base";
+		}
+	}
+
+	public static class OverloadTestClass extends OverloadBaseClass implements Greeter {
+		String describe(Object value) {
+			return "object";
+		}
+
+		@Override
+		String name(String value) {
+			return "overridden";
+		}
+
+		String greet(Object name) {
+			return "object";
+		}
+	}
+
+	public static class FieldBaseClass {
+		private String baseVariable = "base";
+	}
+
+	public static class FieldTestClass extends FieldBaseClass {
+		private final String finalVariable = "final";
+		private static final String staticFinalVariable = "staticFinal";
+		private static String staticVariable = "static";
+		private int count;
+	}
+
 	public static class ReflectionTestClass {
 		private final String finalVariable = "final";
 		private static final String staticFinalVariable = "staticFinal";
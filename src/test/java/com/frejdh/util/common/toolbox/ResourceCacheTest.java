@@ -0,0 +1,82 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ResourceCacheTest {
+
+	private static final String SERVICES = "META-INF/services/com.frejdh.util.common.compiled.CompiledAccessor";
+	private static final String CLASS_FILE = "com/frejdh/util/common/toolbox/ResourceCacheTest.class";
+
+	@Test
+	void resourcesAreReadOnce() throws Exception {
+		ResourceCache cache = new ResourceCache(1024 * 1024);
+		String services = cache.getString(SERVICES);
+		assertEquals(read(SERVICES), services);
+		assertSame(services, cache.getString("/" + SERVICES));
+		assertArrayEquals(services.getBytes(StandardCharsets.UTF_8), cache.getBytes(SERVICES));
+		try (InputStream in = cache.getStream(SERVICES)) {
+			assertEquals(services, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		}
+		assertNull(cache.getString("missing.txt"));
+
+		ResourceCache.Stats stats = cache.getStats();
+		assertEquals(3, stats.getHits());
+		assertEquals(2, stats.getMisses()); // Including the missing resource
+		assertEquals(1, stats.getEntryCount());
+		assertEquals(services.length() * 3L, stats.getSize()); // ASCII bytes and the string
+		assertEquals(0.6, stats.getHitRate(), 0.0001);
+	}
+
+	@Test
+	void leastRecentlyUsedResourcesAreEvicted() throws Exception {
+		int servicesSize = read(SERVICES).length();
+		int classSize = FileUtils.getResourceFileAsStream(CLASS_FILE).readAllBytes().length;
+		ResourceCache cache = new ResourceCache(servicesSize + classSize);
+		cache.getBytes(SERVICES);
+		cache.getBytes(CLASS_FILE);
+		assertEquals(0, cache.getStats().getEvictions());
+
+		cache.getString(SERVICES); // The decoded string exceeds the maximum size, and the class file is the least recently used
+		assertEquals(1, cache.getStats().getEvictions());
+		assertEquals(1, cache.getStats().getEntryCount());
+		cache.getBytes(SERVICES);
+		assertEquals(2, cache.getStats().getHits());
+		assertEquals(2, cache.getStats().getMisses());
+
+		cache.invalidate(SERVICES);
+		assertEquals(0, cache.getStats().getEntryCount());
+		assertEquals(0, cache.getStats().getSize());
+		cache.getBytes(SERVICES);
+		cache.invalidateAll();
+		assertEquals(0, cache.getStats().getSize());
+		assertEquals(3, cache.getStats().getMisses());
+	}
+
+	@Test
+	void fileUtilsUsesTheCache() {
+		ResourceCache cache = new ResourceCache(1024 * 1024);
+		FileUtils.setResourceCache(cache);
+		try {
+			assertNotNull(FileUtils.getResourceFileAsString(SERVICES));
+			assertNotNull(FileUtils.getResourceFileAsStream(SERVICES));
+			assertEquals(1, cache.getStats().getHits());
+		} finally {
+			FileUtils.setResourceCache(null);
+		}
+		assertNull(FileUtils.getResourceCache());
+	}
+
+	private static String read(String relativePath) {
+		return FileUtils.getResourceFileAsString(relativePath);
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.frejdh.util.common.toolbox;
+
+import com.frejdh.util.common.serialization.Serializer;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SerializeUtilsTest {
+
+	@Test
+	void jsonFilesArePlainJson(@TempDir Path directory) throws Exception {
+		Entry entry = new Entry("first", 3, List.of("a", "b"));
+		SerializeUtils.serializeToJsonFile(directory.toString(), "pretty.json", entry);
+		SerializeUtils.serializeToJsonFile(directory.toString(), "compact.json", entry, false);
+
+		String pretty = Files.readString(directory.resolve("pretty.json"));
+		String compact = Files.readString(directory.resolve("compact.json"));
+		assertTrue(pretty.contains("\n  \"name\": \"first\""));
+		assertEquals("{\"name\":\"first\",\"count\":3,\"tags\":[\"a\",\"b\"]}", compact);
+
+		assertEquals(entry, SerializeUtils.deserializeFromJsonFile(directory.toString(), "pretty.json", Entry.class));
+		assertEquals(entry, SerializeUtils.deserializeFromJsonFile(directory.toString(), "compact.json", Entry.class));
+	}
+
+	@Test
+	void legacyJsonFilesAreRead(@TempDir Path directory) throws Exception {
+		Entry entry = new Entry("legacy", 1, List.of());
+		// Earlier versions stored the JSON as a serialized string
+		SerializeUtils.serializeToFile(directory.toString(), "legacy.json", new Gson().toJson(entry), Serializer.java());
+
+		assertEquals(entry, SerializeUtils.deserializeFromJsonFile(directory.toString(), "legacy.json", Entry.class));
+	}
+
+	@Test
+	void legacyJsonFilesOnlyHoldStrings(@TempDir Path directory) throws Exception {
+		SerializeUtils.serializeToFile(directory.toString(), "object.json", new Hooked(), Serializer.java());
+
+		assertThrows(IOException.class, () -> SerializeUtils.deserializeFromJsonFile(directory.toString(), "object.json", Entry.class));
+		assertFalse(Hooked.read); // Rejected before it was read
+	}
+
+	@Test
+	void nullAndMalformedJson(@TempDir Path directory) throws Exception {
+		SerializeUtils.serializeToJsonFile(directory.toString(), "null.json", null);
+		assertNull(SerializeUtils.deserializeFromJsonFile(directory.toString(), "null.json", Entry.class));
+
+		Files.write(directory.resolve("broken.json"), "{\"name\": \"x\"} trailing".getBytes(StandardCharsets.UTF_8));
+		assertThrows(IOException.class, () -> SerializeUtils.deserializeFromJsonFile(directory.toString(), "broken.json", Entry.class));
+		assertFalse(Files.exists(directory.resolve("missing.json")));
+		assertThrows(IOException.class, () -> SerializeUtils.deserializeFromJsonFile(directory.toString(), "missing.json", Entry.class));
+	}
+
+	static class Hooked implements Serializable {
+		static volatile boolean read;
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			read = true;
+		}
+	}
+
+	static class Entry {
+		String name;
+		int count;
+		List<String> tags;
+
+		Entry(String name, int count, List<String> tags) {
+			this.name = name;
+			this.count = count;
+			this.tags = tags;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Entry && FieldEquality.of(Entry.class).fieldsEqual(this, (Entry) o);
+		}
+
+		@Override
+		public int hashCode() {
+			return FieldEquality.of(Entry.class).fieldsHashCode(this);
+		}
+	}
+
+}
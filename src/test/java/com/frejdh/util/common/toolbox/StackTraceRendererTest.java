@@ -0,0 +1,91 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StackTraceRendererTest {
+
+	@Test
+	void defaultsMatchPrintStackTrace() {
+		IllegalStateException cause = new IllegalStateException("cause");
+		RuntimeException exception = new RuntimeException("exception", cause);
+		exception.addSuppressed(new IllegalArgumentException("suppressed"));
+		cause.initCause(exception); // Circular
+
+		StringWriter expected = new StringWriter();
+		exception.printStackTrace(new PrintWriter(expected));
+		assertEquals(expected.toString(), CommonUtils.stacktraceToString(exception));
+	}
+
+	@Test
+	void frameBudgetIsShared() {
+		RuntimeException exception = new RuntimeException("exception", recurse(20));
+		String rendered = StackTraceRenderer.defaults().withMaxFrames(5).toString(exception);
+		assertEquals(5, count(rendered, "\tat "));
+		assertTrue(rendered.contains(" frames omitted"));
+		assertTrue(rendered.contains("Caused by: java.lang.IllegalStateException: depth"));
+	}
+
+	@Test
+	void characterBudgetTruncates() {
+		String rendered = StackTraceRenderer.defaults().withMaxChars(100).toString(recurse(50));
+		assertTrue(rendered.startsWith("java.lang.IllegalStateException: depth"));
+		assertTrue(rendered.endsWith("\t... [truncated]" + System.lineSeparator()));
+		assertTrue(rendered.length() < 150);
+	}
+
+	@Test
+	void recursionIsFolded() {
+		String rendered = StackTraceRenderer.defaults().withFolding(true).toString(recurse(100));
+		assertEquals(1, count(rendered, "at com.frejdh.util.common.toolbox.StackTraceRendererTest.recurse("));
+		assertTrue(rendered.contains("\t... above 1 frame repeated 100 more times")); // 101 frames, as the depth is counted down to 0
+
+		rendered = StackTraceRenderer.defaults().withFolding(true).toString(recurse(2));
+		assertEquals(1, count(rendered, "at com.frejdh.util.common.toolbox.StackTraceRendererTest.recurse("));
+		assertTrue(rendered.contains("\t... above 1 frame repeated 2 more times"));
+	}
+
+	@Test
+	void repeatedCausesAreFolded() {
+		Throwable throwable = new IllegalStateException("root");
+		for (int i = 0; i < 5; i++) {
+			throwable = wrap(throwable);
+		}
+		String rendered = StackTraceRenderer.defaults().withFolding(true).toString(new RuntimeException(throwable));
+		assertEquals(1, count(rendered, "Caused by: java.lang.RuntimeException: wrapped"));
+		assertTrue(rendered.contains("\t... cause repeated 4 more times"));
+		assertTrue(rendered.contains("Caused by: java.lang.IllegalStateException: root"));
+	}
+
+	@Test
+	void packagesAreSkipped() {
+		String rendered = StackTraceRenderer.defaults()
+				.withSkippedPackages("com.frejdh.util.common")
+				.toString(recurse(3));
+		assertFalse(rendered.contains("at com.frejdh.util.common."));
+		assertTrue(rendered.contains(" frames skipped"));
+	}
+
+	private static Throwable wrap(Throwable cause) {
+		return new RuntimeException("wrapped", cause);
+	}
+
+	private static IllegalStateException recurse(int depth) {
+		return depth <= 0 ? new IllegalStateException("depth") : recurse(depth - 1);
+	}
+
+	private static int count(String text, String part) {
+		int count = 0;
+		for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+			count++;
+		}
+		return count;
+	}
+
+}
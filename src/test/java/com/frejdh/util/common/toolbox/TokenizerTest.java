@@ -0,0 +1,76 @@
+package com.frejdh.util.common.toolbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenizerTest {
+
+	@Test
+	void matchesRegexSplit() {
+		String[] texts = {
+				"", " ", "a", "a,b", " a , b ", ",a", "a,", "a,,", ",,", ",", "a,,b", "a , , b", "a;b,c", "\ta\n,\rb",
+				"a ,", " ,a", "a b", "a ; ,b"
+		};
+		for (String text : texts) {
+			assertEquals(regexSplit(text, ",;"), CommonUtils.stringToList(text, ",;"), "'" + text + "'");
+		}
+	}
+
+	@Test
+	void whitespaceSeparatorsMatchRegexSplit() {
+		String[] texts = {"a b", "a  b", " a b ", "a , b", "a,  b", "  ", "a \t b"};
+		for (String text : texts) {
+			assertEquals(regexSplit(text, ", "), Tokenizer.of(", ").split(text), "'" + text + "'");
+		}
+	}
+
+	@Test
+	void randomTextMatchesRegexSplit() {
+		Random random = new Random(7);
+		char[] alphabet = {'a', 'b', ' ', '\t', ',', ';', 'é'};
+		for (int i = 0; i < 5_000; i++) {
+			char[] text = new char[random.nextInt(12)];
+			for (int j = 0; j < text.length; j++) {
+				text[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			String string = new String(text);
+			assertEquals(regexSplit(string, ",é"), Tokenizer.of(",é").split(string), "'" + string + "'");
+		}
+	}
+
+	@Test
+	void lazyTokensAreViews() {
+		Tokenizer tokenizer = Tokenizer.of(",");
+		Iterator<CharSequence> iterator = tokenizer.iterator("a , b,,c,,");
+		List<String> tokens = new ArrayList<>();
+		iterator.forEachRemaining(token -> tokens.add(token.toString()));
+		assertEquals(Arrays.asList("a", "b", "", "c"), tokens);
+		assertFalse(iterator.hasNext());
+
+		assertEquals(Arrays.asList("x", "y"), tokenizer.stream("x, y").map(CharSequence::toString).collect(Collectors.toList()));
+		assertEquals(Arrays.asList("first", "x"), tokenizer.splitInto("x", new ArrayList<>(List.of("first"))));
+	}
+
+	@Test
+	void separatorsAreLiteral() {
+		assertEquals(Arrays.asList("a", "b"), CommonUtils.stringToList("a]b", "]"));
+		assertEquals(Arrays.asList("abc"), CommonUtils.stringToList("abc", "^-")); // Previously a negated character class
+		assertEquals(Arrays.asList("a", "c"), CommonUtils.stringToList("a-c", "-"));
+		assertThrows(IllegalArgumentException.class, () -> Tokenizer.of(""));
+	}
+
+	private static List<String> regexSplit(String text, String separators) {
+		return Arrays.asList(text.split("\\s*[" + separators + "]\\s*")); // The previous implementation of stringToList
+	}
+
+}